@@ -0,0 +1,51 @@
+package uaigroup.mapservice.service;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line, but writes results as JSON
+ * to target/jmh-results/ unless -rf/-rff say otherwise. The file name carries the commit given
+ * with -Dbenchmark.commit (or BENCHMARK_COMMIT), so runs of different commits can be compared.
+ */
+public final class BenchmarkRunner {
+
+    private static final String RESULTS_DIRECTORY = "target/jmh-results";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            new File(RESULTS_DIRECTORY).mkdirs();
+            options.result(RESULTS_DIRECTORY + "/" + resultName() + ".json");
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String resultName() {
+        String commit = System.getProperty("benchmark.commit", System.getenv("BENCHMARK_COMMIT"));
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        return commit != null && !commit.isBlank() ? commit + "-" + timestamp : timestamp;
+    }
+}
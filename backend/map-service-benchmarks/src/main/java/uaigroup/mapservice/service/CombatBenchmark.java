@@ -0,0 +1,41 @@
+package uaigroup.mapservice.service;
+
+import org.openjdk.jmh.annotations.*;
+import uaigroup.mapservice.model.GeneralUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CombatEngine.resolve over every unit of a world: a single step, and a 10 minute battle in 10 s steps
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombatBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int unitCount;
+
+    private CombatEngine combatEngine;
+    private List<GeneralUnit> units;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        combatEngine = new CombatEngine(new UnitCharacteristicsService());
+        units = SyntheticWorld.units(unitCount);
+    }
+
+    @Benchmark
+    public CombatEngine.CombatResult singleStep() {
+        return combatEngine.resolve(units, new CombatEngine.CombatSettings(SyntheticWorld.SEED, 1, 10));
+    }
+
+    @Benchmark
+    public CombatEngine.CombatResult tenMinuteBattle() {
+        return combatEngine.resolve(units, new CombatEngine.CombatSettings(SyntheticWorld.SEED, 60, 10));
+    }
+}
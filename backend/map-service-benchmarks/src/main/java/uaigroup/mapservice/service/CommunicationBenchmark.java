@@ -0,0 +1,111 @@
+package uaigroup.mapservice.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.UnitType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distance, comms link lookups and faction-wide coverage scans of CommunicationService against an in-memory world
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommunicationBenchmark {
+
+    // Units looked up per findBestCommsLink invocation
+    private static final int PROBES = 256;
+
+    @Param({"1000", "10000", "100000"})
+    public int unitCount;
+
+    private CommunicationService communicationService;
+    private Position origin;
+    private Position[] positions;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] distances;
+    private int[] hits;
+    private GeneralUnit[] probes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<GeneralUnit> units = SyntheticWorld.units(unitCount);
+        communicationService = SyntheticWorld.communicationService(SyntheticWorld.store(units));
+        origin = units.get(0).getPosition();
+        positions = units.stream().map(GeneralUnit::getPosition).toArray(Position[]::new);
+        latitudes = units.stream().mapToDouble(unit -> unit.getPosition().getLatitude()).toArray();
+        longitudes = units.stream().mapToDouble(unit -> unit.getPosition().getLongitude()).toArray();
+        distances = new double[unitCount];
+        hits = new int[unitCount];
+        probes = new GeneralUnit[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            int index = (i * 7919 + 3) % unitCount;
+            // Communications units link to themselves without a lookup
+            while (units.get(index).getUnitType() == UnitType.COMMUNICATIONS) {
+                index = (index + 1) % unitCount;
+            }
+            probes[i] = units.get(index);
+        }
+    }
+
+    /**
+     * One origin against every unit, the shape of a range scan
+     */
+    @Benchmark
+    public double calculateDistanceToAll() {
+        double sum = 0;
+        for (Position position : positions) {
+            sum += communicationService.calculateDistance(origin, position);
+        }
+        return sum;
+    }
+
+    /**
+     * The same scan through the batched kernel
+     */
+    @Benchmark
+    public double[] approxDistancesToAll() {
+        GeoDistance.approxDistancesKm(origin.getLatitude(), origin.getLongitude(), latitudes, longitudes,
+                unitCount, distances);
+        return distances;
+    }
+
+    /**
+     * One comms-sized range check over every unit, exact at the boundary
+     */
+    @Benchmark
+    public int withinRangeOfAll() {
+        return GeoDistance.withinRangeKm(origin.getLatitude(), origin.getLongitude(), latitudes, longitudes,
+                unitCount, 8.0, distances, hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void findBestCommsLink(Blackhole blackhole) {
+        for (GeneralUnit probe : probes) {
+            blackhole.consume(communicationService.findBestCommsLink(probe));
+        }
+    }
+
+    /**
+     * Every unit of a faction against every comms unit of it, read from the unit columns
+     */
+    @Benchmark
+    public List<GeneralUnit> getIsolatedUnits() {
+        return communicationService.getIsolatedUnits(Faction.BLUE_FORCE);
+    }
+
+    @Benchmark
+    public CommunicationService.CommsCoverageStats getCoverageStats() {
+        return communicationService.getCoverageStats(Faction.BLUE_FORCE);
+    }
+}
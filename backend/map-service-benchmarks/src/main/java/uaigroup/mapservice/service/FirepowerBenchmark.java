@@ -0,0 +1,55 @@
+package uaigroup.mapservice.service;
+
+import org.openjdk.jmh.annotations.*;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.UnitRank;
+import uaigroup.mapservice.model.UnitType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UnitCharacteristicsService.calculateFirepower over every unit of a world
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FirepowerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int unitCount;
+
+    private UnitCharacteristicsService characteristicsService;
+    private int[] vehicles;
+    private int[] supplyLevels;
+    private int[] personnel;
+    private UnitType[] unitTypes;
+    private Faction[] factions;
+    private UnitRank[] ranks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        characteristicsService = new UnitCharacteristicsService();
+        List<GeneralUnit> units = SyntheticWorld.units(unitCount);
+        vehicles = units.stream().mapToInt(GeneralUnit::getVehicles).toArray();
+        supplyLevels = units.stream().mapToInt(GeneralUnit::getSupplyLevel).toArray();
+        personnel = units.stream().mapToInt(GeneralUnit::getPersonnel).toArray();
+        unitTypes = units.stream().map(GeneralUnit::getUnitType).toArray(UnitType[]::new);
+        factions = units.stream().map(GeneralUnit::getFaction).toArray(Faction[]::new);
+        ranks = units.stream().map(GeneralUnit::getUnitRank).toArray(UnitRank[]::new);
+    }
+
+    @Benchmark
+    public long calculateFirepower() {
+        long total = 0;
+        for (int i = 0; i < unitCount; i++) {
+            total += characteristicsService.calculateFirepower(
+                    vehicles[i], supplyLevels[i], personnel[i], unitTypes[i], factions[i], ranks[i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,41 @@
+package uaigroup.mapservice.service;
+
+import org.openjdk.jmh.annotations.*;
+import uaigroup.mapservice.model.FormationType;
+import uaigroup.mapservice.model.Position;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FormationService.calculateFormationPositions for every formation type
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int unitCount;
+
+    // Empty means every FormationType constant
+    @Param
+    public FormationType formationType;
+
+    private FormationService formationService;
+    private Position hqPosition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        formationService = new FormationService(null, null, new UnitCharacteristicsService());
+        hqPosition = new Position(48.5, 35.0);
+    }
+
+    @Benchmark
+    public List<Position> calculateFormationPositions() {
+        return formationService.calculateFormationPositions(hqPosition, formationType, unitCount, 100, 45);
+    }
+}
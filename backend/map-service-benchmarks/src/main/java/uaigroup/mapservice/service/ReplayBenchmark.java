@@ -0,0 +1,103 @@
+package uaigroup.mapservice.service;
+
+import org.openjdk.jmh.annotations.*;
+import uaigroup.mapservice.model.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replay capture costs: deep-copying the world for a snapshot and updating the running statistics.
+ * Statistics are maintained incrementally since they stopped being computed at stopRecording,
+ * so the per-snapshot update and the read are what is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    @Param({"1000", "10000", "100000"})
+    public int unitCount;
+
+    private List<GeneralUnit> units;
+    private BattleSnapshot firstSnapshot;
+    private BattleSnapshot lastSnapshot;
+    private BattleEvent[] events;
+    private LocalDateTime startTime;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        units = SyntheticWorld.units(unitCount);
+        startTime = LocalDateTime.now().minusHours(1);
+        firstSnapshot = SyntheticWorld.snapshot(units, 1);
+
+        // A tenth of the starting units destroyed by the end
+        List<GeneralUnit> survivors = new ArrayList<>(units.size());
+        for (int i = 0; i < units.size(); i++) {
+            if (i % 10 != 3) {
+                survivors.add(units.get(i));
+            }
+        }
+        lastSnapshot = SyntheticWorld.snapshot(survivors, 360);
+
+        events = new BattleEvent[unitCount];
+        for (int i = 0; i < unitCount; i++) {
+            events[i] = BattleEvent.builder()
+                    .sequence(i + 1)
+                    .timestamp(startTime.plusSeconds(i))
+                    .eventType(EVENT_TYPES[i % EVENT_TYPES.length])
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public List<GeneralUnit> copyUnits() {
+        List<GeneralUnit> copies = new ArrayList<>(units.size());
+        for (GeneralUnit unit : units) {
+            copies.add(BattleReplayService.copyUnit(unit));
+        }
+        return copies;
+    }
+
+    /**
+     * What a capture adds to a running recording: one snapshot update and a statistics read
+     */
+    @Benchmark
+    public ReplayStatistics statisticsPerSnapshot(StatisticsState state) {
+        state.accumulator.onSnapshot(lastSnapshot);
+        return state.accumulator.toStatistics(startTime.plusHours(1));
+    }
+
+    /**
+     * Rebuilding statistics from scratch, as for a recording resumed after a restart: first and
+     * last snapshot plus one event per unit
+     */
+    @Benchmark
+    public ReplayStatistics statisticsRebuild() {
+        ReplayStatisticsAccumulator accumulator = new ReplayStatisticsAccumulator(startTime);
+        accumulator.onSnapshot(firstSnapshot);
+        accumulator.onSnapshot(lastSnapshot);
+        for (BattleEvent event : events) {
+            accumulator.onEvent(event);
+        }
+        return accumulator.toStatistics(startTime.plusHours(1));
+    }
+
+    @State(Scope.Thread)
+    public static class StatisticsState {
+        ReplayStatisticsAccumulator accumulator;
+
+        @Setup(Level.Trial)
+        public void setUp(ReplayBenchmark benchmark) {
+            accumulator = new ReplayStatisticsAccumulator(benchmark.startTime);
+            accumulator.onSnapshot(benchmark.firstSnapshot);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.*;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic battlefield for the benchmarks: the same seed and size always
+ * give the same units. The area grows with the unit count so density stays roughly that
+ * of a 1k-unit battle, and one unit in ten is a communications unit, split evenly between factions.
+ */
+final class SyntheticWorld {
+
+    static final long SEED = 20240521L;
+
+    private static final double ORIGIN_LATITUDE = 48.5;
+    private static final double ORIGIN_LONGITUDE = 35.0;
+    // Side of the square holding 1000 units, in degrees
+    private static final double BASE_SPAN_DEGREES = 0.5;
+
+    private static final UnitType[] COMBAT_TYPES = {
+            UnitType.INFANTRY, UnitType.MECHANIZED, UnitType.TANKS, UnitType.ANTI_TANK,
+            UnitType.RECONNAISSANCE, UnitType.HOWITZER, UnitType.MORTAR, UnitType.AIR_DEFENSE
+    };
+
+    private static final UnitCharacteristicsService CHARACTERISTICS = new UnitCharacteristicsService();
+
+    private SyntheticWorld() {
+    }
+
+    static List<GeneralUnit> units(int count) {
+        return units(count, SEED);
+    }
+
+    static List<GeneralUnit> units(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double span = BASE_SPAN_DEGREES * Math.sqrt(count / 1000.0);
+        UnitRank[] ranks = UnitRank.values();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<GeneralUnit> units = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Faction faction = i % 2 == 0 ? Faction.BLUE_FORCE : Faction.RED_FORCE;
+            UnitType type = i % 20 < 2 ? UnitType.COMMUNICATIONS : COMBAT_TYPES[random.nextInt(COMBAT_TYPES.length)];
+            UnitCharacteristicsService.UnitCharacteristics characteristics = CHARACTERISTICS.getCharacteristics(type, faction);
+
+            GeneralUnit unit = new GeneralUnit();
+            unit.setId(String.format("unit-%08d", i));
+            unit.setUserId(faction == Faction.BLUE_FORCE ? "blue-commander" : "red-commander");
+            unit.setUnitType(type);
+            unit.setFaction(faction);
+            unit.setUnitRank(ranks[random.nextInt(ranks.length)]);
+            unit.setPosition(new Position(
+                    ORIGIN_LATITUDE + random.nextDouble() * span,
+                    ORIGIN_LONGITUDE + random.nextDouble() * span));
+            unit.setStatus(Status.DEFENDING);
+            unit.setPersonnel(10 + random.nextInt(490));
+            unit.setVehicles(random.nextInt(50));
+            unit.setSupplyLevel(20 + random.nextInt(81));
+            unit.setMorale(30 + random.nextInt(71));
+            unit.setDirection(random.nextInt(360));
+            unit.setMobility(characteristics.getMobility());
+            unit.setFirepowerBase(characteristics.getFirepowerBase());
+            unit.setDefense(characteristics.getDefense());
+            unit.setRange(characteristics.getRange());
+            unit.setCommsStrength(random.nextInt(101));
+            unit.setHasCommsLink(random.nextBoolean());
+            unit.setCreatedAt(now);
+            unit.setUpdatedAt(now);
+            units.add(unit);
+        }
+        return units;
+    }
+
+    /**
+     * An in-memory world store holding the units; nothing is loaded from or flushed to Mongo
+     */
+    static WorldStateStore store(List<GeneralUnit> units) {
+        WorldStateStore store = new WorldStateStore(null, null, null, null, event -> { }, 0.05, 64);
+        store.saveUnits(units);
+        return store;
+    }
+
+    static CommunicationService communicationService(WorldStateStore store) {
+        CommunicationService service = new CommunicationService();
+        inject(service, "worldStateStore", store);
+        return service;
+    }
+
+    static BattleSnapshot snapshot(List<GeneralUnit> units, int snapshotNumber) {
+        return BattleSnapshot.builder()
+                .timestamp(LocalDateTime.now())
+                .units(units)
+                .obstacles(List.of())
+                .activeActions(List.of())
+                .snapshotNumber(snapshotNumber)
+                .build();
+    }
+
+    private static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
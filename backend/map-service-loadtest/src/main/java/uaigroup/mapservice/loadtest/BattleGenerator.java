@@ -0,0 +1,152 @@
+package uaigroup.mapservice.loadtest;
+
+import uaigroup.mapservice.model.*;
+import uaigroup.mapservice.service.UnitCharacteristicsService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic battle: the same seed and sizes always give the same units,
+ * obstacles and scripts. Blue holds the western half of the area, red the eastern half,
+ * and every script drives red units west with MOVE, ATTACK and DEFEND actions.
+ */
+final class BattleGenerator {
+
+    static final String BLUE_USER = "loadtest-blue";
+    static final String RED_USER = "loadtest-red";
+
+    private static final double ORIGIN_LATITUDE = 48.5;
+    private static final double ORIGIN_LONGITUDE = 35.0;
+    // Side of the square holding 1000 units, in degrees
+    private static final double BASE_SPAN_DEGREES = 0.5;
+
+    private static final UnitType[] COMBAT_TYPES = {
+            UnitType.INFANTRY, UnitType.MECHANIZED, UnitType.TANKS, UnitType.ANTI_TANK,
+            UnitType.RECONNAISSANCE, UnitType.HOWITZER, UnitType.MORTAR, UnitType.AIR_DEFENSE
+    };
+    private static final ActionType[] SCRIPT_ACTIONS = {ActionType.MOVE, ActionType.ATTACK, ActionType.DEFEND};
+
+    private final SplittableRandom random;
+    private final double span;
+    private final UnitCharacteristicsService characteristicsService = new UnitCharacteristicsService();
+
+    BattleGenerator(long seed, int unitCount) {
+        this.random = new SplittableRandom(seed);
+        this.span = BASE_SPAN_DEGREES * Math.sqrt(Math.max(unitCount, 1) / 1000.0);
+    }
+
+    List<GeneralUnit> units(int count) {
+        UnitRank[] ranks = UnitRank.values();
+        List<GeneralUnit> units = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Faction faction = i % 2 == 0 ? Faction.BLUE_FORCE : Faction.RED_FORCE;
+            UnitType type = i % 20 < 2 ? UnitType.COMMUNICATIONS : COMBAT_TYPES[random.nextInt(COMBAT_TYPES.length)];
+            UnitCharacteristicsService.UnitCharacteristics characteristics =
+                    characteristicsService.getCharacteristics(type, faction);
+            UnitRank rank = ranks[random.nextInt(ranks.length)];
+
+            GeneralUnit unit = new GeneralUnit();
+            unit.setUserId(faction == Faction.BLUE_FORCE ? BLUE_USER : RED_USER);
+            unit.setUnitType(type);
+            unit.setFaction(faction);
+            unit.setUnitRank(rank);
+            unit.setPosition(positionIn(faction));
+            unit.setStatus(Status.DEFENDING);
+            unit.setPersonnel(characteristicsService.getBasePersonnel(rank));
+            unit.setVehicles(characteristicsService.getBaseVehicles(rank));
+            unit.setSupplyLevel(60 + random.nextInt(41));
+            unit.setMorale(60 + random.nextInt(41));
+            unit.setDirection(faction == Faction.BLUE_FORCE ? 90 : 270);
+            unit.setMobility(characteristics.getMobility());
+            unit.setFirepowerBase(characteristics.getFirepowerBase());
+            unit.setDefense(characteristics.getDefense());
+            unit.setRange(characteristics.getRange());
+            unit.setFirepower(characteristicsService.calculateFirepower(unit.getVehicles(), unit.getSupplyLevel(),
+                    unit.getPersonnel(), type, faction, rank));
+            units.add(unit);
+        }
+        return units;
+    }
+
+    List<Obstacle> obstacles(int count) {
+        ObstacleType[] types = ObstacleType.values();
+        List<Obstacle> obstacles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Along the line of contact in the middle of the area
+            Position start = new Position(
+                    ORIGIN_LATITUDE + random.nextDouble() * span,
+                    ORIGIN_LONGITUDE + span / 2 + (random.nextDouble() - 0.5) * span * 0.1);
+            Obstacle obstacle = new Obstacle();
+            obstacle.setType(types[random.nextInt(types.length)]);
+            obstacle.setCreatedBy(BLUE_USER);
+            obstacle.setStartPosition(start);
+            obstacle.setEndPosition(new Position(start.getLatitude() + 0.005, start.getLongitude()));
+            obstacles.add(obstacle);
+        }
+        return obstacles;
+    }
+
+    /**
+     * Scripts of red units; call after the units were saved, so their IDs are known
+     */
+    List<GeneratedScript> scripts(int count, int actionsPerScript, List<GeneralUnit> units) {
+        List<GeneralUnit> redUnits = units.stream()
+                .filter(unit -> unit.getFaction() == Faction.RED_FORCE)
+                .toList();
+        List<GeneratedScript> scripts = new ArrayList<>(count);
+        if (redUnits.isEmpty()) {
+            return scripts;
+        }
+
+        for (int i = 0; i < count; i++) {
+            Script script = new Script();
+            script.setUserId(RED_USER);
+            script.setName("Load test offensive " + (i + 1));
+            script.setTargetFaction(Faction.RED_FORCE);
+            script.setTotalActions(actionsPerScript);
+
+            List<ScriptAction> actions = new ArrayList<>(actionsPerScript);
+            for (int order = 1; order <= actionsPerScript; order++) {
+                GeneralUnit unit = redUnits.get(random.nextInt(redUnits.size()));
+                ScriptAction action = new ScriptAction();
+                action.setUnitId(unit.getId());
+                action.setExecutionOrder(order);
+                action.setActionType(SCRIPT_ACTIONS[random.nextInt(SCRIPT_ACTIONS.length)]);
+                action.setPriority(ActionPriority.MEDIUM);
+                action.setTriggerType(order == 1 ? TriggerType.IMMEDIATE : TriggerType.TIME_BASED);
+                action.setDelaySeconds(order == 1 ? null : 1 + random.nextInt(3));
+                action.setCondition(TriggerCondition.NONE);
+                action.setTargetPosition(new Position(
+                        unit.getPosition().getLatitude() + (random.nextDouble() - 0.5) * 0.01,
+                        unit.getPosition().getLongitude() - random.nextDouble() * 0.02));
+                action.setStatus(ActionStatus.PENDING);
+                actions.add(action);
+            }
+            scripts.add(new GeneratedScript(script, actions));
+        }
+        return scripts;
+    }
+
+    /**
+     * A point near position, the same for the same arguments
+     */
+    static Position jitter(Position position, long seed, double maxOffsetDegrees) {
+        SplittableRandom jitter = new SplittableRandom(seed);
+        return new Position(
+                position.getLatitude() + (jitter.nextDouble() - 0.5) * 2 * maxOffsetDegrees,
+                position.getLongitude() + (jitter.nextDouble() - 0.5) * 2 * maxOffsetDegrees);
+    }
+
+    Position center() {
+        return new Position(ORIGIN_LATITUDE + span / 2, ORIGIN_LONGITUDE + span / 2);
+    }
+
+    private Position positionIn(Faction faction) {
+        double longitudeOffset = random.nextDouble() * span / 2 + (faction == Faction.BLUE_FORCE ? 0 : span / 2);
+        return new Position(ORIGIN_LATITUDE + random.nextDouble() * span, ORIGIN_LONGITUDE + longitudeOffset);
+    }
+
+    record GeneratedScript(Script script, List<ScriptAction> actions) {}
+}
@@ -0,0 +1,66 @@
+package uaigroup.mapservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import uaigroup.mapservice.model.*;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Commanders dragging formations around: each move repositions the headquarters and every
+ * subordinate unit of the formation
+ */
+final class FormationMovesScenario implements Scenario {
+
+    private static final FormationType[] FORMATION_TYPES = FormationType.values();
+
+    private final int formationCount;
+    private final List<String> formationIds = new ArrayList<>();
+    private final List<Position> headquarters = new ArrayList<>();
+
+    FormationMovesScenario(int formationCount) {
+        this.formationCount = formationCount;
+    }
+
+    @Override
+    public String name() {
+        return "formation-moves";
+    }
+
+    @Override
+    public void setUp(LoadTestContext context) throws Exception {
+        for (int i = 0; i < formationCount; i++) {
+            Position hqPosition = BattleGenerator.jitter(new Position(48.6, 35.1), i, 0.1);
+            FormationRequest request = new FormationRequest(UnitType.INFANTRY, UnitRank.COMPANY, Faction.BLUE_FORCE,
+                    hqPosition, FORMATION_TYPES[i % FORMATION_TYPES.length], 100, (i * 45) % 360);
+            HttpResponse<String> response = context.send(context.asUser("/api/formations", BattleGenerator.BLUE_USER)
+                    .POST(context.json(request)));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Failed to create formation: HTTP " + response.statusCode());
+            }
+            JsonNode formation = context.objectMapper().readTree(response.body());
+            formationIds.add(formation.get("id").asText());
+            headquarters.add(hqPosition);
+        }
+    }
+
+    @Override
+    public void execute(LoadTestContext context, int client, long iteration, LatencyRecorder recorder) throws Exception {
+        if (formationIds.isEmpty()) {
+            return;
+        }
+        int index = (int) ((iteration * 7 + client) % formationIds.size());
+        Position target = BattleGenerator.jitter(headquarters.get(index), iteration * 1_000 + client, 0.01);
+        var body = context.json(target);
+        recorder.time("PUT /formations/{id}/move", () -> context.send(
+                context.asUser("/api/formations/" + formationIds.get(index) + "/move", BattleGenerator.BLUE_USER)
+                        .PUT(body)));
+    }
+
+    /**
+     * Body of POST /api/formations, mirroring FormationCreateRequest
+     */
+    private record FormationRequest(UnitType unitType, UnitRank rank, Faction faction, Position hqPosition,
+                                   FormationType formationType, int spacing, int orientation) {}
+}
@@ -0,0 +1,26 @@
+package uaigroup.mapservice.loadtest;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import java.net.InetSocketAddress;
+
+/**
+ * In-memory Mongo wire protocol server in the load test's own JVM.
+ * Good enough for map-service's CRUD, upserts and bulk writes; features it lacks
+ * (2dsphere indexes, time-series collections, some aggregation stages) are skipped or
+ * fail softly, so use --mongo-uri against a real server when those paths matter.
+ */
+final class InProcessMongo implements AutoCloseable {
+
+    private final MongoServer server = new MongoServer(new MemoryBackend());
+
+    InetSocketAddress start() {
+        return server.bind();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+    }
+}
@@ -0,0 +1,100 @@
+package uaigroup.mapservice.loadtest;
+
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies of one client, by operation name. Each client thread owns its recorder, so
+ * recording needs no synchronization; the runner merges them once the scenario ends.
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Samples> operations = new LinkedHashMap<>();
+
+    /**
+     * Send a request and record its latency; responses with status 400 and above count as errors
+     */
+    HttpResponse<String> time(String operation, Call call) {
+        long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        try {
+            response = call.send();
+        } catch (Exception e) {
+            // Counted as an error below
+        }
+        long elapsed = System.nanoTime() - start;
+        Samples samples = operations.computeIfAbsent(operation, name -> new Samples());
+        samples.add(elapsed);
+        if (response == null || response.statusCode() >= 400) {
+            samples.errors++;
+        }
+        return response;
+    }
+
+    void merge(LatencyRecorder other) {
+        other.operations.forEach((name, samples) ->
+                operations.computeIfAbsent(name, n -> new Samples()).addAll(samples));
+    }
+
+    /**
+     * Summary of every operation; throughput is measured over elapsedNanos
+     */
+    Map<String, LoadTestReport.OperationResult> summarize(long elapsedNanos) {
+        Map<String, LoadTestReport.OperationResult> results = new LinkedHashMap<>();
+        operations.forEach((name, samples) -> results.put(name, samples.summarize(elapsedNanos)));
+        return results;
+    }
+
+    @FunctionalInterface
+    interface Call {
+        HttpResponse<String> send() throws Exception;
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int count;
+        private long errors;
+
+        void add(long value) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+        }
+
+        LoadTestReport.OperationResult summarize(long elapsedNanos) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            double seconds = elapsedNanos / 1e9;
+            return new LoadTestReport.OperationResult(
+                    count,
+                    errors,
+                    seconds > 0 ? count / seconds : 0.0,
+                    millis(percentile(sorted, 0.50)),
+                    millis(percentile(sorted, 0.99)),
+                    millis(count > 0 ? sorted[count - 1] : 0)
+            );
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+}
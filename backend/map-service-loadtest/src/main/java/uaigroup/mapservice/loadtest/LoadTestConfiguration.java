@@ -0,0 +1,41 @@
+package uaigroup.mapservice.loadtest;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Extra beans of a map-service started by the load test
+ */
+@Configuration
+public class LoadTestConfiguration {
+
+    // CommandLineRunner of MongoConfig; its pipeline update and 2dsphere index are beyond the in-process Mongo
+    private static final String INDEX_SETUP_BEAN = "createIndexes";
+
+    @Bean
+    public MongoOperationCounter mongoOperationCounter() {
+        return new MongoOperationCounter();
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoOperationCounting(MongoOperationCounter counter) {
+        return settings -> settings.addCommandListener(counter);
+    }
+
+    /**
+     * Skip the index setup against the in-process Mongo; the world is served from memory either way
+     */
+    @Bean
+    @ConditionalOnProperty(name = "loadtest.in-process-mongo", havingValue = "true")
+    public static BeanFactoryPostProcessor skipIndexSetup() {
+        return beanFactory -> {
+            if (beanFactory instanceof BeanDefinitionRegistry registry && registry.containsBeanDefinition(INDEX_SETUP_BEAN)) {
+                registry.removeBeanDefinition(INDEX_SETUP_BEAN);
+            }
+        };
+    }
+}
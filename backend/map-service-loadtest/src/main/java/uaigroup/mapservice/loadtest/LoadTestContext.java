@@ -0,0 +1,85 @@
+package uaigroup.mapservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * What scenarios share: the running service, an HTTP client and the seeded world
+ */
+final class LoadTestContext {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String bearerToken;
+    private final SeededWorld world;
+
+    LoadTestContext(int port, ObjectMapper objectMapper, String jwtSecret, SeededWorld world) {
+        this.baseUrl = "http://localhost:" + port;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        this.objectMapper = objectMapper;
+        this.world = world;
+        this.bearerToken = "Bearer " + Jwts.builder()
+                .subject("loadtest")
+                .claim("role", "ADMIN")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + Duration.ofDays(1).toMillis()))
+                .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
+                .compact();
+    }
+
+    SeededWorld world() {
+        return world;
+    }
+
+    ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Request to the map API, authenticated with an admin JWT
+     */
+    HttpRequest.Builder authenticated(String path) {
+        return request(path).header("Authorization", bearerToken);
+    }
+
+    /**
+     * Request to the formation or replay API, which identify the user by header
+     */
+    HttpRequest.Builder asUser(String path, String userId) {
+        return request(path).header("X-User-Id", userId);
+    }
+
+    HttpRequest.BodyPublisher json(Object body) throws Exception {
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+    }
+
+    HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json");
+    }
+
+    /**
+     * IDs of what the generator stored before the first scenario
+     */
+    record SeededWorld(int units, int obstacles, List<String> scriptIds, List<String> blueUnitIds) {}
+}
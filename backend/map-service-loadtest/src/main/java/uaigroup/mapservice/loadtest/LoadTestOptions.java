@@ -0,0 +1,63 @@
+package uaigroup.mapservice.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load test, as --name=value pairs
+ *
+ * @param mongoUri an external Mongo to run against; null starts the in-process stand-in
+ * @param report JSON report path; null writes to target/loadtest/
+ */
+public record LoadTestOptions(
+        int units,
+        int scripts,
+        int actionsPerScript,
+        int obstacles,
+        int formations,
+        int clients,
+        int warmupSeconds,
+        int durationSeconds,
+        long seed,
+        List<String> scenarios,
+        String mongoUri,
+        String report
+) {
+
+    public static final List<String> ALL_SCENARIOS =
+            List.of("units-polling", "script-activations", "formation-moves", "replay-recording");
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        String scenarios = values.getOrDefault("scenarios", "all");
+        return new LoadTestOptions(
+                intValue(values, "units", 10000),
+                intValue(values, "scripts", 50),
+                intValue(values, "actions-per-script", 10),
+                intValue(values, "obstacles", 200),
+                intValue(values, "formations", 20),
+                intValue(values, "clients", 16),
+                intValue(values, "warmup", 5),
+                intValue(values, "duration", 20),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                "all".equals(scenarios) ? ALL_SCENARIOS : Arrays.asList(scenarios.split(",")),
+                values.get("mongo-uri"),
+                values.get("report")
+        );
+    }
+
+    private static int intValue(Map<String, String> values, String name, int defaultValue) {
+        String value = values.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
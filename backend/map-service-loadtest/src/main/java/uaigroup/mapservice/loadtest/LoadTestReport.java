@@ -0,0 +1,45 @@
+package uaigroup.mapservice.loadtest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of one load test run, written as JSON next to the printed table
+ */
+record LoadTestReport(
+        LocalDateTime startedAt,
+        LoadTestOptions options,
+        long seedMillis,
+        List<ScenarioResult> scenarios
+) {
+
+    /**
+     * @param mongoOperations commands sent to Mongo during the measured run, by command name
+     * @param heapPeakMb highest used heap sampled during the measured run
+     */
+    record ScenarioResult(
+            String name,
+            int clients,
+            double durationSeconds,
+            Map<String, OperationResult> operations,
+            Map<String, Long> mongoOperations,
+            double heapBeforeMb,
+            double heapAfterMb,
+            double heapPeakMb,
+            long gcCount,
+            long gcMillis
+    ) {}
+
+    /**
+     * @param throughput completed operations per second over the measured run
+     */
+    record OperationResult(
+            long count,
+            long errors,
+            double throughput,
+            double p50Ms,
+            double p99Ms,
+            double maxMs
+    ) {}
+}
@@ -0,0 +1,269 @@
+package uaigroup.mapservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import uaigroup.mapservice.MapServiceApplication;
+import uaigroup.mapservice.model.*;
+import uaigroup.mapservice.repository.ScriptActionRepository;
+import uaigroup.mapservice.repository.ScriptRepository;
+import uaigroup.mapservice.service.WorldStateStore;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test of map-service: starts the service against an in-process Mongo,
+ * seeds a synthetic battle and drives each scenario with closed-loop HTTP clients,
+ * reporting latency percentiles, throughput, Mongo commands and heap usage per scenario.
+ *
+ * <pre>
+ * java -jar target/loadtest.jar --units=10000 --clients=16 --duration=20
+ * java -jar target/loadtest.jar --scenarios=units-polling,formation-moves --mongo-uri=mongodb://localhost:27017/loadtest
+ * </pre>
+ */
+public final class LoadTestRunner {
+
+    private static final String DATABASE = "loadtest";
+    private static final long HEAP_SAMPLE_MILLIS = 100;
+    private static final DateTimeFormatter REPORT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        InProcessMongo mongo = options.mongoUri() == null ? new InProcessMongo() : null;
+        // As command line arguments, so they win over application.yml
+        List<String> properties = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.data.mongodb=WARN",
+                "--logging.level.de.bwaldvogel.mongo=ERROR",
+                "--spring.main.banner-mode=off"));
+        if (mongo != null) {
+            InetSocketAddress address = mongo.start();
+            properties.add("--spring.data.mongodb.host=" + address.getHostString());
+            properties.add("--spring.data.mongodb.port=" + address.getPort());
+            properties.add("--spring.data.mongodb.database=" + DATABASE);
+            properties.add("--loadtest.in-process-mongo=true");
+        } else {
+            properties.add("--spring.data.mongodb.uri=" + options.mongoUri());
+        }
+
+        ConfigurableApplicationContext service = null;
+        try {
+            SpringApplication application = new SpringApplication(MapServiceApplication.class, LoadTestConfiguration.class);
+            service = application.run(properties.toArray(String[]::new));
+            int port = ((WebServerApplicationContext) service).getWebServer().getPort();
+            ObjectMapper objectMapper = service.getBean(ObjectMapper.class).copy()
+                    .enable(SerializationFeature.INDENT_OUTPUT);
+            String jwtSecret = service.getEnvironment().getProperty("jwt.secret",
+                    "myVerySecretKeyForMCOTSAuthService123456789");
+            MongoOperationCounter counter = service.getBean(MongoOperationCounter.class);
+
+            long seedStart = System.nanoTime();
+            LoadTestContext.SeededWorld world = seed(service, options);
+            long seedMillis = (System.nanoTime() - seedStart) / 1_000_000;
+            System.out.printf("Seeded %d units, %d obstacles and %d scripts in %d ms%n",
+                    world.units(), world.obstacles(), world.scriptIds().size(), seedMillis);
+
+            LoadTestContext context = new LoadTestContext(port, objectMapper, jwtSecret, world);
+            List<LoadTestReport.ScenarioResult> results = new ArrayList<>();
+            for (String name : options.scenarios()) {
+                Scenario scenario = scenario(name, options);
+                System.out.printf("Running %s with %d clients (%ds warmup, %ds measured)%n",
+                        name, options.clients(), options.warmupSeconds(), options.durationSeconds());
+                results.add(run(scenario, context, options, counter));
+            }
+
+            LoadTestReport report = new LoadTestReport(startedAt, options, seedMillis, results);
+            print(report);
+            Path reportPath = options.report() != null
+                    ? Path.of(options.report())
+                    : Path.of("target", "loadtest", "loadtest-" + REPORT_NAME.format(startedAt) + ".json");
+            write(objectMapper, report, reportPath);
+            System.out.println("Report written to " + reportPath.toAbsolutePath());
+        } finally {
+            if (service != null) {
+                service.close();
+            }
+            if (mongo != null) {
+                mongo.close();
+            }
+        }
+    }
+
+    private static LoadTestContext.SeededWorld seed(ConfigurableApplicationContext service, LoadTestOptions options) {
+        WorldStateStore worldStateStore = service.getBean(WorldStateStore.class);
+        ScriptRepository scriptRepository = service.getBean(ScriptRepository.class);
+        ScriptActionRepository scriptActionRepository = service.getBean(ScriptActionRepository.class);
+        BattleGenerator generator = new BattleGenerator(options.seed(), options.units());
+
+        List<GeneralUnit> units = worldStateStore.saveUnits(generator.units(options.units()));
+        for (Obstacle obstacle : generator.obstacles(options.obstacles())) {
+            worldStateStore.saveObstacle(obstacle);
+        }
+        worldStateStore.flush();
+
+        List<String> scriptIds = new ArrayList<>();
+        for (BattleGenerator.GeneratedScript generated : generator.scripts(options.scripts(), options.actionsPerScript(), units)) {
+            Script script = scriptRepository.save(generated.script());
+            for (ScriptAction action : generated.actions()) {
+                action.setScriptId(script.getId());
+            }
+            scriptActionRepository.saveAll(generated.actions());
+            scriptIds.add(script.getId());
+        }
+
+        List<String> blueUnitIds = units.stream()
+                .filter(unit -> unit.getFaction() == Faction.BLUE_FORCE)
+                .map(GeneralUnit::getId)
+                .toList();
+        return new LoadTestContext.SeededWorld(units.size(), options.obstacles(), scriptIds, blueUnitIds);
+    }
+
+    private static Scenario scenario(String name, LoadTestOptions options) {
+        return switch (name) {
+            case "units-polling" -> new UnitsPollingScenario();
+            case "script-activations" -> new ScriptActivationsScenario();
+            case "formation-moves" -> new FormationMovesScenario(options.formations());
+            case "replay-recording" -> new ReplayRecordingScenario(options.clients());
+            default -> throw new IllegalArgumentException(
+                    "Unknown scenario " + name + ", expected one of " + LoadTestOptions.ALL_SCENARIOS);
+        };
+    }
+
+    private static LoadTestReport.ScenarioResult run(Scenario scenario, LoadTestContext context,
+                                                     LoadTestOptions options, MongoOperationCounter counter)
+            throws Exception {
+        scenario.setUp(context);
+        drive(scenario, context, options.clients(), options.warmupSeconds());
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        Map<String, Long> mongoBefore = counter.snapshot();
+
+        AtomicLong heapPeak = new AtomicLong(heapBefore);
+        ScheduledExecutorService heapSampler = Executors.newSingleThreadScheduledExecutor();
+        heapSampler.scheduleAtFixedRate(() -> heapPeak.accumulateAndGet(usedHeap(), Math::max),
+                0, HEAP_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        LatencyRecorder recorder = drive(scenario, context, options.clients(), options.durationSeconds());
+        scenario.tearDown(context, recorder);
+        long elapsed = System.nanoTime() - start;
+
+        heapSampler.shutdownNow();
+        Map<String, Long> mongoOperations = MongoOperationCounter.delta(mongoBefore, counter.snapshot());
+        long heapAfter = usedHeap();
+
+        return new LoadTestReport.ScenarioResult(
+                scenario.name(),
+                options.clients(),
+                elapsed / 1e9,
+                recorder.summarize(elapsed),
+                mongoOperations,
+                megabytes(heapBefore),
+                megabytes(heapAfter),
+                megabytes(Math.max(heapPeak.get(), heapAfter)),
+                gcCount() - gcCountBefore,
+                gcMillis() - gcMillisBefore
+        );
+    }
+
+    /**
+     * Run the scenario's clients for the given time and merge what they recorded
+     */
+    private static LatencyRecorder drive(Scenario scenario, LoadTestContext context, int clients, int seconds)
+            throws Exception {
+        LatencyRecorder merged = new LatencyRecorder();
+        if (seconds <= 0) {
+            return merged;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<LatencyRecorder>> futures = new ArrayList<>(clients);
+            for (int client = 0; client < clients; client++) {
+                int clientIndex = client;
+                futures.add(executor.submit(() -> {
+                    LatencyRecorder recorder = new LatencyRecorder();
+                    for (long iteration = 0; System.nanoTime() < deadline; iteration++) {
+                        scenario.execute(context, clientIndex, iteration, recorder);
+                    }
+                    return recorder;
+                }));
+            }
+            for (Future<LatencyRecorder> future : futures) {
+                merged.merge(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return merged;
+    }
+
+    private static void print(LoadTestReport report) {
+        System.out.println();
+        System.out.printf("%-20s %-30s %9s %7s %10s %9s %9s %9s%n",
+                "scenario", "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "max ms");
+        for (LoadTestReport.ScenarioResult scenario : report.scenarios()) {
+            scenario.operations().forEach((operation, result) -> System.out.printf(
+                    "%-20s %-30s %9d %7d %10.1f %9.2f %9.2f %9.2f%n",
+                    scenario.name(), operation, result.count(), result.errors(), result.throughput(),
+                    result.p50Ms(), result.p99Ms(), result.maxMs()));
+            System.out.printf("%-20s mongo %s%n", "", scenario.mongoOperations());
+            System.out.printf("%-20s heap %.0f MB -> %.0f MB (peak %.0f MB), %d GCs in %d ms%n", "",
+                    scenario.heapBeforeMb(), scenario.heapAfterMb(), scenario.heapPeakMb(),
+                    scenario.gcCount(), scenario.gcMillis());
+        }
+        System.out.println();
+    }
+
+    private static void write(ObjectMapper objectMapper, LoadTestReport report, Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        objectMapper.writeValue(path.toFile(), report);
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static double megabytes(long bytes) {
+        return Math.round(bytes / 1024.0 / 1024.0 * 10) / 10.0;
+    }
+}
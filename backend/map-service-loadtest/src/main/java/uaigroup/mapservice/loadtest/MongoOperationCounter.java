@@ -0,0 +1,48 @@
+package uaigroup.mapservice.loadtest;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts commands sent to Mongo by map-service, by command name (find, insert, update, ...)
+ */
+public class MongoOperationCounter implements CommandListener {
+
+    // Connection housekeeping, not work done for requests
+    private static final Set<String> IGNORED = Set.of("hello", "isMaster", "ismaster", "ping", "endSessions", "buildInfo");
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!IGNORED.contains(event.getCommandName())) {
+            counts.computeIfAbsent(event.getCommandName(), name -> new LongAdder()).increment();
+        }
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((name, count) -> snapshot.put(name, count.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Commands counted between two snapshots, by name
+     */
+    public static Map<String, Long> delta(Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Long> delta = new TreeMap<>();
+        after.forEach((name, count) -> {
+            long difference = count - before.getOrDefault(name, 0L);
+            if (difference > 0) {
+                delta.put(name, difference);
+            }
+        });
+        return delta;
+    }
+}
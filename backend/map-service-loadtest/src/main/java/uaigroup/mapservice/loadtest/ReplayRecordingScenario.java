@@ -0,0 +1,70 @@
+package uaigroup.mapservice.loadtest;
+
+import uaigroup.mapservice.model.BattleEvent;
+import uaigroup.mapservice.model.EventType;
+import uaigroup.mapservice.model.Position;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One recording per client, snapshotting the world every second while the client posts
+ * movement events into it; stopping the recordings is timed as part of the run
+ */
+final class ReplayRecordingScenario implements Scenario {
+
+    private final int clients;
+
+    ReplayRecordingScenario(int clients) {
+        this.clients = clients;
+    }
+
+    @Override
+    public String name() {
+        return "replay-recording";
+    }
+
+    @Override
+    public void setUp(LoadTestContext context) throws Exception {
+        for (int client = 0; client < clients; client++) {
+            Map<String, Object> request = Map.of(
+                    "battleName", "Load test recording " + (client + 1),
+                    "snapshotIntervalSeconds", 1);
+            HttpResponse<String> response = context.send(context.asUser("/api/replays/start", recorder(client))
+                    .POST(context.json(request)));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Failed to start recording: HTTP " + response.statusCode());
+            }
+        }
+    }
+
+    @Override
+    public void execute(LoadTestContext context, int client, long iteration, LatencyRecorder recorder) throws Exception {
+        List<String> unitIds = context.world().blueUnitIds();
+        String unitId = unitIds.isEmpty() ? null : unitIds.get((int) ((iteration * 13 + client) % unitIds.size()));
+
+        BattleEvent event = new BattleEvent();
+        event.setEventType(EventType.UNIT_MOVED);
+        event.setUnitId(unitId);
+        event.setLocation(BattleGenerator.jitter(new Position(48.6, 35.1), iteration * 1_000 + client, 0.2));
+        event.setDescription("Load test move " + iteration);
+        var body = context.json(event);
+        recorder.time("POST /replays/event", () -> context.send(
+                context.asUser("/api/replays/event", recorder(client)).POST(body)));
+    }
+
+    @Override
+    public void tearDown(LoadTestContext context, LatencyRecorder recorder) {
+        for (int client = 0; client < clients; client++) {
+            String userId = recorder(client);
+            recorder.time("POST /replays/stop", () -> context.send(
+                    context.asUser("/api/replays/stop", userId).POST(HttpRequest.BodyPublishers.noBody())));
+        }
+    }
+
+    private static String recorder(int client) {
+        return "loadtest-recorder-" + client;
+    }
+}
@@ -0,0 +1,24 @@
+package uaigroup.mapservice.loadtest;
+
+/**
+ * One kind of traffic. Every client runs execute in a closed loop, one request after the other,
+ * for the warmup and then for the measured duration; setUp and tearDown run once, outside both.
+ */
+interface Scenario {
+
+    String name();
+
+    default void setUp(LoadTestContext context) throws Exception {
+    }
+
+    /**
+     * Issue one operation of the given client, timing every request with recorder
+     */
+    void execute(LoadTestContext context, int client, long iteration, LatencyRecorder recorder) throws Exception;
+
+    /**
+     * Undo what the scenario left running; requests timed here count towards the measured run
+     */
+    default void tearDown(LoadTestContext context, LatencyRecorder recorder) throws Exception {
+    }
+}
@@ -0,0 +1,50 @@
+package uaigroup.mapservice.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Operators starting and stopping the seeded scripts; clients walk the scripts round-robin,
+ * activating each one and deactivating it on the next visit, so the executor keeps
+ * scheduling and cancelling actions against the seeded units throughout the run.
+ */
+final class ScriptActivationsScenario implements Scenario {
+
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public String name() {
+        return "script-activations";
+    }
+
+    @Override
+    public void execute(LoadTestContext context, int client, long iteration, LatencyRecorder recorder) {
+        List<String> scriptIds = context.world().scriptIds();
+        if (scriptIds.isEmpty()) {
+            return;
+        }
+        String scriptId = scriptIds.get((int) ((iteration * 31 + client) % scriptIds.size()));
+        if (active.add(scriptId)) {
+            recorder.time("POST /scripts/{id}/activate", () -> context.send(
+                    context.authenticated("/api/v1/map/scripts/" + scriptId + "/activate").POST(noBody())));
+        } else if (active.remove(scriptId)) {
+            recorder.time("POST /scripts/{id}/deactivate", () -> context.send(
+                    context.authenticated("/api/v1/map/scripts/" + scriptId + "/deactivate").POST(noBody())));
+        }
+    }
+
+    @Override
+    public void tearDown(LoadTestContext context, LatencyRecorder recorder) {
+        for (String scriptId : active) {
+            recorder.time("POST /scripts/{id}/deactivate", () -> context.send(
+                    context.authenticated("/api/v1/map/scripts/" + scriptId + "/deactivate").POST(noBody())));
+        }
+        active.clear();
+    }
+
+    private static HttpRequest.BodyPublisher noBody() {
+        return HttpRequest.BodyPublishers.noBody();
+    }
+}
@@ -0,0 +1,17 @@
+package uaigroup.mapservice.loadtest;
+
+/**
+ * The map view refreshing the whole unit list, as every open client does on its polling interval
+ */
+final class UnitsPollingScenario implements Scenario {
+
+    @Override
+    public String name() {
+        return "units-polling";
+    }
+
+    @Override
+    public void execute(LoadTestContext context, int client, long iteration, LatencyRecorder recorder) {
+        recorder.time("GET /units", () -> context.send(context.authenticated("/api/v1/map/units").GET()));
+    }
+}
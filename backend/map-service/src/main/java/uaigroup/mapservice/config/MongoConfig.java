@@ -1,30 +1,51 @@
 package uaigroup.mapservice.config;
 
+import org.bson.Document;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
 import org.springframework.data.mongodb.core.index.GeospatialIndex;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.Sort;
 
+import java.util.List;
+
 @Configuration
 @EnableMongoRepositories(basePackages = "uaigroup.mapservice.repository")
 @EnableMongoAuditing
 public class MongoConfig {
 
+    private static final String LEGACY_LOCATION_INDEX = "location_2d";
+
     @Bean
     public CommandLineRunner createIndexes(MongoTemplate mongoTemplate) {
         return args -> {
-            IndexOperations indexOps = mongoTemplate.indexOps("military_units");            
+            IndexOperations indexOps = mongoTemplate.indexOps("military_units");
+
+            // Earlier versions created a legacy 2d index on location, which rejects GeoJSON points
+            boolean hasLegacyIndex = indexOps.getIndexInfo().stream()
+                    .anyMatch(index -> LEGACY_LOCATION_INDEX.equals(index.getName()));
+            if (hasLegacyIndex) {
+                indexOps.dropIndex(LEGACY_LOCATION_INDEX);
+            }
+
+            // Backfill GeoJSON location for units written before it was stored
+            mongoTemplate.getCollection("military_units").updateMany(
+                    new Document("location", new Document("$exists", false))
+                            .append("position", new Document("$ne", null)),
+                    List.of(new Document("$set", new Document("location", new Document("type", "Point")
+                            .append("coordinates", List.of("$position.longitude", "$position.latitude"))))));
+
             // Create 2dsphere geospatial index for efficient location queries
-            indexOps.ensureIndex(new GeospatialIndex("location"));
+            indexOps.ensureIndex(new GeospatialIndex("location").typed(GeoSpatialIndexType.GEO_2DSPHERE));
             
             // Create index on faction for filtering
             indexOps.ensureIndex(new Index().on("faction", Sort.Direction.ASC));
         };
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,34 @@
 package uaigroup.mapservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import uaigroup.mapservice.controller.dto.ReplayStartRequest;
 import uaigroup.mapservice.model.BattleEvent;
 import uaigroup.mapservice.model.BattleReplay;
+import uaigroup.mapservice.model.BattleSnapshot;
+import uaigroup.mapservice.model.ReplayStatistics;
 import uaigroup.mapservice.service.BattleReplayService;
+import uaigroup.mapservice.service.BattleReplayService.EventIngestResult;
+import uaigroup.mapservice.service.BattleReplayService.EventIngestStats;
+import uaigroup.mapservice.service.BattleReplayService.ReplayIndex;
+import uaigroup.mapservice.service.WorldCaptureService;
+import uaigroup.mapservice.service.ReplayStore.ReplayPage;
 
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -18,7 +38,16 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class BattleReplayController {
 
+    private static final int MAX_SNAPSHOT_PAGE = 100;
+    private static final int MAX_EVENT_PAGE = 2000;
+    private static final int MAX_FRAMES_PER_REQUEST = 50;
+    private static final int MAX_EVENTS_PER_REQUEST = 1000;
+    // Seconds a client should wait before retrying events refused with 429
+    private static final String EVENT_RETRY_AFTER = "1";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final BattleReplayService replayService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Start recording a new battle replay
@@ -31,7 +60,8 @@ public class BattleReplayController {
             BattleReplay replay = replayService.startRecording(
                     userId,
                     request.getBattleName(),
-                    request.getDescription()
+                    request.getDescription(),
+                    request.getSnapshotIntervalSeconds()
             );
             return ResponseEntity.ok(replay);
         } catch (IllegalStateException e) {
@@ -55,14 +85,35 @@ public class BattleReplayController {
     }
 
     /**
-     * Record an event during battle
+     * Record an event during battle; 429 when the recording's buffer is full
      */
     @PostMapping("/event")
     public ResponseEntity<Void> recordEvent(
             @RequestHeader("X-User-Id") String userId,
             @RequestBody BattleEvent event) {
-        replayService.recordEvent(userId, event);
-        return ResponseEntity.ok().build();
+        return ingestResponse(replayService.recordEvent(userId, event));
+    }
+
+    /**
+     * Record a batch of events; the batch is accepted whole or refused with 429 when the buffer is full
+     */
+    @PostMapping("/events")
+    public ResponseEntity<Void> recordEvents(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestBody List<BattleEvent> events) {
+        if (events.size() > MAX_EVENTS_PER_REQUEST) {
+            log.error("Rejected batch of {} events, at most {} per request", events.size(), MAX_EVENTS_PER_REQUEST);
+            return ResponseEntity.badRequest().build();
+        }
+        return ingestResponse(replayService.recordEvents(userId, events));
+    }
+
+    /**
+     * Event ingestion counters: accepted, refused, written and still buffered
+     */
+    @GetMapping("/ingest-stats")
+    public ResponseEntity<EventIngestStats> getEventIngestStats() {
+        return ResponseEntity.ok(replayService.getEventIngestStats());
     }
 
     /**
@@ -74,6 +125,14 @@ public class BattleReplayController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * World capture sharing across recordings
+     */
+    @GetMapping("/capture-stats")
+    public ResponseEntity<WorldCaptureService.CaptureStats> getCaptureStats() {
+        return ResponseEntity.ok(replayService.getCaptureStats());
+    }
+
     /**
      * Get all replays for the current user
      */
@@ -97,6 +156,163 @@ public class BattleReplayController {
         }
     }
 
+    /**
+     * Get replay metadata and the frame index used for seeking
+     */
+    @GetMapping("/{replayId}/index")
+    public ResponseEntity<ReplayIndex> getReplayIndex(@PathVariable String replayId) {
+        try {
+            return ResponseEntity.ok(replayService.getReplayIndex(replayId));
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Get replay statistics, live while the replay is still being recorded
+     */
+    @GetMapping("/{replayId}/statistics")
+    public ResponseEntity<ReplayStatistics> getStatistics(@PathVariable String replayId) {
+        try {
+            return ResponseEntity.ok(replayService.getStatistics(replayId));
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Get reconstructed frames by sequence range (from/to) or by time range (fromTime/toTime)
+     */
+    @GetMapping("/{replayId}/frames")
+    public ResponseEntity<List<BattleSnapshot>> getFrames(
+            @PathVariable String replayId,
+            @RequestParam(required = false) Integer from,
+            @RequestParam(required = false) Integer to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toTime) {
+        try {
+            if (fromTime != null) {
+                LocalDateTime until = toTime != null ? toTime : fromTime;
+                return ResponseEntity.ok(replayService.getFramesBetween(replayId, fromTime, until, MAX_FRAMES_PER_REQUEST));
+            }
+            int first = from != null ? from : 1;
+            int last = to != null ? to : first + MAX_FRAMES_PER_REQUEST - 1;
+            return ResponseEntity.ok(replayService.getFrames(replayId, first, last, MAX_FRAMES_PER_REQUEST));
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Stream events as newline-delimited JSON, one event per line
+     */
+    @GetMapping("/{replayId}/events/stream")
+    public ResponseEntity<StreamingResponseBody> streamEvents(
+            @PathVariable String replayId,
+            @RequestParam(defaultValue = "1") long fromSequence,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toTime) {
+        try {
+            replayService.getReplay(replayId);
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> replayService.streamEvents(replayId, fromSequence, fromTime, toTime,
+                event -> writeLine(out, event));
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Get a page of snapshots; request the next page with fromSequence=nextCursor
+     */
+    @GetMapping("/{replayId}/snapshots")
+    public ResponseEntity<ReplayPage<BattleSnapshot>> getSnapshots(
+            @PathVariable String replayId,
+            @RequestParam(defaultValue = "1") int fromSequence,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            int pageSize = Math.max(1, Math.min(limit, MAX_SNAPSHOT_PAGE));
+            return ResponseEntity.ok(replayService.getSnapshots(replayId, fromSequence, pageSize));
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Get a single snapshot by sequence number
+     */
+    @GetMapping("/{replayId}/snapshots/{sequence}")
+    public ResponseEntity<BattleSnapshot> getSnapshot(@PathVariable String replayId, @PathVariable int sequence) {
+        try {
+            return ResponseEntity.ok(replayService.getSnapshot(replayId, sequence));
+        } catch (IllegalArgumentException e) {
+            log.error("Snapshot not found: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Get a page of events; request the next page with fromSequence=nextCursor
+     */
+    @GetMapping("/{replayId}/events")
+    public ResponseEntity<ReplayPage<BattleEvent>> getEvents(
+            @PathVariable String replayId,
+            @RequestParam(defaultValue = "1") long fromSequence,
+            @RequestParam(defaultValue = "500") int limit) {
+        try {
+            int pageSize = Math.max(1, Math.min(limit, MAX_EVENT_PAGE));
+            return ResponseEntity.ok(replayService.getEvents(replayId, fromSequence, pageSize));
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Download a finished replay as a compact binary archive
+     */
+    @GetMapping("/{replayId}/archive")
+    public ResponseEntity<StreamingResponseBody> exportReplay(@PathVariable String replayId) {
+        BattleReplay replay;
+        try {
+            replay = replayService.getReplay(replayId);
+        } catch (IllegalArgumentException e) {
+            log.error("Replay not found: {}", replayId);
+            return ResponseEntity.notFound().build();
+        }
+        if (replay.isRecording()) {
+            log.error("Cannot archive replay {} while it is being recorded", replayId);
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> replayService.exportReplay(replayId, Channels.newChannel(out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header("Content-Disposition", "attachment; filename=\"replay-" + replayId + ".mcra\"")
+                .body(body);
+    }
+
+    /**
+     * Upload a replay archive; it is stored as a new replay of the current user
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<BattleReplay> importReplay(
+            @RequestHeader("X-User-Id") String userId,
+            HttpServletRequest request) throws IOException {
+        try (ReadableByteChannel channel = Channels.newChannel(request.getInputStream())) {
+            return ResponseEntity.ok(replayService.importReplay(userId, channel));
+        } catch (IllegalArgumentException e) {
+            log.error("Failed to import replay archive: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Delete a replay
      */
@@ -105,4 +321,23 @@ public class BattleReplayController {
         replayService.deleteReplay(replayId);
         return ResponseEntity.ok().build();
     }
+
+    private ResponseEntity<Void> ingestResponse(EventIngestResult result) {
+        if (result == EventIngestResult.BUFFER_FULL) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", EVENT_RETRY_AFTER)
+                    .build();
+        }
+        // Events without a recording were always silently ignored
+        return ResponseEntity.accepted().build();
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
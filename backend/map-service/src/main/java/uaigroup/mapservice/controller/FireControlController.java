@@ -1,16 +1,18 @@
 package uaigroup.mapservice.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import uaigroup.mapservice.controller.dto.FieldOfFireRequest;
 import uaigroup.mapservice.controller.dto.FireMissionRequest;
+import uaigroup.mapservice.model.Faction;
 import uaigroup.mapservice.model.FieldOfFire;
 import uaigroup.mapservice.model.FireMission;
 import uaigroup.mapservice.model.GeneralUnit;
 import uaigroup.mapservice.repository.FireMissionRepository;
-import uaigroup.mapservice.repository.UnitRepository;
+import uaigroup.mapservice.service.WorldStateStore;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -23,7 +25,7 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class FireControlController {
 
-    private final UnitRepository unitRepository;
+    private final WorldStateStore worldStateStore;
     private final FireMissionRepository fireMissionRepository;
 
     /**
@@ -35,7 +37,7 @@ public class FireControlController {
             @RequestHeader("X-User-Id") String userId,
             @RequestBody FieldOfFireRequest request) {
 
-        Optional<GeneralUnit> unitOpt = unitRepository.findById(unitId);
+        Optional<GeneralUnit> unitOpt = worldStateStore.findUnit(unitId);
         if (unitOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
@@ -54,10 +56,12 @@ public class FireControlController {
                 .description(request.getDescription())
                 .build();
 
-        unit.setFieldOfFire(fieldOfFire);
-        unit.setUpdatedAt(LocalDateTime.now());
+        worldStateStore.mutateUnit(unitId, () -> {
+            unit.setFieldOfFire(fieldOfFire);
+            unit.setUpdatedAt(LocalDateTime.now());
+        });
 
-        GeneralUnit savedUnit = unitRepository.save(unit);
+        GeneralUnit savedUnit = worldStateStore.saveUnit(unit);
         log.info("Set field of fire for unit {} by user {}", unitId, userId);
 
         return ResponseEntity.ok(savedUnit);
@@ -71,16 +75,18 @@ public class FireControlController {
             @PathVariable String unitId,
             @RequestHeader("X-User-Id") String userId) {
 
-        Optional<GeneralUnit> unitOpt = unitRepository.findById(unitId);
+        Optional<GeneralUnit> unitOpt = worldStateStore.findUnit(unitId);
         if (unitOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         GeneralUnit unit = unitOpt.get();
-        unit.setFieldOfFire(null);
-        unit.setUpdatedAt(LocalDateTime.now());
+        worldStateStore.mutateUnit(unitId, () -> {
+            unit.setFieldOfFire(null);
+            unit.setUpdatedAt(LocalDateTime.now());
+        });
 
-        GeneralUnit savedUnit = unitRepository.save(unit);
+        GeneralUnit savedUnit = worldStateStore.saveUnit(unit);
         log.info("Cleared field of fire for unit {} by user {}", unitId, userId);
 
         return ResponseEntity.ok(savedUnit);
@@ -92,7 +98,7 @@ public class FireControlController {
     @PostMapping("/fire-missions")
     public ResponseEntity<FireMission> createFireMission(
             @RequestHeader("X-User-Id") String userId,
-            @RequestBody FireMissionRequest request) {
+            @Valid @RequestBody FireMissionRequest request) {
 
         FireMission mission = FireMission.builder()
                 .userId(userId)
@@ -120,9 +126,9 @@ public class FireControlController {
 
         // Link mission to artillery unit
         if (request.getArtilleryUnitId() != null) {
-            unitRepository.findById(request.getArtilleryUnitId()).ifPresent(unit -> {
-                unit.setActiveFireMissionId(savedMission.getId());
-                unitRepository.save(unit);
+            worldStateStore.findUnit(request.getArtilleryUnitId()).ifPresent(unit -> {
+                worldStateStore.mutateUnit(unit.getId(), () -> unit.setActiveFireMissionId(savedMission.getId()));
+                worldStateStore.saveUnit(unit);
             });
         }
 
@@ -150,6 +156,31 @@ public class FireControlController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Get enemy units inside a fire mission's target area, from the in-memory spatial index
+     */
+    @GetMapping("/fire-missions/{missionId}/targets")
+    public ResponseEntity<List<GeneralUnit>> getFireMissionTargets(@PathVariable String missionId) {
+        Optional<FireMission> missionOpt = fireMissionRepository.findById(missionId);
+        if (missionOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        FireMission mission = missionOpt.get();
+        Optional<GeneralUnit> artilleryOpt = worldStateStore.findUnit(mission.getArtilleryUnitId());
+        if (mission.getTargetCenter() == null || artilleryOpt.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Faction targetFaction = artilleryOpt.get().getFaction() == Faction.BLUE_FORCE
+                ? Faction.RED_FORCE : Faction.BLUE_FORCE;
+        double radiusKm = mission.getTargetRadius() / 1000.0;
+
+        List<GeneralUnit> targets = worldStateStore.findUnitsInRange(
+                targetFaction, mission.getTargetCenter(), radiusKm);
+        return ResponseEntity.ok(targets);
+    }
+
     /**
      * Update fire mission status
      */
@@ -190,10 +221,16 @@ public class FireControlController {
 
         // Clear mission from artillery unit
         if (mission.getArtilleryUnitId() != null) {
-            unitRepository.findById(mission.getArtilleryUnitId()).ifPresent(unit -> {
-                if (missionId.equals(unit.getActiveFireMissionId())) {
+            worldStateStore.findUnit(mission.getArtilleryUnitId()).ifPresent(unit -> {
+                boolean cleared = worldStateStore.mutateUnit(unit.getId(), () -> {
+                    if (!missionId.equals(unit.getActiveFireMissionId())) {
+                        return false;
+                    }
                     unit.setActiveFireMissionId(null);
-                    unitRepository.save(unit);
+                    return true;
+                });
+                if (cleared) {
+                    worldStateStore.saveUnit(unit);
                 }
             });
         }
@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -27,7 +28,7 @@ public class FormationController {
     @PostMapping
     public ResponseEntity<Formation> createFormation(
             @RequestHeader("X-User-Id") String userId,
-            @RequestBody FormationCreateRequest request) {
+            @Valid @RequestBody FormationCreateRequest request) {
 
         try {
             Formation formation = formationService.createFormation(
@@ -93,7 +94,7 @@ public class FormationController {
     @PutMapping("/{formationId}/move")
     public ResponseEntity<Void> moveFormation(
             @PathVariable String formationId,
-            @RequestBody Position newHqPosition) {
+            @Valid @RequestBody Position newHqPosition) {
 
         try {
             formationService.moveFormation(formationId, newHqPosition);
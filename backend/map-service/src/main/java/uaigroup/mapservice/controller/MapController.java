@@ -4,6 +4,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,16 +17,30 @@ import uaigroup.mapservice.controller.dto.UnitCreateRequest;
 import uaigroup.mapservice.controller.dto.UnitUpdateRequest;
 import uaigroup.mapservice.controller.dto.UnitBatchRequest;
 import uaigroup.mapservice.controller.dto.BattleSaveRequest;
+import uaigroup.mapservice.controller.dto.CombatResolveRequest;
 import uaigroup.mapservice.model.Action;
 import uaigroup.mapservice.model.GeneralUnit;
 import uaigroup.mapservice.model.Obstacle;
 import uaigroup.mapservice.model.BattleHistory;
 import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.UnitMetricSample;
 import uaigroup.mapservice.service.MapService;
+import uaigroup.mapservice.service.CombatEngine;
 import uaigroup.mapservice.service.CommunicationService;
-
+import uaigroup.mapservice.service.CommsCoverageEngine;
+import uaigroup.mapservice.service.CommsStatusWriter;
+import uaigroup.mapservice.service.UnitDeltaPublisher;
+import uaigroup.mapservice.service.CoalescingPublisher;
+import uaigroup.mapservice.service.SimulationLoop;
+import uaigroup.mapservice.service.UnitMetricsRecorder;
+import uaigroup.mapservice.service.WorldStateStore;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
@@ -32,8 +48,22 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MapController {
 
+    private static final int MAX_METRIC_POINTS = 1000;
+    private static final int MAX_COMBAT_STEPS = 600;
+    // Bounds the work of one request: a step costs roughly a microsecond per unit
+    private static final long MAX_COMBAT_UNIT_STEPS = 2_000_000;
+    // Resolutions allowed to run at once; each keeps a core busy for up to a couple of seconds
+    private static final int MAX_CONCURRENT_COMBATS = 2;
+
     private final MapService mapService;
     private final CommunicationService communicationService;
+    private final CommsCoverageEngine commsCoverageEngine;
+    private final CommsStatusWriter commsStatusWriter;
+    private final UnitDeltaPublisher unitDeltaPublisher;
+    private final CoalescingPublisher coalescingPublisher;
+    private final UnitMetricsRecorder unitMetricsRecorder;
+    private final SimulationLoop simulationLoop;
+    private final Semaphore combatPermits = new Semaphore(MAX_CONCURRENT_COMBATS);
 
     // Units endpoints
     @PostMapping("/units")
@@ -60,6 +90,23 @@ public class MapController {
         }
     }
 
+    /**
+     * Catch up on the unit delta stream after (re)connecting; sinceSeq=0 returns a snapshot
+     */
+    @GetMapping(value = "/units", params = "sinceSeq")
+    public ResponseEntity<UnitDeltaPublisher.UnitSync> getUnitsSince(@RequestParam long sinceSeq,
+                                                                     @RequestParam(required = false) Long epoch,
+                                                                     HttpServletRequest httpRequest) {
+        String username = (String) httpRequest.getAttribute("username");
+        String role = (String) httpRequest.getAttribute("role");
+        if (username == null || role == null) {
+            return ResponseEntity.status(401).build();
+        }
+        boolean admin = "ADMIN".equals(role);
+        return ResponseEntity.ok(unitDeltaPublisher.sync(sinceSeq, epoch,
+                userId -> admin || username.equals(userId)));
+    }
+
     @DeleteMapping("/units/all")
     public ResponseEntity<Void> deleteAllUnits(HttpServletRequest httpRequest) {
         if (!isAdmin(httpRequest)) return ResponseEntity.status(403).build();
@@ -81,6 +128,30 @@ public class MapController {
         return ResponseEntity.ok(unit);
     }
 
+    /**
+     * State history of a unit for charts, averaged into at most maxPoints points.
+     * Defaults to the last hour; history outlives the unit, so deleted units can still be charted.
+     */
+    @GetMapping("/units/{id}/metrics")
+    public ResponseEntity<List<UnitMetricSample>> getUnitMetrics(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "200") int maxPoints,
+            HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        String role = (String) httpRequest.getAttribute("role");
+        String owner = "ADMIN".equals(role) ? null : (String) httpRequest.getAttribute("username");
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(1);
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int points = Math.max(1, Math.min(maxPoints, MAX_METRIC_POINTS));
+        return ResponseEntity.ok(unitMetricsRecorder.findHistory(id, owner, start, end, points));
+    }
+
     @PutMapping("/units/{id}")
     public ResponseEntity<GeneralUnit> updateUnit(
             @PathVariable String id,
@@ -243,6 +314,77 @@ public class MapController {
         return ResponseEntity.noContent().build();
     }
     
+    /**
+     * Resolve combat between the factions on the map in fixed time steps, deterministic under the seed.
+     * Anyone can preview the outcome, though non-admins only see their own units in it; only admins
+     * can apply it, since it changes every user's units. 429 while too many resolutions are running.
+     */
+    @PostMapping("/combat/resolve")
+    public ResponseEntity<CombatEngine.CombatResult> resolveCombat(@RequestBody CombatResolveRequest request,
+                                                                   HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        if (request.apply() && !isAdmin(httpRequest)) return ResponseEntity.status(403).build();
+        int steps = request.steps() != null ? request.steps() : 60;
+        double stepSeconds = request.stepSeconds() != null ? request.stepSeconds() : 10.0;
+        if (steps <= 0 || steps > MAX_COMBAT_STEPS || stepSeconds <= 0
+                || (long) steps * mapService.countUnits() > MAX_COMBAT_UNIT_STEPS) {
+            return ResponseEntity.badRequest().build();
+        }
+        long seed = request.seed() != null ? request.seed() : System.currentTimeMillis();
+        if (!combatPermits.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        CombatEngine.CombatResult result;
+        try {
+            result = mapService.resolveCombat(new CombatEngine.CombatSettings(seed, steps, stepSeconds),
+                    request.apply());
+        } finally {
+            combatPermits.release();
+        }
+        if (isAdmin(httpRequest)) {
+            return ResponseEntity.ok(result);
+        }
+        String username = (String) httpRequest.getAttribute("username");
+        Set<String> ownUnitIds = mapService.getUnitsByUserId(username).stream()
+                .map(GeneralUnit::getId)
+                .collect(Collectors.toSet());
+        return ResponseEntity.ok(new CombatEngine.CombatResult(result.seed(), result.stepsRun(),
+                result.simulatedSeconds(), result.engagements(), result.factions(),
+                result.units().stream().filter(outcome -> ownUnitIds.contains(outcome.unitId())).toList(),
+                result.elapsedMicros()));
+    }
+
+    /**
+     * Units currently following a movement order; non-admins only see their own
+     */
+    @GetMapping("/simulation/movements")
+    public ResponseEntity<List<SimulationLoop.Movement>> getMovements(HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        List<SimulationLoop.Movement> movements = simulationLoop.movements();
+        if (isAdmin(httpRequest)) {
+            return ResponseEntity.ok(movements);
+        }
+        String username = (String) httpRequest.getAttribute("username");
+        Set<String> ownUnitIds = mapService.getUnitsByUserId(username).stream()
+                .map(GeneralUnit::getId)
+                .collect(Collectors.toSet());
+        return ResponseEntity.ok(movements.stream()
+                .filter(movement -> ownUnitIds.contains(movement.unitId()))
+                .toList());
+    }
+
+    @GetMapping("/simulation/stats")
+    public ResponseEntity<SimulationLoop.SimulationStats> getSimulationStats(HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(simulationLoop.getStats());
+    }
+
+    @GetMapping("/world-state/stats")
+    public ResponseEntity<WorldStateStore.WorldStateStats> getWorldStateStats(HttpServletRequest httpRequest) {
+        if (!isAdmin(httpRequest)) return ResponseEntity.status(403).build();
+        return ResponseEntity.ok(mapService.getWorldStateStats());
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Map service is running");
@@ -275,10 +417,28 @@ public class MapController {
         }
     }
 
+    @GetMapping("/communications/write-stats")
+    public ResponseEntity<CommsStatusWriter.CommsWriteStats> getCommsWriteStats(HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(commsStatusWriter.getStats());
+    }
+
+    @GetMapping("/metrics/write-stats")
+    public ResponseEntity<UnitMetricsRecorder.UnitMetricsStats> getMetricsWriteStats(HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(unitMetricsRecorder.getStats());
+    }
+
+    @GetMapping("/websocket/stats")
+    public ResponseEntity<CoalescingPublisher.CoalescingStats> getWebSocketStats(HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(coalescingPublisher.getStats());
+    }
+
     @PostMapping("/communications/refresh")
     public ResponseEntity<String> refreshAllCommsStatus(HttpServletRequest httpRequest) {
         if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
-        communicationService.updateAllCommsStatus();
+        commsCoverageEngine.recomputeAll();
         return ResponseEntity.ok("Communications status refreshed for all units");
     }
 
@@ -291,7 +451,6 @@ public class MapController {
         if (unit == null) {
             return ResponseEntity.notFound().build();
         }
-        communicationService.updateUnitCommsStatus(unit);
-        return ResponseEntity.ok(unit);
+        return ResponseEntity.ok(commsCoverageEngine.refreshUnit(unit));
     }
 }
\ No newline at end of file
@@ -73,7 +73,8 @@ public class ScriptController {
         if (script == null) return ResponseEntity.notFound().build();
         if (!script.getUserId().equals(username)) return ResponseEntity.status(403).build();
 
-        // Delete all associated actions first
+        // Stop it if running, then delete all associated actions
+        scriptExecutionService.discardScript(id);
         scriptActionRepository.deleteByScriptId(id);
         scriptRepository.deleteById(id);
 
@@ -138,6 +139,14 @@ public class ScriptController {
         }
     }
 
+    @GetMapping("/execution-stats")
+    public ResponseEntity<ScriptExecutionService.ScriptExecutionStats> getExecutionStats(
+            HttpServletRequest httpRequest) {
+        if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
+
+        return ResponseEntity.ok(scriptExecutionService.getStats());
+    }
+
     // ======== Script Actions CRUD ========
 
     @PostMapping("/{scriptId}/actions")
@@ -155,14 +164,18 @@ public class ScriptController {
         ScriptAction action = scriptActionMapper.toEntity(request);
         action.setScriptId(scriptId);
 
-        ScriptAction saved = scriptActionRepository.save(action);
+        // A running script picks the new action up once the edit is done
+        ScriptAction saved = scriptExecutionService.editScript(scriptId, () -> {
+            ScriptAction stored = scriptActionRepository.save(action);
 
-        // Update script total actions count
-        Script script = scriptRepository.findById(scriptId).orElse(null);
-        if (script != null) {
-            script.setTotalActions(script.getTotalActions() + 1);
-            scriptRepository.save(script);
-        }
+            // Update script total actions count
+            Script script = scriptRepository.findById(scriptId).orElse(null);
+            if (script != null) {
+                script.setTotalActions(script.getTotalActions() + 1);
+                scriptRepository.save(script);
+            }
+            return stored;
+        });
 
         return ResponseEntity.ok(saved);
     }
@@ -203,14 +216,17 @@ public class ScriptController {
             return ResponseEntity.notFound().build();
         }
 
-        scriptActionRepository.deleteById(actionId);
+        scriptExecutionService.editScript(scriptId, () -> {
+            scriptActionRepository.deleteById(actionId);
 
-        // Update script total actions count
-        Script script = scriptRepository.findById(scriptId).orElse(null);
-        if (script != null && script.getTotalActions() > 0) {
-            script.setTotalActions(script.getTotalActions() - 1);
-            scriptRepository.save(script);
-        }
+            // Update script total actions count
+            Script script = scriptRepository.findById(scriptId).orElse(null);
+            if (script != null && script.getTotalActions() > 0) {
+                script.setTotalActions(script.getTotalActions() - 1);
+                scriptRepository.save(script);
+            }
+            return null;
+        });
 
         return ResponseEntity.noContent().build();
     }
@@ -237,18 +253,19 @@ public class ScriptController {
             HttpServletRequest httpRequest) {
         if (!isAuthenticated(httpRequest)) return ResponseEntity.status(401).build();
 
-        int order = 1;
-        for (String actionId : actionIds) {
-            ScriptAction action = scriptActionRepository.findById(actionId).orElse(null);
-            if (action != null && action.getScriptId().equals(scriptId)) {
-                action.setExecutionOrder(order++);
-                scriptActionRepository.save(action);
+        List<ScriptAction> reordered = scriptExecutionService.editScript(scriptId, () -> {
+            int order = 1;
+            for (String actionId : actionIds) {
+                ScriptAction action = scriptActionRepository.findById(actionId).orElse(null);
+                if (action != null && action.getScriptId().equals(scriptId)) {
+                    action.setExecutionOrder(order++);
+                    scriptActionRepository.save(action);
+                }
             }
-        }
+            return scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(scriptId);
+        });
 
-        return ResponseEntity.ok(
-                scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(scriptId)
-        );
+        return ResponseEntity.ok(reordered);
     }
 
     private boolean isAuthenticated(HttpServletRequest request) {
@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import uaigroup.mapservice.model.ActionPriority;
 import uaigroup.mapservice.model.ActionType;
 import uaigroup.mapservice.model.Position;
@@ -11,7 +12,7 @@ public record ActionCreateRequest(
     String description,
     ActionType actionType,
     ActionPriority priority,
-    Position targetPosition,
+    @Valid Position targetPosition,
     String targetUnitId,
     Integer durationSeconds,
     LocalDateTime scheduledAt,
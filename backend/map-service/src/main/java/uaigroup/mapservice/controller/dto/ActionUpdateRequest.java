@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import uaigroup.mapservice.model.ActionPriority;
 import uaigroup.mapservice.model.ActionStatus;
 import uaigroup.mapservice.model.ActionType;
@@ -14,7 +15,7 @@ public record ActionUpdateRequest(
     ActionType actionType,
     ActionStatus status,
     ActionPriority priority,
-    Position targetPosition,
+    @Valid Position targetPosition,
     String targetUnitId,
     Integer durationSeconds,
     LocalDateTime scheduledAt,
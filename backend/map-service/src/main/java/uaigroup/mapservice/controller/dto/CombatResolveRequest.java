@@ -0,0 +1,14 @@
+package uaigroup.mapservice.controller.dto;
+
+/**
+ * @param seed        null for a random seed; the result reports the one used
+ * @param steps       null for 60
+ * @param stepSeconds null for 10
+ * @param apply       save the losses to the units instead of only returning them
+ */
+public record CombatResolveRequest(
+    Long seed,
+    Integer steps,
+    Double stepSeconds,
+    boolean apply
+) {}
@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import lombok.Data;
 import uaigroup.mapservice.model.Position;
 
@@ -10,8 +11,10 @@ import java.util.List;
 public class FireMissionRequest {
     private String artilleryUnitId;
     private String missionType; // SUPPRESSION, DESTRUCTION, INTERDICTION, HARASSMENT, SMOKE, ILLUMINATION
+    @Valid
     private Position targetCenter;
     private int targetRadius;
+    @Valid
     private List<Position> targetPolygon;
     private int roundsAllocated;
     private String priority; // ROUTINE, PRIORITY, IMMEDIATE, FLASH
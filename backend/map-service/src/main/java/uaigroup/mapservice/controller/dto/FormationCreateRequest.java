@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import lombok.Data;
 import uaigroup.mapservice.model.*;
 
@@ -8,6 +9,7 @@ public class FormationCreateRequest {
     private UnitType unitType;
     private UnitRank rank;
     private Faction faction;
+    @Valid
     private Position hqPosition;
     private FormationType formationType;
     private int spacing; // meters, default 100
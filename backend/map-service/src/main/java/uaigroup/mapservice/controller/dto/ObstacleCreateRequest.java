@@ -1,11 +1,12 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import uaigroup.mapservice.model.ObstacleType;
 import uaigroup.mapservice.model.Position;
 
 public record ObstacleCreateRequest(
-    Position startPosition,
-    Position endPosition,
+    @Valid Position startPosition,
+    @Valid Position endPosition,
     ObstacleType type
 ) {
 }
\ No newline at end of file
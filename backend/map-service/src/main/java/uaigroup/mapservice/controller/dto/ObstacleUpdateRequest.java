@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import uaigroup.mapservice.model.ObstacleType;
 import uaigroup.mapservice.model.Position;
 
@@ -7,8 +8,8 @@ import java.time.LocalDateTime;
 
 public record ObstacleUpdateRequest(
     String id,
-    Position startPosition,
-    Position endPosition,
+    @Valid Position startPosition,
+    @Valid Position endPosition,
     ObstacleType type,
     LocalDateTime updatedAt
 ) {}
\ No newline at end of file
@@ -6,4 +6,5 @@ import lombok.Data;
 public class ReplayStartRequest {
     private String battleName;
     private String description;
+    private Integer snapshotIntervalSeconds;    // Optional, defaults to replays.snapshot-interval-seconds
 }
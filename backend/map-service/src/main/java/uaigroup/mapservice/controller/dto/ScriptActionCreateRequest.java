@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import uaigroup.mapservice.model.*;
 
 public record ScriptActionCreateRequest(
@@ -14,7 +15,7 @@ public record ScriptActionCreateRequest(
     TriggerCondition condition,
     Double conditionValue,
     String conditionUnitId,
-    Position targetPosition,
+    @Valid Position targetPosition,
     String targetUnitId,
     Integer durationSeconds
 ) {}
@@ -1,5 +1,6 @@
 package uaigroup.mapservice.controller.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import uaigroup.mapservice.model.Position;
@@ -10,7 +11,7 @@ import java.time.LocalDateTime;
 
 public record UnitUpdateRequest(
     String id,
-    Position position,
+    @Valid Position position,
     Status status,
     int personnel,
     int vehicles,
@@ -12,6 +12,7 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 public class BattleEvent {
+    private long sequence;                  // Position in the replay's event stream, assigned on record
     private LocalDateTime timestamp;
     private EventType eventType;
     private String unitId;
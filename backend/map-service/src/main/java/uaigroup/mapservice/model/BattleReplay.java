@@ -2,6 +2,8 @@ package uaigroup.mapservice.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -18,12 +20,21 @@ public class BattleReplay {
 
     private LocalDateTime startTime;
     private LocalDateTime endTime;
+    @Indexed
     private boolean isRecording;
     private boolean isCompleted;
 
+    // Stored in replay_snapshots / replay_events; only filled when a whole replay is assembled
+    @Transient
     private List<BattleSnapshot> snapshots = new ArrayList<>();
+    @Transient
     private List<BattleEvent> events = new ArrayList<>();
 
+    private int snapshotCount;
+    private long eventCount;
+    private LocalDateTime lastSnapshotAt;
+    private int snapshotIntervalSeconds;    // Capture cadence of this recording
+
     private ReplayStatistics statistics;
 
     private LocalDateTime createdAt;
@@ -1,11 +1,14 @@
 package uaigroup.mapservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.Data;
+import org.springframework.data.annotation.AccessType;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -21,6 +24,11 @@ public class GeneralUnit {
     private Position position;
     private Status status;
 
+    // GeoJSON copy of position backing the 2dsphere index, always derived on write
+    @JsonIgnore
+    @AccessType(AccessType.Type.PROPERTY)
+    private GeoJsonPoint location;
+
     @Min(0)
     @Max(5000)
     private int personnel;
@@ -72,4 +80,8 @@ public class GeneralUnit {
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    public GeoJsonPoint getLocation() {
+        return position != null ? position.toGeoJsonPoint() : null;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package uaigroup.mapservice.model;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +11,9 @@ import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 @AllArgsConstructor
 @NoArgsConstructor
 public class Position {
+    @DecimalMin("-90.0") @DecimalMax("90.0")
     private double latitude;
+    @DecimalMin("-180.0") @DecimalMax("180.0")
     private double longitude;
     
     public GeoJsonPoint toGeoJsonPoint() {
@@ -0,0 +1,41 @@
+package uaigroup.mapservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Events of a replay that fell into one time bucket.
+ * Events are $push-ed into the open bucket; once it holds the maximum count a new
+ * bucket document is started for the same time window.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "replay_events")
+@CompoundIndexes({
+        @CompoundIndex(name = "replay_bucket", def = "{'replayId': 1, 'bucketStart': 1, 'count': 1}"),
+        @CompoundIndex(name = "replay_sequence", def = "{'replayId': 1, 'firstSequence': 1}")
+})
+public class ReplayEventBucket {
+    @Id
+    private String id;
+    private String replayId;
+    private LocalDateTime bucketStart;       // Start of the time window the events belong to
+    private long firstSequence;
+    private long lastSequence;
+    private int count;
+
+    @Builder.Default
+    private List<BattleEvent> events = new ArrayList<>();
+}
@@ -0,0 +1,41 @@
+package uaigroup.mapservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One captured snapshot of a replay, stored on its own so recording only ever inserts.
+ * Keyframes hold the full snapshot; the records in between only hold the delta to the
+ * previous sequence and are rebuilt by replaying deltas forward from keyframeSequence.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "replay_snapshots")
+@CompoundIndexes({
+        @CompoundIndex(name = "replay_sequence", def = "{'replayId': 1, 'sequence': 1}", unique = true),
+        @CompoundIndex(name = "replay_timestamp", def = "{'replayId': 1, 'timestamp': 1}")
+})
+public class ReplaySnapshotRecord {
+    @Id
+    private String id;
+    private String replayId;
+    private int sequence;                   // Same as the snapshot's snapshotNumber
+    private LocalDateTime timestamp;
+    private int keyframeSequence;           // Keyframe the delta chain starts from
+    private BattleSnapshot snapshot;        // Set on keyframes
+    private SnapshotDelta delta;            // Set on all other records
+
+    public boolean isKeyframe() {
+        return snapshot != null;
+    }
+}
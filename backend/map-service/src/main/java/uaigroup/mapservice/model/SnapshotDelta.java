@@ -0,0 +1,28 @@
+package uaigroup.mapservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Difference between a replay snapshot and the one captured right before it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotDelta {
+    @Builder.Default
+    private List<UnitPatch> changedUnits = new ArrayList<>();
+    // New units, and units that changed in fields a patch does not carry
+    @Builder.Default
+    private List<GeneralUnit> upsertedUnits = new ArrayList<>();
+    @Builder.Default
+    private List<String> removedUnitIds = new ArrayList<>();
+    private List<Obstacle> obstacles;       // Null when unchanged
+    private List<Action> activeActions;     // Null when unchanged
+}
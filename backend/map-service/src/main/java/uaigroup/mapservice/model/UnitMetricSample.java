@@ -0,0 +1,33 @@
+package uaigroup.mapservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One point of a unit's state history, stored in the unit_metrics time-series collections.
+ * Raw samples hold the unit's values at a mutation (samples = 1); minute rollups and
+ * downsampled query results hold averages over the samples that fell into their bin,
+ * with the last known position.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnitMetricSample {
+    private String unitId;
+    private String userId;
+    private Faction faction;
+    private LocalDateTime timestamp;
+
+    private double morale;
+    private double supplyLevel;
+    private double personnel;
+    private double vehicles;
+    private Position position;
+
+    private int samples;
+}
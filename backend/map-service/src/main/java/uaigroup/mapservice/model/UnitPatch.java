@@ -0,0 +1,25 @@
+package uaigroup.mapservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fields of one unit that changed between two replay snapshots; null means unchanged.
+ * Comms fields travel together, hasCommsLink being set means all three are current.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnitPatch {
+    private String unitId;
+    private Position position;
+    private Status status;
+    private Double morale;
+    private Integer supplyLevel;
+    private Boolean hasCommsLink;
+    private String linkedCommsUnitId;
+    private Integer commsStrength;
+}
@@ -9,4 +9,5 @@ public interface BattleReplayRepository extends MongoRepository<BattleReplay, St
     List<BattleReplay> findByUserId(String userId);
     List<BattleReplay> findByUserIdAndIsCompleted(String userId, boolean isCompleted);
     Optional<BattleReplay> findByUserIdAndIsRecording(String userId, boolean isRecording);
+    List<BattleReplay> findByIsRecordingTrue();
 }
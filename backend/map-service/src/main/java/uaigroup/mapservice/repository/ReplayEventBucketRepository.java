@@ -0,0 +1,14 @@
+package uaigroup.mapservice.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import uaigroup.mapservice.model.ReplayEventBucket;
+
+import java.util.List;
+
+public interface ReplayEventBucketRepository extends MongoRepository<ReplayEventBucket, String> {
+    List<ReplayEventBucket> findByReplayIdAndLastSequenceGreaterThanEqual(
+            String replayId, long fromSequence, Pageable pageable);
+
+    void deleteByReplayId(String replayId);
+}
@@ -0,0 +1,26 @@
+package uaigroup.mapservice.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import uaigroup.mapservice.model.ReplaySnapshotRecord;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReplaySnapshotRecordRepository extends MongoRepository<ReplaySnapshotRecord, String> {
+    List<ReplaySnapshotRecord> findByReplayIdAndSequenceGreaterThanEqual(
+            String replayId, int fromSequence, Pageable pageable);
+
+    Optional<ReplaySnapshotRecord> findFirstByReplayIdAndSequenceGreaterThanEqualOrderBySequenceAsc(
+            String replayId, int fromSequence);
+
+    Optional<ReplaySnapshotRecord> findFirstByReplayIdAndTimestampLessThanEqualOrderBySequenceDesc(
+            String replayId, LocalDateTime timestamp);
+
+    Optional<ReplaySnapshotRecord> findFirstByReplayIdOrderBySequenceAsc(String replayId);
+
+    Optional<ReplaySnapshotRecord> findFirstByReplayIdOrderBySequenceDesc(String replayId);
+
+    void deleteByReplayId(String replayId);
+}
@@ -1,34 +1,126 @@
 package uaigroup.mapservice.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import uaigroup.mapservice.service.RecordingRegistry.ActiveRecording;
 import uaigroup.mapservice.model.*;
 import uaigroup.mapservice.repository.*;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BattleReplayService {
 
+    private static final int EVENT_STREAM_PAGE_SIZE = 500;
+
     private final BattleReplayRepository replayRepository;
-    private final UnitRepository unitRepository;
-    private final ObstacleRepository obstacleRepository;
-    private final ActionRepository actionRepository;
+    private final WorldCaptureService worldCaptureService;
+    private final ReplayStore replayStore;
+    private final RecordingRegistry recordingRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${replays.snapshot-interval-seconds:10}")
+    private int defaultSnapshotIntervalSeconds;
+
+    @Value("${replays.capture-threads:2}")
+    private int captureThreads;
+
+    @Value("${replays.archive-compression-level:1}")
+    private int archiveCompressionLevel;
+
+    @Value("${replays.event-buffer-size:10000}")
+    private int eventBufferSize;
+
+    @Value("${replays.event-flush-batch-size:1000}")
+    private int eventFlushBatchSize;
+
+    private final AtomicLong eventsAccepted = new AtomicLong();
+    private final AtomicLong eventsRejected = new AtomicLong();
+    private final AtomicLong eventsWritten = new AtomicLong();
+    private final AtomicLong eventBatchesWritten = new AtomicLong();
+    private final AtomicLong failedEventBatches = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+
+    private ExecutorService captureExecutor;
+    private HashedTimerWheel captureTimers;
+    private ReplayArchiveCodec archiveCodec;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        captureExecutor = Executors.newFixedThreadPool(captureThreads, runnable -> {
+            Thread thread = new Thread(runnable, "replay-capture-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        captureTimers = new HashedTimerWheel(100, TimeUnit.MILLISECONDS, 512, captureExecutor, "replay-capture-timer");
+        archiveCodec = new ReplayArchiveCodec(objectMapper, archiveCompressionLevel);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Buffered events would be lost; the recordings themselves resume after the restart
+        flushEvents();
+        captureTimers.close();
+        captureExecutor.shutdown();
+    }
+
+    /**
+     * Put recordings that were still running at shutdown back into the registry
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreActiveRecordings() {
+        for (BattleReplay replay : replayRepository.findByIsRecordingTrue()) {
+            ActiveRecording recording = new ActiveRecording(replay, snapshotIntervalMillis(replay), eventBufferSize);
+            if (recordingRegistry.register(recording)) {
+                restoreStatistics(recording);
+                scheduleCapture(recording);
+            }
+        }
+        if (recordingRegistry.size() > 0) {
+            log.info("Resumed {} active battle recordings", recordingRegistry.size());
+        }
+    }
+
+    /**
+     * Rebuild the running statistics of a resumed recording from what it stored so far
+     */
+    private void restoreStatistics(ActiveRecording recording) {
+        ReplayStatisticsAccumulator statistics = recording.statistics();
+        replayStore.findFirstSnapshot(recording.replayId()).ifPresent(statistics::onSnapshot);
+        replayStore.findLastSnapshot(recording.replayId()).ifPresent(statistics::onSnapshot);
+        replayStore.forEachEvent(recording.replayId(), statistics::onEvent);
+    }
 
     /**
      * Start recording a new battle replay
+     *
+     * @param snapshotIntervalSeconds capture cadence of this recording, null for the default
      */
-    public BattleReplay startRecording(String userId, String battleName, String description) {
+    public BattleReplay startRecording(String userId, String battleName, String description,
+                                       Integer snapshotIntervalSeconds) {
         // Check if there's already an active recording
-        Optional<BattleReplay> activeRecording = replayRepository.findByUserIdAndIsRecording(userId, true);
-        if (activeRecording.isPresent()) {
+        if (recordingRegistry.findByUser(userId).isPresent()) {
             throw new IllegalStateException("A battle recording is already in progress");
         }
 
@@ -39,34 +131,67 @@ public class BattleReplayService {
         replay.setStartTime(LocalDateTime.now());
         replay.setRecording(true);
         replay.setCompleted(false);
+        replay.setSnapshotIntervalSeconds(snapshotIntervalSeconds != null && snapshotIntervalSeconds > 0
+                ? snapshotIntervalSeconds : defaultSnapshotIntervalSeconds);
         replay.setCreatedAt(LocalDateTime.now());
         replay.setUpdatedAt(LocalDateTime.now());
+        // Saved first: snapshots and events are stored under its ID
+        replay = replayRepository.save(replay);
+
+        ActiveRecording recording = new ActiveRecording(replay, snapshotIntervalMillis(replay), eventBufferSize);
+        if (!recordingRegistry.register(recording)) {
+            // Lost a race with a concurrent start of the same user
+            replayRepository.delete(replay);
+            throw new IllegalStateException("A battle recording is already in progress");
+        }
 
         // Capture initial snapshot
-        captureSnapshot(replay);
+        captureSnapshot(recording);
 
         // Record battle started event
-        recordEvent(replay, BattleEvent.builder()
+        recordEvent(recording, BattleEvent.builder()
                 .timestamp(LocalDateTime.now())
                 .eventType(EventType.BATTLE_STARTED)
                 .description("Battle recording started: " + battleName)
                 .build());
 
-        return replayRepository.save(replay);
+        scheduleCapture(recording);
+        return replay;
     }
 
     /**
-     * Stop recording and finalize the replay with statistics
+     * Stop recording and finalize the replay with statistics.
+     * Fails, leaving the recording running, when its buffered events cannot be written.
      */
     public BattleReplay stopRecording(String userId) {
-        BattleReplay replay = replayRepository.findByUserIdAndIsRecording(userId, true)
+        ActiveRecording recording = recordingRegistry.findByUser(userId)
                 .orElseThrow(() -> new IllegalStateException("No active recording found"));
 
+        // Write what clients posted before the end event. The recording stays registered until
+        // that succeeds, so on failure the scheduled flush keeps retrying and stop can be repeated.
+        recording.events().close();
+        if (!flushEvents(recording)) {
+            throw new RuntimeException("Could not write the buffered events of replay " + recording.replayId()
+                    + "; the recording is still running, stop it again");
+        }
+        if (recordingRegistry.remove(userId).isEmpty()) {
+            throw new IllegalStateException("No active recording found");
+        }
+        recording.stop();
+        BattleReplay replay = recording.replay();
+
+        // Closed and flushed, so nothing should be left; anything that is will never be written
+        int leftover = recording.events().drain(Integer.MAX_VALUE).size();
+        if (leftover > 0) {
+            eventsDropped.addAndGet(leftover);
+            log.warn("Dropped {} events left in the buffer of stopped replay {}", leftover, replay.getId());
+        }
+
         // Capture final snapshot
-        captureSnapshot(replay);
+        captureSnapshot(recording);
 
         // Record battle ended event
-        recordEvent(replay, BattleEvent.builder()
+        recordEvent(recording, BattleEvent.builder()
                 .timestamp(LocalDateTime.now())
                 .eventType(EventType.BATTLE_ENDED)
                 .description("Battle recording ended")
@@ -77,79 +202,198 @@ public class BattleReplayService {
         replay.setCompleted(true);
         replay.setUpdatedAt(LocalDateTime.now());
 
-        // Calculate statistics
-        replay.setStatistics(calculateStatistics(replay));
+        // Maintained while recording, nothing left to scan
+        replay.setStatistics(recording.statistics().toStatistics(replay.getEndTime()));
 
-        return replayRepository.save(replay);
+        // Only the summary fields are written; counters belong to ReplayStore
+        replayStore.finish(replay.getId(), replay.getEndTime(), replay.getStatistics());
+        return replay;
     }
 
     /**
      * Record an event during the battle
      */
-    public void recordEvent(String userId, BattleEvent event) {
-        Optional<BattleReplay> activeRecording = replayRepository.findByUserIdAndIsRecording(userId, true);
-        if (activeRecording.isPresent()) {
-            recordEvent(activeRecording.get(), event);
-            replayRepository.save(activeRecording.get());
-        }
+    public EventIngestResult recordEvent(String userId, BattleEvent event) {
+        return recordEvents(userId, List.of(event));
     }
 
-    private void recordEvent(BattleReplay replay, BattleEvent event) {
-        if (event.getTimestamp() == null) {
-            event.setTimestamp(LocalDateTime.now());
+    /**
+     * Accept events of the user's recording into its buffer; they are written by the next flush.
+     * A batch is accepted whole or not at all, so a caller told the buffer is full can retry it.
+     */
+    public EventIngestResult recordEvents(String userId, List<BattleEvent> events) {
+        Optional<ActiveRecording> found = recordingRegistry.findByUser(userId);
+        if (found.isEmpty()) {
+            return EventIngestResult.NO_RECORDING;
+        }
+        ActiveRecording recording = found.get();
+        if (events.isEmpty()) {
+            return EventIngestResult.ACCEPTED;
         }
-        replay.getEvents().add(event);
+
+        // Stamped on arrival, not when the flush gets to them
+        LocalDateTime now = LocalDateTime.now();
+        for (BattleEvent event : events) {
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(now);
+            }
+        }
+        if (!recording.events().offer(events)) {
+            if (recording.events().isClosed()) {
+                return EventIngestResult.NO_RECORDING;
+            }
+            eventsRejected.addAndGet(events.size());
+            return EventIngestResult.BUFFER_FULL;
+        }
+        for (BattleEvent event : events) {
+            recording.statistics().onEvent(event);
+        }
+        eventsAccepted.addAndGet(events.size());
+        return EventIngestResult.ACCEPTED;
+    }
+
+    /**
+     * Write a lifecycle event right away, bypassing the buffer
+     */
+    private void recordEvent(ActiveRecording recording, BattleEvent event) {
+        BattleReplay replay = recording.replay();
+        replayStore.appendEvent(replay.getId(), event);
+        replay.setEventCount(event.getSequence());
+        recording.statistics().onEvent(event);
         log.debug("Recorded event: {} for replay {}", event.getEventType(), replay.getId());
     }
 
+    /**
+     * Write the buffered events of every active recording in bulk
+     */
+    @Scheduled(fixedDelayString = "${replays.event-flush-interval-ms:200}")
+    public void flushEvents() {
+        for (ActiveRecording recording : recordingRegistry.all()) {
+            flushEvents(recording);
+        }
+    }
+
+    /**
+     * Write the recording's buffered events in batches, oldest first
+     *
+     * @return whether the buffer was emptied; false when a batch failed and went back to the buffer
+     */
+    private boolean flushEvents(ActiveRecording recording) {
+        ReplayEventBuffer buffer = recording.events();
+        buffer.flushLock().lock();
+        try {
+            List<BattleEvent> batch;
+            while (!(batch = buffer.drain(eventFlushBatchSize)).isEmpty()) {
+                try {
+                    replayStore.appendEvents(recording.replayId(), batch);
+                } catch (Exception e) {
+                    // Back to the head for the next flush; sequence numbers handed out for them are skipped
+                    failedEventBatches.incrementAndGet();
+                    eventsDropped.addAndGet(buffer.requeue(batch));
+                    log.warn("Failed to write {} events of replay {}: {}", batch.size(), recording.replayId(),
+                            e.getMessage());
+                    return false;
+                }
+                recording.replay().setEventCount(batch.get(batch.size() - 1).getSequence());
+                eventsWritten.addAndGet(batch.size());
+                eventBatchesWritten.incrementAndGet();
+            }
+            return true;
+        } finally {
+            buffer.flushLock().unlock();
+        }
+    }
+
+    public EventIngestStats getEventIngestStats() {
+        int buffered = 0;
+        for (ActiveRecording recording : recordingRegistry.all()) {
+            buffered += recording.events().size();
+        }
+        return new EventIngestStats(
+                eventsAccepted.get(),
+                eventsRejected.get(),
+                eventsWritten.get(),
+                eventBatchesWritten.get(),
+                failedEventBatches.get(),
+                eventsDropped.get(),
+                buffered
+        );
+    }
+
     /**
      * Capture current battle state as a snapshot
      */
     public void captureSnapshot(String userId) {
-        Optional<BattleReplay> activeRecording = replayRepository.findByUserIdAndIsRecording(userId, true);
-        if (activeRecording.isPresent()) {
-            BattleReplay replay = activeRecording.get();
-            captureSnapshot(replay);
-            replayRepository.save(replay);
-        }
+        recordingRegistry.findByUser(userId).ifPresent(this::captureSnapshot);
     }
 
-    private void captureSnapshot(BattleReplay replay) {
-        List<GeneralUnit> units = unitRepository.findAll();
-        List<Obstacle> obstacles = obstacleRepository.findAll();
-        List<Action> activeActions = actionRepository.findByStatus(ActionStatus.EXECUTING);
+    private void captureSnapshot(ActiveRecording recording) {
+        BattleReplay replay = recording.replay();
+        // Shared with every other recording capturing in the same tick
+        WorldCaptureService.WorldCapture world = worldCaptureService.capture();
 
         BattleSnapshot snapshot = BattleSnapshot.builder()
                 .timestamp(LocalDateTime.now())
-                .units(deepCopyUnits(units))
-                .obstacles(deepCopyObstacles(obstacles))
-                .activeActions(deepCopyActions(activeActions))
-                .snapshotNumber(replay.getSnapshots().size() + 1)
+                .units(world.units())
+                .obstacles(world.obstacles())
+                .activeActions(world.activeActions())
                 .build();
 
-        replay.getSnapshots().add(snapshot);
-        replay.setUpdatedAt(LocalDateTime.now());
+        replayStore.appendSnapshot(replay.getId(), snapshot);
+        replay.setSnapshotCount(snapshot.getSnapshotNumber());
+        replay.setLastSnapshotAt(snapshot.getTimestamp());
+        recording.statistics().onSnapshot(snapshot);
         log.debug("Captured snapshot #{} for replay {}", snapshot.getSnapshotNumber(), replay.getId());
     }
 
     /**
-     * Scheduled task to capture snapshots every 10 seconds for active recordings
+     * Arm the next scheduled capture of a recording at the next multiple of its interval.
+     * Aligning to the clock makes recordings with the same cadence fire in the same tick,
+     * where they share one world capture.
      */
-    @Scheduled(fixedRate = 10000)
-    public void captureScheduledSnapshots() {
-        List<BattleReplay> activeRecordings = replayRepository.findAll()
-                .stream()
-                .filter(r -> r.isRecording() && !r.isCompleted())
-                .toList();
-
-        for (BattleReplay replay : activeRecordings) {
-            try {
-                captureSnapshot(replay);
-                replayRepository.save(replay);
-            } catch (Exception e) {
-                log.error("Failed to capture scheduled snapshot for replay {}: {}", replay.getId(), e.getMessage());
-            }
+    private void scheduleCapture(ActiveRecording recording) {
+        if (recording.isStopped()) {
+            return;
+        }
+        long interval = recording.intervalMillis();
+        long delay = interval - System.currentTimeMillis() % interval;
+        recording.setCaptureTimer(captureTimers.schedule(() -> captureScheduledSnapshot(recording),
+                delay, TimeUnit.MILLISECONDS));
+    }
+
+    private void captureScheduledSnapshot(ActiveRecording recording) {
+        if (recording.isStopped()) {
+            return;
+        }
+        try {
+            captureSnapshot(recording);
+        } catch (Exception e) {
+            log.error("Failed to capture scheduled snapshot for replay {}: {}", recording.replayId(), e.getMessage());
+        } finally {
+            scheduleCapture(recording);
+        }
+    }
+
+    private long snapshotIntervalMillis(BattleReplay replay) {
+        int seconds = replay.getSnapshotIntervalSeconds() > 0
+                ? replay.getSnapshotIntervalSeconds() : defaultSnapshotIntervalSeconds;
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Statistics of a replay: running figures while it is being recorded, the stored ones after
+     */
+    public ReplayStatistics getStatistics(String replayId) {
+        Optional<ActiveRecording> recording = recordingRegistry.findByReplayId(replayId);
+        if (recording.isPresent()) {
+            return recording.get().statistics().toStatistics(LocalDateTime.now());
         }
+        ReplayStatistics statistics = getReplay(replayId).getStatistics();
+        return statistics != null ? statistics : new ReplayStatistics();
+    }
+
+    public WorldCaptureService.CaptureStats getCaptureStats() {
+        return worldCaptureService.getStats();
     }
 
     /**
@@ -160,7 +404,7 @@ public class BattleReplayService {
     }
 
     /**
-     * Get a specific replay by ID
+     * Get a specific replay by ID; snapshots and events are fetched separately
      */
     public BattleReplay getReplay(String replayId) {
         return replayRepository.findById(replayId)
@@ -168,109 +412,162 @@ public class BattleReplayService {
     }
 
     /**
-     * Delete a replay
+     * Replay metadata plus the sequence and time of every frame, what a viewer needs to seek
      */
-    public void deleteReplay(String replayId) {
-        replayRepository.deleteById(replayId);
+    public ReplayIndex getReplayIndex(String replayId) {
+        BattleReplay replay = getReplay(replayId);
+        return new ReplayIndex(replay, replayStore.findFrameIndex(replayId));
     }
 
     /**
-     * Calculate statistics for the replay
+     * Frames fromSequence..toSequence (inclusive), at most maxFrames of them
      */
-    private ReplayStatistics calculateStatistics(BattleReplay replay) {
-        if (replay.getSnapshots().isEmpty()) {
-            return new ReplayStatistics();
+    public List<BattleSnapshot> getFrames(String replayId, int fromSequence, int toSequence, int maxFrames) {
+        requireReplay(replayId);
+        int count = Math.min(toSequence - fromSequence + 1, maxFrames);
+        if (count <= 0) {
+            return List.of();
         }
+        return replayStore.findSnapshots(replayId, fromSequence, count).items();
+    }
 
-        BattleSnapshot firstSnapshot = replay.getSnapshots().get(0);
-        BattleSnapshot lastSnapshot = replay.getSnapshots().get(replay.getSnapshots().size() - 1);
-
-        // Count units by faction
-        int totalUnits = firstSnapshot.getUnits().size();
-        long blueForceUnits = firstSnapshot.getUnits().stream()
-                .filter(u -> u.getFaction() == Faction.BLUE_FORCE)
-                .count();
-        long redForceUnits = firstSnapshot.getUnits().stream()
-                .filter(u -> u.getFaction() == Faction.RED_FORCE)
-                .count();
-
-        // Count destroyed units
-        Set<String> initialUnitIds = firstSnapshot.getUnits().stream()
-                .map(GeneralUnit::getId)
-                .collect(Collectors.toSet());
-        Set<String> finalUnitIds = lastSnapshot.getUnits().stream()
-                .map(GeneralUnit::getId)
-                .collect(Collectors.toSet());
-        initialUnitIds.removeAll(finalUnitIds);
-        int unitsDestroyed = initialUnitIds.size();
-
-        // Calculate destroyed by faction
-        int blueDestroyed = (int) firstSnapshot.getUnits().stream()
-                .filter(u -> u.getFaction() == Faction.BLUE_FORCE && initialUnitIds.contains(u.getId()))
-                .count();
-        int redDestroyed = (int) firstSnapshot.getUnits().stream()
-                .filter(u -> u.getFaction() == Faction.RED_FORCE && initialUnitIds.contains(u.getId()))
-                .count();
-
-        // Calculate average supply level
-        double avgHealth = lastSnapshot.getUnits().stream()
-                .mapToInt(GeneralUnit::getSupplyLevel)
-                .average()
-                .orElse(0.0);
-        double blueAvgHealth = lastSnapshot.getUnits().stream()
-                .filter(u -> u.getFaction() == Faction.BLUE_FORCE)
-                .mapToInt(GeneralUnit::getSupplyLevel)
-                .average()
-                .orElse(0.0);
-        double redAvgHealth = lastSnapshot.getUnits().stream()
-                .filter(u -> u.getFaction() == Faction.RED_FORCE)
-                .mapToInt(GeneralUnit::getSupplyLevel)
-                .average()
-                .orElse(0.0);
-
-        // Count events by type
-        Map<EventType, Integer> eventsByType = new HashMap<>();
-        for (BattleEvent event : replay.getEvents()) {
-            eventsByType.merge(event.getEventType(), 1, Integer::sum);
+    /**
+     * Frames showing the battle between fromTime and toTime, at most maxFrames of them
+     */
+    public List<BattleSnapshot> getFramesBetween(String replayId, LocalDateTime fromTime, LocalDateTime toTime, int maxFrames) {
+        requireReplay(replayId);
+        int from = replayStore.findSequenceAt(replayId, fromTime).orElse(1);
+        int to = replayStore.findSequenceAt(replayId, toTime).orElse(from);
+        return getFrames(replayId, from, to, maxFrames);
+    }
+
+    /**
+     * Visit events in order, optionally within a time window, reading one page at a time
+     */
+    public void streamEvents(String replayId, long fromSequence, LocalDateTime fromTime, LocalDateTime toTime,
+                             Consumer<BattleEvent> consumer) {
+        requireReplay(replayId);
+        Long cursor = Math.max(fromSequence, 1);
+        while (cursor != null) {
+            ReplayStore.ReplayPage<BattleEvent> page = replayStore.findEvents(replayId, cursor, EVENT_STREAM_PAGE_SIZE);
+            for (BattleEvent event : page.items()) {
+                if (toTime != null && event.getTimestamp().isAfter(toTime)) {
+                    return;
+                }
+                if (fromTime == null || !event.getTimestamp().isBefore(fromTime)) {
+                    consumer.accept(event);
+                }
+            }
+            cursor = page.nextCursor();
         }
+    }
 
-        // Calculate duration
-        long durationSeconds = Duration.between(replay.getStartTime(), replay.getEndTime()).getSeconds();
-
-        return ReplayStatistics.builder()
-                .totalUnits(totalUnits)
-                .blueForceUnits((int) blueForceUnits)
-                .redForceUnits((int) redForceUnits)
-                .unitsDestroyed(unitsDestroyed)
-                .blueForceDestroyed(blueDestroyed)
-                .redForceDestroyed(redDestroyed)
-                .totalActions(lastSnapshot.getActiveActions().size())
-                .completedActions(eventsByType.getOrDefault(EventType.ACTION_COMPLETED, 0))
-                .failedActions(eventsByType.getOrDefault(EventType.ACTION_FAILED, 0))
-                .totalEvents(replay.getEvents().size())
-                .eventsByType(eventsByType)
-                .averageUnitHealth(avgHealth)
-                .blueForceAverageHealth(blueAvgHealth)
-                .redForceAverageHealth(redAvgHealth)
-                .communicationEvents(
-                        eventsByType.getOrDefault(EventType.COMMS_ESTABLISHED, 0) +
-                        eventsByType.getOrDefault(EventType.COMMS_LOST, 0)
-                )
-                .attackEvents(eventsByType.getOrDefault(EventType.UNIT_ATTACKED, 0))
-                .movementEvents(eventsByType.getOrDefault(EventType.UNIT_MOVED, 0))
-                .durationSeconds(durationSeconds)
-                .snapshotCount(replay.getSnapshots().size())
-                .build();
+    /**
+     * Page of snapshots starting at fromSequence
+     */
+    public ReplayStore.ReplayPage<BattleSnapshot> getSnapshots(String replayId, int fromSequence, int limit) {
+        requireReplay(replayId);
+        return replayStore.findSnapshots(replayId, fromSequence, limit);
     }
 
-    // Deep copy methods to avoid references
-    private List<GeneralUnit> deepCopyUnits(List<GeneralUnit> units) {
-        return units.stream()
-                .map(this::copyUnit)
-                .collect(Collectors.toList());
+    /**
+     * A single snapshot, rebuilt from the nearest keyframe when it was stored as a delta
+     */
+    public BattleSnapshot getSnapshot(String replayId, int sequence) {
+        return replayStore.findSnapshot(replayId, sequence)
+                .orElseThrow(() -> new IllegalArgumentException("Snapshot " + sequence + " not found in replay " + replayId));
+    }
+
+    /**
+     * Page of events starting at fromSequence
+     */
+    public ReplayStore.ReplayPage<BattleEvent> getEvents(String replayId, long fromSequence, int limit) {
+        requireReplay(replayId);
+        return replayStore.findEvents(replayId, fromSequence, limit);
+    }
+
+    /**
+     * Write a finished replay as a binary archive, snapshot by snapshot and event block by event block
+     */
+    public void exportReplay(String replayId, WritableByteChannel channel) {
+        BattleReplay replay = getReplay(replayId);
+        if (replay.isRecording()) {
+            throw new IllegalStateException("Replay is still being recorded: " + replayId);
+        }
+
+        ReplayArchiveCodec.Writer writer = archiveCodec.writer(channel);
+        writer.writeHeader(replay);
+        replayStore.forEachSnapshot(replayId, writer::writeSnapshot);
+
+        List<BattleEvent> block = new ArrayList<>(ReplayArchiveCodec.EVENTS_PER_BLOCK);
+        replayStore.forEachEvent(replayId, event -> {
+            block.add(event);
+            if (block.size() == ReplayArchiveCodec.EVENTS_PER_BLOCK) {
+                writer.writeEvents(block);
+                block.clear();
+            }
+        });
+        writer.writeEvents(block);
+        writer.finish();
+    }
+
+    /**
+     * Load a replay archive as a new completed replay owned by userId
+     */
+    public BattleReplay importReplay(String userId, ReadableByteChannel channel) throws IOException {
+        BattleReplay[] imported = new BattleReplay[1];
+        try {
+            archiveCodec.reader(channel).read(
+                    header -> imported[0] = replayRepository.save(importedReplay(userId, header)),
+                    snapshot -> replayStore.appendSnapshot(imported[0].getId(), snapshot),
+                    events -> replayStore.appendEvents(imported[0].getId(), events));
+        } catch (IOException | RuntimeException e) {
+            if (imported[0] != null) {
+                deleteReplay(imported[0].getId());
+            }
+            throw e;
+        }
+        if (imported[0] == null) {
+            throw new IllegalArgumentException("Replay archive has no header");
+        }
+
+        BattleReplay replay = imported[0];
+        replayStore.finish(replay.getId(), replay.getEndTime(), replay.getStatistics());
+        return getReplay(replay.getId());
     }
 
-    private GeneralUnit copyUnit(GeneralUnit unit) {
+    private BattleReplay importedReplay(String userId, BattleReplay header) {
+        BattleReplay replay = new BattleReplay();
+        replay.setUserId(userId);
+        replay.setBattleName(header.getBattleName());
+        replay.setDescription(header.getDescription());
+        replay.setStartTime(header.getStartTime());
+        replay.setEndTime(header.getEndTime());
+        replay.setRecording(false);
+        replay.setCompleted(true);
+        replay.setSnapshotIntervalSeconds(header.getSnapshotIntervalSeconds());
+        replay.setStatistics(header.getStatistics());
+        replay.setCreatedAt(LocalDateTime.now());
+        replay.setUpdatedAt(LocalDateTime.now());
+        return replay;
+    }
+
+    /**
+     * Delete a replay
+     */
+    public void deleteReplay(String replayId) {
+        replayRepository.deleteById(replayId);
+        replayStore.deleteContent(replayId);
+    }
+
+    private void requireReplay(String replayId) {
+        if (!replayRepository.existsById(replayId)) {
+            throw new IllegalArgumentException("Replay not found: " + replayId);
+        }
+    }
+
+    // Deep copy methods to avoid references
+    static GeneralUnit copyUnit(GeneralUnit unit) {
         GeneralUnit copy = new GeneralUnit();
         copy.setId(unit.getId());
         copy.setUserId(unit.getUserId());
@@ -297,7 +594,7 @@ public class BattleReplayService {
         return copy;
     }
 
-    private Position copyPosition(Position position) {
+    private static Position copyPosition(Position position) {
         if (position == null) return null;
         Position copy = new Position();
         copy.setLatitude(position.getLatitude());
@@ -305,13 +602,7 @@ public class BattleReplayService {
         return copy;
     }
 
-    private List<Obstacle> deepCopyObstacles(List<Obstacle> obstacles) {
-        return obstacles.stream()
-                .map(this::copyObstacle)
-                .collect(Collectors.toList());
-    }
-
-    private Obstacle copyObstacle(Obstacle obstacle) {
+    static Obstacle copyObstacle(Obstacle obstacle) {
         Obstacle copy = new Obstacle();
         copy.setId(obstacle.getId());
         copy.setCreatedBy(obstacle.getCreatedBy());
@@ -321,13 +612,7 @@ public class BattleReplayService {
         return copy;
     }
 
-    private List<Action> deepCopyActions(List<Action> actions) {
-        return actions.stream()
-                .map(this::copyAction)
-                .collect(Collectors.toList());
-    }
-
-    private Action copyAction(Action action) {
+    static Action copyAction(Action action) {
         Action copy = new Action();
         copy.setId(action.getId());
         copy.setUnitId(action.getUnitId());
@@ -339,4 +624,29 @@ public class BattleReplayService {
         copy.setDurationSeconds(action.getDurationSeconds());
         return copy;
     }
+
+    public record ReplayIndex(BattleReplay replay, List<ReplayStore.FrameIndexEntry> frames) {}
+
+    public enum EventIngestResult {
+        ACCEPTED,
+        // The user has no recording in progress; the events are ignored
+        NO_RECORDING,
+        // The recording's buffer cannot take the events until the flush catches up
+        BUFFER_FULL
+    }
+
+    /**
+     * @param rejected events refused because the buffer was full
+     * @param dropped events lost after a failed write because the buffer had refilled meanwhile
+     * @param buffered events accepted and waiting for the next flush
+     */
+    public record EventIngestStats(
+            long accepted,
+            long rejected,
+            long written,
+            long batches,
+            long failedBatches,
+            long dropped,
+            int buffered
+    ) {}
 }
@@ -0,0 +1,184 @@
+package uaigroup.mapservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects STOMP updates per topic over a short window and sends one array frame per topic.
+ * Keyed updates keep only the latest payload per key (e.g. unit ID), so a unit moved ten
+ * times inside the window goes out once; ordered updates are batched without dropping any.
+ * Payloads are serialized at flush time, so mutable entities go out in their latest state.
+ */
+@Slf4j
+@Service
+public class CoalescingPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowMillis;
+
+    private final Map<String, TopicBuffer> buffers = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+
+    private ScheduledExecutorService flusher;
+
+    public CoalescingPublisher(SimpMessagingTemplate messagingTemplate,
+                               @Value("${websocket.coalesce-window-ms:75}") long windowMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.windowMillis = windowMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Queue a payload that replaces any earlier payload with the same key in this window
+     */
+    public void publishLatest(String topic, String key, Object payload) {
+        buffer(topic).putLatest(key, payload);
+        received.increment();
+    }
+
+    /**
+     * Queue payloads that must all be delivered, in order
+     */
+    public void publishInOrder(String topic, Collection<?> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        buffer(topic).addOrdered(payloads);
+        received.add(payloads.size());
+    }
+
+    /**
+     * Drop a pending keyed payload, e.g. the last update of a unit that was just deleted
+     */
+    public void discard(String topic, String key) {
+        TopicBuffer buffer = buffers.get(topic);
+        if (buffer != null) {
+            buffer.discard(key);
+        }
+    }
+
+    public void discardAll(String topic) {
+        TopicBuffer buffer = buffers.get(topic);
+        if (buffer != null) {
+            buffer.drain();
+        }
+    }
+
+    public void flush() {
+        buffers.forEach((topic, buffer) -> {
+            List<Object> batch = buffer.drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                messagingTemplate.convertAndSend(topic, batch);
+                emitted.add(batch.size());
+                frames.increment();
+            } catch (Exception e) {
+                log.warn("Failed to send {} updates to {}: {}", batch.size(), topic, e.getMessage());
+            }
+        });
+    }
+
+    public CoalescingStats getStats() {
+        long receivedCount = received.sum();
+        long emittedCount = emitted.sum();
+        int queueDepth = buffers.values().stream().mapToInt(TopicBuffer::size).sum();
+        return new CoalescingStats(
+                windowMillis,
+                buffers.size(),
+                queueDepth,
+                receivedCount,
+                emittedCount,
+                frames.sum(),
+                emittedCount > 0 ? (double) receivedCount / emittedCount : 1.0
+        );
+    }
+
+    private TopicBuffer buffer(String topic) {
+        return buffers.computeIfAbsent(topic, t -> new TopicBuffer());
+    }
+
+    /**
+     * Pending payloads of one topic; keyed payloads are sent before ordered ones
+     */
+    private static final class TopicBuffer {
+        private LinkedHashMap<String, Object> latest = new LinkedHashMap<>();
+        private List<Object> ordered = new ArrayList<>();
+
+        synchronized void putLatest(String key, Object payload) {
+            // Re-inserting moves the key to the end, so the frame follows update order
+            latest.remove(key);
+            latest.put(key, payload);
+        }
+
+        synchronized void addOrdered(Collection<?> payloads) {
+            ordered.addAll(payloads);
+        }
+
+        synchronized void discard(String key) {
+            latest.remove(key);
+        }
+
+        synchronized int size() {
+            return latest.size() + ordered.size();
+        }
+
+        synchronized List<Object> drain() {
+            if (latest.isEmpty() && ordered.isEmpty()) {
+                return List.of();
+            }
+            List<Object> batch = new ArrayList<>(latest.size() + ordered.size());
+            batch.addAll(latest.values());
+            batch.addAll(ordered);
+            latest = new LinkedHashMap<>();
+            ordered = new ArrayList<>();
+            return batch;
+        }
+    }
+
+    /**
+     * @param coalescingRatio updates received per update emitted; 1.0 means nothing was merged
+     */
+    public record CoalescingStats(
+            long windowMillis,
+            int topics,
+            int queueDepth,
+            long received,
+            long emitted,
+            long frames,
+            double coalescingRatio
+    ) {}
+}
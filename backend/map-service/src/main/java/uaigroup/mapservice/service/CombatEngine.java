@@ -0,0 +1,457 @@
+package uaigroup.mapservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.*;
+
+import java.util.*;
+
+/**
+ * Deterministic combat resolution between opposing units, in fixed time steps.
+ * Every step each unit able to fire picks the best target in range (nearest, weighted by
+ * how well its type fares against the target's type) and deals damage scaled by its
+ * firepowerBase, rank, remaining strength, supply and morale; the target's defense,
+ * posture and mobility reduce it. All fire of a step is computed from the state before the
+ * step and applied at its end, so the outcome does not depend on unit order, and the only
+ * randomness is a per-shot roll derived from (seed, step, attacker): the same units and
+ * seed always give the same result.
+ * Units are copied into primitive arrays and counting-sorted into a dense grid per faction
+ * each step, so a step costs the units times the enemies near each of them, not units squared.
+ */
+@Service
+@RequiredArgsConstructor
+public class CombatEngine {
+
+    // Strength points of a vehicle relative to one soldier
+    private static final double VEHICLE_STRENGTH = 8.0;
+    // Strength points removed per minute of fire, per firepowerBase point times rank multiplier
+    private static final double LETHALITY_PER_MINUTE = 0.6;
+    // Defense points that halve incoming damage
+    private static final double DEFENSE_SCALE = 5.0;
+    private static final double DEFENDING_BONUS = 1.25;
+    // Share of incoming fire avoided per mobility point while moving
+    private static final double EVASION_PER_MOBILITY = 0.03;
+    // Damage falls off towards the edge of the attacker's range, down to this share at maximum range
+    private static final double RANGE_FALLOFF = 0.5;
+    // Morale points lost per percent of strength lost in one step
+    private static final double MORALE_PER_LOSS = 0.5;
+    // Units below this morale stop firing, but can still be hit
+    private static final double BROKEN_MORALE = 10.0;
+    private static final double SUPPLY_PER_MINUTE_FIRING = 0.5;
+    // A unit below this share of its starting strength is destroyed
+    private static final double DESTROYED_STRENGTH = 0.1;
+    private static final double GRID_CELL_KM = 3.0;
+    // Cells per unit the grid may use before its cells are made coarser, for widely spread units
+    private static final int MAX_CELLS_PER_UNIT = 4;
+
+    private static final int TYPE_COUNT = UnitType.values().length;
+    private static final double[] MATCHUPS = new double[TYPE_COUNT * TYPE_COUNT];
+
+    static {
+        Arrays.fill(MATCHUPS, 1.0);
+        // Anti-armour and armour
+        matchup(UnitType.ANTI_TANK, UnitType.TANKS, 2.0);
+        matchup(UnitType.ANTI_TANK, UnitType.MECHANIZED, 1.6);
+        matchup(UnitType.ANTI_TANK, UnitType.INFANTRY, 0.6);
+        matchup(UnitType.TANKS, UnitType.INFANTRY, 1.4);
+        matchup(UnitType.TANKS, UnitType.MECHANIZED, 1.2);
+        matchup(UnitType.TANKS, UnitType.ANTI_TANK, 1.2);
+        matchup(UnitType.MECHANIZED, UnitType.INFANTRY, 1.2);
+        matchup(UnitType.INFANTRY, UnitType.TANKS, 0.5);
+        matchup(UnitType.INFANTRY, UnitType.ANTI_TANK, 1.3);
+        // Artillery is best against soft and static targets
+        for (UnitType artillery : List.of(UnitType.HOWITZER, UnitType.MORTAR)) {
+            matchup(artillery, UnitType.INFANTRY, 1.3);
+            matchup(artillery, UnitType.HOWITZER, 1.3);
+            matchup(artillery, UnitType.MORTAR, 1.3);
+            matchup(artillery, UnitType.TANKS, 0.6);
+            matchup(artillery, UnitType.UAV, 0.0);
+        }
+        // Aircraft are only seriously threatened by air defense
+        for (UnitType type : UnitType.values()) {
+            matchup(type, UnitType.UAV, 0.2);
+            matchup(UnitType.AIR_DEFENSE, type, 0.5);
+        }
+        matchup(UnitType.AIR_DEFENSE, UnitType.UAV, 3.0);
+        matchup(UnitType.UAV, UnitType.UAV, 0.5);
+    }
+
+    private final UnitCharacteristicsService characteristicsService;
+
+    /**
+     * Resolve combat among the given units; they are only read, the outcome is returned
+     */
+    public CombatResult resolve(Collection<GeneralUnit> units, CombatSettings settings) {
+        if (settings.steps() <= 0 || settings.stepSeconds() <= 0) {
+            throw new IllegalArgumentException("Combat needs a positive number of steps and step length");
+        }
+        long start = System.nanoTime();
+        Battle battle = new Battle(units, settings);
+        int stepsRun = 0;
+        int engagements = 0;
+        for (int step = 0; step < settings.steps(); step++) {
+            int fired = battle.step(step);
+            if (fired == 0) {
+                // Nobody moves during resolution, so a quiet step stays quiet
+                break;
+            }
+            stepsRun++;
+            engagements += fired;
+        }
+        return battle.result(stepsRun, engagements, (System.nanoTime() - start) / 1_000);
+    }
+
+    private static void matchup(UnitType attacker, UnitType target, double multiplier) {
+        MATCHUPS[attacker.ordinal() * TYPE_COUNT + target.ordinal()] = multiplier;
+    }
+
+    /**
+     * Per-shot roll in [0.5, 1.5), a pure function of seed, step and attacker
+     */
+    private static double roll(long seed, int step, int attacker) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) step << 32) | attacker) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return 0.5 + (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Units of one resolution as parallel arrays, ordered by ID
+     */
+    private final class Battle {
+        private final CombatSettings settings;
+        private final double stepMinutes;
+        private final int count;
+        private final GeneralUnit[] source;
+        private final int[] faction;
+        private final int[] type;
+        private final double[] latitude;
+        private final double[] longitude;
+        private final double[] rangeKm;
+        private final double[] firepower;
+        private final double[] protection;
+        private final double[] personnel;
+        private final double[] vehicles;
+        private final double[] initialStrength;
+        private final double[] supply;
+        private final double[] morale;
+        private final boolean[] alive;
+        private final boolean[] aliveAtStart;
+        private final double[] damage;
+
+        // Grid over the bounding box of the units; units do not move, so their cells are fixed
+        private final double kmPerLongitudeDegree;
+        private final double cellKm;
+        private final int rows;
+        private final int cols;
+        private final int[] cellOf;
+        // Per step: units of cell k of faction f are cellUnits[cellStart[f * rows * cols + k] ..]
+        private final int[] cellStart;
+        private final int[] cellUnits;
+        // Positions and types in cellUnits order, so the target search reads memory sequentially
+        private final double[] cellLatitude;
+        private final double[] cellLongitude;
+        private final int[] cellType;
+
+        Battle(Collection<GeneralUnit> units, CombatSettings settings) {
+            this.settings = settings;
+            this.stepMinutes = settings.stepSeconds() / 60.0;
+            List<GeneralUnit> sorted = new ArrayList<>(units.size());
+            for (GeneralUnit unit : units) {
+                if (unit.getPosition() != null && unit.getFaction() != null && unit.getUnitType() != null) {
+                    sorted.add(unit);
+                }
+            }
+            sorted.sort(Comparator.comparing(GeneralUnit::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+            count = sorted.size();
+            source = sorted.toArray(new GeneralUnit[0]);
+            faction = new int[count];
+            type = new int[count];
+            latitude = new double[count];
+            longitude = new double[count];
+            rangeKm = new double[count];
+            firepower = new double[count];
+            protection = new double[count];
+            personnel = new double[count];
+            vehicles = new double[count];
+            initialStrength = new double[count];
+            supply = new double[count];
+            morale = new double[count];
+            alive = new boolean[count];
+            aliveAtStart = new boolean[count];
+            damage = new double[count];
+
+            double latitudeSum = 0;
+            for (int i = 0; i < count; i++) {
+                GeneralUnit unit = source[i];
+                UnitRank rank = unit.getUnitRank() != null ? unit.getUnitRank() : UnitRank.PLATOON;
+                faction[i] = unit.getFaction().ordinal();
+                type[i] = unit.getUnitType().ordinal();
+                latitude[i] = unit.getPosition().getLatitude();
+                longitude[i] = unit.getPosition().getLongitude();
+                rangeKm[i] = unit.getRange();
+                firepower[i] = unit.getFirepowerBase() * characteristicsService.getRankMultiplier(rank);
+                double posture = unit.getStatus() == Status.DEFENDING ? DEFENDING_BONUS : 1.0;
+                double evasion = unit.getStatus() == Status.MOVING
+                        ? Math.max(0.0, 1.0 - unit.getMobility() * EVASION_PER_MOBILITY) : 1.0;
+                protection[i] = evasion / ((1.0 + unit.getDefense() / DEFENSE_SCALE) * posture);
+                personnel[i] = unit.getPersonnel();
+                vehicles[i] = unit.getVehicles();
+                initialStrength[i] = Math.max(1.0, strength(i));
+                supply[i] = unit.getSupplyLevel();
+                morale[i] = unit.getMorale();
+                alive[i] = unit.getStatus() != Status.DESTROYED && strength(i) > 0;
+                aliveAtStart[i] = alive[i];
+                latitudeSum += latitude[i];
+            }
+
+            double cosLatitude = Math.max(0.01, Math.cos(Math.toRadians(count > 0 ? latitudeSum / count : 0)));
+            kmPerLongitudeDegree = GeoDistance.KM_PER_DEGREE * cosLatitude;
+
+            double minLatitude = Double.MAX_VALUE, maxLatitude = -Double.MAX_VALUE;
+            double minLongitude = Double.MAX_VALUE, maxLongitude = -Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                minLatitude = Math.min(minLatitude, latitude[i]);
+                maxLatitude = Math.max(maxLatitude, latitude[i]);
+                minLongitude = Math.min(minLongitude, longitude[i]);
+                maxLongitude = Math.max(maxLongitude, longitude[i]);
+            }
+            double heightKm = count > 0 ? (maxLatitude - minLatitude) * GeoDistance.KM_PER_DEGREE : 0;
+            double widthKm = count > 0 ? (maxLongitude - minLongitude) * kmPerLongitudeDegree : 0;
+            double cell = GRID_CELL_KM;
+            while (((long) (heightKm / cell) + 1) * ((long) (widthKm / cell) + 1) > Math.max(1024L, (long) MAX_CELLS_PER_UNIT * count)) {
+                cell *= 2;
+            }
+            cellKm = cell;
+            rows = (int) (heightKm / cellKm) + 1;
+            cols = (int) (widthKm / cellKm) + 1;
+            cellOf = new int[count];
+            for (int i = 0; i < count; i++) {
+                int row = Math.min(rows - 1, (int) ((latitude[i] - minLatitude) * GeoDistance.KM_PER_DEGREE / cellKm));
+                int col = Math.min(cols - 1, (int) ((longitude[i] - minLongitude) * kmPerLongitudeDegree / cellKm));
+                cellOf[i] = row * cols + col;
+            }
+            cellStart = new int[Faction.values().length * rows * cols + 1];
+            cellUnits = new int[count];
+            cellLatitude = new double[count];
+            cellLongitude = new double[count];
+            cellType = new int[count];
+        }
+
+        /**
+         * Let every unit able to fire engage its best target, then apply all damage at once
+         *
+         * @return how many units fired
+         */
+        int step(int step) {
+            buildGrid();
+            Arrays.fill(damage, 0.0);
+            int fired = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (!alive[i] || firepower[i] <= 0 || rangeKm[i] <= 0 || morale[i] < BROKEN_MORALE) {
+                    continue;
+                }
+                int target = selectTarget(i);
+                if (target < 0) {
+                    continue;
+                }
+                double distance = distanceKm(i, target);
+                double falloff = 1.0 - RANGE_FALLOFF * distance / rangeKm[i];
+                double strengthRatio = strength(i) / initialStrength[i];
+                double supplyFactor = 0.5 + 0.5 * Math.min(supply[i], 100.0) / 100.0;
+                double moraleFactor = 0.5 + 0.5 * Math.min(morale[i], 100.0) / 100.0;
+                damage[target] += firepower[i] * LETHALITY_PER_MINUTE * stepMinutes
+                        * matchup(type[i], type[target]) * falloff * strengthRatio * supplyFactor * moraleFactor
+                        * protection[target] * roll(settings.seed(), step, i);
+                supply[i] = Math.max(0.0, supply[i] - SUPPLY_PER_MINUTE_FIRING * stepMinutes);
+                fired++;
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (damage[i] <= 0) {
+                    continue;
+                }
+                double current = strength(i);
+                double lost = Math.min(1.0, damage[i] / current);
+                personnel[i] *= 1.0 - lost;
+                vehicles[i] *= 1.0 - lost;
+                morale[i] = Math.max(0.0, morale[i] - lost * 100.0 * MORALE_PER_LOSS);
+                if (strength(i) < initialStrength[i] * DESTROYED_STRENGTH) {
+                    alive[i] = false;
+                }
+            }
+            return fired;
+        }
+
+        /**
+         * Enemy in range with the highest matchup, discounted by distance; ties go to the lower index
+         */
+        private int selectTarget(int attacker) {
+            double range = rangeKm[attacker];
+            double rangeSquared = range * range;
+            int rings = (int) Math.ceil(range / cellKm);
+            int row = cellOf[attacker] / cols;
+            int col = cellOf[attacker] % cols;
+            int fromRow = Math.max(0, row - rings), toRow = Math.min(rows - 1, row + rings);
+            int fromCol = Math.max(0, col - rings), toCol = Math.min(cols - 1, col + rings);
+            double lat = latitude[attacker];
+            double lon = longitude[attacker];
+            int matchupBase = type[attacker] * TYPE_COUNT;
+            int best = -1;
+            double bestScore = 0.0;
+            for (int enemy = 0; enemy < Faction.values().length; enemy++) {
+                if (enemy == faction[attacker]) {
+                    continue;
+                }
+                int factionBase = enemy * rows * cols;
+                for (int r = fromRow; r <= toRow; r++) {
+                    int rowBase = factionBase + r * cols;
+                    for (int k = cellStart[rowBase + fromCol], end = cellStart[rowBase + toCol + 1]; k < end; k++) {
+                        double dy = (cellLatitude[k] - lat) * GeoDistance.KM_PER_DEGREE;
+                        double dx = (cellLongitude[k] - lon) * kmPerLongitudeDegree;
+                        double distanceSquared = dx * dx + dy * dy;
+                        if (distanceSquared > rangeSquared) {
+                            continue;
+                        }
+                        int target = cellUnits[k];
+                        double score = MATCHUPS[matchupBase + cellType[k]]
+                                * (1.0 - RANGE_FALLOFF * Math.sqrt(distanceSquared) / range);
+                        if (score > bestScore || (score == bestScore && best >= 0 && target < best)) {
+                            bestScore = score;
+                            best = target;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Counting sort of the living units by faction and cell; cells of a row are contiguous
+         */
+        private void buildGrid() {
+            Arrays.fill(cellStart, 0);
+            int cellsPerFaction = rows * cols;
+            for (int i = 0; i < count; i++) {
+                if (alive[i]) {
+                    cellStart[faction[i] * cellsPerFaction + cellOf[i] + 1]++;
+                }
+            }
+            for (int k = 1; k < cellStart.length; k++) {
+                cellStart[k] += cellStart[k - 1];
+            }
+            int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+            for (int i = 0; i < count; i++) {
+                if (alive[i]) {
+                    int k = next[faction[i] * cellsPerFaction + cellOf[i]]++;
+                    cellUnits[k] = i;
+                    cellLatitude[k] = latitude[i];
+                    cellLongitude[k] = longitude[i];
+                    cellType[k] = type[i];
+                }
+            }
+        }
+
+        /**
+         * Equirectangular distance; within weapon ranges it is as good as the great circle
+         */
+        private double distanceKm(int a, int b) {
+            double dy = (latitude[b] - latitude[a]) * GeoDistance.KM_PER_DEGREE;
+            double dx = (longitude[b] - longitude[a]) * kmPerLongitudeDegree;
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+
+        private double strength(int i) {
+            return personnel[i] + vehicles[i] * VEHICLE_STRENGTH;
+        }
+
+        CombatResult result(int stepsRun, int engagements, long elapsedMicros) {
+            List<UnitOutcome> outcomes = new ArrayList<>();
+            Map<Faction, int[]> losses = new EnumMap<>(Faction.class);
+            for (Faction f : Faction.values()) {
+                // units that entered the battle, destroyed, personnel lost, vehicles lost
+                losses.put(f, new int[4]);
+            }
+
+            for (int i = 0; i < count; i++) {
+                GeneralUnit unit = source[i];
+                int[] factionLosses = losses.get(unit.getFaction());
+                if (!aliveAtStart[i]) {
+                    continue;
+                }
+                int remainingPersonnel = alive[i] ? (int) Math.round(personnel[i]) : 0;
+                int remainingVehicles = alive[i] ? (int) Math.round(vehicles[i]) : 0;
+                int remainingSupply = (int) Math.round(supply[i]);
+
+                factionLosses[0]++;
+                if (!alive[i]) {
+                    factionLosses[1]++;
+                }
+                factionLosses[2] += unit.getPersonnel() - remainingPersonnel;
+                factionLosses[3] += unit.getVehicles() - remainingVehicles;
+
+                if (!alive[i] || remainingPersonnel != unit.getPersonnel() || remainingVehicles != unit.getVehicles()
+                        || remainingSupply != unit.getSupplyLevel() || morale[i] != unit.getMorale()) {
+                    UnitRank rank = unit.getUnitRank() != null ? unit.getUnitRank() : UnitRank.PLATOON;
+                    outcomes.add(new UnitOutcome(
+                            unit.getId(),
+                            unit.getFaction(),
+                            remainingPersonnel,
+                            remainingVehicles,
+                            remainingSupply,
+                            Math.round(morale[i] * 10.0) / 10.0,
+                            alive[i] ? characteristicsService.calculateFirepower(remainingVehicles, remainingSupply,
+                                    remainingPersonnel, unit.getUnitType(), unit.getFaction(), rank) : 0,
+                            !alive[i]
+                    ));
+                }
+            }
+
+            Map<Faction, FactionOutcome> factions = new EnumMap<>(Faction.class);
+            losses.forEach((f, l) -> factions.put(f, new FactionOutcome(l[0], l[1], l[2], l[3])));
+            return new CombatResult(settings.seed(), stepsRun, stepsRun * settings.stepSeconds(), engagements,
+                    factions, outcomes, elapsedMicros);
+        }
+    }
+
+    private static double matchup(int attackerType, int targetType) {
+        return MATCHUPS[attackerType * TYPE_COUNT + targetType];
+    }
+
+    /**
+     * @param steps       maximum number of steps; resolution ends early once nobody can fire
+     * @param stepSeconds simulated time per step
+     */
+    public record CombatSettings(long seed, int steps, double stepSeconds) {}
+
+    /**
+     * @param simulatedSeconds time covered by the steps that were run
+     * @param engagements      shots fired over all steps, one per firing unit and step
+     * @param units            units whose state changed, with their state after the battle
+     */
+    public record CombatResult(
+            long seed,
+            int stepsRun,
+            double simulatedSeconds,
+            int engagements,
+            Map<Faction, FactionOutcome> factions,
+            List<UnitOutcome> units,
+            long elapsedMicros
+    ) {}
+
+    public record FactionOutcome(int units, int destroyed, int personnelLost, int vehiclesLost) {}
+
+    public record UnitOutcome(
+            String unitId,
+            Faction faction,
+            int personnel,
+            int vehicles,
+            int supplyLevel,
+            double morale,
+            int firepower,
+            boolean destroyed
+    ) {}
+}
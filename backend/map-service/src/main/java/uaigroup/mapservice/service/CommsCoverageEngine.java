@@ -0,0 +1,146 @@
+package uaigroup.mapservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.EventType;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.UnitType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps unit comms links up to date incrementally.
+ * When a unit is created, moved or deleted only the units that can be affected are
+ * re-evaluated: the unit itself, and for a COMMUNICATIONS unit every friendly unit inside
+ * its old or new coverage radius. Changed links are handed to CommsStatusWriter as one
+ * batch and pushed to /topic/comms as COMMS_ESTABLISHED / COMMS_LOST deltas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommsCoverageEngine {
+
+    private final WorldStateStore worldStateStore;
+    private final CommunicationService communicationService;
+    private final CommsStatusWriter commsStatusWriter;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Compute every link once the persisted world has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int changed = recomputeAll();
+        log.info("Comms coverage rebuilt, {} links changed", changed);
+    }
+
+    /**
+     * Re-evaluate links affected by a unit placement change
+     */
+    @EventListener
+    public void onUnitChanged(UnitChangedEvent event) {
+        if (!event.isPlacementChanged()) {
+            return;
+        }
+        Map<String, GeneralUnit> affected = new LinkedHashMap<>();
+
+        if (event.unit() != null) {
+            affected.put(event.unitId(), event.unit());
+        }
+        addCoveredUnits(event.previous(), affected);
+        addCoveredUnits(event.current(), affected);
+
+        recompute(affected.values());
+    }
+
+    /**
+     * Recompute links for all units
+     * @return number of units whose link changed
+     */
+    public int recomputeAll() {
+        return recompute(worldStateStore.findAllUnits());
+    }
+
+    /**
+     * Recompute the link of a single unit
+     */
+    public GeneralUnit refreshUnit(GeneralUnit unit) {
+        recompute(List.of(unit));
+        return unit;
+    }
+
+    private void addCoveredUnits(UnitChangedEvent.Placement placement, Map<String, GeneralUnit> affected) {
+        if (placement == null || placement.unitType() != UnitType.COMMUNICATIONS
+                || placement.faction() == null || !placement.hasPosition()) {
+            return;
+        }
+        for (GeneralUnit unit : worldStateStore.findUnitsInRange(
+                placement.faction(), placement.position(), placement.range())) {
+            affected.putIfAbsent(unit.getId(), unit);
+        }
+    }
+
+    private int recompute(Collection<GeneralUnit> units) {
+        List<GeneralUnit> changed = new ArrayList<>();
+        List<CommsLinkDelta> deltas = new ArrayList<>();
+        int skipped = 0;
+
+        for (GeneralUnit unit : units) {
+            if (unit.getPosition() == null || unit.getFaction() == null) {
+                continue;
+            }
+            CommunicationService.CommsLinkInfo linkInfo = communicationService.findBestCommsLink(unit);
+            boolean hasLink = linkInfo != null;
+            String linkedId = hasLink ? linkInfo.commsUnitId() : null;
+            int strength = hasLink ? linkInfo.signalStrength() : 0;
+
+            boolean updated = worldStateStore.mutateUnit(unit.getId(), () -> {
+                if (unit.isHasCommsLink() == hasLink
+                        && Objects.equals(unit.getLinkedCommsUnitId(), linkedId)
+                        && unit.getCommsStrength() == strength) {
+                    return false;
+                }
+                unit.setHasCommsLink(hasLink);
+                unit.setLinkedCommsUnitId(linkedId);
+                unit.setCommsStrength(strength);
+                unit.setLastCommsCheck(LocalDateTime.now());
+                return true;
+            });
+            if (!updated) {
+                skipped++;
+                continue;
+            }
+            changed.add(unit);
+            deltas.add(new CommsLinkDelta(unit.getId(), unit.getFaction(),
+                    hasLink ? EventType.COMMS_ESTABLISHED : EventType.COMMS_LOST, linkedId, strength));
+        }
+
+        commsStatusWriter.recordSkipped(skipped);
+        if (!changed.isEmpty()) {
+            commsStatusWriter.enqueue(changed);
+            // Links are updated in place, so listeners (delta stream, replay capture) are told explicitly
+            worldStateStore.unitsChangedInPlace(changed);
+            messagingTemplate.convertAndSend("/topic/comms", deltas);
+        }
+        return changed.size();
+    }
+
+    public record CommsLinkDelta(
+            String unitId,
+            Faction faction,
+            EventType eventType,
+            String linkedCommsUnitId,
+            int commsStrength
+    ) {}
+}
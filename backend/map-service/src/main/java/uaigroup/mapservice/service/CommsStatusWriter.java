@@ -0,0 +1,137 @@
+package uaigroup.mapservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.GeneralUnit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Persists comms link changes as $set updates of the four comms fields only,
+ * sent in unordered bulk batches instead of one full-document save per unit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommsStatusWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final WorldStateStore worldStateStore;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong documentsTouched = new AtomicLong();
+    private final AtomicLong documentsSkipped = new AtomicLong();
+    private final AtomicLong bulkWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    @Value("${comms.bulk-batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Queue units whose link changed; repeated changes to a unit before the flush collapse into one update
+     */
+    public void enqueue(Collection<GeneralUnit> changed) {
+        for (GeneralUnit unit : changed) {
+            pending.add(unit.getId());
+        }
+    }
+
+    /**
+     * Count units that were evaluated but whose link did not change
+     */
+    public void recordSkipped(int count) {
+        documentsSkipped.addAndGet(count);
+    }
+
+    @Scheduled(fixedDelayString = "${comms.flush-interval-ms:250}")
+    public void flush() {
+        List<String> ids = drainPending();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            writeBatch(ids.subList(from, Math.min(from + batchSize, ids.size())));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public CommsWriteStats getStats() {
+        return new CommsWriteStats(
+                documentsTouched.get(),
+                documentsSkipped.get(),
+                bulkWrites.get(),
+                failedWrites.get(),
+                pending.size(),
+                batchSize
+        );
+    }
+
+    private void writeBatch(List<String> ids) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GeneralUnit.class);
+        int queued = 0;
+        for (String id : ids) {
+            // Deleted units are simply dropped; the latest in-memory link is what gets written
+            Optional<GeneralUnit> unit = worldStateStore.findUnit(id);
+            if (unit.isEmpty()) {
+                continue;
+            }
+            GeneralUnit u = unit.get();
+            bulk.updateOne(query(where("_id").is(id)), new Update()
+                    .set("hasCommsLink", u.isHasCommsLink())
+                    .set("linkedCommsUnitId", u.getLinkedCommsUnitId())
+                    .set("commsStrength", u.getCommsStrength())
+                    .set("lastCommsCheck", u.getLastCommsCheck()));
+            queued++;
+        }
+        if (queued == 0) {
+            return;
+        }
+        try {
+            bulk.execute();
+            documentsTouched.addAndGet(queued);
+            bulkWrites.incrementAndGet();
+        } catch (Exception e) {
+            log.error("Failed to write comms status for {} units: {}", queued, e.getMessage());
+            failedWrites.incrementAndGet();
+            pending.addAll(ids);
+        }
+    }
+
+    private List<String> drainPending() {
+        List<String> drained = new ArrayList<>();
+        Iterator<String> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    public record CommsWriteStats(
+            long documentsTouched,
+            long documentsSkipped,
+            long bulkWrites,
+            long failedWrites,
+            int pendingUpdates,
+            int batchSize
+    ) {}
+}
@@ -1,45 +1,27 @@
 package uaigroup.mapservice.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import uaigroup.mapservice.model.Faction;
 import uaigroup.mapservice.model.GeneralUnit;
 import uaigroup.mapservice.model.Position;
 import uaigroup.mapservice.model.UnitType;
-import uaigroup.mapservice.repository.UnitRepository;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class CommunicationService {
 
     @Autowired
-    private UnitRepository unitRepository;
-
-    private static final double EARTH_RADIUS_KM = 6371.0;
+    private WorldStateStore worldStateStore;
 
     /**
      * Calculate distance between two positions using Haversine formula
      * @return distance in kilometers
      */
     public double calculateDistance(Position pos1, Position pos2) {
-        double lat1 = Math.toRadians(pos1.getLatitude());
-        double lat2 = Math.toRadians(pos2.getLatitude());
-        double lon1 = Math.toRadians(pos1.getLongitude());
-        double lon2 = Math.toRadians(pos2.getLongitude());
-
-        double dLat = lat2 - lat1;
-        double dLon = lon2 - lon1;
-
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(lat1) * Math.cos(lat2)
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return EARTH_RADIUS_KM * c;
+        return GeoDistance.haversineKm(pos1, pos2);
     }
 
     /**
@@ -51,7 +33,7 @@ public class CommunicationService {
             return true;
         }
 
-        List<GeneralUnit> commsUnits = unitRepository.findByFactionAndUnitType(
+        List<GeneralUnit> commsUnits = worldStateStore.findUnitsByFactionAndType(
                 unit.getFaction(),
                 UnitType.COMMUNICATIONS
         );
@@ -76,7 +58,7 @@ public class CommunicationService {
             return new CommsLinkInfo(unit.getId(), 100);
         }
 
-        List<GeneralUnit> commsUnits = unitRepository.findByFactionAndUnitType(
+        List<GeneralUnit> commsUnits = worldStateStore.findUnitsByFactionAndType(
                 unit.getFaction(),
                 UnitType.COMMUNICATIONS
         );
@@ -107,60 +89,70 @@ public class CommunicationService {
     }
 
     /**
-     * Update communications status for all units
-     * This is scheduled to run periodically
+     * Get all units without communications coverage for a specific faction
      */
-    @Scheduled(fixedRate = 30000) // Every 30 seconds
-    public void updateAllCommsStatus() {
-        List<GeneralUnit> allUnits = unitRepository.findAll();
-
-        for (GeneralUnit unit : allUnits) {
-            updateUnitCommsStatus(unit);
+    public List<GeneralUnit> getIsolatedUnits(Faction faction) {
+        UnitColumns.Snapshot columns = worldStateStore.unitColumns();
+        int factionOrdinal = faction.ordinal();
+        int commsType = UnitType.COMMUNICATIONS.ordinal();
+
+        // Units that need coverage, packed so every range check below scans only them
+        int[] candidates = new int[columns.size()];
+        double[] latitudes = new double[columns.size()];
+        double[] longitudes = new double[columns.size()];
+        int candidateCount = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.faction()[i] == factionOrdinal && columns.unitType()[i] != commsType) {
+                candidates[candidateCount] = i;
+                latitudes[candidateCount] = columns.latitude()[i];
+                longitudes[candidateCount] = columns.longitude()[i];
+                candidateCount++;
+            }
         }
-    }
 
-    /**
-     * Update communications status for a single unit
-     */
-    public void updateUnitCommsStatus(GeneralUnit unit) {
-        CommsLinkInfo linkInfo = findBestCommsLink(unit);
-
-        if (linkInfo != null) {
-            unit.setHasCommsLink(true);
-            unit.setLinkedCommsUnitId(linkInfo.commsUnitId());
-            unit.setCommsStrength(linkInfo.signalStrength());
-        } else {
-            unit.setHasCommsLink(false);
-            unit.setLinkedCommsUnitId(null);
-            unit.setCommsStrength(0);
+        // Each comms unit marks the candidates in its circle with one batched range check
+        boolean[] covered = new boolean[candidateCount];
+        double[] distances = new double[candidateCount];
+        int[] hits = new int[candidateCount];
+        for (int c = 0; c < columns.size(); c++) {
+            if (columns.faction()[c] != factionOrdinal || columns.unitType()[c] != commsType
+                    || Double.isNaN(columns.latitude()[c])) {
+                continue;
+            }
+            int found = GeoDistance.withinRangeKm(columns.latitude()[c], columns.longitude()[c],
+                    latitudes, longitudes, candidateCount, columns.range()[c], distances, hits);
+            for (int h = 0; h < found; h++) {
+                covered[hits[h]] = true;
+            }
         }
 
-        unit.setLastCommsCheck(LocalDateTime.now());
-        unitRepository.save(unit);
-    }
-
-    /**
-     * Get all units without communications coverage for a specific faction
-     */
-    public List<GeneralUnit> getIsolatedUnits(Faction faction) {
-        return unitRepository.findByFaction(faction).stream()
-                .filter(unit -> !hasCommsCoverage(unit))
-                .toList();
+        List<String> isolatedIds = new ArrayList<>();
+        for (int k = 0; k < candidateCount; k++) {
+            if (!covered[k]) {
+                isolatedIds.add(columns.unitIds()[candidates[k]]);
+            }
+        }
+        return worldStateStore.findUnitsByIds(isolatedIds);
     }
 
     /**
      * Get communications coverage statistics for a faction
      */
     public CommsCoverageStats getCoverageStats(Faction faction) {
-        List<GeneralUnit> factionUnits = unitRepository.findByFaction(faction);
-        int totalUnits = factionUnits.size();
+        UnitColumns.Snapshot columns = worldStateStore.unitColumns();
+        int factionOrdinal = faction.ordinal();
+        int totalUnits = 0;
         int connectedUnits = 0;
         int avgSignalStrength = 0;
 
-        for (GeneralUnit unit : factionUnits) {
-            if (unit.isHasCommsLink()) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.faction()[i] != factionOrdinal) {
+                continue;
+            }
+            totalUnits++;
+            if (columns.hasCommsLink()[i]) {
                 connectedUnits++;
-                avgSignalStrength += unit.getCommsStrength();
+                avgSignalStrength += columns.commsStrength()[i];
             }
         }
 
@@ -5,7 +5,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import uaigroup.mapservice.model.*;
 import uaigroup.mapservice.repository.FormationRepository;
-import uaigroup.mapservice.repository.UnitRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,7 +15,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FormationService {
 
-    private final UnitRepository unitRepository;
+    private final WorldStateStore worldStateStore;
     private final FormationRepository formationRepository;
     private final UnitCharacteristicsService characteristicsService;
 
@@ -40,7 +39,7 @@ public class FormationService {
         hqUnit.setFormationType(formationType);
         hqUnit.setFormationSpacing(spacing);
         hqUnit.setFormationOrientation(orientation);
-        hqUnit = unitRepository.save(hqUnit);
+        hqUnit = worldStateStore.saveUnit(hqUnit);
 
         // Calculate positions for subordinate units
         List<Position> subordinatePositions = calculateFormationPositions(
@@ -55,7 +54,7 @@ public class FormationService {
             );
             subordinateUnit.setParentUnitId(hqUnit.getId());
             subordinateUnit.setDirection(orientation);
-            subordinateUnit = unitRepository.save(subordinateUnit);
+            subordinateUnit = worldStateStore.saveUnit(subordinateUnit);
             subordinateIds.add(subordinateUnit.getId());
         }
 
@@ -211,10 +210,10 @@ public class FormationService {
     }
 
     /**
-     * Calculate positions for units based on formation type
+     * Calculate positions for units based on formation type; package-private for the benchmarks
      */
-    private List<Position> calculateFormationPositions(Position hqPosition, FormationType formationType,
-                                                       int count, int spacing, int orientation) {
+    List<Position> calculateFormationPositions(Position hqPosition, FormationType formationType,
+                                               int count, int spacing, int orientation) {
         List<Position> positions = new ArrayList<>();
         double spacingDegrees = spacing / 111000.0; // Convert meters to degrees (approximate)
 
@@ -415,7 +414,7 @@ public class FormationService {
      * Get subordinate units for a parent unit
      */
     public List<GeneralUnit> getSubordinateUnits(String parentUnitId) {
-        return unitRepository.findByParentUnitId(parentUnitId);
+        return worldStateStore.findUnitsByParentUnitId(parentUnitId);
     }
 
     /**
@@ -425,11 +424,11 @@ public class FormationService {
         Formation formation = getFormation(formationId);
 
         // Delete HQ unit
-        unitRepository.deleteById(formation.getHeadquartersUnitId());
+        worldStateStore.deleteUnit(formation.getHeadquartersUnitId());
 
         // Delete subordinate units
         for (String subordinateId : formation.getSubordinateUnitIds()) {
-            unitRepository.deleteById(subordinateId);
+            worldStateStore.deleteUnit(subordinateId);
         }
 
         // Delete formation record
@@ -441,25 +440,29 @@ public class FormationService {
      */
     public void moveFormation(String formationId, Position newHqPosition) {
         Formation formation = getFormation(formationId);
-        GeneralUnit hqUnit = unitRepository.findById(formation.getHeadquartersUnitId())
+        GeneralUnit hqUnit = worldStateStore.findUnit(formation.getHeadquartersUnitId())
                 .orElseThrow(() -> new IllegalArgumentException("HQ unit not found"));
 
-        Position oldHqPosition = hqUnit.getPosition();
+        // Move HQ
+        Position oldHqPosition = worldStateStore.mutateUnit(hqUnit.getId(), () -> {
+            Position previous = hqUnit.getPosition();
+            hqUnit.setPosition(newHqPosition);
+            return previous;
+        });
         double latDiff = newHqPosition.getLatitude() - oldHqPosition.getLatitude();
         double lngDiff = newHqPosition.getLongitude() - oldHqPosition.getLongitude();
-
-        // Move HQ
-        hqUnit.setPosition(newHqPosition);
-        unitRepository.save(hqUnit);
+        worldStateStore.saveUnit(hqUnit);
 
         // Move subordinates maintaining relative positions
         List<GeneralUnit> subordinates = getSubordinateUnits(hqUnit.getId());
         for (GeneralUnit subordinate : subordinates) {
-            Position newPos = new Position();
-            newPos.setLatitude(subordinate.getPosition().getLatitude() + latDiff);
-            newPos.setLongitude(subordinate.getPosition().getLongitude() + lngDiff);
-            subordinate.setPosition(newPos);
-            unitRepository.save(subordinate);
+            worldStateStore.mutateUnit(subordinate.getId(), () -> {
+                Position newPos = new Position();
+                newPos.setLatitude(subordinate.getPosition().getLatitude() + latDiff);
+                newPos.setLongitude(subordinate.getPosition().getLongitude() + lngDiff);
+                subordinate.setPosition(newPos);
+            });
+            worldStateStore.saveUnit(subordinate);
         }
     }
 }
@@ -0,0 +1,108 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.Position;
+
+/**
+ * Great-circle distance helpers shared by comms, script triggers and the spatial index
+ */
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    // Length of one degree of latitude in kilometers
+    public static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    // Domain of the approxDistancesKm error bound; measured worst case inside it is 2e-4 relative
+    public static final double FAST_PATH_MAX_KM = 100.0;
+    public static final double FAST_PATH_MAX_LATITUDE = 75.0;
+    public static final double FAST_PATH_RELATIVE_ERROR = 1e-3;
+
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180.0;
+
+    private GeoDistance() {
+    }
+
+    /**
+     * Calculate distance between two positions using Haversine formula
+     * @return distance in kilometers
+     */
+    public static double haversineKm(Position pos1, Position pos2) {
+        return haversineKm(pos1.getLatitude(), pos1.getLongitude(), pos2.getLatitude(), pos2.getLongitude());
+    }
+
+    public static double haversineKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double lat1 = Math.toRadians(latitude1);
+        double lat2 = Math.toRadians(latitude2);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(longitude2 - longitude1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2)
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Approximate distances in kilometers from one origin to count targets, for scans over many units.
+     * Targets are projected onto a plane at the origin, with the longitude scale taken at the midpoint
+     * latitude to first order, so each costs a few multiply-adds and one square root and the loop
+     * compiles to SIMD instructions. Within FAST_PATH_MAX_KM of an origin at most FAST_PATH_MAX_LATITUDE
+     * from the equator the result is within FAST_PATH_RELATIVE_ERROR of haversineKm; beyond that it
+     * only tells that a target is far. Targets without coordinates (NaN) get NaN.
+     */
+    public static void approxDistancesKm(double originLatitude, double originLongitude,
+                                         double[] latitudes, double[] longitudes, int count, double[] distances) {
+        double cosOrigin = Math.cos(originLatitude * RADIANS_PER_DEGREE);
+        double halfSinOrigin = 0.5 * Math.sin(originLatitude * RADIANS_PER_DEGREE);
+        for (int i = 0; i < count; i++) {
+            double dLat = (latitudes[i] - originLatitude) * RADIANS_PER_DEGREE;
+            double dLonDegrees = longitudes[i] - originLongitude;
+            // Shortest way around the antimeridian
+            dLonDegrees = dLonDegrees > 180.0 ? dLonDegrees - 360.0 : dLonDegrees;
+            dLonDegrees = dLonDegrees < -180.0 ? dLonDegrees + 360.0 : dLonDegrees;
+            double x = dLonDegrees * RADIANS_PER_DEGREE * (cosOrigin - halfSinOrigin * dLat);
+            distances[i] = EARTH_RADIUS_KM * Math.sqrt(x * x + dLat * dLat);
+        }
+    }
+
+    /**
+     * Indexes of the targets within rangeKm of the origin, the same ones haversineKm would pick.
+     * approxDistancesKm settles every target clearly inside or outside the range; haversine is
+     * only computed for targets within the error bound of it, or for all of them when the origin
+     * or range is outside the fast-path domain.
+     *
+     * @param distances scratch space for at least count distances
+     * @param hits      receives the indexes, needs room for count of them
+     * @return number of indexes written to hits
+     */
+    public static int withinRangeKm(double originLatitude, double originLongitude,
+                                    double[] latitudes, double[] longitudes, int count, double rangeKm,
+                                    double[] distances, int[] hits) {
+        int found = 0;
+        if (rangeKm > FAST_PATH_MAX_KM || Math.abs(originLatitude) > FAST_PATH_MAX_LATITUDE) {
+            for (int i = 0; i < count; i++) {
+                if (haversineKm(originLatitude, originLongitude, latitudes[i], longitudes[i]) <= rangeKm) {
+                    hits[found++] = i;
+                }
+            }
+            return found;
+        }
+
+        approxDistancesKm(originLatitude, originLongitude, latitudes, longitudes, count, distances);
+        double surelyInside = rangeKm * (1.0 - FAST_PATH_RELATIVE_ERROR);
+        double surelyOutside = rangeKm * (1.0 + FAST_PATH_RELATIVE_ERROR);
+        for (int i = 0; i < count; i++) {
+            double distance = distances[i];
+            // NaN fails both comparisons and is never a hit
+            if (distance <= surelyInside
+                    || distance <= surelyOutside
+                    && haversineKm(originLatitude, originLongitude, latitudes[i], longitudes[i]) <= rangeKm) {
+                hits[found++] = i;
+            }
+        }
+        return found;
+    }
+}
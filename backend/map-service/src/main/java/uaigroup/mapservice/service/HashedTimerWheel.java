@@ -0,0 +1,227 @@
+package uaigroup.mapservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel.
+ * Timeouts are hashed into a fixed ring of buckets by their due tick, so scheduling and
+ * cancelling are O(1) regardless of how many timers are pending. A single worker thread
+ * advances the wheel once per tick and hands expired tasks to the task executor.
+ */
+@Slf4j
+public final class HashedTimerWheel implements AutoCloseable {
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<Timeout>[] buckets;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Executor taskExecutor;
+    private final Thread worker;
+    private final long startTime;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    // Written by the worker only
+    private volatile long ticks;
+    private volatile long expiredTotal;
+    private volatile int lastTickExpired;
+    private volatile long lastTickLagNanos;
+    private volatile long maxTickLagNanos;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickDuration, TimeUnit unit, int wheelSize, Executor taskExecutor, String threadName) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        // Round the wheel up to a power of two so the bucket index is a mask
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        size = Math.max(size, 1);
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Run the task once the delay has elapsed (rounded up to the next tick)
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(task, deadline);
+        pendingTimeouts.add(timeout);
+        pendingCount.incrementAndGet();
+        return timeout;
+    }
+
+    /**
+     * Number of timeouts scheduled and not yet expired or cancelled
+     */
+    public int pending() {
+        return pendingCount.get();
+    }
+
+    public TickStats stats() {
+        return new TickStats(
+                ticks,
+                expiredTotal,
+                lastTickExpired,
+                TimeUnit.NANOSECONDS.toMicros(lastTickLagNanos),
+                TimeUnit.NANOSECONDS.toMicros(maxTickLagNanos),
+                pending()
+        );
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (!running) {
+                break;
+            }
+            long lag = System.nanoTime() - startTime - deadline;
+            transferPendingTimeouts();
+            int expired = expireBucket(buckets[(int) (tick & mask)], deadline);
+            tick++;
+
+            ticks = tick;
+            expiredTotal += expired;
+            lastTickExpired = expired;
+            lastTickLagNanos = lag;
+            if (lag > maxTickLagNanos) {
+                maxTickLagNanos = lag;
+            }
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (running) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+        return deadline;
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long dueTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (dueTick - tick) / buckets.length;
+            // Timeouts already overdue go into the current bucket
+            long ticks = Math.max(dueTick, tick);
+            buckets[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private int expireBucket(List<Timeout> bucket, long deadline) {
+        if (bucket.isEmpty()) {
+            return 0;
+        }
+        int expired = 0;
+        List<Timeout> survivors = new ArrayList<>();
+        for (Timeout timeout : bucket) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                if (timeout.expire()) {
+                    expired++;
+                }
+            } else {
+                timeout.remainingRounds--;
+                survivors.add(timeout);
+            }
+        }
+        bucket.clear();
+        bucket.addAll(survivors);
+        return expired;
+    }
+
+    /**
+     * Handle to a scheduled task
+     */
+    public final class Timeout {
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the task had not run yet and will no longer run
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(INIT, CANCELLED)) {
+                pendingCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private boolean expire() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return false;
+            }
+            pendingCount.decrementAndGet();
+            try {
+                taskExecutor.execute(task);
+            } catch (Exception e) {
+                log.error("Failed to dispatch expired timer task: {}", e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Wheel activity; lag is how late the worker started a tick relative to its deadline
+     */
+    public record TickStats(
+            long ticks,
+            long expiredTotal,
+            int lastTickExpired,
+            long lastTickLagMicros,
+            long maxTickLagMicros,
+            int pendingTimeouts
+    ) {}
+}
@@ -16,14 +16,15 @@ import uaigroup.mapservice.mapper.UnitMapper;
 import uaigroup.mapservice.model.Action;
 import uaigroup.mapservice.model.GeneralUnit;
 import uaigroup.mapservice.model.Obstacle;
-import uaigroup.mapservice.repository.ActionRepository;
-import uaigroup.mapservice.repository.ObstacleRepository;
-import uaigroup.mapservice.repository.UnitRepository;
+import uaigroup.mapservice.model.Status;
 import uaigroup.mapservice.repository.BattleHistoryRepository;
 import uaigroup.mapservice.controller.dto.BattleSaveRequest;
 import uaigroup.mapservice.model.BattleHistory;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -31,15 +32,17 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MapService {
 
-    private final UnitRepository unitRepository;
-    private final ObstacleRepository obstacleRepository;
-    private final ActionRepository actionRepository;
+    private final WorldStateStore worldStateStore;
     private final BattleHistoryRepository battleHistoryRepository;
     private final UnitMapper unitMapper;
     private final ObstacleMapper obstacleMapper;
     private final ActionMapper actionMapper;
     private final SimpMessagingTemplate messagingTemplate;
     private final UnitCharacteristicsService unitCharacteristicsService;
+    private final UnitDeltaPublisher unitDeltaPublisher;
+    private final CoalescingPublisher coalescingPublisher;
+    private final UnitMetricsRecorder unitMetricsRecorder;
+    private final CombatEngine combatEngine;
 
     // Removed - now using UnitCharacteristicsService
 
@@ -65,63 +68,73 @@ public class MapService {
         );
         unit.setFirepower(firepower);
         
-        GeneralUnit savedUnit = unitRepository.save(unit);
+        GeneralUnit savedUnit = worldStateStore.saveUnit(unit);
+        unitMetricsRecorder.record(savedUnit);
         notifyUnitUpdate(savedUnit);
         return savedUnit;
     }
 
     public List<GeneralUnit> getAllUnits() {
-        return unitRepository.findAll();
+        return worldStateStore.findAllUnits();
     }
 
     public GeneralUnit getUnitById(String id) {
-        return unitRepository.findById(id)
+        return worldStateStore.findUnit(id)
             .orElseThrow(() -> new RuntimeException("Unit not found with id: " + id));
     }
 
     public GeneralUnit updateUnit(UnitUpdateRequest request) {
         GeneralUnit existingUnit = getUnitById(request.id());
-        GeneralUnit updatedUnit = unitMapper.updateFromRequest(existingUnit, request);
+        GeneralUnit updatedUnit = worldStateStore.mutateUnit(existingUnit.getId(), () -> {
+            GeneralUnit unit = unitMapper.updateFromRequest(existingUnit, request);
         
-        // Update characteristics if unit type or faction changed
-        var characteristics = unitCharacteristicsService.getCharacteristics(updatedUnit.getUnitType(), updatedUnit.getFaction());
-        updatedUnit.setMobility(characteristics.getMobility());
-        updatedUnit.setFirepowerBase(characteristics.getFirepowerBase());
-        updatedUnit.setDefense(characteristics.getDefense());
-        updatedUnit.setRange(characteristics.getRange());
+            // Update characteristics if unit type or faction changed
+            var characteristics = unitCharacteristicsService.getCharacteristics(unit.getUnitType(), unit.getFaction());
+            unit.setMobility(characteristics.getMobility());
+            unit.setFirepowerBase(characteristics.getFirepowerBase());
+            unit.setDefense(characteristics.getDefense());
+            unit.setRange(characteristics.getRange());
         
-        // Recalculate firepower based on updated characteristics
-        int firepower = unitCharacteristicsService.calculateFirepower(
-            updatedUnit.getVehicles(), 
-            updatedUnit.getSupplyLevel(), 
-            updatedUnit.getPersonnel(), 
-            updatedUnit.getUnitType(), 
-            updatedUnit.getFaction(),
-            updatedUnit.getUnitRank() != null ? updatedUnit.getUnitRank() : uaigroup.mapservice.model.UnitRank.PLATOON
-        );
-        updatedUnit.setFirepower(firepower);
+            // Recalculate firepower based on updated characteristics
+            int firepower = unitCharacteristicsService.calculateFirepower(
+                unit.getVehicles(), 
+                unit.getSupplyLevel(), 
+                unit.getPersonnel(), 
+                unit.getUnitType(), 
+                unit.getFaction(),
+                unit.getUnitRank() != null ? unit.getUnitRank() : uaigroup.mapservice.model.UnitRank.PLATOON
+            );
+            unit.setFirepower(firepower);
+            return unit;
+        });
         
-        GeneralUnit savedUnit = unitRepository.save(updatedUnit);
+        GeneralUnit savedUnit = worldStateStore.saveUnit(updatedUnit);
+        unitMetricsRecorder.record(savedUnit);
         notifyUnitUpdate(savedUnit);
         return savedUnit;
     }
 
     public void deleteUnitById(String id) {
-        unitRepository.deleteById(id);
+        worldStateStore.deleteUnit(id);
+        unitMetricsRecorder.forget(id);
+        coalescingPublisher.discard("/topic/units", id);
         messagingTemplate.convertAndSend("/topic/units/delete", id);
     }
 
     public void deleteAllUnits() {
-        unitRepository.deleteAll();
+        worldStateStore.deleteAllUnits();
+        unitMetricsRecorder.forgetAll();
+        unitDeltaPublisher.publishCleared();
+        coalescingPublisher.discardAll("/topic/units");
         messagingTemplate.convertAndSend("/topic/units/clear", "all");
     }
 
     public List<GeneralUnit> getUnitsByIds(List<String> unitIds) {
-        return unitRepository.findAllById(unitIds);
+        return worldStateStore.findUnitsByIds(unitIds);
     }
     
     public List<GeneralUnit> getUnitsByUserId(String userId) {
-        return unitRepository.findByUserId(userId);
+        return worldStateStore.findUnitsByUserId(userId);
     }
 
     // Obstacle methods
@@ -129,39 +142,39 @@ public class MapService {
     public Obstacle createObstacle(ObstacleCreateRequest request, String userId) {
         Obstacle obstacle = obstacleMapper.toEntity(request);
         obstacle.setCreatedBy(userId);
-        Obstacle savedObstacle = obstacleRepository.save(obstacle);
+        Obstacle savedObstacle = worldStateStore.saveObstacle(obstacle);
         notifyObstacleUpdate(savedObstacle);
         return savedObstacle;
     }
     
     public List<Obstacle> getObstaclesByUserId(String userId) {
-        return obstacleRepository.findByCreatedBy(userId);
+        return worldStateStore.findObstaclesByCreatedBy(userId);
     }
     
     public List<Obstacle> getAllObstacles() {
-        return obstacleRepository.findAll();
+        return worldStateStore.findAllObstacles();
     }
     
     public Obstacle getObstacleById(String id) {
-        return obstacleRepository.findById(id)
+        return worldStateStore.findObstacle(id)
             .orElseThrow(() -> new RuntimeException("Obstacle not found with id: " + id));
     }
     
     public Obstacle updateObstacle(ObstacleUpdateRequest request) {
         Obstacle existingObstacle = getObstacleById(request.id());
         Obstacle updatedObstacle = obstacleMapper.updateFromRequest(existingObstacle, request);
-        Obstacle savedObstacle = obstacleRepository.save(updatedObstacle);
+        Obstacle savedObstacle = worldStateStore.saveObstacle(updatedObstacle);
         notifyObstacleUpdate(savedObstacle);
         return savedObstacle;
     }
     
     public void deleteObstacleById(String id) {
-        obstacleRepository.deleteById(id);
+        worldStateStore.deleteObstacle(id);
         messagingTemplate.convertAndSend("/topic/obstacles/delete", id);
     }
     
     public void deleteAllObstacles() {
-        obstacleRepository.deleteAll();
+        worldStateStore.deleteAllObstacles();
         messagingTemplate.convertAndSend("/topic/obstacles/clear", "all");
     }
     
@@ -169,46 +182,130 @@ public class MapService {
     
     public Action createAction(ActionCreateRequest request) {
         Action action = actionMapper.toEntity(request);
-        Action savedAction = actionRepository.save(action);
+        Action savedAction = worldStateStore.saveAction(action);
         notifyActionUpdate(savedAction);
         return savedAction;
     }
     
     public List<Action> getAllActions() {
-        return actionRepository.findAll();
+        return worldStateStore.findAllActions();
     }
     
     public List<Action> getActionsByUnitId(String unitId) {
-        return actionRepository.findByUnitId(unitId);
+        return worldStateStore.findActionsByUnitId(unitId);
     }
     
     public Action getActionById(String id) {
-        return actionRepository.findById(id)
+        return worldStateStore.findAction(id)
             .orElseThrow(() -> new RuntimeException("Action not found with id: " + id));
     }
     
     public Action updateAction(ActionUpdateRequest request) {
         Action existingAction = getActionById(request.id());
         Action updatedAction = actionMapper.updateFromRequest(existingAction, request);
-        Action savedAction = actionRepository.save(updatedAction);
+        Action savedAction = worldStateStore.saveAction(updatedAction);
         notifyActionUpdate(savedAction);
         return savedAction;
     }
     
     public void deleteActionById(String id) {
-        actionRepository.deleteById(id);
+        worldStateStore.deleteAction(id);
         messagingTemplate.convertAndSend("/topic/actions/delete", id);
     }
     
     public void deleteAllActions() {
-        actionRepository.deleteAll();
+        worldStateStore.deleteAllActions();
         messagingTemplate.convertAndSend("/topic/actions/clear", "all");
     }
     
+    /**
+     * Resolve combat among all units on the map; with apply the losses are saved to the units.
+     * The battle runs on copies, since the live units keep changing meanwhile. Outcomes are then
+     * applied under the units' stripe locks, and only to units whose combat state still matches
+     * the copy: a unit moved, reinforced or hit by something else in between keeps its newer state.
+     */
+    public CombatEngine.CombatResult resolveCombat(CombatEngine.CombatSettings settings, boolean apply) {
+        Map<String, GeneralUnit> inputs = new HashMap<>();
+        for (GeneralUnit unit : worldStateStore.findAllUnits()) {
+            inputs.put(unit.getId(), BattleReplayService.copyUnit(unit));
+        }
+        CombatEngine.CombatResult result = combatEngine.resolve(inputs.values(), settings);
+        if (!apply) {
+            return result;
+        }
+
+        List<GeneralUnit> changed = new ArrayList<>(result.units().size());
+        List<String> ids = new ArrayList<>(result.units().size());
+        for (CombatEngine.UnitOutcome outcome : result.units()) {
+            ids.add(outcome.unitId());
+        }
+        int[] stale = new int[1];
+        worldStateStore.mutateUnits(ids, () -> {
+            for (CombatEngine.UnitOutcome outcome : result.units()) {
+                GeneralUnit unit = worldStateStore.findUnit(outcome.unitId()).orElse(null);
+                if (unit == null) {
+                    continue;
+                }
+                if (!sameCombatState(inputs.get(outcome.unitId()), unit)) {
+                    stale[0]++;
+                    continue;
+                }
+                unit.setPersonnel(outcome.personnel());
+                unit.setVehicles(outcome.vehicles());
+                unit.setSupplyLevel(outcome.supplyLevel());
+                unit.setMorale(outcome.morale());
+                unit.setFirepower(outcome.firepower());
+                if (outcome.destroyed()) {
+                    unit.setStatus(Status.DESTROYED);
+                }
+                changed.add(unit);
+            }
+        });
+        for (GeneralUnit unit : worldStateStore.saveUnits(changed)) {
+            unitMetricsRecorder.record(unit);
+            notifyUnitUpdate(unit);
+        }
+        if (stale[0] > 0) {
+            log.warn("Combat outcome skipped for {} units that changed while it was resolved", stale[0]);
+        }
+        log.info("Applied combat of {} steps to {} units in {} us", result.stepsRun(), changed.size(),
+                result.elapsedMicros());
+        return result;
+    }
+
+    public int countUnits() {
+        return worldStateStore.unitCount();
+    }
+
+    public WorldStateStore.WorldStateStats getWorldStateStats() {
+        return worldStateStore.getStats();
+    }
+
+    /**
+     * Whether the unit still has every field the combat engine reads as it had in the input copy
+     */
+    private static boolean sameCombatState(GeneralUnit input, GeneralUnit unit) {
+        return input != null
+                && Objects.equals(input.getPosition(), unit.getPosition())
+                && input.getFaction() == unit.getFaction()
+                && input.getUnitType() == unit.getUnitType()
+                && input.getUnitRank() == unit.getUnitRank()
+                && input.getStatus() == unit.getStatus()
+                && input.getPersonnel() == unit.getPersonnel()
+                && input.getVehicles() == unit.getVehicles()
+                && input.getSupplyLevel() == unit.getSupplyLevel()
+                && Double.compare(input.getMorale(), unit.getMorale()) == 0
+                && input.getFirepower() == unit.getFirepower()
+                && input.getFirepowerBase() == unit.getFirepowerBase()
+                && input.getDefense() == unit.getDefense()
+                && input.getMobility() == unit.getMobility()
+                && input.getRange() == unit.getRange();
+    }
+
     // Private notification methods
     
     private void notifyUnitUpdate(GeneralUnit unit) {
-        messagingTemplate.convertAndSend("/topic/units", unit);
+        coalescingPublisher.publishLatest("/topic/units", unit.getId(), unit);
     }
     
     private void notifyObstacleUpdate(Obstacle obstacle) {
@@ -0,0 +1,106 @@
+package uaigroup.mapservice.service;
+
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.BattleReplay;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recordings in progress, by user.
+ * Maintained by BattleReplayService on start and stop and rebuilt from the isRecording
+ * index at startup, so finding an active recording never scans battle_replays.
+ */
+@Service
+public class RecordingRegistry {
+
+    private final Map<String, ActiveRecording> byUser = new ConcurrentHashMap<>();
+
+    public Optional<ActiveRecording> findByUser(String userId) {
+        return Optional.ofNullable(byUser.get(userId));
+    }
+
+    public Optional<ActiveRecording> findByReplayId(String replayId) {
+        return byUser.values().stream()
+                .filter(recording -> replayId.equals(recording.replayId()))
+                .findFirst();
+    }
+
+    /**
+     * Register a recording unless its user already has one
+     *
+     * @return false when another recording of the same user is registered
+     */
+    public boolean register(ActiveRecording recording) {
+        return byUser.putIfAbsent(recording.replay().getUserId(), recording) == null;
+    }
+
+    public Optional<ActiveRecording> remove(String userId) {
+        return Optional.ofNullable(byUser.remove(userId));
+    }
+
+    public Collection<ActiveRecording> all() {
+        return byUser.values();
+    }
+
+    public int size() {
+        return byUser.size();
+    }
+
+    /**
+     * A recording, its capture timer, its running statistics and the events waiting to be written
+     */
+    public static final class ActiveRecording {
+        private final BattleReplay replay;
+        private final long intervalMillis;
+        private final ReplayStatisticsAccumulator statistics;
+        private final ReplayEventBuffer events;
+        private volatile HashedTimerWheel.Timeout captureTimer;
+        private volatile boolean stopped;
+
+        public ActiveRecording(BattleReplay replay, long intervalMillis, int eventBufferSize) {
+            this.replay = replay;
+            this.intervalMillis = intervalMillis;
+            this.statistics = new ReplayStatisticsAccumulator(replay.getStartTime());
+            this.events = new ReplayEventBuffer(eventBufferSize);
+        }
+
+        public BattleReplay replay() {
+            return replay;
+        }
+
+        public String replayId() {
+            return replay.getId();
+        }
+
+        public long intervalMillis() {
+            return intervalMillis;
+        }
+
+        ReplayStatisticsAccumulator statistics() {
+            return statistics;
+        }
+
+        ReplayEventBuffer events() {
+            return events;
+        }
+
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        void setCaptureTimer(HashedTimerWheel.Timeout captureTimer) {
+            this.captureTimer = captureTimer;
+        }
+
+        void stop() {
+            stopped = true;
+            HashedTimerWheel.Timeout timer = captureTimer;
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+    }
+}
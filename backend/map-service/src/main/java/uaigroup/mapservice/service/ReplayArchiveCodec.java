@@ -0,0 +1,529 @@
+package uaigroup.mapservice.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uaigroup.mapservice.model.Action;
+import uaigroup.mapservice.model.BattleEvent;
+import uaigroup.mapservice.model.BattleReplay;
+import uaigroup.mapservice.model.BattleSnapshot;
+import uaigroup.mapservice.model.EventType;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.FieldOfFire;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Obstacle;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.Status;
+import uaigroup.mapservice.model.UnitRank;
+import uaigroup.mapservice.model.UnitType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary archive of a finished replay.
+ * <p>
+ * An archive is the magic number and format version followed by blocks, each one a type
+ * byte, the raw and compressed payload lengths and a Deflate-compressed payload:
+ * <ul>
+ *   <li>HEADER: replay metadata as JSON, then the enum constant names the archive was written with</li>
+ *   <li>STRINGS: strings appended to the archive-wide dictionary, before the first block using them</li>
+ *   <li>SNAPSHOT: one snapshot with its units stored column by column (IDs and enums as
+ *       dictionary indexes, coordinates and stats as primitive arrays); obstacles and
+ *       actions, which are few, as JSON</li>
+ *   <li>EVENTS: up to {@link #EVENTS_PER_BLOCK} events, also column by column</li>
+ *   <li>END</li>
+ * </ul>
+ * Blocks are self-delimiting, so both sides stream them through a channel one at a time.
+ */
+final class ReplayArchiveCodec {
+
+    static final int EVENTS_PER_BLOCK = 1024;
+
+    private static final int MAGIC = 0x4D435241;        // "MCRA"
+    private static final short VERSION = 1;
+
+    private static final byte BLOCK_HEADER = 1;
+    private static final byte BLOCK_STRINGS = 2;
+    private static final byte BLOCK_SNAPSHOT = 3;
+    private static final byte BLOCK_EVENTS = 4;
+    private static final byte BLOCK_END = 5;
+
+    private static final int NONE = -1;
+    private static final byte HAS_POSITION = 1;
+    private static final byte HAS_COMMS_LINK = 2;
+
+    // Enum types as listed in the header; indexes into this array are stable across versions
+    private static final List<Class<? extends Enum<?>>> ENUM_TYPES =
+            List.of(UnitType.class, Faction.class, UnitRank.class, Status.class, EventType.class);
+
+    private static final TypeReference<List<Obstacle>> OBSTACLE_LIST = new TypeReference<>() {};
+    private static final TypeReference<List<Action>> ACTION_LIST = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> METADATA = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final int compressionLevel;
+
+    ReplayArchiveCodec(ObjectMapper objectMapper, int compressionLevel) {
+        this.objectMapper = objectMapper;
+        this.compressionLevel = compressionLevel;
+    }
+
+    Writer writer(WritableByteChannel channel) {
+        return new Writer(channel);
+    }
+
+    Reader reader(ReadableByteChannel channel) {
+        return new Reader(channel);
+    }
+
+    /**
+     * Writes one archive; the header goes first, then snapshots and events, then finish()
+     */
+    final class Writer {
+        private final WritableByteChannel channel;
+        private final Deflater deflater = new Deflater(compressionLevel);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> newStrings = new ArrayList<>();
+
+        private Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeHeader(BattleReplay replay) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                ByteBuffer start = ByteBuffer.allocate(6).putInt(MAGIC).putShort(VERSION).flip();
+                writeFully(start);
+
+                writeBytes(out, objectMapper.writeValueAsBytes(replay));
+                out.writeByte(ENUM_TYPES.size());
+                for (Class<? extends Enum<?>> type : ENUM_TYPES) {
+                    Enum<?>[] constants = type.getEnumConstants();
+                    out.writeShort(constants.length);
+                    for (Enum<?> constant : constants) {
+                        out.writeUTF(constant.name());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            writeBlock(BLOCK_HEADER, bytes.toByteArray());
+        }
+
+        void writeSnapshot(BattleSnapshot snapshot) {
+            List<GeneralUnit> units = snapshot.getUnits() != null ? snapshot.getUnits() : List.of();
+            int n = units.size();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(n * 96 + 64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(snapshot.getSnapshotNumber());
+                out.writeLong(toMillis(snapshot.getTimestamp()));
+                out.writeInt(n);
+
+                for (GeneralUnit unit : units) out.writeInt(ref(unit.getId()));
+                for (GeneralUnit unit : units) out.writeInt(ref(unit.getUserId()));
+                for (GeneralUnit unit : units) out.writeByte(ordinal(unit.getUnitType()));
+                for (GeneralUnit unit : units) out.writeByte(ordinal(unit.getFaction()));
+                for (GeneralUnit unit : units) out.writeByte(ordinal(unit.getUnitRank()));
+                for (GeneralUnit unit : units) out.writeByte(ordinal(unit.getStatus()));
+                for (GeneralUnit unit : units) {
+                    out.writeByte((unit.getPosition() != null ? HAS_POSITION : 0)
+                            | (unit.isHasCommsLink() ? HAS_COMMS_LINK : 0));
+                }
+                for (GeneralUnit unit : units) out.writeDouble(unit.getPosition() != null ? unit.getPosition().getLatitude() : 0);
+                for (GeneralUnit unit : units) out.writeDouble(unit.getPosition() != null ? unit.getPosition().getLongitude() : 0);
+                for (GeneralUnit unit : units) out.writeDouble(unit.getMorale());
+                for (GeneralUnit unit : units) out.writeInt(unit.getSupplyLevel());
+                for (GeneralUnit unit : units) out.writeInt(unit.getPersonnel());
+                for (GeneralUnit unit : units) out.writeInt(unit.getVehicles());
+                for (GeneralUnit unit : units) out.writeInt(unit.getFirepower());
+                for (GeneralUnit unit : units) out.writeInt(unit.getDirection());
+                for (GeneralUnit unit : units) out.writeInt(unit.getMobility());
+                for (GeneralUnit unit : units) out.writeInt(unit.getFirepowerBase());
+                for (GeneralUnit unit : units) out.writeInt(unit.getDefense());
+                for (GeneralUnit unit : units) out.writeInt(unit.getRange());
+                for (GeneralUnit unit : units) out.writeInt(unit.getCommsStrength());
+                for (GeneralUnit unit : units) out.writeInt(ref(unit.getLinkedCommsUnitId()));
+                for (GeneralUnit unit : units) out.writeInt(ref(unit.getActiveFireMissionId()));
+
+                // Sparse: only the few units with a sector of fire
+                List<Integer> withFieldOfFire = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if (units.get(i).getFieldOfFire() != null) {
+                        withFieldOfFire.add(i);
+                    }
+                }
+                out.writeInt(withFieldOfFire.size());
+                for (int i : withFieldOfFire) {
+                    out.writeInt(i);
+                    writeBytes(out, objectMapper.writeValueAsBytes(units.get(i).getFieldOfFire()));
+                }
+
+                writeBytes(out, objectMapper.writeValueAsBytes(snapshot.getObstacles()));
+                writeBytes(out, objectMapper.writeValueAsBytes(snapshot.getActiveActions()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            flushStrings();
+            writeBlock(BLOCK_SNAPSHOT, bytes.toByteArray());
+        }
+
+        void writeEvents(List<BattleEvent> events) {
+            for (int from = 0; from < events.size(); from += EVENTS_PER_BLOCK) {
+                writeEventBlock(events.subList(from, Math.min(from + EVENTS_PER_BLOCK, events.size())));
+            }
+        }
+
+        void finish() {
+            writeBlock(BLOCK_END, new byte[0]);
+            deflater.end();
+        }
+
+        private void writeEventBlock(List<BattleEvent> events) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() * 64 + 16);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(events.size());
+                for (BattleEvent event : events) out.writeLong(event.getSequence());
+                for (BattleEvent event : events) out.writeLong(toMillis(event.getTimestamp()));
+                for (BattleEvent event : events) out.writeByte(ordinal(event.getEventType()));
+                for (BattleEvent event : events) out.writeByte(ordinal(event.getFaction()));
+                for (BattleEvent event : events) out.writeInt(ref(event.getUnitId()));
+                for (BattleEvent event : events) out.writeInt(ref(event.getTargetUnitId()));
+                for (BattleEvent event : events) out.writeByte(event.getLocation() != null ? HAS_POSITION : 0);
+                for (BattleEvent event : events) out.writeDouble(event.getLocation() != null ? event.getLocation().getLatitude() : 0);
+                for (BattleEvent event : events) out.writeDouble(event.getLocation() != null ? event.getLocation().getLongitude() : 0);
+                for (BattleEvent event : events) writeString(out, event.getDescription());
+                for (BattleEvent event : events) {
+                    writeBytes(out, event.getMetadata() != null ? objectMapper.writeValueAsBytes(event.getMetadata()) : null);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            flushStrings();
+            writeBlock(BLOCK_EVENTS, bytes.toByteArray());
+        }
+
+        private int ref(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            return dictionary.computeIfAbsent(value, v -> {
+                newStrings.add(v);
+                return dictionary.size();
+            });
+        }
+
+        private void flushStrings() {
+            if (newStrings.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(newStrings.size() * 32);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(newStrings.size());
+                for (String value : newStrings) {
+                    writeString(out, value);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            newStrings.clear();
+            writeBlock(BLOCK_STRINGS, bytes.toByteArray());
+        }
+
+        private void writeBlock(byte type, byte[] payload) {
+            deflater.reset();
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, payload.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(9)
+                    .put(type)
+                    .putInt(payload.length)
+                    .putInt(compressed.size())
+                    .flip();
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(compressed.toByteArray()));
+        }
+
+        private void writeFully(ByteBuffer buffer) {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads one archive block by block, handing each part over as soon as it is decoded
+     */
+    final class Reader {
+        private final ReadableByteChannel channel;
+        private final Inflater inflater = new Inflater();
+        private final List<String> dictionary = new ArrayList<>();
+        private final List<Enum<?>[]> enumMappings = new ArrayList<>();
+
+        private Reader(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void read(Consumer<BattleReplay> onHeader, Consumer<BattleSnapshot> onSnapshot,
+                  Consumer<List<BattleEvent>> onEvents) throws IOException {
+            ByteBuffer start = readFully(6);
+            if (start.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a replay archive");
+            }
+            short version = start.getShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported replay archive version " + version);
+            }
+
+            try {
+                for (;;) {
+                    ByteBuffer header = readFully(9);
+                    byte type = header.get();
+                    int rawLength = header.getInt();
+                    int compressedLength = header.getInt();
+                    DataInputStream in = inflate(readFully(compressedLength), rawLength);
+
+                    switch (type) {
+                        case BLOCK_HEADER -> onHeader.accept(readHeader(in));
+                        case BLOCK_STRINGS -> readStrings(in);
+                        case BLOCK_SNAPSHOT -> onSnapshot.accept(readSnapshot(in));
+                        case BLOCK_EVENTS -> onEvents.accept(readEvents(in));
+                        case BLOCK_END -> {
+                            return;
+                        }
+                        default -> throw new IllegalArgumentException("Unknown replay archive block " + type);
+                    }
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+
+        private BattleReplay readHeader(DataInputStream in) throws IOException {
+            BattleReplay replay = objectMapper.readValue(readBytes(in), BattleReplay.class);
+            int enumCount = in.readUnsignedByte();
+            for (int t = 0; t < enumCount; t++) {
+                int constants = in.readUnsignedShort();
+                Enum<?>[] mapping = new Enum<?>[constants];
+                for (int c = 0; c < constants; c++) {
+                    String name = in.readUTF();
+                    mapping[c] = t < ENUM_TYPES.size() ? constantNamed(ENUM_TYPES.get(t), name) : null;
+                }
+                enumMappings.add(mapping);
+            }
+            return replay;
+        }
+
+        private void readStrings(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                dictionary.add(readString(in));
+            }
+        }
+
+        private BattleSnapshot readSnapshot(DataInputStream in) throws IOException {
+            int snapshotNumber = in.readInt();
+            LocalDateTime timestamp = fromMillis(in.readLong());
+            int n = in.readInt();
+
+            List<GeneralUnit> units = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                units.add(new GeneralUnit());
+            }
+            for (GeneralUnit unit : units) unit.setId(string(in.readInt()));
+            for (GeneralUnit unit : units) unit.setUserId(string(in.readInt()));
+            for (GeneralUnit unit : units) unit.setUnitType(constant(0, in.readByte()));
+            for (GeneralUnit unit : units) unit.setFaction(constant(1, in.readByte()));
+            for (GeneralUnit unit : units) unit.setUnitRank(constant(2, in.readByte()));
+            for (GeneralUnit unit : units) unit.setStatus(constant(3, in.readByte()));
+            byte[] flags = new byte[n];
+            in.readFully(flags);
+            double[] latitudes = new double[n];
+            for (int i = 0; i < n; i++) latitudes[i] = in.readDouble();
+            for (int i = 0; i < n; i++) {
+                double longitude = in.readDouble();
+                if ((flags[i] & HAS_POSITION) != 0) {
+                    units.get(i).setPosition(new Position(latitudes[i], longitude));
+                }
+                units.get(i).setHasCommsLink((flags[i] & HAS_COMMS_LINK) != 0);
+            }
+            for (GeneralUnit unit : units) unit.setMorale(in.readDouble());
+            for (GeneralUnit unit : units) unit.setSupplyLevel(in.readInt());
+            for (GeneralUnit unit : units) unit.setPersonnel(in.readInt());
+            for (GeneralUnit unit : units) unit.setVehicles(in.readInt());
+            for (GeneralUnit unit : units) unit.setFirepower(in.readInt());
+            for (GeneralUnit unit : units) unit.setDirection(in.readInt());
+            for (GeneralUnit unit : units) unit.setMobility(in.readInt());
+            for (GeneralUnit unit : units) unit.setFirepowerBase(in.readInt());
+            for (GeneralUnit unit : units) unit.setDefense(in.readInt());
+            for (GeneralUnit unit : units) unit.setRange(in.readInt());
+            for (GeneralUnit unit : units) unit.setCommsStrength(in.readInt());
+            for (GeneralUnit unit : units) unit.setLinkedCommsUnitId(string(in.readInt()));
+            for (GeneralUnit unit : units) unit.setActiveFireMissionId(string(in.readInt()));
+
+            int withFieldOfFire = in.readInt();
+            for (int i = 0; i < withFieldOfFire; i++) {
+                int index = in.readInt();
+                units.get(index).setFieldOfFire(objectMapper.readValue(readBytes(in), FieldOfFire.class));
+            }
+
+            return BattleSnapshot.builder()
+                    .snapshotNumber(snapshotNumber)
+                    .timestamp(timestamp)
+                    .units(units)
+                    .obstacles(objectMapper.readValue(readBytes(in), OBSTACLE_LIST))
+                    .activeActions(objectMapper.readValue(readBytes(in), ACTION_LIST))
+                    .build();
+        }
+
+        private List<BattleEvent> readEvents(DataInputStream in) throws IOException {
+            int n = in.readInt();
+            List<BattleEvent> events = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                events.add(new BattleEvent());
+            }
+            for (BattleEvent event : events) event.setSequence(in.readLong());
+            for (BattleEvent event : events) event.setTimestamp(fromMillis(in.readLong()));
+            for (BattleEvent event : events) event.setEventType(constant(4, in.readByte()));
+            for (BattleEvent event : events) event.setFaction(constant(1, in.readByte()));
+            for (BattleEvent event : events) event.setUnitId(string(in.readInt()));
+            for (BattleEvent event : events) event.setTargetUnitId(string(in.readInt()));
+            byte[] flags = new byte[n];
+            in.readFully(flags);
+            double[] latitudes = new double[n];
+            for (int i = 0; i < n; i++) latitudes[i] = in.readDouble();
+            for (int i = 0; i < n; i++) {
+                double longitude = in.readDouble();
+                if ((flags[i] & HAS_POSITION) != 0) {
+                    events.get(i).setLocation(new Position(latitudes[i], longitude));
+                }
+            }
+            for (BattleEvent event : events) event.setDescription(readString(in));
+            for (BattleEvent event : events) {
+                byte[] metadata = readBytes(in);
+                event.setMetadata(metadata != null ? objectMapper.readValue(metadata, METADATA) : null);
+            }
+            return events;
+        }
+
+        private String string(int index) {
+            return index == NONE ? null : dictionary.get(index);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <E extends Enum<E>> E constant(int enumType, byte ordinal) {
+            if (ordinal == NONE || enumType >= enumMappings.size()) {
+                return null;
+            }
+            Enum<?>[] mapping = enumMappings.get(enumType);
+            return ordinal < mapping.length ? (E) mapping[ordinal] : null;
+        }
+
+        private DataInputStream inflate(ByteBuffer compressed, int rawLength) throws IOException {
+            byte[] raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(compressed.array(), 0, compressed.limit());
+            try {
+                int read = 0;
+                while (read < rawLength) {
+                    int inflated = inflater.inflate(raw, read, rawLength - read);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalArgumentException("Truncated replay archive block");
+                    }
+                    read += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("Corrupt replay archive block", e);
+            }
+            return new DataInputStream(new ByteArrayInputStream(raw));
+        }
+
+        private ByteBuffer readFully(int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Replay archive ended unexpectedly");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? NONE : (byte) value.ordinal();
+    }
+
+    private static Enum<?> constantNamed(Class<? extends Enum<?>> type, String name) {
+        for (Enum<?> constant : type.getEnumConstants()) {
+            if (constant.name().equals(name)) {
+                return constant;
+            }
+        }
+        return null;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp == null ? Long.MIN_VALUE : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis == Long.MIN_VALUE ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(NONE);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
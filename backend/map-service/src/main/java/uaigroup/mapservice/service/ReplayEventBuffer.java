@@ -0,0 +1,94 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.BattleEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded ring buffer of events accepted for one recording and not yet written.
+ * Producers offer whole batches, which are taken completely or not at all, so a caller
+ * told the buffer is full can retry the same batch later. The flusher drains under
+ * flushLock, which keeps batches of one recording in order when the scheduled flush
+ * and the final flush on stop overlap.
+ */
+final class ReplayEventBuffer {
+
+    private final BattleEvent[] ring;
+    private int head;
+    private int size;
+    private boolean closed;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    ReplayEventBuffer(int capacity) {
+        this.ring = new BattleEvent[capacity];
+    }
+
+    /**
+     * Append all events, or none when they do not fit or the buffer was closed
+     */
+    synchronized boolean offer(List<BattleEvent> events) {
+        if (closed || events.size() > ring.length - size) {
+            return false;
+        }
+        for (BattleEvent event : events) {
+            ring[(head + size) % ring.length] = event;
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Remove up to max events from the head, oldest first
+     */
+    synchronized List<BattleEvent> drain(int max) {
+        int count = Math.min(max, size);
+        List<BattleEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(ring[head]);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+        }
+        size -= count;
+        return events;
+    }
+
+    /**
+     * Put events that failed to write back at the head, as far as there is room
+     *
+     * @return how many of them did not fit and were dropped
+     */
+    synchronized int requeue(List<BattleEvent> events) {
+        int kept = Math.min(events.size(), ring.length - size);
+        for (int i = kept - 1; i >= 0; i--) {
+            head = (head - 1 + ring.length) % ring.length;
+            ring[head] = events.get(i);
+            size++;
+        }
+        return events.size() - kept;
+    }
+
+    /**
+     * Refuse further events; what is buffered can still be drained
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    int capacity() {
+        return ring.length;
+    }
+
+    ReentrantLock flushLock() {
+        return flushLock;
+    }
+}
@@ -0,0 +1,124 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ReplayStatistics of a recording in progress, kept up to date as snapshots and events arrive.
+ * The first snapshot fixes the starting forces; every later snapshot replaces the current
+ * figures (survivors, supply, active actions) in a single pass over its units, and events
+ * only bump counters, so reading the statistics never rescans the replay.
+ */
+final class ReplayStatisticsAccumulator {
+
+    private final LocalDateTime startTime;
+
+    // Starting forces, null until the first snapshot
+    private Map<String, Faction> initialUnits;
+    private int blueForceUnits;
+    private int redForceUnits;
+
+    // Figures of the latest snapshot
+    private int unitsDestroyed;
+    private int blueForceDestroyed;
+    private int redForceDestroyed;
+    private double averageSupply;
+    private double blueForceAverageSupply;
+    private double redForceAverageSupply;
+    private int activeActions;
+    private int snapshotCount;
+
+    private final Map<EventType, Integer> eventsByType = new HashMap<>();
+    private int totalEvents;
+
+    ReplayStatisticsAccumulator(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    synchronized void onSnapshot(BattleSnapshot snapshot) {
+        if (initialUnits == null) {
+            initialUnits = new HashMap<>(snapshot.getUnits().size() * 2);
+            for (GeneralUnit unit : snapshot.getUnits()) {
+                initialUnits.put(unit.getId(), unit.getFaction());
+                if (unit.getFaction() == Faction.BLUE_FORCE) {
+                    blueForceUnits++;
+                } else if (unit.getFaction() == Faction.RED_FORCE) {
+                    redForceUnits++;
+                }
+            }
+        }
+
+        int survivors = 0, blueSurvivors = 0, redSurvivors = 0;
+        long supply = 0, blueSupply = 0, redSupply = 0;
+        int blueCount = 0, redCount = 0;
+        for (GeneralUnit unit : snapshot.getUnits()) {
+            supply += unit.getSupplyLevel();
+            if (unit.getFaction() == Faction.BLUE_FORCE) {
+                blueSupply += unit.getSupplyLevel();
+                blueCount++;
+            } else if (unit.getFaction() == Faction.RED_FORCE) {
+                redSupply += unit.getSupplyLevel();
+                redCount++;
+            }
+
+            if (initialUnits.containsKey(unit.getId())) {
+                survivors++;
+                Faction initialFaction = initialUnits.get(unit.getId());
+                if (initialFaction == Faction.BLUE_FORCE) {
+                    blueSurvivors++;
+                } else if (initialFaction == Faction.RED_FORCE) {
+                    redSurvivors++;
+                }
+            }
+        }
+
+        int unitCount = snapshot.getUnits().size();
+        unitsDestroyed = initialUnits.size() - survivors;
+        blueForceDestroyed = blueForceUnits - blueSurvivors;
+        redForceDestroyed = redForceUnits - redSurvivors;
+        averageSupply = unitCount > 0 ? (double) supply / unitCount : 0.0;
+        blueForceAverageSupply = blueCount > 0 ? (double) blueSupply / blueCount : 0.0;
+        redForceAverageSupply = redCount > 0 ? (double) redSupply / redCount : 0.0;
+        activeActions = snapshot.getActiveActions() != null ? snapshot.getActiveActions().size() : 0;
+        snapshotCount = Math.max(snapshotCount, snapshot.getSnapshotNumber());
+    }
+
+    synchronized void onEvent(BattleEvent event) {
+        eventsByType.merge(event.getEventType(), 1, Integer::sum);
+        totalEvents++;
+    }
+
+    /**
+     * Statistics as of now, with the duration measured up to endTime
+     */
+    synchronized ReplayStatistics toStatistics(LocalDateTime endTime) {
+        return ReplayStatistics.builder()
+                .totalUnits(initialUnits != null ? initialUnits.size() : 0)
+                .blueForceUnits(blueForceUnits)
+                .redForceUnits(redForceUnits)
+                .unitsDestroyed(unitsDestroyed)
+                .blueForceDestroyed(blueForceDestroyed)
+                .redForceDestroyed(redForceDestroyed)
+                .totalActions(activeActions)
+                .completedActions(eventsByType.getOrDefault(EventType.ACTION_COMPLETED, 0))
+                .failedActions(eventsByType.getOrDefault(EventType.ACTION_FAILED, 0))
+                .totalEvents(totalEvents)
+                .eventsByType(new HashMap<>(eventsByType))
+                .averageUnitHealth(averageSupply)
+                .blueForceAverageHealth(blueForceAverageSupply)
+                .redForceAverageHealth(redForceAverageSupply)
+                .communicationEvents(
+                        eventsByType.getOrDefault(EventType.COMMS_ESTABLISHED, 0) +
+                        eventsByType.getOrDefault(EventType.COMMS_LOST, 0)
+                )
+                .attackEvents(eventsByType.getOrDefault(EventType.UNIT_ATTACKED, 0))
+                .movementEvents(eventsByType.getOrDefault(EventType.UNIT_MOVED, 0))
+                .durationSeconds(Duration.between(startTime, endTime).getSeconds())
+                .snapshotCount(snapshotCount)
+                .build();
+    }
+}
@@ -0,0 +1,452 @@
+package uaigroup.mapservice.service;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.BattleEvent;
+import uaigroup.mapservice.model.BattleReplay;
+import uaigroup.mapservice.model.BattleSnapshot;
+import uaigroup.mapservice.model.ReplayEventBucket;
+import uaigroup.mapservice.model.ReplaySnapshotRecord;
+import uaigroup.mapservice.model.ReplayStatistics;
+import uaigroup.mapservice.repository.ReplayEventBucketRepository;
+import uaigroup.mapservice.repository.ReplaySnapshotRecordRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Append-only storage of replay content outside the battle_replays document.
+ * Each snapshot is its own replay_snapshots document keyed by (replayId, sequence); events
+ * are $push-ed into time-bucketed replay_events documents capped at a fixed count. The
+ * replay document only keeps the counters that hand out sequence numbers, so recording
+ * never rewrites earlier snapshots and no document grows with the length of the battle.
+ * Snapshots are keyframe + delta encoded: every keyframe-interval snapshots a full copy
+ * is written, the ones in between only hold what changed since the previous capture.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplayStore {
+
+    private static final String REPLAY_COLLECTION = "battle_replays";
+    private static final int READ_BATCH_SIZE = 50;
+    // Buckets hold up to event-bucket-size events each, so few are read at once
+    private static final int BUCKET_BATCH_SIZE = 4;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReplaySnapshotRecordRepository snapshotRepository;
+    private final ReplayEventBucketRepository eventBucketRepository;
+
+    // Last snapshot written per recording, the base of the next delta
+    private final Map<String, ChainHead> chains = new ConcurrentHashMap<>();
+
+    @Value("${replays.event-bucket-seconds:60}")
+    private long eventBucketSeconds;
+
+    @Value("${replays.event-bucket-size:500}")
+    private int eventBucketSize;
+
+    @Value("${replays.keyframe-interval:20}")
+    private int keyframeInterval;
+
+    /**
+     * Append a snapshot; its snapshotNumber is taken from the replay's snapshot counter.
+     * Captures of one replay are serialized on the replay's chain head, so each delta is based
+     * on the snapshot right before it; the Mongo writes happen outside the chains map, which
+     * only hands out the head. A failed insert drops the base, so the next capture is a keyframe.
+     */
+    public BattleSnapshot appendSnapshot(String replayId, BattleSnapshot snapshot) {
+        ChainHead head = chains.computeIfAbsent(replayId, id -> new ChainHead());
+        synchronized (head) {
+            DeltaChain chain = head.chain;
+            Update update = new Update()
+                    .inc("snapshotCount", 1)
+                    .set("lastSnapshotAt", snapshot.getTimestamp())
+                    .set("updatedAt", LocalDateTime.now());
+            int sequence = nextCounter(replayId, "snapshotCount", update).getSnapshotCount();
+            snapshot.setSnapshotNumber(sequence);
+
+            // A missing or stale base (restart, failed write) forces a keyframe
+            boolean keyframe = chain == null
+                    || chain.last().getSnapshotNumber() != sequence - 1
+                    || (sequence - 1) % keyframeInterval == 0;
+            ReplaySnapshotRecord.ReplaySnapshotRecordBuilder record = ReplaySnapshotRecord.builder()
+                    .replayId(replayId)
+                    .sequence(sequence)
+                    .timestamp(snapshot.getTimestamp());
+            int keyframeSequence = keyframe ? sequence : chain.keyframeSequence();
+            if (keyframe) {
+                record.snapshot(snapshot);
+            } else {
+                record.delta(SnapshotDeltaCodec.encode(chain.last(), snapshot));
+            }
+
+            head.chain = null;
+            snapshotRepository.insert(record.keyframeSequence(keyframeSequence).build());
+            head.chain = new DeltaChain(snapshot, keyframeSequence);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Append an event to the open bucket of its time window, starting a new bucket when it is full
+     */
+    public BattleEvent appendEvent(String replayId, BattleEvent event) {
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(LocalDateTime.now());
+        }
+        long sequence = nextCounter(replayId, "eventCount", new Update().inc("eventCount", 1)).getEventCount();
+        event.setSequence(sequence);
+
+        Query openBucket = query(where("replayId").is(replayId)
+                .and("bucketStart").is(bucketStart(event.getTimestamp()))
+                .and("count").lt(eventBucketSize));
+        Update push = new Update()
+                .push("events", event)
+                .inc("count", 1)
+                .min("firstSequence", sequence)
+                .max("lastSequence", sequence);
+        mongoTemplate.upsert(openBucket, push, ReplayEventBucket.class);
+        return event;
+    }
+
+    /**
+     * Append a batch of events with one counter update, inserting them as ready-made buckets
+     */
+    public void appendEvents(String replayId, List<BattleEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long lastSequence = nextCounter(replayId, "eventCount",
+                new Update().inc("eventCount", events.size())).getEventCount();
+        long sequence = lastSequence - events.size() + 1;
+
+        List<ReplayEventBucket> buckets = new ArrayList<>();
+        ReplayEventBucket bucket = null;
+        for (BattleEvent event : events) {
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(LocalDateTime.now());
+            }
+            event.setSequence(sequence++);
+            LocalDateTime start = bucketStart(event.getTimestamp());
+            if (bucket == null || !start.equals(bucket.getBucketStart()) || bucket.getCount() >= eventBucketSize) {
+                bucket = ReplayEventBucket.builder()
+                        .replayId(replayId)
+                        .bucketStart(start)
+                        .firstSequence(event.getSequence())
+                        .build();
+                buckets.add(bucket);
+            }
+            bucket.getEvents().add(event);
+            bucket.setCount(bucket.getCount() + 1);
+            bucket.setLastSequence(event.getSequence());
+        }
+        eventBucketRepository.insert(buckets);
+    }
+
+    /**
+     * Mark the recording finished without touching the content counters
+     */
+    public void finish(String replayId, LocalDateTime endTime, ReplayStatistics statistics) {
+        chains.remove(replayId);
+        mongoTemplate.updateFirst(query(where("_id").is(replayId)), new Update()
+                        .set("endTime", endTime)
+                        .set("isRecording", false)
+                        .set("isCompleted", true)
+                        .set("statistics", statistics)
+                        .set("updatedAt", LocalDateTime.now()),
+                BattleReplay.class);
+    }
+
+    /**
+     * Up to limit snapshots starting at fromSequence, in order.
+     * Decoding starts at the keyframe before fromSequence and rolls the deltas forward.
+     */
+    public ReplayPage<BattleSnapshot> findSnapshots(String replayId, int fromSequence, int limit) {
+        Optional<ReplaySnapshotRecord> first = snapshotRepository
+                .findFirstByReplayIdAndSequenceGreaterThanEqualOrderBySequenceAsc(replayId, fromSequence);
+        if (first.isEmpty()) {
+            return new ReplayPage<>(List.of(), null);
+        }
+        int from = first.get().getSequence();
+        int cursor = first.get().isKeyframe() ? from : first.get().getKeyframeSequence();
+
+        List<BattleSnapshot> snapshots = new ArrayList<>();
+        BattleSnapshot current = null;
+        List<ReplaySnapshotRecord> records;
+        do {
+            records = snapshotRepository.findByReplayIdAndSequenceGreaterThanEqual(
+                    replayId, cursor, PageRequest.of(0, READ_BATCH_SIZE, Sort.by("sequence")));
+            for (ReplaySnapshotRecord record : records) {
+                current = decode(record, current);
+                cursor = record.getSequence() + 1;
+                if (record.getSequence() >= from) {
+                    snapshots.add(current);
+                    if (snapshots.size() > limit) {
+                        break;
+                    }
+                }
+            }
+        } while (snapshots.size() <= limit && records.size() == READ_BATCH_SIZE);
+
+        return page(snapshots, limit, snapshot -> (long) snapshot.getSnapshotNumber());
+    }
+
+    /**
+     * The snapshot with the given sequence, rebuilt from its keyframe when stored as a delta
+     */
+    public Optional<BattleSnapshot> findSnapshot(String replayId, int sequence) {
+        return findSnapshots(replayId, sequence, 1).items().stream()
+                .filter(snapshot -> snapshot.getSnapshotNumber() == sequence)
+                .findFirst();
+    }
+
+    /**
+     * Sequence of the snapshot showing the battle at the given time: the last one captured at or before it
+     */
+    public Optional<Integer> findSequenceAt(String replayId, LocalDateTime time) {
+        return snapshotRepository.findFirstByReplayIdAndTimestampLessThanEqualOrderBySequenceDesc(replayId, time)
+                .map(ReplaySnapshotRecord::getSequence);
+    }
+
+    /**
+     * Sequence, time and kind of every snapshot, read without the snapshot content
+     */
+    public List<FrameIndexEntry> findFrameIndex(String replayId) {
+        Query records = query(where("replayId").is(replayId)).with(Sort.by("sequence"));
+        records.fields().include("sequence").include("timestamp").include("keyframeSequence");
+        return mongoTemplate.find(records, ReplaySnapshotRecord.class).stream()
+                .map(record -> new FrameIndexEntry(
+                        record.getSequence(),
+                        record.getTimestamp(),
+                        // Records written before delta encoding have no keyframeSequence and are all full
+                        record.getKeyframeSequence() == record.getSequence() || record.getKeyframeSequence() == 0))
+                .toList();
+    }
+
+    public Optional<BattleSnapshot> findFirstSnapshot(String replayId) {
+        return snapshotRepository.findFirstByReplayIdOrderBySequenceAsc(replayId)
+                .flatMap(record -> findSnapshot(replayId, record.getSequence()));
+    }
+
+    public Optional<BattleSnapshot> findLastSnapshot(String replayId) {
+        return snapshotRepository.findFirstByReplayIdOrderBySequenceDesc(replayId)
+                .flatMap(record -> findSnapshot(replayId, record.getSequence()));
+    }
+
+    /**
+     * Up to limit events starting at fromSequence, in sequence order.
+     * Single events can land in an older bucket whose sequence range overlaps later ones, so the page is only
+     * cut below the firstSequence of the last bucket read: no bucket still unread can hold anything under it.
+     */
+    public ReplayPage<BattleEvent> findEvents(String replayId, long fromSequence, int limit) {
+        List<BattleEvent> events = new ArrayList<>();
+        int page = 0;
+        long complete;
+        List<ReplayEventBucket> buckets;
+        do {
+            buckets = eventBucketRepository.findByReplayIdAndLastSequenceGreaterThanEqual(replayId, fromSequence,
+                    PageRequest.of(page++, BUCKET_BATCH_SIZE, Sort.by("firstSequence")));
+            for (ReplayEventBucket bucket : buckets) {
+                for (BattleEvent event : bucket.getEvents()) {
+                    if (event.getSequence() >= fromSequence) {
+                        events.add(event);
+                    }
+                }
+            }
+            complete = buckets.size() == BUCKET_BATCH_SIZE
+                    ? buckets.get(BUCKET_BATCH_SIZE - 1).getFirstSequence()
+                    : Long.MAX_VALUE;
+        } while (countBelow(events, complete) <= limit && complete != Long.MAX_VALUE);
+
+        long bound = complete;
+        events.removeIf(event -> event.getSequence() >= bound);
+        events.sort(Comparator.comparingLong(BattleEvent::getSequence));
+        return page(events, limit, BattleEvent::getSequence);
+    }
+
+    private static int countBelow(List<BattleEvent> events, long sequence) {
+        int count = 0;
+        for (BattleEvent event : events) {
+            if (event.getSequence() < sequence) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void forEachSnapshot(String replayId, Consumer<BattleSnapshot> consumer) {
+        int from = 1;
+        ReplayPage<BattleSnapshot> page;
+        do {
+            page = findSnapshots(replayId, from, READ_BATCH_SIZE);
+            page.items().forEach(consumer);
+            from = page.nextCursor() != null ? page.nextCursor().intValue() : from;
+        } while (page.nextCursor() != null);
+    }
+
+    public void forEachEvent(String replayId, Consumer<BattleEvent> consumer) {
+        long from = 1;
+        ReplayPage<BattleEvent> page;
+        do {
+            page = findEvents(replayId, from, READ_BATCH_SIZE * 10);
+            page.items().forEach(consumer);
+            from = page.nextCursor() != null ? page.nextCursor() : from;
+        } while (page.nextCursor() != null);
+    }
+
+    public void deleteContent(String replayId) {
+        chains.remove(replayId);
+        snapshotRepository.deleteByReplayId(replayId);
+        eventBucketRepository.deleteByReplayId(replayId);
+    }
+
+    /**
+     * Move snapshots and events still embedded in old battle_replays documents into the chunked collections
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateEmbeddedReplays() {
+        Query legacy = query(where("snapshots").exists(true));
+        legacy.fields().include("snapshots").include("events");
+
+        int migrated = 0;
+        LegacyReplayContent content;
+        while ((content = mongoTemplate.findOne(legacy, LegacyReplayContent.class, REPLAY_COLLECTION)) != null) {
+            migrate(content);
+            migrated++;
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} replays to chunked storage", migrated);
+        }
+    }
+
+    private void migrate(LegacyReplayContent content) {
+        String replayId = content.getId();
+        deleteContent(replayId);
+
+        List<ReplaySnapshotRecord> records = new ArrayList<>();
+        List<BattleSnapshot> snapshots = content.getSnapshots() != null ? content.getSnapshots() : List.of();
+        for (int i = 0; i < snapshots.size(); i++) {
+            BattleSnapshot snapshot = snapshots.get(i);
+            snapshot.setSnapshotNumber(i + 1);
+            records.add(ReplaySnapshotRecord.builder()
+                    .replayId(replayId)
+                    .sequence(i + 1)
+                    .keyframeSequence(i + 1)
+                    .timestamp(snapshot.getTimestamp())
+                    .snapshot(snapshot)
+                    .build());
+        }
+        if (!records.isEmpty()) {
+            snapshotRepository.insert(records);
+        }
+
+        List<BattleEvent> events = content.getEvents() != null ? content.getEvents() : List.of();
+        List<ReplayEventBucket> buckets = new ArrayList<>();
+        for (int from = 0; from < events.size(); from += eventBucketSize) {
+            List<BattleEvent> chunk = new ArrayList<>(events.subList(from, Math.min(from + eventBucketSize, events.size())));
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setSequence(from + i + 1);
+            }
+            LocalDateTime firstTimestamp = chunk.get(0).getTimestamp();
+            buckets.add(ReplayEventBucket.builder()
+                    .replayId(replayId)
+                    .bucketStart(firstTimestamp != null ? bucketStart(firstTimestamp) : null)
+                    .firstSequence(from + 1)
+                    .lastSequence(from + chunk.size())
+                    .count(chunk.size())
+                    .events(chunk)
+                    .build());
+        }
+        if (!buckets.isEmpty()) {
+            eventBucketRepository.insert(buckets);
+        }
+
+        mongoTemplate.updateFirst(query(where("_id").is(replayId)), new Update()
+                        .unset("snapshots")
+                        .unset("events")
+                        .set("snapshotCount", snapshots.size())
+                        .set("eventCount", (long) events.size())
+                        .set("lastSnapshotAt", snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1).getTimestamp()),
+                REPLAY_COLLECTION);
+    }
+
+    private BattleSnapshot decode(ReplaySnapshotRecord record, BattleSnapshot previous) {
+        if (record.isKeyframe()) {
+            return record.getSnapshot();
+        }
+        if (previous == null || previous.getSnapshotNumber() != record.getSequence() - 1) {
+            throw new IllegalStateException("Broken delta chain at snapshot " + record.getSequence()
+                    + " of replay " + record.getReplayId());
+        }
+        return SnapshotDeltaCodec.apply(previous, record.getDelta(), record.getSequence(), record.getTimestamp());
+    }
+
+    private BattleReplay nextCounter(String replayId, String counter, Update update) {
+        Query replay = query(where("_id").is(replayId));
+        replay.fields().include(counter);
+        BattleReplay updated = mongoTemplate.findAndModify(replay, update,
+                FindAndModifyOptions.options().returnNew(true), BattleReplay.class);
+        if (updated == null) {
+            throw new IllegalArgumentException("Replay not found: " + replayId);
+        }
+        return updated;
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime timestamp) {
+        long epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochSecond, eventBucketSeconds) * eventBucketSeconds,
+                0, ZoneOffset.UTC);
+    }
+
+    private static <T> ReplayPage<T> page(List<T> items, int limit, java.util.function.ToLongFunction<T> cursor) {
+        if (items.size() <= limit) {
+            return new ReplayPage<>(items, null);
+        }
+        return new ReplayPage<>(List.copyOf(items.subList(0, limit)), cursor.applyAsLong(items.get(limit)));
+    }
+
+    /**
+     * @param nextCursor sequence to request next, or null when there is nothing after this page
+     */
+    public record ReplayPage<T>(List<T> items, Long nextCursor) {}
+
+    public record FrameIndexEntry(int sequence, LocalDateTime timestamp, boolean keyframe) {}
+
+    private record DeltaChain(BattleSnapshot last, int keyframeSequence) {}
+
+    /**
+     * Per-replay lock and delta base; the chain is null until a snapshot has been written
+     */
+    private static final class ChainHead {
+        private DeltaChain chain;
+    }
+
+    @Data
+    private static class LegacyReplayContent {
+        private String id;
+        private List<BattleSnapshot> snapshots;
+        private List<BattleEvent> events;
+    }
+}
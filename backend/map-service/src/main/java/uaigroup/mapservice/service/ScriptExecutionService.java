@@ -1,21 +1,45 @@
 package uaigroup.mapservice.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import uaigroup.mapservice.model.*;
 import uaigroup.mapservice.repository.ScriptActionRepository;
 import uaigroup.mapservice.repository.ScriptRepository;
-import uaigroup.mapservice.repository.UnitRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs active scripts without polling.
+ * TIME_BASED actions are put on a hashed timer wheel at their exact due time, CONDITION_BASED
+ * actions are re-evaluated only when a unit they depend on changes (UnitChangedEvent) or when
+ * their predecessor completes. Action execution runs on a bounded ForkJoinPool: work for one
+ * script is serialized by its runtime's monitor, different scripts run in parallel, and unit
+ * mutations are serialized per unit ID through striped locks.
+ */
 @Slf4j
 @Service
 public class ScriptExecutionService {
@@ -27,127 +51,415 @@ public class ScriptExecutionService {
     private ScriptActionRepository scriptActionRepository;
 
     @Autowired
-    private UnitRepository unitRepository;
+    private WorldStateStore worldStateStore;
+
+    @Autowired
+    private CoalescingPublisher coalescingPublisher;
 
     @Autowired
-    private CommunicationService communicationService;
+    private UnitMetricsRecorder unitMetricsRecorder;
+
+    @Autowired
+    private SimulationLoop simulationLoop;
+
+    @Value("${scripts.timer-tick-ms:50}")
+    private long timerTickMillis;
+
+    @Value("${scripts.timer-wheel-size:512}")
+    private int timerWheelSize;
+
+    // 0 means one worker per available processor
+    @Value("${scripts.parallelism:0}")
+    private int parallelism;
+
+    // Running scripts by id; a runtime is only touched while holding its monitor
+    private final Map<String, ScriptRuntime> runtimes = new ConcurrentHashMap<>();
+    // CONDITION_BASED actions waiting on a unit's state, keyed by that unit's id
+    private final Map<String, Set<ActionRef>> conditionWatchers = new ConcurrentHashMap<>();
+    // Range conditions, which a move of any other unit can satisfy
+    private final Set<ActionRef> rangeWatchers = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder actionsExecuted = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+    private ForkJoinPool scriptExecutor;
+    private HashedTimerWheel timerWheel;
+
+    @PostConstruct
+    public void start() {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        scriptExecutor = new ForkJoinPool(workers, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("script-executor-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (thread, e) -> log.error("Script task failed on {}: {}", thread.getName(), e.getMessage()), true);
+        timerWheel = new HashedTimerWheel(timerTickMillis, TimeUnit.MILLISECONDS, timerWheelSize,
+                scriptExecutor, "script-timer");
+    }
+
+    @PreDestroy
+    public void stop() {
+        timerWheel.close();
+        scriptExecutor.shutdown();
+    }
 
-    @Autowired(required = false)
-    private SimpMessagingTemplate messagingTemplate;
+    public ScriptExecutionStats getStats() {
+        HashedTimerWheel.TickStats tickStats = timerWheel.stats();
+        long executed = actionsExecuted.sum();
+        return new ScriptExecutionStats(
+                scriptExecutor.getParallelism(),
+                scriptExecutor.getActiveThreadCount(),
+                scriptExecutor.getQueuedSubmissionCount() + scriptExecutor.getQueuedTaskCount(),
+                runtimes.size(),
+                worldStateStore.unitLockStripes(),
+                tickStats,
+                executed,
+                executed > 0 ? executionNanos.sum() / 1000.0 / executed : 0,
+                TimeUnit.NANOSECONDS.toMicros(maxExecutionNanos.get()),
+                executed > 0 ? lockWaitNanos.sum() / 1000.0 / executed : 0
+        );
+    }
 
     /**
-     * Main scheduler that processes all active scripts
-     * Runs every 5 seconds
+     * Re-arm scripts that were still active when the service last stopped
      */
-    @Scheduled(fixedRate = 5000)
-    public void processActiveScripts() {
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreActiveScripts() {
         List<Script> activeScripts = scriptRepository.findByIsActiveTrue();
-
         for (Script script : activeScripts) {
-            if (!script.isPaused()) {
-                processScript(script);
+            startRuntime(script, scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(script.getId()));
+        }
+        log.info("Restored {} active scripts", activeScripts.size());
+    }
+
+    /**
+     * Re-evaluate the conditions a unit change can satisfy
+     */
+    @EventListener
+    public void onUnitChanged(UnitChangedEvent event) {
+        Set<ActionRef> candidates = new HashSet<>(conditionWatchers.getOrDefault(event.unitId(), Set.of()));
+        if (event.isPlacementChanged() && event.current() != null && event.current().hasPosition()) {
+            for (ActionRef ref : rangeWatchers) {
+                if (mayEnterRange(ref, event)) {
+                    candidates.add(ref);
+                }
             }
         }
+        for (ActionRef ref : candidates) {
+            dispatch(ref.runtime(), ref.actionIndex());
+        }
     }
 
     /**
-     * Process a single script
+     * Whether the moved unit can be the one that satisfies a range condition
      */
-    private void processScript(Script script) {
-        // Update elapsed time
-        if (script.getStartedAt() != null) {
-            long elapsed = ChronoUnit.SECONDS.between(script.getStartedAt(), LocalDateTime.now());
-            script.setElapsedSeconds((int) elapsed);
+    private boolean mayEnterRange(ActionRef ref, UnitChangedEvent event) {
+        ScriptAction action = ref.runtime().plan.action(ref.actionIndex());
+        if (event.unitId().equals(action.getUnitId())) {
+            return false;
+        }
+        GeneralUnit watcher = worldStateStore.findUnit(action.getUnitId()).orElse(null);
+        if (watcher == null || watcher.getPosition() == null) {
+            return false;
         }
 
-        // Get pending actions for this script
-        List<ScriptAction> pendingActions = scriptActionRepository.findByScriptIdAndStatus(
-                script.getId(), ActionStatus.PENDING
-        );
+        Faction movedFaction = event.current().faction();
+        boolean relevant = action.getCondition() == TriggerCondition.ALLIED_UNIT_IN_RANGE
+                ? movedFaction == watcher.getFaction()
+                : movedFaction == enemyOf(watcher.getFaction());
+        double rangeKm = action.getConditionValue() != null ? action.getConditionValue() : 5.0;
+        return relevant && GeoDistance.haversineKm(watcher.getPosition(), event.current().position()) <= rangeKm;
+    }
+
+    // ======== Scheduling ========
 
-        for (ScriptAction action : pendingActions) {
-            if (shouldExecuteAction(script, action)) {
-                executeAction(script, action);
+    private void startRuntime(Script script, List<ScriptAction> actions) {
+        ScriptRuntime runtime = new ScriptRuntime(script, ScriptPlan.compile(script.getId(), actions));
+        ScriptRuntime previous = runtimes.put(script.getId(), runtime);
+        if (previous != null) {
+            synchronized (previous) {
+                stopRuntime(previous);
             }
         }
 
-        // Check if script is complete
-        if (isScriptComplete(script)) {
-            script.setActive(false);
-            log.info("Script {} completed", script.getName());
+        synchronized (runtime) {
+            for (int i = 0; i < runtime.plan.size(); i++) {
+                ScriptAction action = runtime.plan.action(i);
+                // Movements in flight belonged to the previous runtime and no longer report back
+                if (action.getStatus() == ActionStatus.EXECUTING) {
+                    action.setStatus(ActionStatus.PENDING);
+                    action.setStartedAt(null);
+                }
+                if (action.getStatus() == ActionStatus.PENDING) {
+                    arm(runtime, i);
+                }
+            }
+            completeIfDone(runtime);
         }
-
-        scriptRepository.save(script);
-        notifyScriptUpdate(script);
     }
 
     /**
-     * Determine if an action should be executed based on its trigger
+     * Arm a pending action according to its trigger
      */
-    private boolean shouldExecuteAction(Script script, ScriptAction action) {
-        switch (action.getTriggerType()) {
+    private void arm(ScriptRuntime runtime, int index) {
+        TriggerType triggerType = runtime.plan.action(index).getTriggerType();
+        if (triggerType == null) {
+            return;
+        }
+        switch (triggerType) {
             case IMMEDIATE:
-                return true;
+                dispatch(runtime, index);
+                break;
 
             case TIME_BASED:
-                return checkTimeBasedTrigger(script, action);
+                scheduleTimeBased(runtime, index);
+                break;
 
             case CONDITION_BASED:
-                return checkConditionBasedTrigger(action);
-
-            case MANUAL:
-                return false; // Manual actions are triggered via API
+                watchCondition(runtime, index);
+                dispatch(runtime, index);
+                break;
 
             default:
-                return false;
+                break; // Manual actions are triggered via API
         }
     }
 
     /**
-     * Check if time-based trigger condition is met
+     * Put a TIME_BASED action on the timer wheel at its due time.
+     * The delay counts from the previous action's completion when there is one, otherwise from script start;
+     * an action whose previous action is not complete yet is armed again when it completes.
      */
-    private boolean checkTimeBasedTrigger(Script script, ScriptAction action) {
+    private void scheduleTimeBased(ScriptRuntime runtime, int index) {
+        ScriptAction action = runtime.plan.action(index);
         if (action.getDelaySeconds() == null) {
-            return true;
+            dispatch(runtime, index);
+            return;
         }
 
-        // Check if enough time has passed since script started
-        int elapsedSeconds = script.getElapsedSeconds();
+        LocalDateTime from = runtime.script.getStartedAt();
+        ScriptAction prev = runtime.plan.predecessorOf(index);
+        if (prev != null) {
+            if (prev.getStatus() != ActionStatus.COMPLETED) {
+                return;
+            }
+            if (prev.getCompletedAt() != null) {
+                from = prev.getCompletedAt();
+            }
+        }
+        if (from == null) {
+            from = LocalDateTime.now();
+        }
 
-        // Also consider previous action completion
-        if (action.getExecutionOrder() > 1) {
-            // Find previous action
-            List<ScriptAction> allActions = scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(script.getId());
-            Optional<ScriptAction> previousAction = allActions.stream()
-                    .filter(a -> a.getExecutionOrder() == action.getExecutionOrder() - 1)
-                    .findFirst();
+        long delayMillis = Duration.between(LocalDateTime.now(), from.plusSeconds(action.getDelaySeconds())).toMillis();
+        cancelTimer(runtime, index);
+        runtime.timers[index] = timerWheel.schedule(() -> runDue(runtime, index), delayMillis, TimeUnit.MILLISECONDS);
+    }
 
-            if (previousAction.isPresent()) {
-                ScriptAction prev = previousAction.get();
-                if (prev.getStatus() != ActionStatus.COMPLETED) {
-                    return false; // Previous action not complete
-                }
+    private void cancelTimer(ScriptRuntime runtime, int index) {
+        HashedTimerWheel.Timeout timer = runtime.timers[index];
+        if (timer != null) {
+            timer.cancel();
+            runtime.timers[index] = null;
+        }
+    }
 
-                // Calculate delay from previous action completion
-                if (prev.getCompletedAt() != null) {
-                    long secondsSincePrevious = ChronoUnit.SECONDS.between(prev.getCompletedAt(), LocalDateTime.now());
-                    return secondsSincePrevious >= action.getDelaySeconds();
-                }
+    private void dispatch(ScriptRuntime runtime, int index) {
+        scriptExecutor.execute(() -> runDue(runtime, index));
+    }
+
+    /**
+     * Execute an action whose trigger fired, unless the script stopped or is paused
+     */
+    private void runDue(ScriptRuntime runtime, int index) {
+        synchronized (runtime) {
+            runtime.timers[index] = null;
+            ScriptAction action = runtime.plan.action(index);
+            if (runtime.stopped || action.getStatus() != ActionStatus.PENDING) {
+                return;
+            }
+            if (runtime.script.isPaused()) {
+                runtime.parked.add(index);
+                return;
+            }
+            if (action.getTriggerType() == TriggerType.CONDITION_BASED && !checkConditionBasedTrigger(runtime, index)) {
+                return;
             }
+
+            executeAction(runtime.script, action, movementCallback(runtime, index));
+            if (action.getStatus() != ActionStatus.EXECUTING) {
+                onActionFinished(runtime, index);
+            }
+        }
+    }
+
+    private Consumer<SimulationLoop.MovementEnd> movementCallback(ScriptRuntime runtime, int index) {
+        return end -> scriptExecutor.execute(() -> onMovementEnded(runtime, index, end));
+    }
+
+    /**
+     * Finish an action that was waiting for its unit to reach the target
+     */
+    private void onMovementEnded(ScriptRuntime runtime, int index, SimulationLoop.MovementEnd end) {
+        synchronized (runtime) {
+            ScriptAction action = runtime.plan.action(index);
+            if (runtime.stopped || action.getStatus() != ActionStatus.EXECUTING) {
+                return;
+            }
+            finishMovement(runtime.script, action, end);
+            onActionFinished(runtime, index);
+        }
+    }
+
+    private void finishMovement(Script script, ScriptAction action, SimulationLoop.MovementEnd end) {
+        if (end == SimulationLoop.MovementEnd.ARRIVED) {
+            action.setStatus(ActionStatus.COMPLETED);
+            action.setCompletedAt(LocalDateTime.now());
+            script.setCompletedActions(script.getCompletedActions() + 1);
+        } else {
+            action.setStatus(ActionStatus.FAILED);
+            action.setFailureReason("Movement interrupted");
+            script.setFailedActions(script.getFailedActions() + 1);
+        }
+        scriptActionRepository.save(action);
+        worldStateStore.findUnit(action.getUnitId()).ifPresent(unit -> notifyActionExecution(action, unit));
+    }
+
+    /**
+     * Arm the actions that were waiting on this one and close the script once every action is done
+     */
+    private void onActionFinished(ScriptRuntime runtime, int index) {
+        runtime.finishedActions++;
+        unwatchCondition(runtime, index);
+
+        runtime.plan.forEachSuccessor(index, next -> {
+            ScriptAction nextAction = runtime.plan.action(next);
+            if (nextAction.getStatus() != ActionStatus.PENDING) {
+                return;
+            }
+            if (nextAction.getTriggerType() == TriggerType.TIME_BASED) {
+                scheduleTimeBased(runtime, next);
+            } else if (nextAction.getTriggerType() == TriggerType.CONDITION_BASED
+                    && nextAction.getCondition() == TriggerCondition.PREVIOUS_ACTION_COMPLETE) {
+                dispatch(runtime, next);
+            }
+        });
+
+        if (!completeIfDone(runtime)) {
+            updateElapsed(runtime.script);
+            scriptRepository.save(runtime.script);
+            notifyScriptUpdate(runtime.script);
+        }
+    }
+
+    private boolean completeIfDone(ScriptRuntime runtime) {
+        if (!isScriptComplete(runtime)) {
+            return false;
+        }
+        Script script = runtime.script;
+        script.setActive(false);
+        updateElapsed(script);
+        stopRuntime(runtime);
+        runtimes.remove(script.getId(), runtime);
+        scriptRepository.save(script);
+        notifyScriptUpdate(script);
+        log.info("Script {} completed", script.getName());
+        return true;
+    }
+
+    private void stopRuntime(ScriptRuntime runtime) {
+        runtime.stopped = true;
+        runtime.parked.clear();
+        for (int i = 0; i < runtime.plan.size(); i++) {
+            cancelTimer(runtime, i);
+            unwatchCondition(runtime, i);
+        }
+    }
+
+    private void watchCondition(ScriptRuntime runtime, int index) {
+        ScriptAction action = runtime.plan.action(index);
+        if (action.getCondition() == null) {
+            return;
+        }
+        ActionRef ref = new ActionRef(runtime, index);
+        switch (action.getCondition()) {
+            case SUPPLY_LOW:
+            case MORALE_LOW:
+                watchUnit(action.getUnitId(), ref);
+                break;
+
+            case UNIT_IN_RANGE:
+            case ALLIED_UNIT_IN_RANGE:
+                watchUnit(action.getUnitId(), ref);
+                rangeWatchers.add(ref);
+                break;
+
+            case UNIT_DESTROYED:
+                watchUnit(action.getConditionUnitId(), ref);
+                break;
+
+            default:
+                break; // Evaluated when armed and when the previous action completes
+        }
+    }
+
+    private void watchUnit(String unitId, ActionRef ref) {
+        if (unitId != null) {
+            conditionWatchers.computeIfAbsent(unitId, id -> ConcurrentHashMap.newKeySet()).add(ref);
+        }
+    }
+
+    private void unwatchCondition(ScriptRuntime runtime, int index) {
+        ScriptAction action = runtime.plan.action(index);
+        ActionRef ref = new ActionRef(runtime, index);
+        unwatchUnit(action.getUnitId(), ref);
+        unwatchUnit(action.getConditionUnitId(), ref);
+        rangeWatchers.remove(ref);
+    }
+
+    private void unwatchUnit(String unitId, ActionRef ref) {
+        if (unitId == null) {
+            return;
         }
+        conditionWatchers.computeIfPresent(unitId, (id, refs) -> {
+            refs.remove(ref);
+            return refs.isEmpty() ? null : refs;
+        });
+    }
 
-        return elapsedSeconds >= action.getDelaySeconds();
+    private void updateElapsed(Script script) {
+        if (script.getStartedAt() != null) {
+            long elapsed = ChronoUnit.SECONDS.between(script.getStartedAt(), LocalDateTime.now());
+            script.setElapsedSeconds((int) elapsed);
+        }
     }
 
+    // ======== Trigger checks ========
+
     /**
      * Check if condition-based trigger is met
      */
-    private boolean checkConditionBasedTrigger(ScriptAction action) {
+    private boolean checkConditionBasedTrigger(ScriptRuntime runtime, int index) {
+        ScriptAction action = runtime.plan.action(index);
         if (action.getCondition() == null || action.getCondition() == TriggerCondition.NONE) {
             return true;
         }
+        if (action.getCondition() == TriggerCondition.PREVIOUS_ACTION_COMPLETE) {
+            return checkPreviousActionComplete(runtime, index);
+        }
 
-        Optional<GeneralUnit> unitOpt = unitRepository.findById(action.getUnitId());
+        if (action.getCondition() == TriggerCondition.UNIT_DESTROYED) {
+            if (action.getConditionUnitId() != null) {
+                return !worldStateStore.existsUnit(action.getConditionUnitId());
+            }
+            return false;
+        }
+
+        Optional<GeneralUnit> unitOpt = worldStateStore.findUnit(action.getUnitId());
         if (unitOpt.isEmpty()) {
             return false;
         }
@@ -168,15 +480,6 @@ public class ScriptExecutionService {
             case ALLIED_UNIT_IN_RANGE:
                 return checkAllyInRange(unit, action.getConditionValue());
 
-            case UNIT_DESTROYED:
-                if (action.getConditionUnitId() != null) {
-                    return !unitRepository.existsById(action.getConditionUnitId());
-                }
-                return false;
-
-            case PREVIOUS_ACTION_COMPLETE:
-                return checkPreviousActionComplete(action);
-
             default:
                 return false;
         }
@@ -187,17 +490,9 @@ public class ScriptExecutionService {
      */
     private boolean checkEnemyInRange(GeneralUnit unit, Double rangeKm) {
         if (rangeKm == null) rangeKm = 5.0;
+        if (unit.getPosition() == null) return false;
 
-        Faction enemyFaction = unit.getFaction() == Faction.BLUE_FORCE ? Faction.RED_FORCE : Faction.BLUE_FORCE;
-        List<GeneralUnit> enemyUnits = unitRepository.findByFaction(enemyFaction);
-
-        for (GeneralUnit enemy : enemyUnits) {
-            double distance = communicationService.calculateDistance(unit.getPosition(), enemy.getPosition());
-            if (distance <= rangeKm) {
-                return true;
-            }
-        }
-        return false;
+        return worldStateStore.existsUnitInRange(enemyOf(unit.getFaction()), unit.getPosition(), rangeKm, null);
     }
 
     /**
@@ -205,49 +500,69 @@ public class ScriptExecutionService {
      */
     private boolean checkAllyInRange(GeneralUnit unit, Double rangeKm) {
         if (rangeKm == null) rangeKm = 5.0;
+        if (unit.getPosition() == null) return false;
 
-        List<GeneralUnit> allyUnits = unitRepository.findByFaction(unit.getFaction());
+        return worldStateStore.existsUnitInRange(unit.getFaction(), unit.getPosition(), rangeKm, unit.getId());
+    }
 
-        for (GeneralUnit ally : allyUnits) {
-            if (!ally.getId().equals(unit.getId())) {
-                double distance = communicationService.calculateDistance(unit.getPosition(), ally.getPosition());
-                if (distance <= rangeKm) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    private static Faction enemyOf(Faction faction) {
+        return faction == Faction.BLUE_FORCE ? Faction.RED_FORCE : Faction.BLUE_FORCE;
     }
 
     /**
      * Check if previous action in sequence is complete
      */
-    private boolean checkPreviousActionComplete(ScriptAction action) {
-        if (action.getExecutionOrder() <= 1) {
-            return true;
-        }
-
-        List<ScriptAction> allActions = scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(action.getScriptId());
-        Optional<ScriptAction> previousAction = allActions.stream()
-                .filter(a -> a.getExecutionOrder() == action.getExecutionOrder() - 1)
-                .findFirst();
+    private boolean checkPreviousActionComplete(ScriptRuntime runtime, int index) {
+        ScriptAction prev = runtime.plan.predecessorOf(index);
+        return prev == null || prev.getStatus() == ActionStatus.COMPLETED;
+    }
 
-        return previousAction.map(a -> a.getStatus() == ActionStatus.COMPLETED).orElse(true);
+    /**
+     * Execute a script action under its unit's stripe lock, so scripts driving the same
+     * unit from different worker threads never interleave their read-modify-write.
+     * The unit is saved after unlocking: saving publishes events whose listeners take stripes too.
+     * An action that sends its unit somewhere stays EXECUTING until onMovementEnd hears how the movement ended.
+     */
+    private void executeAction(Script script, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onMovementEnd) {
+        long waitStart = System.nanoTime();
+        Lock lock = worldStateStore.unitLock(action.getUnitId());
+        lock.lock();
+        long start = System.nanoTime();
+        try {
+            GeneralUnit unit;
+            try {
+                unit = applyAction(script, action, onMovementEnd);
+            } finally {
+                lock.unlock();
+            }
+            scriptActionRepository.save(action);
+            if (unit != null) {
+                worldStateStore.saveUnit(unit);
+                unitMetricsRecorder.record(unit);
+                notifyActionExecution(action, unit);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            actionsExecuted.increment();
+            executionNanos.add(elapsed);
+            lockWaitNanos.add(start - waitStart);
+            maxExecutionNanos.accumulateAndGet(elapsed, Math::max);
+        }
     }
 
     /**
-     * Execute a script action - apply changes to the unit
+     * Apply a script action - apply changes to the unit.
+     * Returns the changed unit for the caller to save, or null when the unit is gone.
      */
-    private void executeAction(Script script, ScriptAction action) {
+    private GeneralUnit applyAction(Script script, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onMovementEnd) {
         log.info("Executing action {} for script {}", action.getActionType(), script.getName());
 
-        Optional<GeneralUnit> unitOpt = unitRepository.findById(action.getUnitId());
+        Optional<GeneralUnit> unitOpt = worldStateStore.findUnit(action.getUnitId());
         if (unitOpt.isEmpty()) {
             action.setStatus(ActionStatus.FAILED);
             action.setFailureReason("Unit not found");
-            scriptActionRepository.save(action);
             script.setFailedActions(script.getFailedActions() + 1);
-            return;
+            return null;
         }
 
         GeneralUnit unit = unitOpt.get();
@@ -255,13 +570,14 @@ public class ScriptExecutionService {
         action.setStartedAt(LocalDateTime.now());
 
         try {
+            boolean underWay = false;
             switch (action.getActionType()) {
                 case MOVE:
-                    executeMove(unit, action);
+                    underWay = executeMove(unit, action, onMovementEnd);
                     break;
 
                 case ATTACK:
-                    executeAttack(unit, action);
+                    underWay = executeAttack(unit, action, onMovementEnd);
                     break;
 
                 case DEFEND:
@@ -269,11 +585,11 @@ public class ScriptExecutionService {
                     break;
 
                 case RETREAT:
-                    executeRetreat(unit, action);
+                    underWay = executeRetreat(unit, action, onMovementEnd);
                     break;
 
                 case RECON:
-                    executeRecon(unit, action);
+                    underWay = executeRecon(unit, action, onMovementEnd);
                     break;
 
                 case AMBUSH:
@@ -281,7 +597,7 @@ public class ScriptExecutionService {
                     break;
 
                 case FLANK:
-                    executeFlank(unit, action);
+                    underWay = executeFlank(unit, action, onMovementEnd);
                     break;
 
                 case SUPPORT_FIRE:
@@ -293,17 +609,19 @@ public class ScriptExecutionService {
                     break;
 
                 case REGROUP:
-                    executeRegroup(unit, action);
+                    underWay = executeRegroup(unit, action, onMovementEnd);
                     break;
 
                 default:
                     log.warn("Unknown action type: {}", action.getActionType());
             }
 
-            // Mark action as completed
-            action.setStatus(ActionStatus.COMPLETED);
-            action.setCompletedAt(LocalDateTime.now());
-            script.setCompletedActions(script.getCompletedActions() + 1);
+            // Mark action as completed, unless it waits for the unit to arrive
+            if (!underWay) {
+                action.setStatus(ActionStatus.COMPLETED);
+                action.setCompletedAt(LocalDateTime.now());
+                script.setCompletedActions(script.getCompletedActions() + 1);
+            }
 
         } catch (Exception e) {
             log.error("Error executing action: {}", e.getMessage());
@@ -311,30 +629,28 @@ public class ScriptExecutionService {
             action.setFailureReason(e.getMessage());
             script.setFailedActions(script.getFailedActions() + 1);
         }
-
-        scriptActionRepository.save(action);
-        unitRepository.save(unit);
-        notifyActionExecution(action, unit);
+        return unit;
     }
 
-    // Action execution implementations
-    private void executeMove(GeneralUnit unit, ScriptAction action) {
-        if (action.getTargetPosition() != null) {
-            unit.setPosition(action.getTargetPosition());
-            unit.setStatus(Status.ATTACKING); // Moving = aggressive posture
-            log.info("Unit {} moved to [{}, {}]", unit.getId(),
-                    action.getTargetPosition().getLatitude(),
-                    action.getTargetPosition().getLongitude());
+    // Action execution implementations.
+    // Those that may send the unit somewhere return whether they did; the action then completes on arrival.
+    private boolean executeMove(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
+        if (action.getTargetPosition() == null) {
+            return false;
         }
+        simulationLoop.order(unit, action.getTargetPosition(), onEnd);
+        unit.setStatus(Status.ATTACKING); // Moving = aggressive posture
+        log.info("Unit {} moving to [{}, {}]", unit.getId(),
+                action.getTargetPosition().getLatitude(),
+                action.getTargetPosition().getLongitude());
+        return true;
     }
 
-    private void executeAttack(GeneralUnit unit, ScriptAction action) {
+    private boolean executeAttack(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
         unit.setStatus(Status.ATTACKING);
-        // If target position specified, move towards it
-        if (action.getTargetPosition() != null) {
-            unit.setPosition(action.getTargetPosition());
-        }
         log.info("Unit {} attacking", unit.getId());
+        // If target position specified, move towards it
+        return orderMovement(unit, action, onEnd);
     }
 
     private void executeDefend(GeneralUnit unit, ScriptAction action) {
@@ -342,22 +658,19 @@ public class ScriptExecutionService {
         log.info("Unit {} defending position", unit.getId());
     }
 
-    private void executeRetreat(GeneralUnit unit, ScriptAction action) {
-        if (action.getTargetPosition() != null) {
-            unit.setPosition(action.getTargetPosition());
-        }
+    private boolean executeRetreat(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
+        boolean underWay = orderMovement(unit, action, onEnd);
         unit.setStatus(Status.DEFENDING);
         // Reduce morale slightly for retreat
         unit.setMorale(Math.max(0, unit.getMorale() - 5));
         log.info("Unit {} retreating", unit.getId());
+        return underWay;
     }
 
-    private void executeRecon(GeneralUnit unit, ScriptAction action) {
+    private boolean executeRecon(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
         unit.setStatus(Status.ATTACKING);
-        if (action.getTargetPosition() != null) {
-            unit.setPosition(action.getTargetPosition());
-        }
         log.info("Unit {} performing reconnaissance", unit.getId());
+        return orderMovement(unit, action, onEnd);
     }
 
     private void executeAmbush(GeneralUnit unit, ScriptAction action) {
@@ -365,12 +678,11 @@ public class ScriptExecutionService {
         log.info("Unit {} setting up ambush", unit.getId());
     }
 
-    private void executeFlank(GeneralUnit unit, ScriptAction action) {
-        if (action.getTargetPosition() != null) {
-            unit.setPosition(action.getTargetPosition());
-        }
+    private boolean executeFlank(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
+        boolean underWay = orderMovement(unit, action, onEnd);
         unit.setStatus(Status.ATTACKING);
         log.info("Unit {} flanking", unit.getId());
+        return underWay;
     }
 
     private void executeSupportFire(GeneralUnit unit, ScriptAction action) {
@@ -383,24 +695,28 @@ public class ScriptExecutionService {
         log.info("Unit {} holding fire", unit.getId());
     }
 
-    private void executeRegroup(GeneralUnit unit, ScriptAction action) {
-        if (action.getTargetPosition() != null) {
-            unit.setPosition(action.getTargetPosition());
-        }
+    private boolean executeRegroup(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
+        boolean underWay = orderMovement(unit, action, onEnd);
         // Boost morale for regrouping
         unit.setMorale(Math.min(100, unit.getMorale() + 10));
         unit.setStatus(Status.DEFENDING);
         log.info("Unit {} regrouping", unit.getId());
+        return underWay;
+    }
+
+    private boolean orderMovement(GeneralUnit unit, ScriptAction action, Consumer<SimulationLoop.MovementEnd> onEnd) {
+        if (action.getTargetPosition() == null) {
+            return false;
+        }
+        simulationLoop.order(unit, action.getTargetPosition(), onEnd);
+        return true;
     }
 
     /**
      * Check if script has completed all actions
      */
-    private boolean isScriptComplete(Script script) {
-        List<ScriptAction> allActions = scriptActionRepository.findByScriptId(script.getId());
-        return allActions.stream().allMatch(a ->
-                a.getStatus() == ActionStatus.COMPLETED || a.getStatus() == ActionStatus.FAILED
-        );
+    private boolean isScriptComplete(ScriptRuntime runtime) {
+        return runtime.finishedActions == runtime.plan.size();
     }
 
     /**
@@ -418,7 +734,7 @@ public class ScriptExecutionService {
         script.setFailedActions(0);
 
         // Count total actions
-        List<ScriptAction> actions = scriptActionRepository.findByScriptId(scriptId);
+        List<ScriptAction> actions = scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(scriptId);
         script.setTotalActions(actions.size());
 
         // Reset all actions to PENDING
@@ -427,16 +743,29 @@ public class ScriptExecutionService {
             action.setStartedAt(null);
             action.setCompletedAt(null);
             action.setFailureReason(null);
-            scriptActionRepository.save(action);
         }
+        scriptActionRepository.saveAll(actions);
 
-        return scriptRepository.save(script);
+        Script saved = scriptRepository.save(script);
+        startRuntime(saved, actions);
+        return saved;
     }
 
     /**
      * Deactivate a script
      */
     public Script deactivateScript(String scriptId) {
+        ScriptRuntime runtime = runtimes.remove(scriptId);
+        if (runtime != null) {
+            synchronized (runtime) {
+                stopRuntime(runtime);
+                runtime.script.setActive(false);
+                runtime.script.setPaused(false);
+                updateElapsed(runtime.script);
+                return scriptRepository.save(runtime.script);
+            }
+        }
+
         Script script = scriptRepository.findById(scriptId)
                 .orElseThrow(() -> new RuntimeException("Script not found"));
 
@@ -447,9 +776,18 @@ public class ScriptExecutionService {
     }
 
     /**
-     * Pause a script
+     * Pause a script; actions falling due while paused run on resume
      */
     public Script pauseScript(String scriptId) {
+        ScriptRuntime runtime = runtimes.get(scriptId);
+        if (runtime != null) {
+            synchronized (runtime) {
+                runtime.script.setPaused(true);
+                runtime.script.setPausedAt(LocalDateTime.now());
+                return scriptRepository.save(runtime.script);
+            }
+        }
+
         Script script = scriptRepository.findById(scriptId)
                 .orElseThrow(() -> new RuntimeException("Script not found"));
 
@@ -463,6 +801,18 @@ public class ScriptExecutionService {
      * Resume a paused script
      */
     public Script resumeScript(String scriptId) {
+        ScriptRuntime runtime = runtimes.get(scriptId);
+        if (runtime != null) {
+            synchronized (runtime) {
+                runtime.script.setPaused(false);
+                for (int index : runtime.parked) {
+                    dispatch(runtime, index);
+                }
+                runtime.parked.clear();
+                return scriptRepository.save(runtime.script);
+            }
+        }
+
         Script script = scriptRepository.findById(scriptId)
                 .orElseThrow(() -> new RuntimeException("Script not found"));
 
@@ -471,35 +821,141 @@ public class ScriptExecutionService {
         return scriptRepository.save(script);
     }
 
+    /**
+     * Stop tracking a script that is being deleted
+     */
+    public void discardScript(String scriptId) {
+        ScriptRuntime runtime = runtimes.remove(scriptId);
+        if (runtime != null) {
+            synchronized (runtime) {
+                stopRuntime(runtime);
+            }
+        }
+    }
+
+    /**
+     * Apply an edit to a script or its actions, then rebuild the script's runtime from the store if it is active.
+     * The runtime works on its own compiled plan and copies of the actions, so it is stopped before the edit,
+     * which keeps it from saving a stale copy over the edit, and restarted from what the edit left behind.
+     */
+    public <T> T editScript(String scriptId, Supplier<T> edit) {
+        ScriptRuntime runtime = runtimes.get(scriptId);
+        if (runtime != null) {
+            synchronized (runtime) {
+                stopRuntime(runtime);
+            }
+        }
+        try {
+            return edit.get();
+        } finally {
+            if (runtime != null) {
+                reloadRuntime(scriptId, runtime);
+            }
+        }
+    }
+
+    private void reloadRuntime(String scriptId, ScriptRuntime stale) {
+        Script script = scriptRepository.findById(scriptId).orElse(null);
+        if (script == null || !script.isActive()) {
+            runtimes.remove(scriptId, stale);
+            return;
+        }
+        startRuntime(script, scriptActionRepository.findByScriptIdOrderByExecutionOrderAsc(scriptId));
+    }
+
     /**
      * Manually trigger a specific action
      */
     public ScriptAction triggerActionManually(String actionId) {
-        ScriptAction action = scriptActionRepository.findById(actionId)
+        ScriptAction stored = scriptActionRepository.findById(actionId)
                 .orElseThrow(() -> new RuntimeException("Action not found"));
 
-        Script script = scriptRepository.findById(action.getScriptId())
+        ScriptRuntime runtime = runtimes.get(stored.getScriptId());
+        if (runtime != null) {
+            synchronized (runtime) {
+                int index = runtime.plan.indexOf(actionId);
+                if (index != ScriptPlan.NO_ACTION && !runtime.stopped) {
+                    ScriptAction action = runtime.plan.action(index);
+                    if (action.getStatus() == ActionStatus.PENDING) {
+                        cancelTimer(runtime, index);
+                        executeAction(runtime.script, action, movementCallback(runtime, index));
+                        if (action.getStatus() != ActionStatus.EXECUTING) {
+                            onActionFinished(runtime, index);
+                        }
+                    }
+                    return action;
+                }
+            }
+        }
+
+        Script script = scriptRepository.findById(stored.getScriptId())
                 .orElseThrow(() -> new RuntimeException("Script not found"));
 
-        if (action.getStatus() == ActionStatus.PENDING) {
-            executeAction(script, action);
-            scriptRepository.save(script);
+        synchronized (stored) {
+            if (stored.getStatus() == ActionStatus.PENDING) {
+                // No runtime to report to: the action finishes on its own when the unit arrives
+                executeAction(script, stored, end -> scriptExecutor.execute(() -> {
+                    synchronized (stored) {
+                        if (stored.getStatus() == ActionStatus.EXECUTING) {
+                            finishMovement(script, stored, end);
+                            scriptRepository.save(script);
+                        }
+                    }
+                }));
+                scriptRepository.save(script);
+            }
         }
 
-        return action;
+        return stored;
     }
 
     // WebSocket notifications
     private void notifyScriptUpdate(Script script) {
-        if (messagingTemplate != null) {
-            messagingTemplate.convertAndSend("/topic/scripts", script);
-        }
+        coalescingPublisher.publishLatest("/topic/scripts", script.getId(), script);
     }
 
     private void notifyActionExecution(ScriptAction action, GeneralUnit unit) {
-        if (messagingTemplate != null) {
-            messagingTemplate.convertAndSend("/topic/script-actions",
-                    Map.of("action", action, "unit", unit));
+        coalescingPublisher.publishLatest("/topic/script-actions", unit.getId(),
+                Map.of("action", action, "unit", unit));
+    }
+
+    /**
+     * Compiled plan plus the run state of an active script
+     */
+    private static final class ScriptRuntime {
+        private final Script script;
+        private final ScriptPlan plan;
+        private final HashedTimerWheel.Timeout[] timers;
+        private final List<Integer> parked = new ArrayList<>();
+        private int finishedActions;
+        private boolean stopped;
+
+        private ScriptRuntime(Script script, ScriptPlan plan) {
+            this.script = script;
+            this.plan = plan;
+            this.timers = new HashedTimerWheel.Timeout[plan.size()];
+            for (int i = 0; i < plan.size(); i++) {
+                ActionStatus status = plan.action(i).getStatus();
+                if (status == ActionStatus.COMPLETED || status == ActionStatus.FAILED) {
+                    finishedActions++;
+                }
+            }
         }
     }
+
+    public record ScriptExecutionStats(
+            int parallelism,
+            int activeWorkers,
+            long queuedTasks,
+            int activeScripts,
+            int unitLockStripes,
+            HashedTimerWheel.TickStats timerWheel,
+            long actionsExecuted,
+            double avgActionMicros,
+            long maxActionMicros,
+            double avgLockWaitMicros
+    ) {}
+
+    // Identity of the runtime matters: refs left over from a replaced runtime never match the new one
+    private record ActionRef(ScriptRuntime runtime, int actionIndex) {}
 }
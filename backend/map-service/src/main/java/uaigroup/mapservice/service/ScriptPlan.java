@@ -0,0 +1,103 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.ScriptAction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable execution plan of a script, compiled once when the script is activated.
+ * Actions are held in an array in execution order together with a predecessor pointer
+ * (the first action with executionOrder - 1) and the reverse successor lists, so trigger
+ * checks look neighbours up by index instead of searching the actions or the repository.
+ */
+final class ScriptPlan {
+
+    static final int NO_ACTION = -1;
+
+    private final String scriptId;
+    private final ScriptAction[] actions;
+    private final int[] predecessors;
+    private final int[][] successors;
+    private final Map<String, Integer> indexById;
+
+    private ScriptPlan(String scriptId, ScriptAction[] actions, int[] predecessors, int[][] successors,
+                       Map<String, Integer> indexById) {
+        this.scriptId = scriptId;
+        this.actions = actions;
+        this.predecessors = predecessors;
+        this.successors = successors;
+        this.indexById = indexById;
+    }
+
+    static ScriptPlan compile(String scriptId, List<ScriptAction> scriptActions) {
+        ScriptAction[] actions = scriptActions.toArray(new ScriptAction[0]);
+        // Stable sort keeps repository order among actions sharing an execution order
+        Arrays.sort(actions, Comparator.comparingInt(ScriptAction::getExecutionOrder));
+
+        Map<Integer, Integer> firstIndexByOrder = new HashMap<>();
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < actions.length; i++) {
+            firstIndexByOrder.putIfAbsent(actions[i].getExecutionOrder(), i);
+            indexById.put(actions[i].getId(), i);
+        }
+
+        int[] predecessors = new int[actions.length];
+        List<List<Integer>> successorLists = new ArrayList<>(actions.length);
+        for (int i = 0; i < actions.length; i++) {
+            successorLists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < actions.length; i++) {
+            int order = actions[i].getExecutionOrder();
+            Integer predecessor = order > 1 ? firstIndexByOrder.get(order - 1) : null;
+            predecessors[i] = predecessor != null ? predecessor : NO_ACTION;
+            if (predecessor != null) {
+                successorLists.get(predecessor).add(i);
+            }
+        }
+
+        int[][] successors = new int[actions.length][];
+        for (int i = 0; i < actions.length; i++) {
+            successors[i] = successorLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new ScriptPlan(scriptId, actions, predecessors, successors, Map.copyOf(indexById));
+    }
+
+    String scriptId() {
+        return scriptId;
+    }
+
+    int size() {
+        return actions.length;
+    }
+
+    ScriptAction action(int index) {
+        return actions[index];
+    }
+
+    /**
+     * Index of the action with the given id, or NO_ACTION
+     */
+    int indexOf(String actionId) {
+        return actionId != null ? indexById.getOrDefault(actionId, NO_ACTION) : NO_ACTION;
+    }
+
+    /**
+     * The action this one follows, or null for the first action of a sequence
+     */
+    ScriptAction predecessorOf(int index) {
+        int predecessor = predecessors[index];
+        return predecessor != NO_ACTION ? actions[predecessor] : null;
+    }
+
+    void forEachSuccessor(int index, IntConsumer consumer) {
+        for (int successor : successors[index]) {
+            consumer.accept(successor);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package uaigroup.mapservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-timestep simulation clock that moves units along their movement orders.
+ * Every tick advances simulated time by tick-ms times time-scale, whatever the scheduling
+ * jitter, and moves each ordered unit toward its target at a speed derived from its mobility.
+ * Moving units are kept in an immutable MovementFrame: a tick reads the previous frame, builds
+ * the next one and swaps the reference, so readers take the current frame without locking and
+ * never see a half-advanced tick. The frame holds where each unit really is; its position is
+ * only written to the unit every write-interval-ms and on arrival, under the unit's stripe lock.
+ * The units written by a tick are saved together and go out as one batch of deltas with
+ * consecutive sequence numbers. Whoever gave an order is told when the movement ends.
+ */
+@Slf4j
+@Service
+public class SimulationLoop {
+
+    // March speed per mobility point; mobility runs from 2 (howitzers) to 10 (recon, UAV)
+    static final double KMH_PER_MOBILITY = 4.0;
+
+    private final WorldStateStore worldStateStore;
+    private final UnitDeltaPublisher unitDeltaPublisher;
+    private final UnitMetricsRecorder unitMetricsRecorder;
+    private final long tickMillis;
+    private final double timeScale;
+    // Ticks between writes of the moving units' positions to the world
+    private final long writeEveryTicks;
+
+    // Orders issued since the last tick; the last order per unit wins
+    private final Queue<MovementOrder> orders = new ConcurrentLinkedQueue<>();
+    private volatile MovementFrame frame = MovementFrame.EMPTY;
+
+    private final LongAdder unitsMoved = new LongAdder();
+    private final LongAdder unitsWritten = new LongAdder();
+    private final LongAdder arrivals = new LongAdder();
+    private final LongAdder interrupted = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+    private final AtomicLong maxTickNanos = new AtomicLong();
+    private volatile long lastTickNanos;
+
+    private ScheduledExecutorService clock;
+
+    public SimulationLoop(WorldStateStore worldStateStore,
+                          UnitDeltaPublisher unitDeltaPublisher,
+                          UnitMetricsRecorder unitMetricsRecorder,
+                          @Value("${simulation.tick-ms:100}") long tickMillis,
+                          @Value("${simulation.time-scale:1.0}") double timeScale,
+                          @Value("${simulation.write-interval-ms:1000}") long writeIntervalMillis) {
+        this.worldStateStore = worldStateStore;
+        this.unitDeltaPublisher = unitDeltaPublisher;
+        this.unitMetricsRecorder = unitMetricsRecorder;
+        this.tickMillis = tickMillis;
+        this.timeScale = timeScale;
+        this.writeEveryTicks = Math.max(1, Math.round((double) writeIntervalMillis / tickMillis));
+    }
+
+    @PostConstruct
+    public void start() {
+        clock = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Fixed rate, so ticks delayed by a pause run back to back and simulated time keeps up
+        clock.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        clock.shutdown();
+    }
+
+    /**
+     * Order a unit to move to target, replacing any order it is already following.
+     * A unit without a position has nothing to move from and is placed at target right away.
+     */
+    public void order(GeneralUnit unit, Position target) {
+        order(unit, target, end -> { });
+    }
+
+    /**
+     * Like order(unit, target), and tell onEnd how the movement ended: on arrival, or when it is
+     * replaced by a newer order or cut short because the unit was deleted or placed elsewhere.
+     * onEnd runs on the simulation clock after the tick's writes, or right away for a unit without
+     * a position; it must hand any real work to another thread.
+     */
+    public void order(GeneralUnit unit, Position target, Consumer<MovementEnd> onEnd) {
+        if (unit.getPosition() == null) {
+            unit.setPosition(new Position(target.getLatitude(), target.getLongitude()));
+            onEnd.accept(MovementEnd.ARRIVED);
+            return;
+        }
+        orders.add(new MovementOrder(unit.getId(), target.getLatitude(), target.getLongitude(),
+                speedKmPerSecond(unit), onEnd));
+    }
+
+    /**
+     * Units currently under way, as of the last completed tick
+     */
+    public List<Movement> movements() {
+        MovementFrame current = frame;
+        List<Movement> movements = new ArrayList<>(current.tracks().size());
+        for (Track track : current.tracks()) {
+            movements.add(new Movement(track.unitId(),
+                    new Position(track.latitude(), track.longitude()),
+                    new Position(track.targetLatitude(), track.targetLongitude()),
+                    track.kmPerSecond() * 3600.0,
+                    track.remainingKm()));
+        }
+        return movements;
+    }
+
+    void tick() {
+        long start = System.nanoTime();
+        List<Runnable> ended = new ArrayList<>();
+        try {
+            advance(frame, drainOrders(ended), tickMillis * timeScale / 1000.0, ended);
+        } catch (Exception e) {
+            // An exception would cancel the schedule and stop the clock for good
+            log.error("Simulation tick failed: {}", e.getMessage(), e);
+        }
+        for (Runnable callback : ended) {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                log.error("Movement end callback failed: {}", e.getMessage(), e);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        lastTickNanos = elapsed;
+        maxTickNanos.accumulateAndGet(elapsed, Math::max);
+        if (elapsed > TimeUnit.MILLISECONDS.toNanos(tickMillis)) {
+            overruns.increment();
+        }
+    }
+
+    private Map<String, MovementOrder> drainOrders(List<Runnable> ended) {
+        Map<String, MovementOrder> latest = new LinkedHashMap<>();
+        MovementOrder order;
+        while ((order = orders.poll()) != null) {
+            MovementOrder replaced = latest.put(order.unitId(), order);
+            if (replaced != null) {
+                ended.add(() -> replaced.onEnd().accept(MovementEnd.INTERRUPTED));
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Build the next frame from the previous one and publish it; on write ticks and on arrival,
+     * write the new positions to the world
+     */
+    private void advance(MovementFrame previous, Map<String, MovementOrder> issued, double seconds,
+                         List<Runnable> ended) {
+        if (previous.tracks().isEmpty() && issued.isEmpty()) {
+            frame = previous.next(seconds, List.of());
+            return;
+        }
+
+        boolean writeTick = (previous.tick() + 1) % writeEveryTicks == 0;
+        List<GeneralUnit> written = new ArrayList<>();
+        List<Track> next = new ArrayList<>(previous.tracks().size() + issued.size());
+
+        for (Track track : previous.tracks()) {
+            MovementOrder order = issued.remove(track.unitId());
+            if (order == null) {
+                step(track, seconds, writeTick, written, next, ended);
+                continue;
+            }
+            ended.add(() -> track.onEnd().accept(MovementEnd.INTERRUPTED));
+            // Carry on from where the unit really is, which may not be written yet
+            Track redirected = new Track(track.unitId(), track.latitude(), track.longitude(),
+                    track.writtenLatitude(), track.writtenLongitude(),
+                    order.targetLatitude(), order.targetLongitude(), order.kmPerSecond(), order.onEnd());
+            step(redirected, seconds, writeTick, written, next, ended);
+        }
+        for (MovementOrder order : issued.values()) {
+            GeneralUnit unit = worldStateStore.findUnit(order.unitId()).orElse(null);
+            Position position = unit != null ? unit.getPosition() : null;
+            if (position == null) {
+                interrupted.increment();
+                ended.add(() -> order.onEnd().accept(MovementEnd.INTERRUPTED));
+                continue;
+            }
+            Track track = new Track(order.unitId(), position.getLatitude(), position.getLongitude(),
+                    position.getLatitude(), position.getLongitude(),
+                    order.targetLatitude(), order.targetLongitude(), order.kmPerSecond(), order.onEnd());
+            step(track, seconds, writeTick, written, next, ended);
+        }
+
+        frame = previous.next(seconds, next);
+
+        if (!written.isEmpty()) {
+            unitDeltaPublisher.publishTogether(() -> worldStateStore.saveUnits(written));
+            for (GeneralUnit unit : written) {
+                unitMetricsRecorder.record(unit);
+            }
+            unitsWritten.add(written.size());
+        }
+    }
+
+    /**
+     * Advance one track. The unit is checked and, when due, written under its stripe lock, so a
+     * concurrent update either lands before the check and cuts the movement short, or after the write.
+     */
+    private void step(Track track, double seconds, boolean writeTick,
+                      List<GeneralUnit> written, List<Track> next, List<Runnable> ended) {
+        Track advanced = track.advance(seconds);
+        boolean arrived = advanced.arrived();
+        boolean write = (arrived || writeTick) && !advanced.isWritten();
+
+        GeneralUnit unit = worldStateStore.mutateUnit(track.unitId(), () -> {
+            GeneralUnit live = worldStateStore.findUnit(track.unitId()).orElse(null);
+            // Deleted, or placed somewhere else since the last write: the order no longer applies
+            if (live == null || !isAt(live, track.writtenLatitude(), track.writtenLongitude())) {
+                return null;
+            }
+            if (write) {
+                int direction = bearingDegrees(live.getPosition(), advanced.latitude(), advanced.longitude());
+                live.setPosition(new Position(advanced.latitude(), advanced.longitude()));
+                if (direction >= 0) {
+                    live.setDirection(direction);
+                }
+            }
+            return live;
+        });
+
+        if (unit == null) {
+            interrupted.increment();
+            ended.add(() -> track.onEnd().accept(MovementEnd.INTERRUPTED));
+            return;
+        }
+        if (advanced != track) {
+            unitsMoved.increment();
+        }
+        if (write) {
+            written.add(unit);
+        }
+        if (arrived) {
+            arrivals.increment();
+            ended.add(() -> track.onEnd().accept(MovementEnd.ARRIVED));
+        } else {
+            next.add(write ? advanced.markWritten() : advanced);
+        }
+    }
+
+    private static boolean isAt(GeneralUnit unit, double latitude, double longitude) {
+        Position position = unit.getPosition();
+        return position != null && position.getLatitude() == latitude && position.getLongitude() == longitude;
+    }
+
+    /**
+     * Heading from one point to another in whole degrees clockwise from north, or -1 when they coincide
+     */
+    private static int bearingDegrees(Position from, double latitude, double longitude) {
+        double north = latitude - from.getLatitude();
+        double east = (longitude - from.getLongitude()) * Math.cos(Math.toRadians(from.getLatitude()));
+        if (north == 0 && east == 0) {
+            return -1;
+        }
+        double degrees = Math.toDegrees(Math.atan2(east, north));
+        return (int) Math.round(degrees + 360.0) % 360;
+    }
+
+    private static double speedKmPerSecond(GeneralUnit unit) {
+        return Math.max(1, unit.getMobility()) * KMH_PER_MOBILITY / 3600.0;
+    }
+
+    public SimulationStats getStats() {
+        MovementFrame current = frame;
+        return new SimulationStats(
+                tickMillis,
+                timeScale,
+                current.tick(),
+                current.simulatedSeconds(),
+                current.tracks().size(),
+                orders.size(),
+                unitsMoved.sum(),
+                unitsWritten.sum(),
+                arrivals.sum(),
+                interrupted.sum(),
+                overruns.sum(),
+                lastTickNanos / 1_000_000.0,
+                maxTickNanos.get() / 1_000_000.0
+        );
+    }
+
+    private record MovementOrder(String unitId, double targetLatitude, double targetLongitude, double kmPerSecond,
+                                 Consumer<MovementEnd> onEnd) {}
+
+    /**
+     * One unit under way; a tick replaces it with an advanced copy rather than moving it.
+     * The written coordinates are the position last written to the unit, which it must still
+     * have for the movement to go on.
+     */
+    private record Track(String unitId, double latitude, double longitude,
+                         double writtenLatitude, double writtenLongitude,
+                         double targetLatitude, double targetLongitude, double kmPerSecond,
+                         Consumer<MovementEnd> onEnd) {
+
+        double remainingKm() {
+            return GeoDistance.haversineKm(latitude, longitude, targetLatitude, targetLongitude);
+        }
+
+        boolean arrived() {
+            return latitude == targetLatitude && longitude == targetLongitude;
+        }
+
+        boolean isWritten() {
+            return latitude == writtenLatitude && longitude == writtenLongitude;
+        }
+
+        Track markWritten() {
+            return new Track(unitId, latitude, longitude, latitude, longitude,
+                    targetLatitude, targetLongitude, kmPerSecond, onEnd);
+        }
+
+        /**
+         * Move seconds worth of distance toward the target, stopping on it.
+         * Interpolates in degrees, which over tactical distances stays within a few meters of the great circle.
+         */
+        Track advance(double seconds) {
+            double remaining = remainingKm();
+            double stepKm = kmPerSecond * seconds;
+            if (stepKm <= 0) {
+                return this;
+            }
+            if (stepKm >= remaining) {
+                return new Track(unitId, targetLatitude, targetLongitude, writtenLatitude, writtenLongitude,
+                        targetLatitude, targetLongitude, kmPerSecond, onEnd);
+            }
+            double fraction = stepKm / remaining;
+            return new Track(unitId,
+                    latitude + (targetLatitude - latitude) * fraction,
+                    longitude + (targetLongitude - longitude) * fraction,
+                    writtenLatitude, writtenLongitude,
+                    targetLatitude, targetLongitude, kmPerSecond, onEnd);
+        }
+    }
+
+    /**
+     * State of all movements after one tick; never modified once published
+     */
+    private record MovementFrame(long tick, double simulatedSeconds, List<Track> tracks) {
+
+        static final MovementFrame EMPTY = new MovementFrame(0, 0.0, List.of());
+
+        MovementFrame next(double seconds, List<Track> tracks) {
+            return new MovementFrame(tick + 1, simulatedSeconds + seconds, List.copyOf(tracks));
+        }
+    }
+
+    public enum MovementEnd {
+        ARRIVED,
+        // Replaced by a newer order, or the unit was deleted or placed elsewhere
+        INTERRUPTED
+    }
+
+    /**
+     * @param remainingKm straight-line distance left to the target
+     */
+    public record Movement(String unitId, Position position, Position target, double speedKmh, double remainingKm) {}
+
+    /**
+     * @param unitsMoved   unit steps taken, one per moving unit and tick
+     * @param unitsWritten positions written to the world, on write ticks and arrivals
+     * @param overruns     ticks that took longer than the tick interval
+     */
+    public record SimulationStats(
+            long tickMillis,
+            double timeScale,
+            long tick,
+            double simulatedSeconds,
+            int moving,
+            int queuedOrders,
+            long unitsMoved,
+            long unitsWritten,
+            long arrivals,
+            long interrupted,
+            long overruns,
+            double lastTickMillis,
+            double maxTickMillis
+    ) {}
+}
@@ -0,0 +1,141 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.BattleSnapshot;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.SnapshotDelta;
+import uaigroup.mapservice.model.UnitPatch;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Encodes a replay snapshot as its difference to the previous one, and applies such deltas.
+ * Position, status, morale, supply and comms changes go out as patches; any other change
+ * falls back to the whole unit, so decoding always gives back exactly what was captured.
+ * Decoding is copy-on-write: untouched units are shared with the base snapshot, which
+ * keeps every snapshot decoded earlier in a chain valid.
+ */
+final class SnapshotDeltaCodec {
+
+    private SnapshotDeltaCodec() {
+    }
+
+    static SnapshotDelta encode(BattleSnapshot previous, BattleSnapshot current) {
+        SnapshotDelta delta = SnapshotDelta.builder().build();
+        Map<String, GeneralUnit> previousUnits = byId(previous.getUnits());
+        Set<String> present = new HashSet<>();
+
+        for (GeneralUnit unit : current.getUnits()) {
+            present.add(unit.getId());
+            GeneralUnit before = previousUnits.get(unit.getId());
+            if (before == null) {
+                delta.getUpsertedUnits().add(unit);
+            } else if (!before.equals(unit)) {
+                UnitPatch patch = diff(before, unit);
+                if (unit.equals(applyPatch(before, patch))) {
+                    delta.getChangedUnits().add(patch);
+                } else {
+                    delta.getUpsertedUnits().add(unit);
+                }
+            }
+        }
+        for (String unitId : previousUnits.keySet()) {
+            if (!present.contains(unitId)) {
+                delta.getRemovedUnitIds().add(unitId);
+            }
+        }
+
+        if (!Objects.equals(previous.getObstacles(), current.getObstacles())) {
+            delta.setObstacles(current.getObstacles());
+        }
+        if (!Objects.equals(previous.getActiveActions(), current.getActiveActions())) {
+            delta.setActiveActions(current.getActiveActions());
+        }
+        return delta;
+    }
+
+    /**
+     * The snapshot that follows base; base itself is left untouched
+     */
+    static BattleSnapshot apply(BattleSnapshot base, SnapshotDelta delta, int snapshotNumber, LocalDateTime timestamp) {
+        Map<String, GeneralUnit> units = byId(base.getUnits());
+        delta.getRemovedUnitIds().forEach(units::remove);
+        for (UnitPatch patch : delta.getChangedUnits()) {
+            GeneralUnit unit = units.get(patch.getUnitId());
+            if (unit != null) {
+                units.put(patch.getUnitId(), applyPatch(unit, patch));
+            }
+        }
+        for (GeneralUnit unit : delta.getUpsertedUnits()) {
+            units.put(unit.getId(), unit);
+        }
+
+        return BattleSnapshot.builder()
+                .timestamp(timestamp)
+                .snapshotNumber(snapshotNumber)
+                .units(new ArrayList<>(units.values()))
+                .obstacles(delta.getObstacles() != null ? delta.getObstacles() : base.getObstacles())
+                .activeActions(delta.getActiveActions() != null ? delta.getActiveActions() : base.getActiveActions())
+                .build();
+    }
+
+    private static UnitPatch diff(GeneralUnit before, GeneralUnit after) {
+        UnitPatch patch = UnitPatch.builder().unitId(after.getId()).build();
+        if (!Objects.equals(before.getPosition(), after.getPosition())) {
+            patch.setPosition(after.getPosition());
+        }
+        if (before.getStatus() != after.getStatus()) {
+            patch.setStatus(after.getStatus());
+        }
+        if (Double.compare(before.getMorale(), after.getMorale()) != 0) {
+            patch.setMorale(after.getMorale());
+        }
+        if (before.getSupplyLevel() != after.getSupplyLevel()) {
+            patch.setSupplyLevel(after.getSupplyLevel());
+        }
+        if (before.isHasCommsLink() != after.isHasCommsLink()
+                || !Objects.equals(before.getLinkedCommsUnitId(), after.getLinkedCommsUnitId())
+                || before.getCommsStrength() != after.getCommsStrength()) {
+            patch.setHasCommsLink(after.isHasCommsLink());
+            patch.setLinkedCommsUnitId(after.getLinkedCommsUnitId());
+            patch.setCommsStrength(after.getCommsStrength());
+        }
+        return patch;
+    }
+
+    private static GeneralUnit applyPatch(GeneralUnit unit, UnitPatch patch) {
+        GeneralUnit copy = BattleReplayService.copyUnit(unit);
+        if (patch.getPosition() != null) {
+            copy.setPosition(patch.getPosition());
+        }
+        if (patch.getStatus() != null) {
+            copy.setStatus(patch.getStatus());
+        }
+        if (patch.getMorale() != null) {
+            copy.setMorale(patch.getMorale());
+        }
+        if (patch.getSupplyLevel() != null) {
+            copy.setSupplyLevel(patch.getSupplyLevel());
+        }
+        if (patch.getHasCommsLink() != null) {
+            copy.setHasCommsLink(patch.getHasCommsLink());
+            copy.setLinkedCommsUnitId(patch.getLinkedCommsUnitId());
+            copy.setCommsStrength(patch.getCommsStrength());
+        }
+        return copy;
+    }
+
+    private static Map<String, GeneralUnit> byId(List<GeneralUnit> units) {
+        Map<String, GeneralUnit> byId = new LinkedHashMap<>();
+        for (GeneralUnit unit : units) {
+            byId.put(unit.getId(), unit);
+        }
+        return byId;
+    }
+}
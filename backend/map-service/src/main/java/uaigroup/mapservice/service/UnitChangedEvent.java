@@ -0,0 +1,51 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.UnitType;
+
+import java.util.Objects;
+
+/**
+ * Published by the world state store whenever a unit is saved or deleted.
+ * Listeners that only care about placement (position, faction, type or range) should
+ * check isPlacementChanged() first; status-only updates carry equal placements.
+ *
+ * @param unit     the live unit, or null when it was deleted
+ * @param previous placement before the change, or null when the unit was created
+ * @param current  placement after the change, or null when the unit was deleted
+ */
+public record UnitChangedEvent(String unitId, GeneralUnit unit, Placement previous, Placement current) {
+
+    public boolean isCreated() {
+        return previous == null;
+    }
+
+    public boolean isDeleted() {
+        return current == null;
+    }
+
+    public boolean isPlacementChanged() {
+        return !Objects.equals(previous, current);
+    }
+
+    public record Placement(Faction faction, UnitType unitType, double latitude, double longitude, int range) {
+
+        static Placement of(GeneralUnit unit) {
+            Position position = unit.getPosition();
+            return new Placement(unit.getFaction(), unit.getUnitType(),
+                    position != null ? position.getLatitude() : Double.NaN,
+                    position != null ? position.getLongitude() : Double.NaN,
+                    unit.getRange());
+        }
+
+        public boolean hasPosition() {
+            return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        }
+
+        public Position position() {
+            return hasPosition() ? new Position(latitude, longitude) : null;
+        }
+    }
+}
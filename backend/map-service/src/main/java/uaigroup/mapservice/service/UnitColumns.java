@@ -0,0 +1,199 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Primitive structure-of-arrays copy of the units for loops that scan many of them.
+ * Every unit gets a dense int handle on its first save and keeps it until it is deleted;
+ * freed handles are reused, so the arrays stay about as long as the unit count. Column i of
+ * every array describes the unit with handle i. The store keeps the columns in step through
+ * its index hooks and unitsChangedInPlace. Readers work on a Snapshot: the columns copied at
+ * one version and shared by every reader until the next change, so a scan never holds the
+ * lock and never sees half of an update. A snapshot costs one copy after each change, which
+ * suits bulk scans; single-unit lookups should keep using the GeneralUnit.
+ */
+final class UnitColumns implements WorldStateStore.DocumentIndex<GeneralUnit> {
+
+    // Ordinal of a missing enum value, and the faction of a free handle
+    static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> handles = new HashMap<>();
+    private final Deque<Integer> freeHandles = new ArrayDeque<>();
+    private int size;
+    private long version;
+    private Snapshot snapshot;
+
+    private String[] unitIds = new String[INITIAL_CAPACITY];
+    private double[] latitude = new double[INITIAL_CAPACITY];
+    private double[] longitude = new double[INITIAL_CAPACITY];
+    private int[] faction = new int[INITIAL_CAPACITY];
+    private int[] unitType = new int[INITIAL_CAPACITY];
+    private int[] unitRank = new int[INITIAL_CAPACITY];
+    private int[] status = new int[INITIAL_CAPACITY];
+    private int[] personnel = new int[INITIAL_CAPACITY];
+    private int[] vehicles = new int[INITIAL_CAPACITY];
+    private int[] firepower = new int[INITIAL_CAPACITY];
+    private int[] supplyLevel = new int[INITIAL_CAPACITY];
+    private float[] morale = new float[INITIAL_CAPACITY];
+    private int[] mobility = new int[INITIAL_CAPACITY];
+    private int[] defense = new int[INITIAL_CAPACITY];
+    private int[] range = new int[INITIAL_CAPACITY];
+    private boolean[] hasCommsLink = new boolean[INITIAL_CAPACITY];
+    private int[] commsStrength = new int[INITIAL_CAPACITY];
+
+    @Override
+    public synchronized void update(String id, GeneralUnit unit) {
+        Integer handle = handles.get(id);
+        if (handle == null) {
+            handle = allocate(id);
+        }
+        int i = handle;
+        Position position = unit.getPosition();
+        latitude[i] = position != null ? position.getLatitude() : Double.NaN;
+        longitude[i] = position != null ? position.getLongitude() : Double.NaN;
+        faction[i] = unit.getFaction() != null ? unit.getFaction().ordinal() : NONE;
+        unitType[i] = unit.getUnitType() != null ? unit.getUnitType().ordinal() : NONE;
+        unitRank[i] = unit.getUnitRank() != null ? unit.getUnitRank().ordinal() : NONE;
+        status[i] = unit.getStatus() != null ? unit.getStatus().ordinal() : NONE;
+        personnel[i] = unit.getPersonnel();
+        vehicles[i] = unit.getVehicles();
+        firepower[i] = unit.getFirepower();
+        supplyLevel[i] = unit.getSupplyLevel();
+        morale[i] = (float) unit.getMorale();
+        mobility[i] = unit.getMobility();
+        defense[i] = unit.getDefense();
+        range[i] = unit.getRange();
+        hasCommsLink[i] = unit.isHasCommsLink();
+        commsStrength[i] = unit.getCommsStrength();
+        changed();
+    }
+
+    @Override
+    public synchronized void remove(String id) {
+        Integer handle = handles.remove(id);
+        if (handle == null) {
+            return;
+        }
+        clearColumn(handle);
+        freeHandles.push(handle);
+        changed();
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            clearColumn(i);
+        }
+        handles.clear();
+        freeHandles.clear();
+        size = 0;
+        changed();
+    }
+
+    /**
+     * Handle of a unit, or NONE when it is not in the store
+     */
+    synchronized int handleOf(String id) {
+        Integer handle = handles.get(id);
+        return handle != null ? handle : NONE;
+    }
+
+    /**
+     * The columns as of the last change; the same instance until something changes again
+     */
+    synchronized Snapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot(version, size,
+                    Arrays.copyOf(unitIds, size),
+                    Arrays.copyOf(latitude, size),
+                    Arrays.copyOf(longitude, size),
+                    Arrays.copyOf(faction, size),
+                    Arrays.copyOf(unitType, size),
+                    Arrays.copyOf(unitRank, size),
+                    Arrays.copyOf(status, size),
+                    Arrays.copyOf(personnel, size),
+                    Arrays.copyOf(vehicles, size),
+                    Arrays.copyOf(firepower, size),
+                    Arrays.copyOf(supplyLevel, size),
+                    Arrays.copyOf(morale, size),
+                    Arrays.copyOf(mobility, size),
+                    Arrays.copyOf(defense, size),
+                    Arrays.copyOf(range, size),
+                    Arrays.copyOf(hasCommsLink, size),
+                    Arrays.copyOf(commsStrength, size));
+        }
+        return snapshot;
+    }
+
+    private int allocate(String id) {
+        int handle;
+        if (!freeHandles.isEmpty()) {
+            handle = freeHandles.pop();
+        } else {
+            if (size == unitIds.length) {
+                grow(size * 2);
+            }
+            handle = size++;
+        }
+        unitIds[handle] = id;
+        handles.put(id, handle);
+        return handle;
+    }
+
+    private void clearColumn(int i) {
+        unitIds[i] = null;
+        latitude[i] = Double.NaN;
+        longitude[i] = Double.NaN;
+        faction[i] = NONE;
+        unitType[i] = NONE;
+        unitRank[i] = NONE;
+        status[i] = NONE;
+        hasCommsLink[i] = false;
+    }
+
+    private void changed() {
+        version++;
+        snapshot = null;
+    }
+
+    private void grow(int capacity) {
+        unitIds = Arrays.copyOf(unitIds, capacity);
+        latitude = Arrays.copyOf(latitude, capacity);
+        longitude = Arrays.copyOf(longitude, capacity);
+        faction = Arrays.copyOf(faction, capacity);
+        unitType = Arrays.copyOf(unitType, capacity);
+        unitRank = Arrays.copyOf(unitRank, capacity);
+        status = Arrays.copyOf(status, capacity);
+        personnel = Arrays.copyOf(personnel, capacity);
+        vehicles = Arrays.copyOf(vehicles, capacity);
+        firepower = Arrays.copyOf(firepower, capacity);
+        supplyLevel = Arrays.copyOf(supplyLevel, capacity);
+        morale = Arrays.copyOf(morale, capacity);
+        mobility = Arrays.copyOf(mobility, capacity);
+        defense = Arrays.copyOf(defense, capacity);
+        range = Arrays.copyOf(range, capacity);
+        hasCommsLink = Arrays.copyOf(hasCommsLink, capacity);
+        commsStrength = Arrays.copyOf(commsStrength, capacity);
+    }
+
+    /**
+     * Immutable by convention: the arrays are private copies, and nobody writes to them after construction.
+     * Free handles have a null unit id, faction NONE and NaN coordinates, so a faction filter skips them.
+     *
+     * @param size number of handles in use or free; every array has this length
+     */
+    record Snapshot(long version, int size, String[] unitIds, double[] latitude, double[] longitude,
+                    int[] faction, int[] unitType, int[] unitRank, int[] status,
+                    int[] personnel, int[] vehicles, int[] firepower, int[] supplyLevel, float[] morale,
+                    int[] mobility, int[] defense, int[] range, boolean[] hasCommsLink, int[] commsStrength) {
+    }
+}
@@ -0,0 +1,309 @@
+package uaigroup.mapservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.GeneralUnit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Versioned unit delta stream.
+ * Every unit change gets the next world sequence number and carries only the fields that
+ * differ from the previously published state of that unit. Deltas are pushed to
+ * /topic/units/delta as a JSON array, one frame per coalescing window, and kept in a bounded
+ * log, so a client that missed some (reconnect, gap in sequence numbers) can catch up with
+ * GET /units?sinceSeq= instead of refetching the whole collection. The epoch changes on every restart; a client holding
+ * another epoch or a sequence older than the log gets a full snapshot instead.
+ * Saving threads only queue the changed units; one publisher thread serializes and diffs them
+ * against a per-unit fingerprint, so the lock shared with sync only covers appending to the log.
+ */
+@Slf4j
+@Service
+public class UnitDeltaPublisher {
+
+    public static final String DELTA_TOPIC = "/topic/units/delta";
+
+    // Fields that change on every save and are not worth a delta on their own
+    private static final Set<String> VOLATILE_FIELDS = Set.of("updatedAt");
+
+    private final WorldStateStore worldStateStore;
+    private final CoalescingPublisher coalescingPublisher;
+    private final ObjectMapper objectMapper;
+    private final int logSize;
+
+    private final long epoch = System.currentTimeMillis();
+    // Only touched on the publisher thread
+    private final Map<String, Fingerprint> publishedState = new HashMap<>();
+    private final Deque<UnitDelta> deltaLog = new ArrayDeque<>();
+    // Deltas up to and including this sequence are no longer in the log
+    private long logFloor = 0;
+    private long worldSeq = 0;
+    // Units saved on a thread inside publishTogether, published when it returns
+    private final ThreadLocal<List<GeneralUnit>> batch = new ThreadLocal<>();
+
+    private ExecutorService publisher;
+
+    public UnitDeltaPublisher(WorldStateStore worldStateStore,
+                              CoalescingPublisher coalescingPublisher,
+                              ObjectMapper objectMapper,
+                              @Value("${units.delta-log-size:20000}") int logSize) {
+        this.worldStateStore = worldStateStore;
+        this.coalescingPublisher = coalescingPublisher;
+        this.objectMapper = objectMapper;
+        this.logSize = logSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        publisher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "unit-deltas");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Publish whatever is still queued before shutting down
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        publisher.shutdown();
+        if (!publisher.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Unit delta publisher did not drain its queue in time");
+        }
+    }
+
+    @EventListener
+    public void onUnitChanged(UnitChangedEvent event) {
+        if (event.isDeleted()) {
+            publishDeleted(event.unitId());
+            return;
+        }
+        List<GeneralUnit> pending = batch.get();
+        if (pending != null) {
+            pending.add(event.unit());
+        } else {
+            publishChanged(List.of(event.unit()));
+        }
+    }
+
+    /**
+     * Run changes and publish the units they save as one batch with consecutive sequence numbers
+     */
+    public void publishTogether(Runnable changes) {
+        List<GeneralUnit> pending = new ArrayList<>();
+        batch.set(pending);
+        try {
+            changes.run();
+        } finally {
+            batch.remove();
+        }
+        publishChanged(pending);
+    }
+
+    /**
+     * Publish units that were changed in place without going through WorldStateStore.saveUnit.
+     * The units are serialized on the publisher thread, so each delta carries the unit's state at that point.
+     */
+    public void publishChanged(Collection<GeneralUnit> units) {
+        if (units.isEmpty()) {
+            return;
+        }
+        List<GeneralUnit> queued = new ArrayList<>(units);
+        submit(() -> publishNow(queued));
+    }
+
+    public void publishDeleted(String unitId) {
+        submit(() -> {
+            Fingerprint previous = publishedState.remove(unitId);
+            String userId = previous != null ? previous.userId() : null;
+            send(appendAll(List.of(new PendingDelta(DeltaOp.DELETE, unitId, userId, null))));
+        });
+    }
+
+    public void publishCleared() {
+        submit(() -> {
+            publishedState.clear();
+            send(appendAll(List.of(new PendingDelta(DeltaOp.CLEAR, null, null, null))));
+        });
+    }
+
+    /**
+     * Everything a client needs to get from sinceSeq to the current sequence.
+     * Deltas are returned when the log still covers sinceSeq in the same epoch, a snapshot otherwise.
+     *
+     * @param visible filters units and deltas for non-admin users
+     */
+    public synchronized UnitSync sync(long sinceSeq, Long clientEpoch, Predicate<String> visible) {
+        boolean sameEpoch = clientEpoch == null || clientEpoch == epoch;
+        if (sameEpoch && sinceSeq > 0 && sinceSeq >= logFloor && sinceSeq <= worldSeq) {
+            List<UnitDelta> deltas = new ArrayList<>();
+            for (UnitDelta delta : deltaLog) {
+                if (delta.seq() > sinceSeq && (delta.op() == DeltaOp.CLEAR || visible.test(delta.userId()))) {
+                    deltas.add(delta);
+                }
+            }
+            return new UnitSync(epoch, worldSeq, false, null, deltas);
+        }
+
+        List<GeneralUnit> units = worldStateStore.findAllUnits().stream()
+                .filter(unit -> visible.test(unit.getUserId()))
+                .toList();
+        return new UnitSync(epoch, worldSeq, true, units, List.of());
+    }
+
+    public synchronized long currentSeq() {
+        return worldSeq;
+    }
+
+    private void submit(Runnable task) {
+        publisher.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("Failed to publish unit deltas: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private void publishNow(List<GeneralUnit> units) {
+        List<PendingDelta> pending = new ArrayList<>(units.size());
+        for (GeneralUnit unit : units) {
+            if (unit.getId() == null) {
+                continue;
+            }
+            ObjectNode current = objectMapper.valueToTree(unit);
+            Fingerprint fingerprint = Fingerprint.of(unit.getUserId(), current);
+            ObjectNode changes = diff(publishedState.get(unit.getId()), current, fingerprint);
+            if (changes == null) {
+                continue;
+            }
+            publishedState.put(unit.getId(), fingerprint);
+            pending.add(new PendingDelta(DeltaOp.UPSERT, unit.getId(), unit.getUserId(), changes));
+        }
+        send(appendAll(pending));
+    }
+
+    /**
+     * Fields of current that differ from previous, or null when nothing but volatile fields changed
+     */
+    private ObjectNode diff(Fingerprint previous, ObjectNode current, Fingerprint fingerprint) {
+        if (previous == null) {
+            return current;
+        }
+        ObjectNode changes = objectMapper.createObjectNode();
+        boolean significant = false;
+        for (int i = 0; i < fingerprint.fields().length; i++) {
+            String name = fingerprint.fields()[i];
+            int before = previous.indexOf(name);
+            if (before < 0 || previous.hashes()[before] != fingerprint.hashes()[i]) {
+                changes.set(name, current.get(name));
+                significant |= !VOLATILE_FIELDS.contains(name);
+            }
+        }
+        for (String name : previous.fields()) {
+            if (!current.has(name)) {
+                changes.putNull(name);
+                significant = true;
+            }
+        }
+        return significant ? changes : null;
+    }
+
+    /**
+     * Give the deltas the next sequence numbers, consecutive since only the publisher thread appends
+     */
+    private synchronized List<UnitDelta> appendAll(List<PendingDelta> pending) {
+        List<UnitDelta> appended = new ArrayList<>(pending.size());
+        for (PendingDelta change : pending) {
+            UnitDelta delta = new UnitDelta(epoch, ++worldSeq, change.op(), change.unitId(), change.userId(), change.changes());
+            deltaLog.addLast(delta);
+            appended.add(delta);
+        }
+        while (deltaLog.size() > logSize) {
+            logFloor = deltaLog.removeFirst().seq();
+        }
+        return appended;
+    }
+
+    private void send(List<UnitDelta> deltas) {
+        // Batched per window but never merged, so clients see every sequence number
+        coalescingPublisher.publishInOrder(DELTA_TOPIC, deltas);
+    }
+
+    private record PendingDelta(DeltaOp op, String unitId, String userId, ObjectNode changes) {}
+
+    /**
+     * What was last published for a unit: its field names and a 64-bit hash of each value's JSON,
+     * a fraction of the size of the tree itself
+     */
+    private record Fingerprint(String userId, String[] fields, long[] hashes) {
+
+        static Fingerprint of(String userId, ObjectNode unit) {
+            String[] fields = new String[unit.size()];
+            long[] hashes = new long[unit.size()];
+            int i = 0;
+            Iterator<Map.Entry<String, JsonNode>> entries = unit.fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> entry = entries.next();
+                fields[i] = entry.getKey();
+                hashes[i++] = hash(entry.getValue().toString());
+            }
+            return new Fingerprint(userId, fields, hashes);
+        }
+
+        int indexOf(String field) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].equals(field)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // FNV-1a
+        private static long hash(String json) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < json.length(); i++) {
+                hash ^= json.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    public enum DeltaOp {
+        UPSERT,
+        DELETE,
+        CLEAR
+    }
+
+    /**
+     * @param changes changed fields for UPSERT (every field when the unit is new), null otherwise
+     */
+    public record UnitDelta(long epoch, long seq, DeltaOp op, String unitId, String userId, ObjectNode changes) {}
+
+    /**
+     * Catch-up response: either the deltas after the requested sequence, or a full snapshot at seq
+     */
+    public record UnitSync(long epoch, long seq, boolean snapshot, List<GeneralUnit> units, List<UnitDelta> deltas) {}
+}
@@ -0,0 +1,65 @@
+package uaigroup.mapservice.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by unit ID hash.
+ * Two IDs may share a stripe, which only costs some contention; the same ID always maps
+ * to the same lock, so mutations of one unit are serialized without a lock per unit.
+ * Code that needs several stripes takes them through locksFor, which always orders them the
+ * same way, so two threads locking overlapping sets of units cannot deadlock.
+ */
+final class UnitLockStripes {
+
+    private final Lock[] stripes;
+    private final int mask;
+
+    UnitLockStripes(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = Math.max(Integer.highestOneBit(stripeCount - 1) << 1, 1);
+        this.stripes = new Lock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    Lock lockFor(String unitId) {
+        return stripes[indexOf(unitId)];
+    }
+
+    /**
+     * The distinct stripes of the given IDs in ascending stripe order; lock them in list order
+     */
+    List<Lock> locksFor(Collection<String> unitIds) {
+        BitSet used = new BitSet(stripes.length);
+        for (String unitId : unitIds) {
+            used.set(indexOf(unitId));
+        }
+        List<Lock> locks = new ArrayList<>(used.cardinality());
+        for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+            locks.add(stripes[i]);
+        }
+        return locks;
+    }
+
+    private int indexOf(String unitId) {
+        if (unitId == null) {
+            return 0;
+        }
+        int hash = unitId.hashCode();
+        // Spread the high bits so IDs differing only there do not all collide
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    int size() {
+        return stripes.length;
+    }
+}
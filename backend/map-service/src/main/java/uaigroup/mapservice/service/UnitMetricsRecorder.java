@@ -0,0 +1,323 @@
+package uaigroup.mapservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.UnitMetricSample;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Per-unit state history (morale, supply, personnel, vehicles, position) in two Mongo
+ * time-series collections. Mutations are buffered and written by a scheduled flush:
+ * unit_metrics keeps the latest state of every changed unit per flush interval for a short
+ * retention, unit_metrics_minute keeps one average per unit and minute for much longer.
+ * History queries are downsampled to the requested number of points in the database.
+ */
+@Slf4j
+@Service
+public class UnitMetricsRecorder {
+
+    static final String RAW_COLLECTION = "unit_metrics";
+    static final String MINUTE_COLLECTION = "unit_metrics_minute";
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration rawRetention;
+    private final Duration minuteRetention;
+
+    // Latest sample of every unit changed since the last flush
+    private final Map<String, UnitMetricSample> pending = new ConcurrentHashMap<>();
+    private final Map<String, MinuteRollup> openRollups = new ConcurrentHashMap<>();
+    private final Queue<UnitMetricSample> closedRollups = new ConcurrentLinkedQueue<>();
+    // Last recorded values per unit, so saves that touch none of the tracked fields add no point
+    private final Map<String, UnitMetricSample> lastRecorded = new ConcurrentHashMap<>();
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong samplesWritten = new AtomicLong();
+    private final AtomicLong rollupsWritten = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    public UnitMetricsRecorder(MongoTemplate mongoTemplate,
+                               @Value("${metrics.raw-retention-hours:48}") long rawRetentionHours,
+                               @Value("${metrics.minute-retention-days:90}") long minuteRetentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.rawRetention = Duration.ofHours(rawRetentionHours);
+        this.minuteRetention = Duration.ofDays(minuteRetentionDays);
+    }
+
+    /**
+     * Create the time-series collections; a plain collection would be created by the first insert otherwise
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createCollections() {
+        createTimeSeries(RAW_COLLECTION, Granularity.SECONDS, rawRetention);
+        createTimeSeries(MINUTE_COLLECTION, Granularity.MINUTES, minuteRetention);
+    }
+
+    private void createTimeSeries(String collection, Granularity granularity, Duration retention) {
+        if (mongoTemplate.collectionExists(collection)) {
+            return;
+        }
+        try {
+            mongoTemplate.createCollection(collection, CollectionOptions.timeSeries("timestamp",
+                    options -> options.metaField("unitId").granularity(granularity).expireAfter(retention)));
+        } catch (Exception e) {
+            log.warn("Failed to create time-series collection {}: {}", collection, e.getMessage());
+        }
+    }
+
+    /**
+     * Record the current state of a unit after a mutation
+     */
+    public void record(GeneralUnit unit) {
+        if (unit.getId() == null) {
+            return;
+        }
+        UnitMetricSample sample = sampleOf(unit);
+        UnitMetricSample previous = lastRecorded.put(unit.getId(), sample);
+        if (previous != null && sameValues(previous, sample)) {
+            unchanged.incrementAndGet();
+            return;
+        }
+
+        recorded.incrementAndGet();
+        pending.put(unit.getId(), sample);
+        LocalDateTime minute = sample.getTimestamp().truncatedTo(ChronoUnit.MINUTES);
+        openRollups.compute(unit.getId(), (id, rollup) -> {
+            if (rollup == null || !rollup.minute.equals(minute)) {
+                if (rollup != null) {
+                    closedRollups.add(rollup.toSample());
+                }
+                rollup = new MinuteRollup(minute);
+            }
+            rollup.add(sample);
+            return rollup;
+        });
+    }
+
+    /**
+     * Forget a deleted unit; its history stays until it expires
+     */
+    public void forget(String unitId) {
+        lastRecorded.remove(unitId);
+    }
+
+    /**
+     * Forget every unit once the map has been cleared
+     */
+    public void forgetAll() {
+        lastRecorded.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${metrics.flush-interval-ms:1000}")
+    public void flush() {
+        flush(false);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush(true);
+    }
+
+    private void flush(boolean closeAll) {
+        List<UnitMetricSample> samples = new ArrayList<>(pending.size());
+        for (String unitId : pending.keySet()) {
+            UnitMetricSample sample = pending.remove(unitId);
+            if (sample != null) {
+                samples.add(sample);
+            }
+        }
+        insert(RAW_COLLECTION, samples, samplesWritten);
+
+        // Minutes nobody will add to any more; units that stopped changing would otherwise never close theirs
+        LocalDateTime currentMinute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        for (String unitId : openRollups.keySet()) {
+            openRollups.computeIfPresent(unitId, (id, rollup) -> {
+                if (!closeAll && !rollup.minute.isBefore(currentMinute)) {
+                    return rollup;
+                }
+                closedRollups.add(rollup.toSample());
+                return null;
+            });
+        }
+        List<UnitMetricSample> rollups = new ArrayList<>();
+        UnitMetricSample rollup;
+        while ((rollup = closedRollups.poll()) != null) {
+            rollups.add(rollup);
+        }
+        insert(MINUTE_COLLECTION, rollups, rollupsWritten);
+    }
+
+    private void insert(String collection, List<UnitMetricSample> samples, AtomicLong written) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.insert(samples, collection);
+            written.addAndGet(samples.size());
+        } catch (Exception e) {
+            failedWrites.addAndGet(samples.size());
+            log.warn("Failed to write {} unit metric samples to {}: {}", samples.size(), collection, e.getMessage());
+        }
+    }
+
+    /**
+     * History of one unit between from and to, averaged into at most maxPoints bins.
+     * Bins of a minute or more, and ranges older than the raw retention, are read from the minute rollups.
+     *
+     * @param userId restricts the history to units of this user, null for all
+     */
+    public List<UnitMetricSample> findHistory(String unitId, String userId, LocalDateTime from, LocalDateTime to,
+                                              int maxPoints) {
+        long rangeSeconds = Math.max(1, Duration.between(from, to).getSeconds());
+        long binSeconds = Math.max(1, (rangeSeconds + maxPoints - 1) / maxPoints);
+        boolean useRollups = binSeconds >= 60 || from.isBefore(LocalDateTime.now().minus(rawRetention));
+
+        String collection = useRollups ? MINUTE_COLLECTION : RAW_COLLECTION;
+        String binUnit = useRollups ? "minute" : "second";
+        long binSize = useRollups ? Math.max(1, (binSeconds + 59) / 60) : binSeconds;
+
+        Criteria criteria = where("unitId").is(unitId).and("timestamp").gte(from).lte(to);
+        if (userId != null) {
+            criteria.and("userId").is(userId);
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.Direction.ASC, "timestamp"),
+                Aggregation.addFields().addFieldWithValue("bin",
+                        DateOperators.DateTrunc.truncateValueOf("timestamp").to(binUnit).binSize(binSize)).build(),
+                Aggregation.group("bin")
+                        .first("unitId").as("unitId")
+                        .first("userId").as("userId")
+                        .first("faction").as("faction")
+                        .avg("morale").as("morale")
+                        .avg("supplyLevel").as("supplyLevel")
+                        .avg("personnel").as("personnel")
+                        .avg("vehicles").as("vehicles")
+                        .last("position").as("position")
+                        .sum("samples").as("samples"),
+                Aggregation.project("unitId", "userId", "faction", "morale", "supplyLevel", "personnel",
+                                "vehicles", "position", "samples")
+                        .and("_id").as("timestamp")
+                        .andExclude("_id"),
+                Aggregation.sort(Sort.Direction.ASC, "timestamp"));
+
+        return mongoTemplate.aggregate(aggregation, collection, UnitMetricSample.class).getMappedResults();
+    }
+
+    public UnitMetricsStats getStats() {
+        return new UnitMetricsStats(
+                recorded.get(),
+                unchanged.get(),
+                samplesWritten.get(),
+                rollupsWritten.get(),
+                failedWrites.get(),
+                pending.size() + closedRollups.size()
+        );
+    }
+
+    private static UnitMetricSample sampleOf(GeneralUnit unit) {
+        Position position = unit.getPosition();
+        return UnitMetricSample.builder()
+                .unitId(unit.getId())
+                .userId(unit.getUserId())
+                .faction(unit.getFaction())
+                .timestamp(LocalDateTime.now())
+                .morale(unit.getMorale())
+                .supplyLevel(unit.getSupplyLevel())
+                .personnel(unit.getPersonnel())
+                .vehicles(unit.getVehicles())
+                .position(position != null ? new Position(position.getLatitude(), position.getLongitude()) : null)
+                .samples(1)
+                .build();
+    }
+
+    private static boolean sameValues(UnitMetricSample a, UnitMetricSample b) {
+        return a.getMorale() == b.getMorale()
+                && a.getSupplyLevel() == b.getSupplyLevel()
+                && a.getPersonnel() == b.getPersonnel()
+                && a.getVehicles() == b.getVehicles()
+                && Objects.equals(a.getPosition(), b.getPosition());
+    }
+
+    /**
+     * Running averages of one unit within one minute; only touched inside openRollups.compute
+     */
+    private static final class MinuteRollup {
+        private final LocalDateTime minute;
+        private UnitMetricSample last;
+        private double morale;
+        private double supplyLevel;
+        private double personnel;
+        private double vehicles;
+        private int samples;
+
+        MinuteRollup(LocalDateTime minute) {
+            this.minute = minute;
+        }
+
+        void add(UnitMetricSample sample) {
+            last = sample;
+            morale += sample.getMorale();
+            supplyLevel += sample.getSupplyLevel();
+            personnel += sample.getPersonnel();
+            vehicles += sample.getVehicles();
+            samples++;
+        }
+
+        UnitMetricSample toSample() {
+            return UnitMetricSample.builder()
+                    .unitId(last.getUnitId())
+                    .userId(last.getUserId())
+                    .faction(last.getFaction())
+                    .timestamp(minute)
+                    .morale(morale / samples)
+                    .supplyLevel(supplyLevel / samples)
+                    .personnel(personnel / samples)
+                    .vehicles(vehicles / samples)
+                    .position(last.getPosition())
+                    .samples(samples)
+                    .build();
+        }
+    }
+
+    /**
+     * @param unchanged saves that changed none of the tracked fields and were not recorded
+     * @param queued samples and closed rollups waiting for the next flush
+     */
+    public record UnitMetricsStats(
+            long recorded,
+            long unchanged,
+            long samplesWritten,
+            long rollupsWritten,
+            long failedWrites,
+            int queued
+    ) {}
+}
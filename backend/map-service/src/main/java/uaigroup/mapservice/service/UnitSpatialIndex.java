@@ -0,0 +1,218 @@
+package uaigroup.mapservice.service;
+
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Uniform lat/lng grid over units, bucketed per faction.
+ * Range queries only visit the cells overlapping the search circle, so the
+ * cost is proportional to the units near the query point rather than the faction size.
+ */
+final class UnitSpatialIndex implements WorldStateStore.DocumentIndex<GeneralUnit> {
+
+    // Longitude cells shrink towards the poles; clamp so the search window stays finite
+    private static final double MIN_COS_LATITUDE = 0.01;
+
+    private final double cellDegrees;
+    // Columns divide the full circle evenly, so the last one meets the first at the antimeridian
+    private final int columns;
+    private final double columnDegrees;
+    private final Map<Long, Map<String, GeneralUnit>> cells = new ConcurrentHashMap<>();
+    private final Map<String, Long> cellById = new ConcurrentHashMap<>();
+
+    UnitSpatialIndex(double cellDegrees) {
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("Spatial cell size must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+        this.columns = Math.max(1, (int) Math.round(360.0 / cellDegrees));
+        this.columnDegrees = 360.0 / columns;
+    }
+
+    @Override
+    public void update(String id, GeneralUnit unit) {
+        Position position = unit.getPosition();
+        if (position == null || unit.getFaction() == null) {
+            remove(id);
+            return;
+        }
+        long key = cellKey(unit.getFaction(), row(position.getLatitude()), col(position.getLongitude()));
+        Long previous = cellById.put(id, key);
+        if (previous != null && previous != key) {
+            removeFromCell(previous, id);
+        }
+        cells.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(id, unit);
+    }
+
+    @Override
+    public void remove(String id) {
+        Long previous = cellById.remove(id);
+        if (previous != null) {
+            removeFromCell(previous, id);
+        }
+    }
+
+    @Override
+    public void clear() {
+        cells.clear();
+        cellById.clear();
+    }
+
+    /**
+     * All units of a faction within rangeKm of the center
+     */
+    List<GeneralUnit> withinRange(Faction faction, Position center, double rangeKm) {
+        List<GeneralUnit> result = new ArrayList<>();
+        visitWithinRange(faction, center, rangeKm, unit -> {
+            result.add(unit);
+            return false;
+        });
+        return result;
+    }
+
+    /**
+     * Whether any unit of a faction other than excludeId is within rangeKm of the center
+     */
+    boolean anyWithinRange(Faction faction, Position center, double rangeKm, String excludeId) {
+        return visitWithinRange(faction, center, rangeKm, unit -> !unit.getId().equals(excludeId));
+    }
+
+    /**
+     * Closest unit of a faction within maxRangeKm of the center, searching outwards ring by ring
+     */
+    Optional<GeneralUnit> nearest(Faction faction, Position center, double maxRangeKm, String excludeId) {
+        double latitude = center.getLatitude();
+        double longitude = center.getLongitude();
+        int centerRow = row(latitude);
+        int centerCol = rawCol(longitude);
+        // Columns are narrowest at the poleward edge of the band a unit within maxRangeKm can be in
+        double minCellKm = Math.min(cellDegrees, columnDegrees * cosLatitude(polewardLatitude(latitude, maxRangeKm)))
+                * GeoDistance.KM_PER_DEGREE;
+        int maxRing = (int) Math.ceil(maxRangeKm / minCellKm) + 1;
+
+        GeneralUnit best = null;
+        double bestDistance = maxRangeKm;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every cell on this ring is at least (ring - 1) cells away from the center
+            if (best != null && (ring - 1) * minCellKm > bestDistance) {
+                break;
+            }
+            for (int dr = -ring; dr <= ring; dr++) {
+                boolean edgeRow = Math.abs(dr) == ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int dc = -ring; dc <= ring; dc += step) {
+                    Map<String, GeneralUnit> cell = cells.get(cellKey(faction, centerRow + dr, wrapCol(centerCol + dc)));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (GeneralUnit unit : cell.values()) {
+                        if (unit.getId().equals(excludeId) || unit.getPosition() == null) {
+                            continue;
+                        }
+                        double distance = GeoDistance.haversineKm(latitude, longitude,
+                                unit.getPosition().getLatitude(), unit.getPosition().getLongitude());
+                        if (distance <= bestDistance) {
+                            bestDistance = distance;
+                            best = unit;
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Visit units within range until the visitor returns true
+     * @return true if the visitor stopped the search
+     */
+    private boolean visitWithinRange(Faction faction, Position center, double rangeKm,
+                                     Predicate<GeneralUnit> visitor) {
+        double latitude = center.getLatitude();
+        double longitude = center.getLongitude();
+        double latSpan = rangeKm / GeoDistance.KM_PER_DEGREE;
+        double lngSpan = latSpan / cosLatitude(polewardLatitude(latitude, rangeKm));
+
+        int minRow = row(latitude - latSpan);
+        int maxRow = row(latitude + latSpan);
+        int minCol = rawCol(longitude - lngSpan);
+        int maxCol = rawCol(longitude + lngSpan);
+        if (maxCol - minCol + 1 >= columns) {
+            minCol = 0;
+            maxCol = columns - 1;
+        }
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                Map<String, GeneralUnit> cell = cells.get(cellKey(faction, r, wrapCol(c)));
+                if (cell == null) {
+                    continue;
+                }
+                for (GeneralUnit unit : cell.values()) {
+                    Position position = unit.getPosition();
+                    if (position == null) {
+                        continue;
+                    }
+                    double distance = GeoDistance.haversineKm(latitude, longitude,
+                            position.getLatitude(), position.getLongitude());
+                    if (distance <= rangeKm && visitor.test(unit)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void removeFromCell(long key, String id) {
+        Map<String, GeneralUnit> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(id);
+        }
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int col(double longitude) {
+        return wrapCol(rawCol(longitude));
+    }
+
+    /**
+     * Column counted from -180 without wrapping, so a search window can run past the antimeridian
+     */
+    private int rawCol(double longitude) {
+        return (int) Math.floor((longitude + 180.0) / columnDegrees);
+    }
+
+    private int wrapCol(int col) {
+        return Math.floorMod(col, columns);
+    }
+
+    /**
+     * Latitude of the band edge closest to a pole, for a search of rangeKm around latitude
+     */
+    private static double polewardLatitude(double latitude, double rangeKm) {
+        return Math.min(90.0, Math.abs(latitude) + rangeKm / GeoDistance.KM_PER_DEGREE);
+    }
+
+    private static double cosLatitude(double latitude) {
+        return Math.max(MIN_COS_LATITUDE, Math.cos(Math.toRadians(latitude)));
+    }
+
+    private static long cellKey(Faction faction, int row, int col) {
+        return ((long) faction.ordinal() << 48)
+                | ((long) (row & 0xFFFFFF) << 24)
+                | (col & 0xFFFFFF);
+    }
+}
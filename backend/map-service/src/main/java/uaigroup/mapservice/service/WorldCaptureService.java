@@ -0,0 +1,153 @@
+package uaigroup.mapservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.Action;
+import uaigroup.mapservice.model.ActionStatus;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Obstacle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies of the world for replay snapshots, shared by every active recording.
+ * Recordings capturing within the same share window get the very same capture. A new
+ * capture only copies units that changed since the previous one (tracked through
+ * UnitChangedEvent) and reuses every other copy, and obstacles and actions are only copied
+ * again when their table changed. Captures are never modified once built, so recordings
+ * and delta encoding can hold on to them freely.
+ */
+@Service
+public class WorldCaptureService {
+
+    private final WorldStateStore worldStateStore;
+    private final long shareWindowMillis;
+
+    private final Set<String> changedUnits = ConcurrentHashMap.newKeySet();
+    private final LongAdder captures = new LongAdder();
+    private final LongAdder sharedCaptures = new LongAdder();
+    private final LongAdder unitsCopied = new LongAdder();
+    private final LongAdder unitsReused = new LongAdder();
+
+    private WorldCapture latest;
+    private Map<String, GeneralUnit> unitCopies = Map.of();
+    private long unitsVersion = -1;
+    private long obstaclesVersion = -1;
+    private long actionsVersion = -1;
+
+    public WorldCaptureService(WorldStateStore worldStateStore,
+                               @Value("${replays.capture-share-window-ms:100}") long shareWindowMillis) {
+        this.worldStateStore = worldStateStore;
+        this.shareWindowMillis = shareWindowMillis;
+    }
+
+    @EventListener
+    public void onUnitChanged(UnitChangedEvent event) {
+        changedUnits.add(event.unitId());
+    }
+
+    /**
+     * The current world, reusing the latest capture when it is recent enough or nothing changed since
+     */
+    public synchronized WorldCapture capture() {
+        long now = System.currentTimeMillis();
+        if (latest != null && (now - latest.capturedAtMillis() < shareWindowMillis || unchangedSinceLatest())) {
+            sharedCaptures.increment();
+            return latest;
+        }
+
+        // Versions are read before the tables, so a concurrent change is picked up by the next capture
+        unitsVersion = worldStateStore.unitsVersion();
+        long currentObstaclesVersion = worldStateStore.obstaclesVersion();
+        long currentActionsVersion = worldStateStore.actionsVersion();
+        Set<String> changed = drainChangedUnits();
+
+        List<GeneralUnit> liveUnits = worldStateStore.findAllUnits();
+        Map<String, GeneralUnit> copies = new HashMap<>(liveUnits.size() * 2);
+        List<GeneralUnit> units = new ArrayList<>(liveUnits.size());
+        for (GeneralUnit unit : liveUnits) {
+            GeneralUnit copy = unitCopies.get(unit.getId());
+            if (copy == null || changed.contains(unit.getId())) {
+                copy = BattleReplayService.copyUnit(unit);
+                unitsCopied.increment();
+            } else {
+                unitsReused.increment();
+            }
+            copies.put(unit.getId(), copy);
+            units.add(copy);
+        }
+        unitCopies = copies;
+
+        List<Obstacle> obstacles = latest != null && currentObstaclesVersion == obstaclesVersion
+                ? latest.obstacles()
+                : worldStateStore.findAllObstacles().stream().map(BattleReplayService::copyObstacle).toList();
+        List<Action> activeActions = latest != null && currentActionsVersion == actionsVersion
+                ? latest.activeActions()
+                : worldStateStore.findActionsByStatus(ActionStatus.EXECUTING).stream()
+                        .map(BattleReplayService::copyAction).toList();
+        obstaclesVersion = currentObstaclesVersion;
+        actionsVersion = currentActionsVersion;
+
+        latest = new WorldCapture(now, List.copyOf(units), obstacles, activeActions);
+        captures.increment();
+        return latest;
+    }
+
+    public CaptureStats getStats() {
+        long copied = unitsCopied.sum();
+        long reused = unitsReused.sum();
+        return new CaptureStats(
+                captures.sum(),
+                sharedCaptures.sum(),
+                copied,
+                reused,
+                copied + reused > 0 ? (double) reused / (copied + reused) : 0.0
+        );
+    }
+
+    private boolean unchangedSinceLatest() {
+        return changedUnits.isEmpty()
+                && worldStateStore.unitsVersion() == unitsVersion
+                && worldStateStore.obstaclesVersion() == obstaclesVersion
+                && worldStateStore.actionsVersion() == actionsVersion;
+    }
+
+    private Set<String> drainChangedUnits() {
+        Set<String> drained = new HashSet<>();
+        for (Iterator<String> it = changedUnits.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Immutable copy of the world at capturedAtMillis
+     */
+    public record WorldCapture(
+            long capturedAtMillis,
+            List<GeneralUnit> units,
+            List<Obstacle> obstacles,
+            List<Action> activeActions
+    ) {}
+
+    /**
+     * @param reuseRatio share of captured units that were reused instead of copied
+     */
+    public record CaptureStats(
+            long captures,
+            long sharedCaptures,
+            long unitsCopied,
+            long unitsReused,
+            double reuseRatio
+    ) {}
+}
@@ -0,0 +1,721 @@
+package uaigroup.mapservice.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uaigroup.mapservice.model.Action;
+import uaigroup.mapservice.model.ActionStatus;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Obstacle;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.UnitType;
+import uaigroup.mapservice.repository.ActionRepository;
+import uaigroup.mapservice.repository.ObstacleRepository;
+import uaigroup.mapservice.repository.UnitRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Authoritative in-memory copy of units, obstacles and actions.
+ * Reads are served from memory; writes mark documents dirty and are
+ * persisted to Mongo in batches by a write-behind flush.
+ * Units are live objects shared by every caller, so each unit mutation runs under the unit's
+ * stripe lock: in-place changes through mutateUnit/mutateUnits, saves and deletes inside the
+ * store. Unit events are published after the stripes are released, because listeners mutate
+ * other units and would otherwise take stripes while holding one.
+ */
+@Slf4j
+@Service
+public class WorldStateStore {
+
+    private static final int UNIT_TYPE_COUNT = UnitType.values().length;
+    // Flushes a document Mongo refuses is retried in before the store gives up on writing it
+    private static final int MAX_WRITE_ATTEMPTS = 10;
+
+    private final DocumentTable<GeneralUnit> units;
+    private final DocumentTable<Obstacle> obstacles;
+    private final DocumentTable<Action> actions;
+
+    // Secondary indexes
+    private final SecondaryIndex<GeneralUnit, String> unitsByUser;
+    private final SecondaryIndex<GeneralUnit, Integer> unitsByFaction;
+    private final SecondaryIndex<GeneralUnit, Integer> unitsByFactionAndType;
+    private final SecondaryIndex<GeneralUnit, String> unitsByParent;
+    private final SecondaryIndex<Obstacle, String> obstaclesByCreator;
+    private final SecondaryIndex<Action, String> actionsByUnit;
+    private final SecondaryIndex<Action, Integer> actionsByStatus;
+    private final UnitSpatialIndex unitSpatialIndex;
+    private final UnitColumns unitColumns = new UnitColumns();
+    private final UnitLockStripes unitLocks;
+
+    // Last published placement per unit, carried in UnitChangedEvent so listeners can tell moves apart
+    private final Map<String, UnitChangedEvent.Placement> unitPlacements = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${world-state.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    public WorldStateStore(UnitRepository unitRepository,
+                           ObstacleRepository obstacleRepository,
+                           ActionRepository actionRepository,
+                           MongoTemplate mongoTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${world-state.spatial-cell-degrees:0.05}") double spatialCellDegrees,
+                           @Value("${world-state.unit-lock-stripes:64}") int unitLockStripes) {
+        this.unitsByUser = new SecondaryIndex<>(GeneralUnit::getUserId);
+        this.unitsByFaction = new SecondaryIndex<>(u -> u.getFaction() != null ? u.getFaction().ordinal() : null);
+        this.unitsByFactionAndType = new SecondaryIndex<>(u -> factionTypeKey(u.getFaction(), u.getUnitType()));
+        this.unitsByParent = new SecondaryIndex<>(GeneralUnit::getParentUnitId);
+        this.obstaclesByCreator = new SecondaryIndex<>(Obstacle::getCreatedBy);
+        this.actionsByUnit = new SecondaryIndex<>(Action::getUnitId);
+        this.actionsByStatus = new SecondaryIndex<>(a -> a.getStatus() != null ? a.getStatus().ordinal() : null);
+        this.unitSpatialIndex = new UnitSpatialIndex(spatialCellDegrees);
+        this.unitLocks = new UnitLockStripes(unitLockStripes);
+        this.eventPublisher = eventPublisher;
+
+        this.units = new DocumentTable<>("units", unitRepository, mongoTemplate, GeneralUnit.class, GeneralUnit::getId, GeneralUnit::setId,
+                GeneralUnit::getCreatedAt, GeneralUnit::setCreatedAt, GeneralUnit::setUpdatedAt,
+                List.of(unitsByUser, unitsByFaction, unitsByFactionAndType, unitsByParent, unitSpatialIndex,
+                        unitColumns));
+        this.obstacles = new DocumentTable<>("obstacles", obstacleRepository, mongoTemplate, Obstacle.class, Obstacle::getId, Obstacle::setId,
+                Obstacle::getCreatedAt, Obstacle::setCreatedAt, Obstacle::setUpdatedAt,
+                List.of(obstaclesByCreator));
+        this.actions = new DocumentTable<>("actions", actionRepository, mongoTemplate, Action.class, Action::getId, Action::setId,
+                Action::getCreatedAt, Action::setCreatedAt, Action::setUpdatedAt,
+                List.of(actionsByUnit, actionsByStatus));
+    }
+
+    /**
+     * Load the persisted world into memory on startup
+     */
+    @PostConstruct
+    public void load() {
+        units.load();
+        for (GeneralUnit unit : units.all()) {
+            unitPlacements.put(unit.getId(), UnitChangedEvent.Placement.of(unit));
+        }
+        obstacles.load();
+        actions.load();
+        log.info("World state loaded: {} units, {} obstacles, {} actions",
+                units.size(), obstacles.size(), actions.size());
+    }
+
+    /**
+     * Write-behind flush of dirty and deleted documents to Mongo
+     */
+    @Scheduled(fixedDelayString = "${world-state.flush-interval-ms:250}")
+    public void flush() {
+        int written = units.flush(flushBatchSize)
+                + obstacles.flush(flushBatchSize)
+                + actions.flush(flushBatchSize);
+        if (written > 0) {
+            log.debug("World state flushed {} documents", written);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public WorldStateStats getStats() {
+        return new WorldStateStats(units.size(), obstacles.size(), actions.size(),
+                units.pendingWrites() + obstacles.pendingWrites() + actions.pendingWrites(),
+                units.abandonedWrites() + obstacles.abandonedWrites() + actions.abandonedWrites());
+    }
+
+    // ======== Units ========
+
+    public List<GeneralUnit> findAllUnits() {
+        return units.all();
+    }
+
+    public Optional<GeneralUnit> findUnit(String id) {
+        return units.find(id);
+    }
+
+    public int unitCount() {
+        return units.size();
+    }
+
+    public boolean existsUnit(String id) {
+        return units.contains(id);
+    }
+
+    public List<GeneralUnit> findUnitsByIds(Collection<String> ids) {
+        return units.byIds(ids);
+    }
+
+    public List<GeneralUnit> findUnitsByUserId(String userId) {
+        return units.byIds(unitsByUser.ids(userId));
+    }
+
+    public List<GeneralUnit> findUnitsByFaction(Faction faction) {
+        return units.byIds(unitsByFaction.ids(faction.ordinal()));
+    }
+
+    public List<GeneralUnit> findUnitsByFactionAndType(Faction faction, UnitType unitType) {
+        return units.byIds(unitsByFactionAndType.ids(factionTypeKey(faction, unitType)));
+    }
+
+    public List<GeneralUnit> findUnitsByParentUnitId(String parentUnitId) {
+        return units.byIds(unitsByParent.ids(parentUnitId));
+    }
+
+    /**
+     * Units of a faction within rangeKm of the given position
+     */
+    public List<GeneralUnit> findUnitsInRange(Faction faction, Position center, double rangeKm) {
+        return unitSpatialIndex.withinRange(faction, center, rangeKm);
+    }
+
+    /**
+     * Whether a unit of the faction, other than excludeUnitId, is within rangeKm of the given position
+     */
+    public boolean existsUnitInRange(Faction faction, Position center, double rangeKm, String excludeUnitId) {
+        return unitSpatialIndex.anyWithinRange(faction, center, rangeKm, excludeUnitId);
+    }
+
+    /**
+     * Closest unit of the faction, other than excludeUnitId, within maxRangeKm of the given position
+     */
+    public Optional<GeneralUnit> findNearestUnit(Faction faction, Position center, double maxRangeKm,
+                                                 String excludeUnitId) {
+        return unitSpatialIndex.nearest(faction, center, maxRangeKm, excludeUnitId);
+    }
+
+    /**
+     * Run a change to a live unit under its stripe lock and return what the change returns.
+     * The change must not save, delete or publish anything: save the unit after this returns.
+     */
+    public <R> R mutateUnit(String unitId, Supplier<R> mutation) {
+        Lock lock = unitLocks.lockFor(unitId);
+        lock.lock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void mutateUnit(String unitId, Runnable mutation) {
+        mutateUnit(unitId, () -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a change to several live units under all of their stripe locks, taken in stripe order.
+     * The same rule as mutateUnit applies: save the units after this returns.
+     */
+    public void mutateUnits(Collection<String> unitIds, Runnable mutation) {
+        List<Lock> locks = unitLocks.locksFor(unitIds);
+        lockAll(locks);
+        try {
+            mutation.run();
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * Stripe lock of a unit, for callers that time the wait themselves; the mutateUnit rules apply
+     */
+    Lock unitLock(String unitId) {
+        return unitLocks.lockFor(unitId);
+    }
+
+    int unitLockStripes() {
+        return unitLocks.size();
+    }
+
+    public GeneralUnit saveUnit(GeneralUnit unit) {
+        GeneralUnit saved = mutateUnit(unit.getId(), () -> units.save(unit));
+        publishUnitChanged(saved);
+        return saved;
+    }
+
+    /**
+     * Save several units; they reach Mongo together in the next write-behind flush
+     */
+    public List<GeneralUnit> saveUnits(Collection<GeneralUnit> batch) {
+        List<GeneralUnit> saved = new ArrayList<>(batch.size());
+        List<String> ids = new ArrayList<>(batch.size());
+        for (GeneralUnit unit : batch) {
+            ids.add(unit.getId());
+        }
+        mutateUnits(ids, () -> {
+            for (GeneralUnit unit : batch) {
+                saved.add(units.save(unit));
+            }
+        });
+        for (GeneralUnit unit : saved) {
+            publishUnitChanged(unit);
+        }
+        return saved;
+    }
+
+    /**
+     * Announce units that were modified in place and are persisted by someone else (comms links)
+     */
+    public void unitsChangedInPlace(Collection<GeneralUnit> changed) {
+        for (GeneralUnit unit : changed) {
+            mutateUnit(unit.getId(), () -> unitColumns.update(unit.getId(), unit));
+            publishUnitChanged(unit);
+        }
+    }
+
+    /**
+     * Primitive column view of all units for bulk scans, as of the last change
+     */
+    UnitColumns.Snapshot unitColumns() {
+        return unitColumns.snapshot();
+    }
+
+    /**
+     * Counters that move on every save or delete in a table, cheap to compare for "anything changed"
+     */
+    public long unitsVersion() {
+        return units.version();
+    }
+
+    public long obstaclesVersion() {
+        return obstacles.version();
+    }
+
+    public long actionsVersion() {
+        return actions.version();
+    }
+
+    public void deleteUnit(String id) {
+        mutateUnit(id, () -> units.remove(id));
+        UnitChangedEvent.Placement previous = id != null ? unitPlacements.remove(id) : null;
+        if (previous != null) {
+            eventPublisher.publishEvent(new UnitChangedEvent(id, null, previous, null));
+        }
+    }
+
+    /**
+     * Delete every unit, publishing a removal per unit as deleteUnit does so listeners drop their state
+     */
+    public void deleteAllUnits() {
+        units.clear();
+        for (String id : new ArrayList<>(unitPlacements.keySet())) {
+            // Skips units saved again since the clear
+            if (units.contains(id)) {
+                continue;
+            }
+            UnitChangedEvent.Placement previous = unitPlacements.remove(id);
+            if (previous != null) {
+                eventPublisher.publishEvent(new UnitChangedEvent(id, null, previous, null));
+            }
+        }
+    }
+
+    private static void lockAll(List<Lock> locks) {
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private void publishUnitChanged(GeneralUnit unit) {
+        UnitChangedEvent.Placement current = UnitChangedEvent.Placement.of(unit);
+        UnitChangedEvent.Placement previous = unitPlacements.put(unit.getId(), current);
+        eventPublisher.publishEvent(new UnitChangedEvent(unit.getId(), unit, previous, current));
+    }
+
+    // ======== Obstacles ========
+
+    public List<Obstacle> findAllObstacles() {
+        return obstacles.all();
+    }
+
+    public Optional<Obstacle> findObstacle(String id) {
+        return obstacles.find(id);
+    }
+
+    public List<Obstacle> findObstaclesByCreatedBy(String createdBy) {
+        return obstacles.byIds(obstaclesByCreator.ids(createdBy));
+    }
+
+    public Obstacle saveObstacle(Obstacle obstacle) {
+        return obstacles.save(obstacle);
+    }
+
+    public void deleteObstacle(String id) {
+        obstacles.remove(id);
+    }
+
+    public void deleteAllObstacles() {
+        obstacles.clear();
+    }
+
+    // ======== Actions ========
+
+    public List<Action> findAllActions() {
+        return actions.all();
+    }
+
+    public Optional<Action> findAction(String id) {
+        return actions.find(id);
+    }
+
+    public List<Action> findActionsByUnitId(String unitId) {
+        return actions.byIds(actionsByUnit.ids(unitId));
+    }
+
+    public List<Action> findActionsByStatus(ActionStatus status) {
+        return actions.byIds(actionsByStatus.ids(status.ordinal()));
+    }
+
+    public Action saveAction(Action action) {
+        return actions.save(action);
+    }
+
+    public void deleteAction(String id) {
+        actions.remove(id);
+    }
+
+    public void deleteAllActions() {
+        actions.clear();
+    }
+
+    private static Integer factionTypeKey(Faction faction, UnitType unitType) {
+        if (faction == null || unitType == null) {
+            return null;
+        }
+        return faction.ordinal() * UNIT_TYPE_COUNT + unitType.ordinal();
+    }
+
+    /**
+     * Index maintained alongside a table on every save and delete
+     */
+    interface DocumentIndex<T> {
+        void update(String id, T document);
+
+        void remove(String id);
+
+        void clear();
+    }
+
+    /**
+     * One in-memory collection with its dirty/deleted sets and secondary indexes
+     */
+    private static final class DocumentTable<T> {
+        private final String name;
+        private final MongoRepository<T, String> repository;
+        private final MongoTemplate mongoTemplate;
+        private final Class<T> type;
+        private final Function<T, String> idOf;
+        private final BiConsumer<T, String> setId;
+        private final Function<T, LocalDateTime> createdAtOf;
+        private final BiConsumer<T, LocalDateTime> setCreatedAt;
+        private final BiConsumer<T, LocalDateTime> setUpdatedAt;
+        private final List<DocumentIndex<T>> indexes;
+
+        private final Map<String, T> documents = new ConcurrentHashMap<>();
+        private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+        private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+        private final AtomicLong version = new AtomicLong();
+        // Rejected writes per document since its last successful write; only touched under flush's monitor
+        private final Map<String, Integer> writeFailures = new HashMap<>();
+        private final AtomicLong abandonedWrites = new AtomicLong();
+
+        DocumentTable(String name, MongoRepository<T, String> repository, MongoTemplate mongoTemplate, Class<T> type,
+                      Function<T, String> idOf, BiConsumer<T, String> setId,
+                      Function<T, LocalDateTime> createdAtOf, BiConsumer<T, LocalDateTime> setCreatedAt,
+                      BiConsumer<T, LocalDateTime> setUpdatedAt, List<DocumentIndex<T>> indexes) {
+            this.name = name;
+            this.repository = repository;
+            this.mongoTemplate = mongoTemplate;
+            this.type = type;
+            this.idOf = idOf;
+            this.setId = setId;
+            this.createdAtOf = createdAtOf;
+            this.setCreatedAt = setCreatedAt;
+            this.setUpdatedAt = setUpdatedAt;
+            this.indexes = indexes;
+        }
+
+        void load() {
+            for (T document : repository.findAll()) {
+                index(idOf.apply(document), document);
+            }
+        }
+
+        int size() {
+            return documents.size();
+        }
+
+        long version() {
+            return version.get();
+        }
+
+        List<T> all() {
+            return new ArrayList<>(documents.values());
+        }
+
+        Optional<T> find(String id) {
+            return id == null ? Optional.empty() : Optional.ofNullable(documents.get(id));
+        }
+
+        boolean contains(String id) {
+            return id != null && documents.containsKey(id);
+        }
+
+        List<T> byIds(Collection<String> ids) {
+            List<T> result = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                T document = documents.get(id);
+                if (document != null) {
+                    result.add(document);
+                }
+            }
+            return result;
+        }
+
+        T save(T document) {
+            // Ids are assigned here so the document is addressable before it reaches Mongo
+            String id = idOf.apply(document);
+            if (id == null) {
+                id = new ObjectId().toHexString();
+                setId.accept(document, id);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (createdAtOf.apply(document) == null) {
+                setCreatedAt.accept(document, now);
+            }
+            setUpdatedAt.accept(document, now);
+
+            index(id, document);
+            deleted.remove(id);
+            dirty.add(id);
+            version.incrementAndGet();
+            return document;
+        }
+
+        void remove(String id) {
+            if (id == null) {
+                return;
+            }
+            documents.remove(id);
+            for (DocumentIndex<T> index : indexes) {
+                index.remove(id);
+            }
+            dirty.remove(id);
+            deleted.add(id);
+            version.incrementAndGet();
+        }
+
+        synchronized void clear() {
+            documents.clear();
+            for (DocumentIndex<T> index : indexes) {
+                index.clear();
+            }
+            dirty.clear();
+            deleted.clear();
+            version.incrementAndGet();
+            repository.deleteAll();
+        }
+
+        synchronized int flush(int batchSize) {
+            int written = 0;
+
+            List<String> deletedIds = drain(deleted);
+            for (int from = 0; from < deletedIds.size(); from += batchSize) {
+                List<String> batch = deletedIds.subList(from, Math.min(from + batchSize, deletedIds.size()));
+                try {
+                    repository.deleteAllById(batch);
+                    written += batch.size();
+                    batch.forEach(writeFailures::remove);
+                } catch (Exception e) {
+                    log.error("Failed to flush {} deletions for {}: {}", batch.size(), name, e.getMessage());
+                    deleted.addAll(batch);
+                }
+            }
+
+            List<String> dirtyIds = drain(dirty);
+            for (int from = 0; from < dirtyIds.size(); from += batchSize) {
+                List<String> batchIds = dirtyIds.subList(from, Math.min(from + batchSize, dirtyIds.size()));
+                List<T> batch = byIds(batchIds);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                try {
+                    // Ids are assigned on save, so saveAll would replace one document per round trip
+                    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+                    for (T document : batch) {
+                        bulk.replaceOne(query(where("_id").is(idOf.apply(document))), document,
+                                FindAndReplaceOptions.options().upsert());
+                    }
+                    bulk.execute();
+                    written += batch.size();
+                    batchIds.forEach(writeFailures::remove);
+                } catch (BulkOperationException e) {
+                    // Unordered, so only the reported documents were refused; the rest went through
+                    Set<String> refused = new HashSet<>();
+                    for (BulkWriteError error : e.getErrors()) {
+                        refused.add(idOf.apply(batch.get(error.getIndex())));
+                    }
+                    log.error("Mongo refused {} of {} writes for {}: {}", refused.size(), batch.size(), name,
+                            e.getErrors().isEmpty() ? e.getMessage() : e.getErrors().get(0).getMessage());
+                    written += batch.size() - refused.size();
+                    for (T document : batch) {
+                        String id = idOf.apply(document);
+                        if (!refused.contains(id)) {
+                            writeFailures.remove(id);
+                        }
+                    }
+                    for (String id : refused) {
+                        retryRefused(id);
+                    }
+                } catch (Exception e) {
+                    // Nothing says which document is at fault, as when Mongo is unreachable: retry them all
+                    log.error("Failed to flush {} writes for {}: {}", batch.size(), name, e.getMessage());
+                    dirty.addAll(batchIds);
+                }
+            }
+
+            return written;
+        }
+
+        /**
+         * Queue a refused document for another write, or give up on it after MAX_WRITE_ATTEMPTS.
+         * A document given up on stays in memory and is written again when it is next saved.
+         */
+        private void retryRefused(String id) {
+            int attempts = writeFailures.merge(id, 1, Integer::sum);
+            if (attempts < MAX_WRITE_ATTEMPTS) {
+                dirty.add(id);
+                return;
+            }
+            writeFailures.remove(id);
+            abandonedWrites.incrementAndGet();
+            log.error("Gave up writing {} {} after {} refused attempts", name, id, attempts);
+        }
+
+        int pendingWrites() {
+            return dirty.size() + deleted.size();
+        }
+
+        long abandonedWrites() {
+            return abandonedWrites.get();
+        }
+
+        private void index(String id, T document) {
+            documents.put(id, document);
+            for (DocumentIndex<T> index : indexes) {
+                index.update(id, document);
+            }
+        }
+
+        private static List<String> drain(Set<String> ids) {
+            List<String> drained = new ArrayList<>();
+            Iterator<String> iterator = ids.iterator();
+            while (iterator.hasNext()) {
+                drained.add(iterator.next());
+                iterator.remove();
+            }
+            return drained;
+        }
+    }
+
+    /**
+     * Maps a derived key (user, faction, status...) to the ids of documents carrying it
+     */
+    private static final class SecondaryIndex<T, K> implements DocumentIndex<T> {
+        private final Function<T, K> keyOf;
+        private final Map<String, K> keyById = new ConcurrentHashMap<>();
+        private final Map<K, Set<String>> idsByKey = new ConcurrentHashMap<>();
+
+        SecondaryIndex(Function<T, K> keyOf) {
+            this.keyOf = keyOf;
+        }
+
+        @Override
+        public void update(String id, T document) {
+            K key = keyOf.apply(document);
+            K previous = key != null ? keyById.put(id, key) : keyById.remove(id);
+            if (Objects.equals(previous, key)) {
+                return;
+            }
+            if (previous != null) {
+                Set<String> ids = idsByKey.get(previous);
+                if (ids != null) {
+                    ids.remove(id);
+                }
+            }
+            if (key != null) {
+                idsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        @Override
+        public void remove(String id) {
+            K previous = keyById.remove(id);
+            if (previous != null) {
+                Set<String> ids = idsByKey.get(previous);
+                if (ids != null) {
+                    ids.remove(id);
+                }
+            }
+        }
+
+        Set<String> ids(K key) {
+            if (key == null) {
+                return Set.of();
+            }
+            return idsByKey.getOrDefault(key, Set.of());
+        }
+
+        @Override
+        public void clear() {
+            keyById.clear();
+            idsByKey.clear();
+        }
+    }
+
+    /**
+     * @param pendingWrites   documents waiting for the write-behind flush, saves and deletions
+     * @param abandonedWrites documents Mongo kept refusing and the flush gave up on
+     */
+    public record WorldStateStats(int units, int obstacles, int actions, int pendingWrites, long abandonedWrites) {}
+}
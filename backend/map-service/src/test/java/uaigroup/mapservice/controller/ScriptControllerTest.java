@@ -0,0 +1,198 @@
+package uaigroup.mapservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import uaigroup.mapservice.controller.dto.ScriptActionCreateRequest;
+import uaigroup.mapservice.mapper.ScriptActionMapper;
+import uaigroup.mapservice.mapper.ScriptMapper;
+import uaigroup.mapservice.model.ActionStatus;
+import uaigroup.mapservice.model.ActionType;
+import uaigroup.mapservice.model.Script;
+import uaigroup.mapservice.model.ScriptAction;
+import uaigroup.mapservice.model.TriggerType;
+import uaigroup.mapservice.repository.ScriptActionRepository;
+import uaigroup.mapservice.repository.ScriptRepository;
+import uaigroup.mapservice.service.CoalescingPublisher;
+import uaigroup.mapservice.service.ScriptExecutionService;
+import uaigroup.mapservice.service.SimulationLoop;
+import uaigroup.mapservice.service.UnitMetricsRecorder;
+import uaigroup.mapservice.service.WorldStateStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Edits to the actions of a running script, against repositories that hand out copies the way Mongo does
+ */
+class ScriptControllerTest {
+
+    private static final String SCRIPT_ID = "script-1";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+    private final Map<String, ScriptAction> actions = new ConcurrentHashMap<>();
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private ScriptExecutionService scriptExecutionService;
+    private ScriptController controller;
+
+    @BeforeEach
+    void setUp() {
+        ScriptRepository scriptRepository = scriptRepository();
+        ScriptActionRepository scriptActionRepository = scriptActionRepository();
+
+        scriptExecutionService = new ScriptExecutionService();
+        ReflectionTestUtils.setField(scriptExecutionService, "scriptRepository", scriptRepository);
+        ReflectionTestUtils.setField(scriptExecutionService, "scriptActionRepository", scriptActionRepository);
+        ReflectionTestUtils.setField(scriptExecutionService, "worldStateStore",
+                new WorldStateStore(null, null, null, null, event -> { }, 0.05, 64));
+        ReflectionTestUtils.setField(scriptExecutionService, "coalescingPublisher", mock(CoalescingPublisher.class));
+        ReflectionTestUtils.setField(scriptExecutionService, "unitMetricsRecorder", mock(UnitMetricsRecorder.class));
+        ReflectionTestUtils.setField(scriptExecutionService, "simulationLoop", mock(SimulationLoop.class));
+        ReflectionTestUtils.setField(scriptExecutionService, "timerTickMillis", 10L);
+        ReflectionTestUtils.setField(scriptExecutionService, "timerWheelSize", 64);
+        ReflectionTestUtils.setField(scriptExecutionService, "parallelism", 1);
+        scriptExecutionService.start();
+
+        controller = new ScriptController(scriptRepository, scriptActionRepository, new ScriptMapper(),
+                new ScriptActionMapper(), scriptExecutionService);
+        request.setAttribute("username", "commander");
+
+        Script script = new Script();
+        script.setId(SCRIPT_ID);
+        script.setUserId("commander");
+        scripts.put(SCRIPT_ID, script);
+        for (int i = 1; i <= 3; i++) {
+            actions.put("action-" + i, action("action-" + i, i));
+        }
+        scriptExecutionService.activateScript(SCRIPT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scriptExecutionService.stop();
+    }
+
+    @Test
+    void deletedActionIsDroppedFromTheRunningScript() {
+        controller.deleteScriptAction(SCRIPT_ID, "action-2", request);
+
+        trigger("action-1");
+        trigger("action-3");
+
+        assertThat(actions).doesNotContainKey("action-2");
+        Script stored = scripts.get(SCRIPT_ID);
+        assertThat(stored.getTotalActions()).isEqualTo(2);
+        // Both remaining actions ran, so the script is done without waiting on the deleted one
+        assertThat(stored.isActive()).isFalse();
+    }
+
+    @Test
+    void addedActionRunsBeforeTheScriptCompletes() {
+        ScriptAction added = controller.addActionToScript(SCRIPT_ID, new ScriptActionCreateRequest(
+                SCRIPT_ID, "unit-1", 4, ActionType.DEFEND, null, null, TriggerType.MANUAL,
+                null, null, null, null, null, null, null), request).getBody();
+
+        trigger("action-1");
+        trigger("action-2");
+        trigger("action-3");
+        assertThat(scripts.get(SCRIPT_ID).isActive()).isTrue();
+
+        trigger(added.getId());
+
+        assertThat(actions.get(added.getId()).getStatus()).isNotEqualTo(ActionStatus.PENDING);
+        Script stored = scripts.get(SCRIPT_ID);
+        assertThat(stored.getTotalActions()).isEqualTo(4);
+        assertThat(stored.isActive()).isFalse();
+    }
+
+    @Test
+    void reorderSurvivesTheRunningScriptSavingItsActions() {
+        controller.reorderActions(SCRIPT_ID, List.of("action-3", "action-1", "action-2"), request);
+
+        trigger("action-1");
+
+        ScriptAction stored = actions.get("action-1");
+        assertThat(stored.getStatus()).isNotEqualTo(ActionStatus.PENDING);
+        assertThat(stored.getExecutionOrder()).isEqualTo(2);
+        assertThat(actions.get("action-3").getExecutionOrder()).isEqualTo(1);
+    }
+
+    private void trigger(String actionId) {
+        controller.triggerActionManually(SCRIPT_ID, actionId, request);
+    }
+
+    private static ScriptAction action(String id, int order) {
+        ScriptAction action = new ScriptAction();
+        action.setId(id);
+        action.setScriptId(SCRIPT_ID);
+        action.setUnitId("unit-1");
+        action.setExecutionOrder(order);
+        action.setActionType(ActionType.DEFEND);
+        action.setTriggerType(TriggerType.MANUAL);
+        action.setStatus(ActionStatus.PENDING);
+        return action;
+    }
+
+    private <T> T copy(T value, Class<T> type) {
+        return objectMapper.convertValue(value, type);
+    }
+
+    private ScriptRepository scriptRepository() {
+        ScriptRepository repository = mock(ScriptRepository.class);
+        when(repository.findById(anyString()))
+                .thenAnswer(call -> Optional.ofNullable(scripts.get(call.<String>getArgument(0)))
+                        .map(script -> copy(script, Script.class)));
+        when(repository.existsById(anyString())).thenAnswer(call -> scripts.containsKey(call.<String>getArgument(0)));
+        when(repository.save(any(Script.class))).thenAnswer(call -> {
+            Script script = call.getArgument(0);
+            scripts.put(script.getId(), copy(script, Script.class));
+            return script;
+        });
+        return repository;
+    }
+
+    private ScriptActionRepository scriptActionRepository() {
+        ScriptActionRepository repository = mock(ScriptActionRepository.class);
+        when(repository.findById(anyString()))
+                .thenAnswer(call -> Optional.ofNullable(actions.get(call.<String>getArgument(0)))
+                        .map(action -> copy(action, ScriptAction.class)));
+        when(repository.findByScriptIdOrderByExecutionOrderAsc(anyString())).thenAnswer(call -> {
+            List<ScriptAction> found = new ArrayList<>();
+            for (ScriptAction action : actions.values()) {
+                if (action.getScriptId().equals(call.getArgument(0))) {
+                    found.add(copy(action, ScriptAction.class));
+                }
+            }
+            found.sort(Comparator.comparingInt(ScriptAction::getExecutionOrder));
+            return found;
+        });
+        when(repository.save(any(ScriptAction.class))).thenAnswer(call -> {
+            ScriptAction action = call.getArgument(0);
+            actions.put(action.getId(), copy(action, ScriptAction.class));
+            return action;
+        });
+        when(repository.saveAll(any())).thenAnswer(call -> {
+            Iterable<ScriptAction> saved = call.getArgument(0);
+            saved.forEach(action -> actions.put(action.getId(), copy(action, ScriptAction.class)));
+            return saved;
+        });
+        doAnswer(call -> actions.remove(call.<String>getArgument(0))).when(repository).deleteById(anyString());
+        return repository;
+    }
+}
@@ -0,0 +1,135 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.Status;
+import uaigroup.mapservice.model.UnitRank;
+import uaigroup.mapservice.model.UnitType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CombatEngineTest {
+
+    private static final List<UnitType> GROUND_TYPES =
+            List.of(UnitType.INFANTRY, UnitType.MECHANIZED, UnitType.TANKS, UnitType.ANTI_TANK, UnitType.MORTAR);
+
+    private final UnitCharacteristicsService characteristics = new UnitCharacteristicsService();
+    private final CombatEngine engine = new CombatEngine(characteristics);
+
+    @Test
+    void sameUnitsAndSeedGiveTheSameOutcome() {
+        CombatEngine.CombatSettings settings = new CombatEngine.CombatSettings(42, 60, 10.0);
+
+        CombatEngine.CombatResult first = engine.resolve(battlefield(1), settings);
+        CombatEngine.CombatResult second = engine.resolve(battlefield(1), settings);
+
+        assertThat(first.engagements()).isPositive();
+        assertThat(first.units()).isNotEmpty();
+        assertSameOutcome(second, first);
+    }
+
+    @Test
+    void outcomeDoesNotDependOnInputOrder() {
+        CombatEngine.CombatSettings settings = new CombatEngine.CombatSettings(7, 60, 10.0);
+        List<GeneralUnit> units = battlefield(2);
+        CombatEngine.CombatResult ordered = engine.resolve(units, settings);
+
+        for (long shuffleSeed = 0; shuffleSeed < 5; shuffleSeed++) {
+            List<GeneralUnit> shuffled = new ArrayList<>(battlefield(2));
+            Collections.shuffle(shuffled, new Random(shuffleSeed));
+
+            assertSameOutcome(engine.resolve(shuffled, settings), ordered);
+        }
+    }
+
+    @Test
+    void seedChangesTheRolls() {
+        List<GeneralUnit> units = battlefield(3);
+
+        CombatEngine.CombatResult one = engine.resolve(units, new CombatEngine.CombatSettings(1, 30, 10.0));
+        CombatEngine.CombatResult other = engine.resolve(units, new CombatEngine.CombatSettings(2, 30, 10.0));
+
+        assertThat(other.units()).isNotEqualTo(one.units());
+    }
+
+    @Test
+    void leavesTheInputUnitsUntouched() {
+        List<GeneralUnit> units = battlefield(4);
+        List<GeneralUnit> copies = units.stream().map(BattleReplayService::copyUnit).toList();
+
+        engine.resolve(units, new CombatEngine.CombatSettings(3, 60, 10.0));
+
+        assertThat(units).isEqualTo(copies);
+    }
+
+    @Test
+    void stopsOnceNobodyCanFire() {
+        // Two units far beyond each other's range
+        List<GeneralUnit> units = List.of(
+                unit("blue", Faction.BLUE_FORCE, UnitType.INFANTRY, 48.0, 35.0),
+                unit("red", Faction.RED_FORCE, UnitType.INFANTRY, 49.0, 36.0));
+
+        CombatEngine.CombatResult result = engine.resolve(units, new CombatEngine.CombatSettings(5, 600, 10.0));
+
+        assertThat(result.stepsRun()).isZero();
+        assertThat(result.engagements()).isZero();
+        assertThat(result.units()).isEmpty();
+    }
+
+    private static void assertSameOutcome(CombatEngine.CombatResult actual, CombatEngine.CombatResult expected) {
+        assertThat(actual.seed()).isEqualTo(expected.seed());
+        assertThat(actual.stepsRun()).isEqualTo(expected.stepsRun());
+        assertThat(actual.simulatedSeconds()).isEqualTo(expected.simulatedSeconds());
+        assertThat(actual.engagements()).isEqualTo(expected.engagements());
+        assertThat(actual.factions()).isEqualTo(expected.factions());
+        assertThat(actual.units()).containsExactlyInAnyOrderElementsOf(expected.units());
+    }
+
+    /**
+     * Two forces facing each other across a few kilometres, the same for the same seed
+     */
+    private List<GeneralUnit> battlefield(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GeneralUnit> units = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Faction faction = i % 2 == 0 ? Faction.BLUE_FORCE : Faction.RED_FORCE;
+            double latitude = 48.0 + random.nextDouble(0.03);
+            double longitude = 35.0 + (faction == Faction.BLUE_FORCE ? 0.0 : 0.02) + random.nextDouble(0.02);
+            GeneralUnit unit = unit("unit-" + i, faction, GROUND_TYPES.get(random.nextInt(GROUND_TYPES.size())),
+                    latitude, longitude);
+            if (random.nextInt(4) == 0) {
+                unit.setStatus(Status.DEFENDING);
+            }
+            units.add(unit);
+        }
+        return units;
+    }
+
+    private GeneralUnit unit(String id, Faction faction, UnitType type, double latitude, double longitude) {
+        UnitCharacteristicsService.UnitCharacteristics stats = characteristics.getCharacteristics(type, faction);
+        GeneralUnit unit = new GeneralUnit();
+        unit.setId(id);
+        unit.setFaction(faction);
+        unit.setUnitType(type);
+        unit.setUnitRank(UnitRank.PLATOON);
+        unit.setStatus(Status.ATTACKING);
+        unit.setPosition(new Position(latitude, longitude));
+        unit.setPersonnel(30);
+        unit.setVehicles(type == UnitType.INFANTRY ? 0 : 4);
+        unit.setSupplyLevel(100);
+        unit.setMorale(100);
+        unit.setMobility(stats.getMobility());
+        unit.setFirepowerBase(stats.getFirepowerBase());
+        unit.setDefense(stats.getDefense());
+        unit.setRange(stats.getRange());
+        return unit;
+    }
+}
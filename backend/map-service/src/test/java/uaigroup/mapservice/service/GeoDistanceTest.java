@@ -0,0 +1,151 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class GeoDistanceTest {
+
+    @Test
+    void withinRangePicksWhatHaversinePicks() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int round = 0; round < 200; round++) {
+            double originLatitude = random.nextDouble(-GeoDistance.FAST_PATH_MAX_LATITUDE, GeoDistance.FAST_PATH_MAX_LATITUDE);
+            double originLongitude = random.nextDouble(-180.0, 180.0);
+            double rangeKm = random.nextDouble(0.5, GeoDistance.FAST_PATH_MAX_KM);
+            int count = 500;
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                // Half of the targets hug the edge of the range, where the fast path has to fall back
+                double distanceKm = i % 2 == 0
+                        ? rangeKm * (1.0 + random.nextDouble(-2e-3, 2e-3))
+                        : random.nextDouble(0, 2 * rangeKm);
+                double[] target = destination(originLatitude, originLongitude, random.nextDouble(360.0), distanceKm);
+                latitudes[i] = target[0];
+                longitudes[i] = target[1];
+            }
+
+            assertThat(hits(originLatitude, originLongitude, latitudes, longitudes, rangeKm))
+                    .containsExactlyElementsOf(haversineHits(originLatitude, originLongitude, latitudes, longitudes, rangeKm));
+        }
+    }
+
+    @Test
+    void outsideTheFastPathDomainFallsBackToHaversine() {
+        SplittableRandom random = new SplittableRandom(12);
+        double[][] origins = {{80.0, 20.0}, {-85.0, -120.0}, {48.0, 35.0}};
+        double[] ranges = {50.0, 20.0, 400.0};
+        for (int o = 0; o < origins.length; o++) {
+            int count = 300;
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                double[] target = destination(origins[o][0], origins[o][1], random.nextDouble(360.0),
+                        random.nextDouble(0, 2 * ranges[o]));
+                latitudes[i] = target[0];
+                longitudes[i] = target[1];
+            }
+
+            assertThat(hits(origins[o][0], origins[o][1], latitudes, longitudes, ranges[o]))
+                    .isNotEmpty()
+                    .containsExactlyElementsOf(haversineHits(origins[o][0], origins[o][1], latitudes, longitudes, ranges[o]));
+        }
+    }
+
+    @Test
+    void targetsWithoutCoordinatesAreNeverHits() {
+        double[] latitudes = {48.0, Double.NaN, 48.001, 48.002};
+        double[] longitudes = {35.0, 35.0, Double.NaN, 35.0};
+
+        assertThat(hits(48.0, 35.0, latitudes, longitudes, 5.0)).containsExactly(0, 3);
+        // Outside the fast-path domain as well
+        assertThat(hits(48.0, 35.0, latitudes, longitudes, 500.0)).containsExactly(0, 3);
+
+        double[] distances = new double[latitudes.length];
+        GeoDistance.approxDistancesKm(48.0, 35.0, latitudes, longitudes, latitudes.length, distances);
+        assertThat(distances[1]).isNaN();
+        assertThat(distances[2]).isNaN();
+    }
+
+    @Test
+    void rangeReachesAcrossTheAntimeridian() {
+        // About 2.2 km apart on the equator, but 359.98 degrees of longitude apart on paper
+        double[] latitudes = {0.0, 0.0, 0.0};
+        double[] longitudes = {-179.99, 179.95, -179.9};
+
+        assertThat(GeoDistance.haversineKm(0.0, 179.99, 0.0, -179.99)).isCloseTo(2.22, offset(0.01));
+        assertThat(hits(0.0, 179.99, latitudes, longitudes, 5.0))
+                .containsExactly(0, 1)
+                .containsExactlyElementsOf(haversineHits(0.0, 179.99, latitudes, longitudes, 5.0));
+        assertThat(hits(0.0, -179.99, new double[]{0.0}, new double[]{179.99}, 5.0)).containsExactly(0);
+
+        double[] distances = new double[latitudes.length];
+        GeoDistance.approxDistancesKm(0.0, 179.99, latitudes, longitudes, latitudes.length, distances);
+        for (int i = 0; i < latitudes.length; i++) {
+            double exact = GeoDistance.haversineKm(0.0, 179.99, latitudes[i], longitudes[i]);
+            assertThat(Math.abs(distances[i] - exact)).isLessThanOrEqualTo(exact * GeoDistance.FAST_PATH_RELATIVE_ERROR);
+        }
+    }
+
+    @Test
+    void approxDistancesStayWithinTheErrorBound() {
+        SplittableRandom random = new SplittableRandom(13);
+        double[] distance = new double[1];
+        for (int i = 0; i < 10_000; i++) {
+            double originLatitude = random.nextDouble(-GeoDistance.FAST_PATH_MAX_LATITUDE, GeoDistance.FAST_PATH_MAX_LATITUDE);
+            double originLongitude = random.nextDouble(-180.0, 180.0);
+            double[] target = destination(originLatitude, originLongitude, random.nextDouble(360.0),
+                    random.nextDouble(0.01, GeoDistance.FAST_PATH_MAX_KM));
+
+            GeoDistance.approxDistancesKm(originLatitude, originLongitude,
+                    new double[]{target[0]}, new double[]{target[1]}, 1, distance);
+
+            double exact = GeoDistance.haversineKm(originLatitude, originLongitude, target[0], target[1]);
+            assertThat(Math.abs(distance[0] - exact)).isLessThanOrEqualTo(exact * GeoDistance.FAST_PATH_RELATIVE_ERROR);
+        }
+    }
+
+    private static List<Integer> hits(double originLatitude, double originLongitude,
+                                      double[] latitudes, double[] longitudes, double rangeKm) {
+        int count = latitudes.length;
+        int[] hits = new int[count];
+        int found = GeoDistance.withinRangeKm(originLatitude, originLongitude, latitudes, longitudes, count, rangeKm,
+                new double[count], hits);
+        return Arrays.stream(hits, 0, found).boxed().toList();
+    }
+
+    private static List<Integer> haversineHits(double originLatitude, double originLongitude,
+                                               double[] latitudes, double[] longitudes, double rangeKm) {
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < latitudes.length; i++) {
+            if (GeoDistance.haversineKm(originLatitude, originLongitude, latitudes[i], longitudes[i]) <= rangeKm) {
+                hits.add(i);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Point distanceKm from the origin along the great circle with the given initial bearing,
+     * longitude wrapped into [-180, 180)
+     */
+    private static double[] destination(double latitude, double longitude, double bearingDegrees, double distanceKm) {
+        double lat1 = Math.toRadians(latitude);
+        double lon1 = Math.toRadians(longitude);
+        double bearing = Math.toRadians(bearingDegrees);
+        double angular = distanceKm / GeoDistance.EARTH_RADIUS_KM;
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angular)
+                + Math.cos(lat1) * Math.sin(angular) * Math.cos(bearing));
+        double lon2 = lon1 + Math.atan2(Math.sin(bearing) * Math.sin(angular) * Math.cos(lat1),
+                Math.cos(angular) - Math.sin(lat1) * Math.sin(lat2));
+        double wrapped = (Math.toDegrees(lon2) + 540.0) % 360.0 - 180.0;
+        return new double[]{Math.toDegrees(lat2), wrapped};
+    }
+}
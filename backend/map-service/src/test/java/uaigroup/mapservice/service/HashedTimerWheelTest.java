@@ -0,0 +1,109 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashedTimerWheelTest {
+
+    private HashedTimerWheel wheel;
+
+    @AfterEach
+    void closeWheel() {
+        if (wheel != null) {
+            wheel.close();
+        }
+    }
+
+    @Test
+    void runsTaskNoEarlierThanItsDelay() throws InterruptedException {
+        wheel = new HashedTimerWheel(5, TimeUnit.MILLISECONDS, 8, Runnable::run, "test-wheel");
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong ranAt = new AtomicLong();
+        long scheduledAt = System.nanoTime();
+
+        wheel.schedule(() -> {
+            ranAt.set(System.nanoTime());
+            ran.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ranAt.get() - scheduledAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    void waitsOutDelaysLongerThanOneRevolution() throws InterruptedException {
+        // Four 5 ms buckets make a 20 ms revolution; the task must survive three passes over its bucket
+        wheel = new HashedTimerWheel(5, TimeUnit.MILLISECONDS, 4, Runnable::run, "test-wheel");
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong ranAt = new AtomicLong();
+        long scheduledAt = System.nanoTime();
+
+        wheel.schedule(() -> {
+            ranAt.set(System.nanoTime());
+            ran.countDown();
+        }, 70, TimeUnit.MILLISECONDS);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ranAt.get() - scheduledAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(70));
+    }
+
+    @Test
+    void expiresTimeoutsInDeadlineOrder() throws InterruptedException {
+        wheel = new HashedTimerWheel(5, TimeUnit.MILLISECONDS, 5, Runnable::run, "test-wheel");
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch ran = new CountDownLatch(3);
+
+        wheel.schedule(() -> { order.add("late"); ran.countDown(); }, 120, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { order.add("early"); ran.countDown(); }, 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> { order.add("middle"); ran.countDown(); }, 70, TimeUnit.MILLISECONDS);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("early", "middle", "late");
+        // The tick counts its expirations after running them, so the last one may still be in flight
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (wheel.stats().expiredTotal() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(wheel.stats().expiredTotal()).isEqualTo(3);
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() throws InterruptedException {
+        wheel = new HashedTimerWheel(5, TimeUnit.MILLISECONDS, 8, Runnable::run, "test-wheel");
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        CountDownLatch sentinel = new CountDownLatch(1);
+
+        HashedTimerWheel.Timeout timeout = wheel.schedule(() -> cancelledRan.set(true), 20, TimeUnit.MILLISECONDS);
+        assertThat(wheel.pending()).isEqualTo(1);
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.pending()).isZero();
+
+        // A later timeout firing proves the wheel went past the cancelled one
+        wheel.schedule(sentinel::countDown, 60, TimeUnit.MILLISECONDS);
+        assertThat(sentinel.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cancelledRan).isFalse();
+    }
+
+    @Test
+    void expiredTimeoutCannotBeCancelled() throws InterruptedException {
+        wheel = new HashedTimerWheel(5, TimeUnit.MILLISECONDS, 8, Runnable::run, "test-wheel");
+        CountDownLatch ran = new CountDownLatch(1);
+
+        HashedTimerWheel.Timeout timeout = wheel.schedule(ran::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(timeout.isCancelled()).isFalse();
+    }
+}
@@ -0,0 +1,246 @@
+package uaigroup.mapservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.BattleEvent;
+import uaigroup.mapservice.model.BattleReplay;
+import uaigroup.mapservice.model.BattleSnapshot;
+import uaigroup.mapservice.model.EventType;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.FieldOfFire;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Obstacle;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.Status;
+import uaigroup.mapservice.model.UnitRank;
+import uaigroup.mapservice.model.UnitType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplayArchiveCodecTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ReplayArchiveCodec codec = new ReplayArchiveCodec(objectMapper, 1);
+
+    @Test
+    void readerGivesBackWhatTheWriterWrote() throws IOException {
+        BattleReplay replay = new BattleReplay();
+        replay.setId("replay-1");
+        replay.setBattleName("Crossing");
+        replay.setStartTime(START);
+        replay.setSnapshotIntervalSeconds(10);
+
+        List<BattleSnapshot> snapshots = List.of(snapshot(1, 0.0), snapshot(2, 0.01), snapshot(3, 0.02));
+        List<BattleEvent> events = new ArrayList<>();
+        // More than two blocks, with unit IDs first seen in the snapshots and target IDs first seen here
+        for (int i = 0; i < 2 * ReplayArchiveCodec.EVENTS_PER_BLOCK + 10; i++) {
+            events.add(BattleEvent.builder()
+                    .sequence(i + 1)
+                    .timestamp(START.plusSeconds(i))
+                    .eventType(EventType.values()[i % EventType.values().length])
+                    .faction(i % 3 == 0 ? null : Faction.values()[i % 2])
+                    .unitId("unit-" + (i % 12))
+                    .targetUnitId(i % 5 == 0 ? null : "target-" + (i % 40))
+                    .location(i % 4 == 0 ? null : new Position(48.0 + i * 1e-4, 35.0 - i * 1e-4))
+                    .description(i % 7 == 0 ? null : "event " + i)
+                    .metadata(i % 9 == 0 ? Map.of("damage", i) : null)
+                    .build());
+        }
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        ReplayArchiveCodec.Writer writer = codec.writer(Channels.newChannel(archive));
+        writer.writeHeader(replay);
+        for (BattleSnapshot snapshot : snapshots) {
+            writer.writeSnapshot(snapshot);
+        }
+        writer.writeEvents(events);
+        writer.finish();
+
+        List<BattleReplay> headers = new ArrayList<>();
+        List<BattleSnapshot> readSnapshots = new ArrayList<>();
+        List<BattleEvent> readEvents = new ArrayList<>();
+        codec.reader(Channels.newChannel(new ByteArrayInputStream(archive.toByteArray())))
+                .read(headers::add, readSnapshots::add, readEvents::addAll);
+
+        assertThat(headers).singleElement().satisfies(header -> {
+            assertThat(header.getId()).isEqualTo("replay-1");
+            assertThat(header.getBattleName()).isEqualTo("Crossing");
+            assertThat(header.getStartTime()).isEqualTo(START);
+        });
+        assertThat(readSnapshots).isEqualTo(snapshots);
+        assertThat(readEvents).isEqualTo(events);
+    }
+
+    @Test
+    void repeatedStringsAreStoredOnce() throws IOException {
+        byte[] none = archiveOf(List.of());
+        byte[] one = archiveOf(List.of(snapshot(1, 0.0)));
+        byte[] two = archiveOf(List.of(snapshot(1, 0.0), snapshot(2, 0.0)));
+
+        // Both snapshots have the same layout; only the first brings a strings block along
+        assertThat(two.length - one.length).isLessThan(one.length - none.length);
+    }
+
+    @Test
+    void enumsAreMatchedByNameNotOrdinal() throws IOException {
+        // An archive written by a build whose enums were declared in reverse, with a faction this build lacks
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            byte[] json = objectMapper.writeValueAsBytes(new BattleReplay());
+            out.writeInt(json.length);
+            out.write(json);
+            List<Class<? extends Enum<?>>> types =
+                    List.of(UnitType.class, Faction.class, UnitRank.class, Status.class, EventType.class);
+            out.writeByte(types.size());
+            for (Class<? extends Enum<?>> type : types) {
+                Enum<?>[] constants = type.getEnumConstants();
+                boolean faction = type == Faction.class;
+                out.writeShort(constants.length + (faction ? 1 : 0));
+                for (int i = constants.length - 1; i >= 0; i--) {
+                    out.writeUTF(constants[i].name());
+                }
+                if (faction) {
+                    out.writeUTF("GREEN_FORCE");
+                }
+            }
+        }
+
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(events)) {
+            out.writeInt(2);
+            out.writeLong(1);
+            out.writeLong(2);
+            long millis = START.toInstant(ZoneOffset.UTC).toEpochMilli();
+            out.writeLong(millis);
+            out.writeLong(millis);
+            out.writeByte(0);                               // Event type: OBSTACLE_DESTROYED in reverse order
+            out.writeByte(EventType.values().length - 1);   // BATTLE_STARTED
+            out.writeByte(0);                               // Faction: RED_FORCE in reverse order
+            out.writeByte(Faction.values().length);         // GREEN_FORCE, unknown here
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeByte(0);
+            out.writeByte(0);
+            out.writeDouble(0);
+            out.writeDouble(0);
+            out.writeDouble(0);
+            out.writeDouble(0);
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(-1);
+        }
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archive.write(ByteBuffer.allocate(6).putInt(0x4D435241).putShort((short) 1).array());
+        archive.write(block(1, header.toByteArray()));
+        archive.write(block(4, events.toByteArray()));
+        archive.write(block(5, new byte[0]));
+
+        List<BattleEvent> read = new ArrayList<>();
+        codec.reader(Channels.newChannel(new ByteArrayInputStream(archive.toByteArray())))
+                .read(replay -> { }, snapshot -> { }, read::addAll);
+
+        assertThat(read).extracting(BattleEvent::getEventType)
+                .containsExactly(EventType.OBSTACLE_DESTROYED, EventType.BATTLE_STARTED);
+        assertThat(read).extracting(BattleEvent::getFaction)
+                .containsExactly(Faction.RED_FORCE, null);
+    }
+
+    @Test
+    void rejectsSomethingThatIsNotAnArchive() {
+        byte[] garbage = "definitely not an archive".getBytes();
+
+        assertThatThrownBy(() -> codec.reader(Channels.newChannel(new ByteArrayInputStream(garbage)))
+                .read(replay -> { }, snapshot -> { }, events -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] archiveOf(List<BattleSnapshot> snapshots) {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        // No compression, so sizes reflect the payloads exactly
+        ReplayArchiveCodec.Writer writer = new ReplayArchiveCodec(objectMapper, Deflater.NO_COMPRESSION)
+                .writer(Channels.newChannel(archive));
+        writer.writeHeader(new BattleReplay());
+        snapshots.forEach(writer::writeSnapshot);
+        writer.finish();
+        return archive.toByteArray();
+    }
+
+    private static byte[] block(int type, byte[] payload) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(payload);
+        deflater.finish();
+        byte[] compressed = new byte[payload.length + 64];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        return ByteBuffer.allocate(9 + length)
+                .put((byte) type)
+                .putInt(payload.length)
+                .putInt(length)
+                .put(compressed, 0, length)
+                .array();
+    }
+
+    private static BattleSnapshot snapshot(int number, double drift) {
+        List<GeneralUnit> units = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            GeneralUnit unit = new GeneralUnit();
+            unit.setId("unit-" + i);
+            unit.setUserId(i % 2 == 0 ? "user-a" : null);
+            unit.setUnitType(UnitType.values()[i % UnitType.values().length]);
+            unit.setFaction(i % 2 == 0 ? Faction.BLUE_FORCE : Faction.RED_FORCE);
+            unit.setUnitRank(i % 3 == 0 ? null : UnitRank.values()[i % UnitRank.values().length]);
+            unit.setStatus(Status.values()[i % Status.values().length]);
+            unit.setPosition(i == 5 ? null : new Position(48.0 + i * 0.01 + drift, 35.0 + i * 0.01));
+            unit.setPersonnel(100 + i);
+            unit.setVehicles(i);
+            unit.setFirepower(50 + i);
+            unit.setSupplyLevel(80 - i);
+            unit.setMorale(75.5 - i);
+            unit.setDirection(i * 30);
+            unit.setMobility(i % 10);
+            unit.setFirepowerBase(40);
+            unit.setDefense(30);
+            unit.setRange(5 + i);
+            unit.setHasCommsLink(i % 4 != 0);
+            unit.setLinkedCommsUnitId(i % 4 != 0 ? "unit-0" : null);
+            unit.setCommsStrength(i % 4 != 0 ? 90 - i : 0);
+            unit.setActiveFireMissionId(i == 7 ? "mission-1" : null);
+            if (i == 3) {
+                unit.setFieldOfFire(FieldOfFire.builder().centerAzimuth(90).leftAzimuth(45).rightAzimuth(135)
+                        .maxRange(2000).build());
+            }
+            units.add(unit);
+        }
+        Obstacle obstacle = new Obstacle();
+        obstacle.setId("obstacle-1");
+        obstacle.setStartPosition(new Position(48.1, 35.1));
+        obstacle.setEndPosition(new Position(48.2, 35.2));
+        return BattleSnapshot.builder()
+                .snapshotNumber(number)
+                .timestamp(START.plusSeconds(10L * number))
+                .units(units)
+                .obstacles(List.of(obstacle))
+                .activeActions(List.of())
+                .build();
+    }
+}
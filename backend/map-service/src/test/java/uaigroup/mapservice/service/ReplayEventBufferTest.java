@@ -0,0 +1,85 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.BattleEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplayEventBufferTest {
+
+    @Test
+    void takesWholeBatchesOrNothing() {
+        ReplayEventBuffer buffer = new ReplayEventBuffer(5);
+
+        assertThat(buffer.offer(events(1, 3))).isTrue();
+        assertThat(buffer.offer(events(4, 3))).isFalse();
+        assertThat(buffer.size()).isEqualTo(3);
+        assertThat(buffer.offer(events(4, 2))).isTrue();
+        assertThat(buffer.size()).isEqualTo(buffer.capacity());
+    }
+
+    @Test
+    void drainsOldestFirstAcrossTheEndOfTheRing() {
+        ReplayEventBuffer buffer = new ReplayEventBuffer(4);
+        buffer.offer(events(1, 3));
+        assertThat(sequences(buffer.drain(2))).containsExactly(1L, 2L);
+
+        // Wraps around: slots 3, 0 and 1 of the ring
+        buffer.offer(events(4, 3));
+
+        assertThat(sequences(buffer.drain(10))).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(buffer.size()).isZero();
+        assertThat(buffer.drain(10)).isEmpty();
+    }
+
+    @Test
+    void requeuedBatchComesOutAgainBeforeLaterEvents() {
+        ReplayEventBuffer buffer = new ReplayEventBuffer(8);
+        buffer.offer(events(1, 4));
+        List<BattleEvent> failed = buffer.drain(3);
+        buffer.offer(events(5, 2));
+
+        assertThat(buffer.requeue(failed)).isZero();
+
+        assertThat(sequences(buffer.drain(10))).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    void requeueKeepsTheOldestThatFitAndReportsTheRest() {
+        ReplayEventBuffer buffer = new ReplayEventBuffer(4);
+        buffer.offer(events(1, 4));
+        List<BattleEvent> failed = buffer.drain(3);
+        buffer.offer(events(5, 2));
+
+        // One slot left for three events
+        assertThat(buffer.requeue(failed)).isEqualTo(2);
+
+        assertThat(sequences(buffer.drain(10))).containsExactly(1L, 4L, 5L, 6L);
+    }
+
+    @Test
+    void closedBufferRefusesEventsButStillDrains() {
+        ReplayEventBuffer buffer = new ReplayEventBuffer(4);
+        buffer.offer(events(1, 2));
+        buffer.close();
+
+        assertThat(buffer.isClosed()).isTrue();
+        assertThat(buffer.offer(events(3, 1))).isFalse();
+        assertThat(sequences(buffer.drain(10))).containsExactly(1L, 2L);
+    }
+
+    private static List<BattleEvent> events(long firstSequence, int count) {
+        List<BattleEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(BattleEvent.builder().sequence(firstSequence + i).build());
+        }
+        return events;
+    }
+
+    private static List<Long> sequences(List<BattleEvent> events) {
+        return events.stream().map(BattleEvent::getSequence).toList();
+    }
+}
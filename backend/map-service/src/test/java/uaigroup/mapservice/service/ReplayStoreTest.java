@@ -0,0 +1,78 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import uaigroup.mapservice.model.BattleEvent;
+import uaigroup.mapservice.model.ReplayEventBucket;
+import uaigroup.mapservice.repository.ReplayEventBucketRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplayStoreTest {
+
+    private final List<ReplayEventBucket> buckets = new ArrayList<>();
+
+    @Test
+    void eventPushedIntoAnOlderBucketIsNotSkipped() {
+        // A batch bucket that later took a single event, overlapping every bucket written after it
+        ReplayEventBucket late = bucket(1, 10);
+        late.getEvents().add(BattleEvent.builder().sequence(60).build());
+        late.setLastSequence(60);
+        late.setCount(11);
+        buckets.add(late);
+        for (long first = 11; first < 60; first += 10) {
+            buckets.add(bucket(first, Math.min(first + 9, 59)));
+        }
+        ReplayStore store = new ReplayStore(null, null, repository());
+
+        List<Long> read = new ArrayList<>();
+        long from = 1;
+        ReplayStore.ReplayPage<BattleEvent> page;
+        do {
+            page = store.findEvents("replay-1", from, 40);
+            page.items().forEach(event -> read.add(event.getSequence()));
+            from = page.nextCursor() != null ? page.nextCursor() : from;
+        } while (page.nextCursor() != null);
+
+        assertThat(read).containsExactlyElementsOf(LongStream.rangeClosed(1, 60).boxed().toList());
+    }
+
+    private static ReplayEventBucket bucket(long first, long last) {
+        ReplayEventBucket bucket = ReplayEventBucket.builder()
+                .replayId("replay-1")
+                .firstSequence(first)
+                .lastSequence(last)
+                .count((int) (last - first + 1))
+                .build();
+        for (long sequence = first; sequence <= last; sequence++) {
+            bucket.getEvents().add(BattleEvent.builder().sequence(sequence).build());
+        }
+        return bucket;
+    }
+
+    private ReplayEventBucketRepository repository() {
+        ReplayEventBucketRepository repository = mock(ReplayEventBucketRepository.class);
+        when(repository.findByReplayIdAndLastSequenceGreaterThanEqual(anyString(), anyLong(), any(Pageable.class)))
+                .thenAnswer(call -> {
+                    long from = call.getArgument(1);
+                    Pageable pageable = call.getArgument(2);
+                    return buckets.stream()
+                            .filter(bucket -> bucket.getLastSequence() >= from)
+                            .sorted(Comparator.comparingLong(ReplayEventBucket::getFirstSequence))
+                            .skip(pageable.getOffset())
+                            .limit(pageable.getPageSize())
+                            .toList();
+                });
+        return repository;
+    }
+}
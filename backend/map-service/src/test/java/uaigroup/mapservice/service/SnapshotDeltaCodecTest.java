@@ -0,0 +1,167 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.BattleSnapshot;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Obstacle;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.SnapshotDelta;
+import uaigroup.mapservice.model.Status;
+import uaigroup.mapservice.model.UnitType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotDeltaCodecTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void deltaChainFromKeyframeRebuildsEveryCapture() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<GeneralUnit> units = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            units.add(unit("u" + i, 48.0 + random.nextDouble(), 35.0 + random.nextDouble()));
+        }
+        BattleSnapshot keyframe = snapshot(1, units);
+        BattleSnapshot previous = keyframe;
+        BattleSnapshot decoded = keyframe;
+        int nextId = units.size();
+
+        for (int number = 2; number <= 30; number++) {
+            List<GeneralUnit> next = new ArrayList<>();
+            for (GeneralUnit unit : previous.getUnits()) {
+                double roll = random.nextDouble();
+                if (roll < 0.05) {
+                    continue;
+                }
+                GeneralUnit copy = BattleReplayService.copyUnit(unit);
+                if (roll < 0.5) {
+                    copy.setPosition(new Position(unit.getPosition().getLatitude() + 0.001,
+                            unit.getPosition().getLongitude() - 0.001));
+                } else if (roll < 0.6) {
+                    copy.setMorale(unit.getMorale() - 1.5);
+                    copy.setSupplyLevel(unit.getSupplyLevel() - 1);
+                } else if (roll < 0.65) {
+                    copy.setPersonnel(unit.getPersonnel() - 3);
+                }
+                next.add(copy);
+            }
+            next.add(unit("u" + nextId++, 48.5, 35.5));
+            BattleSnapshot current = snapshot(number, next);
+
+            SnapshotDelta delta = SnapshotDeltaCodec.encode(previous, current);
+            decoded = SnapshotDeltaCodec.apply(decoded, delta, number, current.getTimestamp());
+
+            assertThat(decoded.getSnapshotNumber()).isEqualTo(number);
+            assertThat(decoded.getTimestamp()).isEqualTo(current.getTimestamp());
+            assertThat(decoded.getUnits()).containsExactlyInAnyOrderElementsOf(current.getUnits());
+            previous = current;
+        }
+    }
+
+    @Test
+    void patchableChangesGoOutAsPatches() {
+        GeneralUnit before = unit("a", 48.0, 35.0);
+        GeneralUnit after = BattleReplayService.copyUnit(before);
+        after.setPosition(new Position(48.01, 35.02));
+        after.setStatus(Status.DEFENDING);
+        after.setMorale(61.5);
+        after.setHasCommsLink(true);
+        after.setLinkedCommsUnitId("comms-1");
+        after.setCommsStrength(80);
+
+        SnapshotDelta delta = SnapshotDeltaCodec.encode(snapshot(1, List.of(before)), snapshot(2, List.of(after)));
+
+        assertThat(delta.getUpsertedUnits()).isEmpty();
+        assertThat(delta.getChangedUnits()).singleElement().satisfies(patch -> {
+            assertThat(patch.getPosition()).isEqualTo(after.getPosition());
+            assertThat(patch.getStatus()).isEqualTo(Status.DEFENDING);
+            assertThat(patch.getMorale()).isEqualTo(61.5);
+            assertThat(patch.getSupplyLevel()).isNull();
+            assertThat(patch.getLinkedCommsUnitId()).isEqualTo("comms-1");
+        });
+    }
+
+    @Test
+    void otherChangesFallBackToTheWholeUnit() {
+        GeneralUnit before = unit("a", 48.0, 35.0);
+        GeneralUnit after = BattleReplayService.copyUnit(before);
+        after.setPersonnel(before.getPersonnel() - 10);
+        after.setPosition(new Position(48.01, 35.0));
+
+        SnapshotDelta delta = SnapshotDeltaCodec.encode(snapshot(1, List.of(before)), snapshot(2, List.of(after)));
+
+        assertThat(delta.getChangedUnits()).isEmpty();
+        assertThat(delta.getUpsertedUnits()).containsExactly(after);
+    }
+
+    @Test
+    void recordsAddedAndRemovedUnitsAndLeavesUnchangedListsOut() {
+        GeneralUnit kept = unit("kept", 48.0, 35.0);
+        GeneralUnit removed = unit("removed", 48.1, 35.1);
+        GeneralUnit added = unit("added", 48.2, 35.2);
+        BattleSnapshot first = snapshot(1, List.of(kept, removed));
+        BattleSnapshot second = snapshot(2, List.of(BattleReplayService.copyUnit(kept), added));
+
+        SnapshotDelta delta = SnapshotDeltaCodec.encode(first, second);
+
+        assertThat(delta.getRemovedUnitIds()).containsExactly("removed");
+        assertThat(delta.getUpsertedUnits()).containsExactly(added);
+        assertThat(delta.getChangedUnits()).isEmpty();
+        assertThat(delta.getObstacles()).isNull();
+        assertThat(delta.getActiveActions()).isNull();
+
+        BattleSnapshot decoded = SnapshotDeltaCodec.apply(first, delta, 2, second.getTimestamp());
+        assertThat(decoded.getUnits()).containsExactlyInAnyOrder(kept, added);
+        assertThat(decoded.getObstacles()).isSameAs(first.getObstacles());
+    }
+
+    @Test
+    void applyingLeavesTheBaseSnapshotUntouched() {
+        GeneralUnit moving = unit("moving", 48.0, 35.0);
+        GeneralUnit idle = unit("idle", 48.5, 35.5);
+        BattleSnapshot base = snapshot(1, List.of(moving, idle));
+        GeneralUnit moved = BattleReplayService.copyUnit(moving);
+        moved.setPosition(new Position(48.2, 35.2));
+
+        SnapshotDelta delta = SnapshotDeltaCodec.encode(base, snapshot(2, List.of(moved, idle)));
+        BattleSnapshot decoded = SnapshotDeltaCodec.apply(base, delta, 2, START.plusSeconds(10));
+
+        assertThat(moving.getPosition()).isEqualTo(new Position(48.0, 35.0));
+        assertThat(base.getUnits()).containsExactly(moving, idle);
+        // Untouched units are shared with the base rather than copied
+        assertThat(decoded.getUnits()).anySatisfy(unit -> assertThat(unit).isSameAs(idle));
+    }
+
+    private static BattleSnapshot snapshot(int number, List<GeneralUnit> units) {
+        Obstacle obstacle = new Obstacle();
+        obstacle.setId("obstacle-1");
+        return BattleSnapshot.builder()
+                .snapshotNumber(number)
+                .timestamp(START.plusSeconds(10L * number))
+                .units(units)
+                .obstacles(List.of(obstacle))
+                .activeActions(List.of())
+                .build();
+    }
+
+    private static GeneralUnit unit(String id, double latitude, double longitude) {
+        GeneralUnit unit = new GeneralUnit();
+        unit.setId(id);
+        unit.setFaction(Faction.BLUE_FORCE);
+        unit.setUnitType(UnitType.INFANTRY);
+        unit.setStatus(Status.MOVING);
+        unit.setPosition(new Position(latitude, longitude));
+        unit.setPersonnel(120);
+        unit.setVehicles(6);
+        unit.setSupplyLevel(90);
+        unit.setMorale(80.0);
+        return unit;
+    }
+}
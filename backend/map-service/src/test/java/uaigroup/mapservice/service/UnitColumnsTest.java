@@ -0,0 +1,137 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.model.Status;
+import uaigroup.mapservice.model.UnitType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnitColumnsTest {
+
+    @Test
+    void handlesAreDenseAndStable() {
+        UnitColumns columns = new UnitColumns();
+        columns.update("a", unit("a", 48.0, 35.0));
+        columns.update("b", unit("b", 48.1, 35.1));
+        columns.update("a", unit("a", 48.2, 35.2));
+
+        assertThat(columns.handleOf("a")).isEqualTo(0);
+        assertThat(columns.handleOf("b")).isEqualTo(1);
+        assertThat(columns.handleOf("missing")).isEqualTo(UnitColumns.NONE);
+
+        UnitColumns.Snapshot snapshot = columns.snapshot();
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.latitude()[0]).isEqualTo(48.2);
+        assertThat(snapshot.faction()[1]).isEqualTo(Faction.BLUE_FORCE.ordinal());
+    }
+
+    @Test
+    void removedHandleIsFreedThenReused() {
+        UnitColumns columns = new UnitColumns();
+        columns.update("a", unit("a", 48.0, 35.0));
+        columns.update("b", unit("b", 48.1, 35.1));
+        columns.update("c", unit("c", 48.2, 35.2));
+
+        columns.remove("b");
+
+        assertThat(columns.handleOf("b")).isEqualTo(UnitColumns.NONE);
+        UnitColumns.Snapshot freed = columns.snapshot();
+        assertThat(freed.size()).isEqualTo(3);
+        assertThat(freed.unitIds()[1]).isNull();
+        assertThat(freed.faction()[1]).isEqualTo(UnitColumns.NONE);
+        assertThat(freed.status()[1]).isEqualTo(UnitColumns.NONE);
+        assertThat(freed.latitude()[1]).isNaN();
+        assertThat(freed.longitude()[1]).isNaN();
+
+        // The next new unit takes the free handle instead of growing the columns
+        columns.update("d", unit("d", 48.3, 35.3));
+
+        assertThat(columns.handleOf("d")).isEqualTo(1);
+        UnitColumns.Snapshot reused = columns.snapshot();
+        assertThat(reused.size()).isEqualTo(3);
+        assertThat(reused.unitIds()).containsExactly("a", "d", "c");
+        assertThat(reused.latitude()[1]).isEqualTo(48.3);
+    }
+
+    @Test
+    void snapshotIsSharedUntilTheNextChange() {
+        UnitColumns columns = new UnitColumns();
+        columns.update("a", unit("a", 48.0, 35.0));
+
+        UnitColumns.Snapshot first = columns.snapshot();
+        assertThat(columns.snapshot()).isSameAs(first);
+        // Unknown IDs change nothing
+        columns.remove("missing");
+        assertThat(columns.snapshot()).isSameAs(first);
+
+        columns.update("a", unit("a", 48.5, 35.0));
+        UnitColumns.Snapshot updated = columns.snapshot();
+        assertThat(updated).isNotSameAs(first);
+        assertThat(updated.version()).isGreaterThan(first.version());
+        assertThat(updated.latitude()[0]).isEqualTo(48.5);
+        // The old snapshot keeps what it saw
+        assertThat(first.latitude()[0]).isEqualTo(48.0);
+
+        columns.remove("a");
+        UnitColumns.Snapshot removed = columns.snapshot();
+        assertThat(removed.version()).isGreaterThan(updated.version());
+        assertThat(removed.unitIds()[0]).isNull();
+
+        columns.clear();
+        UnitColumns.Snapshot cleared = columns.snapshot();
+        assertThat(cleared.version()).isGreaterThan(removed.version());
+        assertThat(cleared.size()).isZero();
+    }
+
+    @Test
+    void clearStartsHandlesOverAndGrowthKeepsColumns() {
+        UnitColumns columns = new UnitColumns();
+        int count = 3000;
+        for (int i = 0; i < count; i++) {
+            columns.update("u" + i, unit("u" + i, i * 0.001, 35.0));
+        }
+
+        UnitColumns.Snapshot grown = columns.snapshot();
+        assertThat(grown.size()).isEqualTo(count);
+        assertThat(columns.handleOf("u2999")).isEqualTo(2999);
+        assertThat(grown.latitude()[2999]).isEqualTo(2.999);
+        assertThat(grown.unitIds()[0]).isEqualTo("u0");
+
+        columns.clear();
+        assertThat(columns.handleOf("u0")).isEqualTo(UnitColumns.NONE);
+
+        columns.update("fresh", unit("fresh", 48.0, 35.0));
+        assertThat(columns.handleOf("fresh")).isZero();
+        assertThat(columns.snapshot().size()).isEqualTo(1);
+    }
+
+    @Test
+    void unitWithoutPositionOrEnumsGetsNaNAndNone() {
+        UnitColumns columns = new UnitColumns();
+        GeneralUnit bare = new GeneralUnit();
+        bare.setId("bare");
+
+        columns.update("bare", bare);
+
+        UnitColumns.Snapshot snapshot = columns.snapshot();
+        assertThat(snapshot.latitude()[0]).isNaN();
+        assertThat(snapshot.faction()[0]).isEqualTo(UnitColumns.NONE);
+        assertThat(snapshot.unitType()[0]).isEqualTo(UnitColumns.NONE);
+        assertThat(snapshot.status()[0]).isEqualTo(UnitColumns.NONE);
+    }
+
+    private static GeneralUnit unit(String id, double latitude, double longitude) {
+        GeneralUnit unit = new GeneralUnit();
+        unit.setId(id);
+        unit.setFaction(Faction.BLUE_FORCE);
+        unit.setUnitType(UnitType.INFANTRY);
+        unit.setStatus(Status.MOVING);
+        unit.setPosition(new Position(latitude, longitude));
+        unit.setPersonnel(120);
+        unit.setMorale(80.0);
+        return unit;
+    }
+}
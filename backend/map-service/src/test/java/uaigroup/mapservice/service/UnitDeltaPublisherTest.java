@@ -0,0 +1,64 @@
+package uaigroup.mapservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UnitDeltaPublisherTest {
+
+    private final UnitDeltaPublisher publisher = new UnitDeltaPublisher(null, mock(CoalescingPublisher.class),
+            new ObjectMapper().findAndRegisterModules(), 100);
+
+    @Test
+    void deltasCarryOnlyTheFieldsThatChanged() throws InterruptedException {
+        publisher.start();
+        publisher.publishChanged(List.of(unit()));
+        publisher.publishChanged(List.of(unit(u -> u.setPersonnel(90))));
+        // Only the volatile timestamp moved, nothing to publish
+        publisher.publishChanged(List.of(unit(u -> {
+            u.setPersonnel(90);
+            u.setUpdatedAt(LocalDateTime.now().plusMinutes(1));
+        })));
+        publisher.publishChanged(List.of(unit(u -> {
+            u.setPersonnel(90);
+            u.setPosition(null);
+        })));
+        publisher.publishDeleted("unit-1");
+        publisher.stop();
+
+        List<UnitDeltaPublisher.UnitDelta> deltas = publisher.sync(1, null, userId -> true).deltas();
+
+        assertThat(deltas).extracting(UnitDeltaPublisher.UnitDelta::seq).containsExactly(2L, 3L, 4L);
+        assertThat(deltas.get(0).changes().fieldNames()).toIterable().containsExactlyInAnyOrder("personnel");
+        assertThat(deltas.get(0).changes().get("personnel").asInt()).isEqualTo(90);
+        assertThat(deltas.get(1).changes().get("position").isNull()).isTrue();
+        assertThat(deltas.get(2).op()).isEqualTo(UnitDeltaPublisher.DeltaOp.DELETE);
+        assertThat(deltas.get(2).userId()).isEqualTo("commander");
+    }
+
+    private static GeneralUnit unit() {
+        GeneralUnit unit = new GeneralUnit();
+        unit.setId("unit-1");
+        unit.setUserId("commander");
+        unit.setFaction(Faction.BLUE_FORCE);
+        unit.setPosition(new Position(48.0, 35.0));
+        unit.setPersonnel(120);
+        unit.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        return unit;
+    }
+
+    private static GeneralUnit unit(Consumer<GeneralUnit> change) {
+        GeneralUnit unit = unit();
+        change.accept(unit);
+        return unit;
+    }
+}
@@ -0,0 +1,124 @@
+package uaigroup.mapservice.service;
+
+import org.junit.jupiter.api.Test;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnitSpatialIndexTest {
+
+    @Test
+    void nearestMatchesBruteForceNearThePoles() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int trial = 0; trial < 200; trial++) {
+            Position center = new Position(random.nextDouble(80, 89.5), random.nextDouble(-180, 180));
+            List<GeneralUnit> units = scatter(random, center, 20, 300);
+            UnitSpatialIndex index = indexOf(units, 0.05);
+
+            Optional<GeneralUnit> nearest = index.nearest(Faction.BLUE_FORCE, center, 400, null);
+            Optional<GeneralUnit> expected = units.stream()
+                    .filter(unit -> GeoDistance.haversineKm(center, unit.getPosition()) <= 400)
+                    .min(Comparator.comparingDouble(unit -> GeoDistance.haversineKm(center, unit.getPosition())));
+
+            assertThat(nearest.map(unit -> GeoDistance.haversineKm(center, unit.getPosition())))
+                    .isEqualTo(expected.map(unit -> GeoDistance.haversineKm(center, unit.getPosition())));
+        }
+    }
+
+    @Test
+    void withinRangeMatchesBruteForceNearThePoles() {
+        SplittableRandom random = new SplittableRandom(12);
+        for (int trial = 0; trial < 200; trial++) {
+            Position center = new Position(random.nextDouble(75, 89), random.nextDouble(-180, 180));
+            List<GeneralUnit> units = scatter(random, center, 200, 300);
+            UnitSpatialIndex index = indexOf(units, 0.05);
+
+            List<String> expected = units.stream()
+                    .filter(unit -> GeoDistance.haversineKm(center, unit.getPosition()) <= 150)
+                    .map(GeneralUnit::getId)
+                    .toList();
+
+            assertThat(index.withinRange(Faction.BLUE_FORCE, center, 150))
+                    .extracting(GeneralUnit::getId)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void searchesAcrossTheAntimeridian() {
+        GeneralUnit west = unit("west", Faction.BLUE_FORCE, 10.0, -179.99);
+        UnitSpatialIndex index = indexOf(List.of(west), 0.05);
+        Position center = new Position(10.0, 179.99);
+
+        assertThat(index.withinRange(Faction.BLUE_FORCE, center, 5)).containsExactly(west);
+        assertThat(index.anyWithinRange(Faction.BLUE_FORCE, center, 5, null)).isTrue();
+        assertThat(index.nearest(Faction.BLUE_FORCE, center, 5, null)).contains(west);
+    }
+
+    @Test
+    void nearestSkipsExcludedUnitAndOtherFactions() {
+        GeneralUnit self = unit("self", Faction.BLUE_FORCE, 48.5, 35.0);
+        GeneralUnit enemy = unit("enemy", Faction.RED_FORCE, 48.5001, 35.0);
+        GeneralUnit ally = unit("ally", Faction.BLUE_FORCE, 48.52, 35.0);
+        UnitSpatialIndex index = indexOf(List.of(self, enemy, ally), 0.05);
+
+        assertThat(index.nearest(Faction.BLUE_FORCE, self.getPosition(), 10, "self")).contains(ally);
+        assertThat(index.nearest(Faction.BLUE_FORCE, self.getPosition(), 1, "self")).isEmpty();
+    }
+
+    @Test
+    void followsMovesAndRemovals() {
+        GeneralUnit unit = unit("u1", Faction.BLUE_FORCE, 48.5, 35.0);
+        UnitSpatialIndex index = indexOf(List.of(unit), 0.05);
+        Position origin = new Position(48.5, 35.0);
+
+        unit.setPosition(new Position(49.5, 36.0));
+        index.update(unit.getId(), unit);
+        assertThat(index.withinRange(Faction.BLUE_FORCE, origin, 5)).isEmpty();
+        assertThat(index.withinRange(Faction.BLUE_FORCE, unit.getPosition(), 5)).containsExactly(unit);
+
+        index.remove(unit.getId());
+        assertThat(index.withinRange(Faction.BLUE_FORCE, unit.getPosition(), 5)).isEmpty();
+    }
+
+    /**
+     * Units spread up to spreadKm around the center, clamped to valid coordinates
+     */
+    private static List<GeneralUnit> scatter(SplittableRandom random, Position center, int count, double spreadKm) {
+        List<GeneralUnit> units = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double latitude = center.getLatitude() + random.nextDouble(-1, 1) * spreadKm / GeoDistance.KM_PER_DEGREE;
+            double cos = Math.max(0.05, Math.cos(Math.toRadians(center.getLatitude())));
+            double longitude = center.getLongitude()
+                    + random.nextDouble(-1, 1) * spreadKm / GeoDistance.KM_PER_DEGREE / cos;
+            latitude = Math.max(-90, Math.min(90, latitude));
+            longitude = ((longitude + 540) % 360) - 180;
+            units.add(unit("u" + i, Faction.BLUE_FORCE, latitude, longitude));
+        }
+        return units;
+    }
+
+    private static UnitSpatialIndex indexOf(List<GeneralUnit> units, double cellDegrees) {
+        UnitSpatialIndex index = new UnitSpatialIndex(cellDegrees);
+        for (GeneralUnit unit : units) {
+            index.update(unit.getId(), unit);
+        }
+        return index;
+    }
+
+    private static GeneralUnit unit(String id, Faction faction, double latitude, double longitude) {
+        GeneralUnit unit = new GeneralUnit();
+        unit.setId(id);
+        unit.setFaction(faction);
+        unit.setPosition(new Position(latitude, longitude));
+        return unit;
+    }
+}
@@ -0,0 +1,132 @@
+package uaigroup.mapservice.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import uaigroup.mapservice.model.Faction;
+import uaigroup.mapservice.model.GeneralUnit;
+import uaigroup.mapservice.model.Position;
+import uaigroup.mapservice.repository.UnitRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WorldStateStoreTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    // Ids of the documents written by the bulk being built, in operation order
+    private final List<String> batch = new ArrayList<>();
+    // Every id a bulk stored, across flushes
+    private final List<String> stored = new CopyOnWriteArrayList<>();
+    private final List<UnitChangedEvent> events = new CopyOnWriteArrayList<>();
+    private WorldStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new WorldStateStore(mock(UnitRepository.class), null, null, mongoTemplate,
+                event -> events.add((UnitChangedEvent) event), 0.05, 64);
+        ReflectionTestUtils.setField(store, "flushBatchSize", 500);
+
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(GeneralUnit.class))).thenAnswer(call -> {
+            batch.clear();
+            return bulk;
+        });
+        when(bulk.replaceOne(any(Query.class), any(), any(FindAndReplaceOptions.class))).thenAnswer(call -> {
+            batch.add(((GeneralUnit) call.getArgument(1)).getId());
+            return bulk;
+        });
+        // Mongo's 2dsphere index refuses coordinates off the globe
+        when(bulk.execute()).thenAnswer(call -> {
+            List<BulkWriteError> errors = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                GeneralUnit unit = store.findUnit(batch.get(i)).orElseThrow();
+                if (Math.abs(unit.getPosition().getLatitude()) > 90) {
+                    errors.add(new BulkWriteError(16755, "Can't extract geo keys", new BsonDocument(), i));
+                } else {
+                    stored.add(batch.get(i));
+                }
+            }
+            if (!errors.isEmpty()) {
+                throw new BulkOperationException("refused", new MongoBulkWriteException(
+                        BulkWriteResult.acknowledged(0, batch.size() - errors.size(), 0, 0, List.of(), List.of()),
+                        errors, null, new ServerAddress(), Set.of()));
+            }
+            return BulkWriteResult.acknowledged(0, batch.size(), 0, 0, List.of(), List.of());
+        });
+    }
+
+    @Test
+    void onlyRefusedDocumentsAreRetried() {
+        store.saveUnits(List.of(unit("good-1", 48.0), unit("bad", 100.0), unit("good-2", 48.1)));
+
+        store.flush();
+        assertThat(stored).containsExactlyInAnyOrder("good-1", "good-2");
+        assertThat(store.getStats().pendingWrites()).isEqualTo(1);
+
+        store.flush();
+        // The accepted documents are not written again
+        assertThat(stored).containsExactlyInAnyOrder("good-1", "good-2");
+    }
+
+    @Test
+    void givesUpOnADocumentMongoKeepsRefusingUntilItIsSavedAgain() {
+        GeneralUnit bad = unit("bad", 100.0);
+        store.saveUnit(bad);
+
+        for (int i = 0; i < 20; i++) {
+            store.flush();
+        }
+
+        WorldStateStore.WorldStateStats stats = store.getStats();
+        assertThat(stats.pendingWrites()).isZero();
+        assertThat(stats.abandonedWrites()).isEqualTo(1);
+        // Still served from memory, and a fixed copy goes out with the next flush
+        assertThat(store.findUnit("bad")).isPresent();
+
+        bad.setPosition(new Position(48.0, 35.0));
+        store.saveUnit(bad);
+        store.flush();
+
+        assertThat(stored).containsExactly("bad");
+    }
+
+    @Test
+    void deletingAllUnitsTellsListenersAboutEachOne() {
+        store.saveUnits(List.of(unit("a", 48.0), unit("b", 48.1)));
+        events.clear();
+
+        store.deleteAllUnits();
+
+        assertThat(store.unitCount()).isZero();
+        assertThat(events).allMatch(UnitChangedEvent::isDeleted)
+                .extracting(UnitChangedEvent::unitId)
+                .containsExactlyInAnyOrder("a", "b");
+    }
+
+    private static GeneralUnit unit(String id, double latitude) {
+        GeneralUnit unit = new GeneralUnit();
+        unit.setId(id);
+        unit.setFaction(Faction.BLUE_FORCE);
+        unit.setPosition(new Position(latitude, 35.0));
+        return unit;
+    }
+}
@@ -13,6 +13,32 @@ import BattleStatsDashboard from './components/BattleStats/BattleStatsDashboard'
 import BattleAnalytics from './components/Analytics/BattleAnalytics';
 import LiveUpdateIndicator from './components/UI/LiveUpdateIndicator';
 import authService from './services/authService';
+import websocketService from './services/websocket';
+
+const isValidUnit = (unit) =>
+  unit &&
+  unit.id &&
+  unit.position &&
+  typeof unit.position.latitude === 'number' &&
+  typeof unit.position.longitude === 'number';
+
+// Apply versioned deltas from /topic/units/delta (or the catch-up endpoint) in sequence order
+const applyUnitDeltas = (currentUnits, deltas, isVisible) => {
+  const unitsById = new Map(currentUnits.map(unit => [unit.id, unit]));
+  for (const delta of deltas) {
+    if (delta.op === 'CLEAR') {
+      unitsById.clear();
+    } else if (!isVisible(delta)) {
+      continue;
+    } else if (delta.op === 'DELETE') {
+      unitsById.delete(delta.unitId);
+    } else if (delta.op === 'UPSERT') {
+      const existing = unitsById.get(delta.unitId) || { id: delta.unitId };
+      unitsById.set(delta.unitId, { ...existing, ...delta.changes });
+    }
+  }
+  return [...unitsById.values()].filter(isValidUnit);
+};
 
 function App() {
   const [isAuthenticated, setIsAuthenticated] = useState(false);
@@ -43,24 +69,33 @@ function App() {
     }
   }, []);
   
+  // Position in the server's unit delta stream
+  const unitSyncRef = useRef({ epoch: null, seq: 0, syncing: false, pending: false });
+
   // Fetch data when authenticated
   useEffect(() => {
     if (isAuthenticated) {
-      fetchUnits();
       fetchObstacles();
       fetchActions();
     }
   }, [isAuthenticated]);
 
-  // Auto-refresh units every 2 seconds to show live updates
+  // Live unit updates: deltas are pushed over the websocket, the REST catch-up
+  // only runs on (re)connect or when a sequence gap is detected
   useEffect(() => {
     if (!isAuthenticated) return;
 
-    const interval = setInterval(() => {
-      fetchUnits();
-    }, 2000); // Refresh every 2 seconds
+    const unsubscribeDeltas = websocketService.onUnitDeltas(handleUnitDeltas);
+    const unsubscribeConnect = websocketService.onConnect(syncUnits);
+    websocketService.connect();
+    syncUnits();
 
-    return () => clearInterval(interval);
+    return () => {
+      unsubscribeDeltas();
+      unsubscribeConnect();
+      websocketService.disconnect();
+      unitSyncRef.current = { epoch: null, seq: 0, syncing: false, pending: false };
+    };
   }, [isAuthenticated]);
   
   // Listen for force update events from battle service results
@@ -96,27 +131,67 @@ function App() {
     };
   }, []);
 
-  const fetchUnits = async () => {
+  const isUnitDeltaVisible = (delta) => {
+    const userInfo = authService.getUserInfo();
+    return userInfo?.role === 'ADMIN' || delta.userId === userInfo?.username;
+  };
+
+  const syncUnits = async () => {
+    const sync = unitSyncRef.current;
+    if (sync.syncing) {
+      sync.pending = true;
+      return;
+    }
+    sync.syncing = true;
+
     try {
-      const { getAllUnits } = await import('./services/api');
-      const result = await getAllUnits();
-
-      if (result.success && Array.isArray(result.data)) {
-        // Filter out any invalid units and ensure required properties exist
-        const validUnits = result.data.filter(unit =>
-          unit &&
-          unit.id &&
-          unit.position &&
-          typeof unit.position.latitude === 'number' &&
-          typeof unit.position.longitude === 'number'
-        );
-        setUnits(validUnits);
+      const { getUnitsSince } = await import('./services/api');
+      const result = await getUnitsSince(sync.seq, sync.epoch);
+
+      if (result.success && result.data) {
+        const { epoch, seq, snapshot, units: snapshotUnits, deltas } = result.data;
+        if (snapshot) {
+          setUnits((snapshotUnits || []).filter(isValidUnit));
+        } else if (deltas.length > 0) {
+          setUnits(prevUnits => applyUnitDeltas(prevUnits, deltas, isUnitDeltaVisible));
+        }
+        sync.epoch = epoch;
+        sync.seq = seq;
       } else {
-        console.error('Failed to fetch units:', result.error);
+        console.error('Failed to sync units:', result.error);
       }
     } catch (error) {
-      console.error('Failed to fetch units:', error);
-      // Don't update units state on error to prevent rendering issues
+      console.error('Failed to sync units:', error);
+    } finally {
+      sync.syncing = false;
+      if (sync.pending) {
+        sync.pending = false;
+        syncUnits();
+      }
+    }
+  };
+
+  const handleUnitDeltas = (deltas) => {
+    const sync = unitSyncRef.current;
+    const inOrder = [];
+    let gap = false;
+
+    for (const delta of deltas) {
+      if (delta.epoch !== sync.epoch || delta.seq > sync.seq + 1) {
+        gap = true;
+        break;
+      }
+      if (delta.seq === sync.seq + 1) {
+        inOrder.push(delta);
+        sync.seq = delta.seq;
+      }
+    }
+
+    if (inOrder.length > 0) {
+      setUnits(prevUnits => applyUnitDeltas(prevUnits, inOrder, isUnitDeltaVisible));
+    }
+    if (gap) {
+      syncUnits();
     }
   };
 
@@ -1,6 +1,23 @@
 import React, { useState, useEffect } from 'react';
+import { getUnitMetrics } from '../../services/api';
 import './BattleStatsDashboard.css';
 
+const HISTORY_REFRESH_MS = 10000;
+const CHART_WIDTH = 360;
+const CHART_HEIGHT = 100;
+
+// SVG polyline points of one metric, scaled to 0..100 over the history's time span
+const chartPoints = (history, field) => {
+  if (history.length < 2) return '';
+  const start = new Date(history[0].timestamp).getTime();
+  const span = new Date(history[history.length - 1].timestamp).getTime() - start || 1;
+  return history.map(point => {
+    const x = ((new Date(point.timestamp).getTime() - start) / span) * CHART_WIDTH;
+    const y = CHART_HEIGHT - (Math.max(0, Math.min(100, point[field])) / 100) * CHART_HEIGHT;
+    return `${x.toFixed(1)},${y.toFixed(1)}`;
+  }).join(' ');
+};
+
 const BattleStatsDashboard = ({ units, isVisible, onClose }) => {
   const [stats, setStats] = useState({
     blueForce: { units: 0, personnel: 0, vehicles: 0, casualties: 0, vehicleLosses: 0 },
@@ -10,6 +27,29 @@ const BattleStatsDashboard = ({ units, isVisible, onClose }) => {
   });
 
   const [battleEvents, setBattleEvents] = useState([]);
+  const [historyUnitId, setHistoryUnitId] = useState('');
+  const [unitHistory, setUnitHistory] = useState([]);
+
+  useEffect(() => {
+    if (!isVisible || !historyUnitId) {
+      setUnitHistory([]);
+      return undefined;
+    }
+
+    let cancelled = false;
+    const loadHistory = async () => {
+      const result = await getUnitMetrics(historyUnitId);
+      if (!cancelled && result.success) {
+        setUnitHistory(result.data || []);
+      }
+    };
+    loadHistory();
+    const timer = setInterval(loadHistory, HISTORY_REFRESH_MS);
+    return () => {
+      cancelled = true;
+      clearInterval(timer);
+    };
+  }, [isVisible, historyUnitId]);
 
   useEffect(() => {
     if (!units || units.length === 0) return;
@@ -224,6 +264,44 @@ const BattleStatsDashboard = ({ units, isVisible, onClose }) => {
         </div>
       )}
 
+      <div className="unit-history">
+        <h3>📈 Unit History</h3>
+        <select
+          className="unit-history-select"
+          value={historyUnitId}
+          onChange={(e) => setHistoryUnitId(e.target.value)}
+        >
+          <option value="">Select a unit...</option>
+          {(units || []).filter(Boolean).map(unit => (
+            <option key={unit.id} value={unit.id}>
+              {unit.unitType} ({unit.faction === 'BLUE_FORCE' ? 'Blue' : 'Red'}) {unit.id.slice(-6)}
+            </option>
+          ))}
+        </select>
+        {historyUnitId && unitHistory.length < 2 && (
+          <div className="unit-history-empty">Not enough history for the last hour yet</div>
+        )}
+        {unitHistory.length >= 2 && (
+          <>
+            <svg
+              className="unit-history-chart"
+              viewBox={`0 0 ${CHART_WIDTH} ${CHART_HEIGHT}`}
+              preserveAspectRatio="none"
+            >
+              <polyline className="history-line morale" points={chartPoints(unitHistory, 'morale')} />
+              <polyline className="history-line supply" points={chartPoints(unitHistory, 'supplyLevel')} />
+            </svg>
+            <div className="unit-history-legend">
+              <span className="legend-morale">Morale</span>
+              <span className="legend-supply">Supply</span>
+              <span>
+                Personnel {Math.round(unitHistory[0].personnel)} → {Math.round(unitHistory[unitHistory.length - 1].personnel)}
+              </span>
+            </div>
+          </>
+        )}
+      </div>
+
       {initialBlue && initialRed && (
         <div className="battle-summary">
           <h3>📊 Battle Analysis</h3>
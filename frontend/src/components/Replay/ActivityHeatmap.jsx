@@ -1,19 +1,16 @@
 import React, { useEffect, useState } from 'react';
 import { Circle } from 'react-leaflet';
 
-const ActivityHeatmap = ({ events, snapshots, currentSnapshotIndex }) => {
+const ActivityHeatmap = ({ events, currentTime }) => {
   const [activityZones, setActivityZones] = useState([]);
 
   useEffect(() => {
     calculateActivityZones();
-  }, [events, snapshots, currentSnapshotIndex]);
+  }, [events, currentTime]);
 
   const calculateActivityZones = () => {
-    if (!events || !snapshots || snapshots.length === 0) return;
-
     // Get events up to current time
-    const currentTime = snapshots[currentSnapshotIndex]?.timestamp;
-    if (!currentTime) return;
+    if (!events || !currentTime) return;
 
     const relevantEvents = events.filter(event => {
       return new Date(event.timestamp) <= new Date(currentTime);
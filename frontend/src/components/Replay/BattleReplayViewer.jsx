@@ -1,12 +1,20 @@
-import React, { useState, useEffect, useRef } from 'react';
+import React, { useState, useEffect, useRef, useCallback } from 'react';
 import { MapContainer, TileLayer, Marker, Popup, Polyline } from 'react-leaflet';
 import L from 'leaflet';
 import replayService from '../../services/replayService';
 import ActivityHeatmap from './ActivityHeatmap';
 import '../../styles/components/BattleReplay.css';
 
+// Frames are fetched in chunks around the playhead; only a window of them is kept
+const FRAME_CHUNK = 20;
+const KEEP_BEHIND = 40;
+const KEEP_AHEAD = 60;
+
 const BattleReplayViewer = ({ replayId, onClose }) => {
   const [replay, setReplay] = useState(null);
+  const [frames, setFrames] = useState([]);
+  const [events, setEvents] = useState([]);
+  const [frameCache, setFrameCache] = useState(() => new Map());
   const [loading, setLoading] = useState(true);
   const [playing, setPlaying] = useState(false);
   const [currentSnapshotIndex, setCurrentSnapshotIndex] = useState(0);
@@ -16,20 +24,68 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
   const [showHeatmap, setShowHeatmap] = useState(false);
   const [selectedTab, setSelectedTab] = useState('replay'); // replay, stats, events
   const playbackRef = useRef(null);
+  const pendingChunksRef = useRef(new Set());
 
   useEffect(() => {
-    loadReplay();
+    const controller = new AbortController();
+    loadReplay(controller.signal);
+    return () => controller.abort();
   }, [replayId]);
 
+  const loadChunk = useCallback(async (chunkIndex) => {
+    const first = frames[chunkIndex * FRAME_CHUNK];
+    if (!first || pendingChunksRef.current.has(chunkIndex)) return;
+
+    const last = frames[Math.min((chunkIndex + 1) * FRAME_CHUNK, frames.length) - 1];
+    pendingChunksRef.current.add(chunkIndex);
+    try {
+      const snapshots = await replayService.getFrames(replayId, first.sequence, last.sequence);
+      setFrameCache(prev => {
+        const next = new Map(prev);
+        snapshots.forEach(snapshot => next.set(snapshot.snapshotNumber, snapshot));
+        return next;
+      });
+    } catch (error) {
+      console.error('Failed to load replay frames:', error);
+    } finally {
+      pendingChunksRef.current.delete(chunkIndex);
+    }
+  }, [frames, replayId]);
+
+  // Keep the chunk under the playhead and the next one loaded, drop frames far from it
+  useEffect(() => {
+    if (frames.length === 0) return;
+
+    const chunkIndex = Math.floor(currentSnapshotIndex / FRAME_CHUNK);
+    [chunkIndex, chunkIndex + 1].forEach(index => {
+      const frame = frames[index * FRAME_CHUNK];
+      if (frame && !frameCache.has(frame.sequence)) {
+        loadChunk(index);
+      }
+    });
+
+    const keepFrom = frames[Math.max(0, currentSnapshotIndex - KEEP_BEHIND)].sequence;
+    const keepTo = frames[Math.min(frames.length - 1, currentSnapshotIndex + KEEP_AHEAD)].sequence;
+    const stale = [...frameCache.keys()].filter(sequence => sequence < keepFrom || sequence > keepTo);
+    if (stale.length > 0) {
+      setFrameCache(prev => {
+        const next = new Map(prev);
+        stale.forEach(sequence => next.delete(sequence));
+        return next;
+      });
+    }
+  }, [currentSnapshotIndex, frames, frameCache, loadChunk]);
+
   useEffect(() => {
     if (playing && replay) {
       playbackRef.current = setInterval(() => {
         setCurrentSnapshotIndex(prev => {
-          if (prev >= replay.snapshots.length - 1) {
+          if (prev >= frames.length - 1) {
             setPlaying(false);
             return prev;
           }
-          return prev + 1;
+          // Hold the playhead until the next frame has arrived
+          return frameCache.has(frames[prev + 1].sequence) ? prev + 1 : prev;
         });
       }, 1000 / playbackSpeed);
     } else {
@@ -43,18 +99,31 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
         clearInterval(playbackRef.current);
       }
     };
-  }, [playing, playbackSpeed, replay]);
+  }, [playing, playbackSpeed, replay, frames, frameCache]);
 
-  const loadReplay = async () => {
+  const loadReplay = async (signal) => {
     try {
       setLoading(true);
-      const data = await replayService.getReplay(replayId);
-      setReplay(data);
+      setEvents([]);
+      setFrameCache(new Map());
+      setCurrentSnapshotIndex(0);
+      const index = await replayService.getReplayIndex(replayId);
+      setReplay(index.replay);
+      setFrames(index.frames);
     } catch (error) {
       console.error('Failed to load replay:', error);
+      return;
     } finally {
       setLoading(false);
     }
+
+    try {
+      await replayService.streamEvents(replayId, batch => setEvents(prev => prev.concat(batch)), signal);
+    } catch (error) {
+      if (error.name !== 'AbortError') {
+        console.error('Failed to load replay events:', error);
+      }
+    }
   };
 
   const handlePlayPause = () => {
@@ -88,12 +157,14 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
     });
   };
 
+  // Trails cover the frames still held in the window behind the playhead
   const getUnitTrail = (unitId) => {
     if (!replay || !showTrails) return [];
 
     const positions = [];
-    for (let i = 0; i <= currentSnapshotIndex; i++) {
-      const snapshot = replay.snapshots[i];
+    for (let i = Math.max(0, currentSnapshotIndex - KEEP_BEHIND); i <= currentSnapshotIndex; i++) {
+      const snapshot = frameCache.get(frames[i]?.sequence);
+      if (!snapshot) continue;
       const unit = snapshot.units.find(u => u.id === unitId);
       if (unit && unit.position) {
         positions.push([unit.position.latitude, unit.position.longitude]);
@@ -105,10 +176,10 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
   const getEventsAtCurrentTime = () => {
     if (!replay || !showEvents) return [];
 
-    const currentTime = replay.snapshots[currentSnapshotIndex]?.timestamp;
+    const currentTime = frames[currentSnapshotIndex]?.timestamp;
     if (!currentTime) return [];
 
-    return replay.events.filter(event => {
+    return events.filter(event => {
       const eventTime = new Date(event.timestamp);
       const snapshotTime = new Date(currentTime);
       return Math.abs(eventTime - snapshotTime) < 10000; // Within 10 seconds
@@ -142,7 +213,7 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
     );
   }
 
-  const currentSnapshot = replay.snapshots[currentSnapshotIndex];
+  const currentSnapshot = frameCache.get(frames[currentSnapshotIndex]?.sequence);
 
   return (
     <div className="replay-overlay">
@@ -192,9 +263,8 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
 
                   {showHeatmap && (
                     <ActivityHeatmap
-                      events={replay.events}
-                      snapshots={replay.snapshots}
-                      currentSnapshotIndex={currentSnapshotIndex}
+                      events={events}
+                      currentTime={frames[currentSnapshotIndex]?.timestamp}
                     />
                   )}
 
@@ -231,7 +301,8 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
 
                 <div className="replay-overlay-info">
                   <div className="snapshot-info">
-                    Snapshot {currentSnapshotIndex + 1} / {replay.snapshots.length}
+                    Snapshot {currentSnapshotIndex + 1} / {frames.length}
+                    {!currentSnapshot && frames.length > 0 && ' (loading...)'}
                   </div>
                   {getEventsAtCurrentTime().length > 0 && (
                     <div className="current-events">
@@ -259,13 +330,13 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
                   <input
                     type="range"
                     min="0"
-                    max={replay.snapshots.length - 1}
+                    max={Math.max(frames.length - 1, 0)}
                     value={currentSnapshotIndex}
                     onChange={(e) => handleTimelineClick(parseInt(e.target.value))}
                     className="timeline-slider"
                   />
                   <div className="timeline-markers">
-                    {replay.events.map((event, idx) => {
+                    {events.map((event, idx) => {
                       const eventTime = new Date(event.timestamp);
                       const startTime = new Date(replay.startTime);
                       const totalDuration = new Date(replay.endTime) - startTime;
@@ -387,7 +458,7 @@ const BattleReplayViewer = ({ replayId, onClose }) => {
             <div className="events-panel">
               <h3>Event Timeline</h3>
               <div className="events-list">
-                {replay.events.map((event, idx) => (
+                {events.map((event, idx) => (
                   <div key={idx} className={`event-item ${event.eventType.toLowerCase()}`}>
                     <div className="event-time">
                       {new Date(event.timestamp).toLocaleTimeString()}
@@ -182,9 +182,9 @@ const ReplayManager = ({ onClose }) => {
                           <span>•</span>
                           <span>{formatDuration(replay.statistics.durationSeconds)}</span>
                           <span>•</span>
-                          <span>{replay.snapshots.length} snapshots</span>
+                          <span>{replay.snapshotCount} snapshots</span>
                           <span>•</span>
-                          <span>{replay.events.length} events</span>
+                          <span>{replay.eventCount} events</span>
                         </>
                       )}
                     </div>
@@ -234,6 +234,18 @@ export const getUnitsByIds = async (unitIds) => {
 
 export const getAllUnits = () => unitsCrud.getAll();
 
+// Unit deltas after sinceSeq, or a full snapshot when the server cannot serve them
+export const getUnitsSince = (sinceSeq, epoch) =>
+  apiRequest(`${MAP_SERVICE_API}/units?sinceSeq=${sinceSeq}${epoch ? `&epoch=${epoch}` : ''}`);
+
+// Downsampled state history of a unit: [{ timestamp, morale, supplyLevel, personnel, vehicles, position, samples }]
+export const getUnitMetrics = (unitId, { from, to, maxPoints = 200 } = {}) => {
+  const params = new URLSearchParams({ maxPoints });
+  if (from) params.set('from', from);
+  if (to) params.set('to', to);
+  return apiRequest(`${MAP_SERVICE_API}/units/${unitId}/metrics?${params}`);
+};
+
 // Script API functions
 export const createScript = async (scriptData) => {
   return apiRequest(`${MAP_SERVICE_API}/scripts`, {
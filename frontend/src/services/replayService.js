@@ -67,6 +67,28 @@ class ReplayService {
     }
   }
 
+  // Resolves to false when the server is busy and the same events should be sent again later
+  async recordEvents(events) {
+    try {
+      const response = await fetch(`${REPLAY_API}/events`, {
+        method: 'POST',
+        headers: this.getHeaders(),
+        body: JSON.stringify(events)
+      });
+
+      if (response.status === 429) {
+        return false;
+      }
+      if (!response.ok) {
+        console.error('Failed to record events');
+      }
+      return true;
+    } catch (error) {
+      console.error('Error recording events:', error);
+      return true;
+    }
+  }
+
   async captureSnapshot() {
     try {
       const response = await fetch(`${REPLAY_API}/snapshot`, {
@@ -116,6 +138,89 @@ class ReplayService {
     }
   }
 
+  // Replay metadata plus [{ sequence, timestamp, keyframe }] for every frame
+  async getReplayIndex(replayId) {
+    try {
+      const response = await fetch(`${REPLAY_API}/${replayId}/index`, {
+        headers: this.getHeaders()
+      });
+
+      if (!response.ok) {
+        throw new Error('Failed to fetch replay index');
+      }
+
+      return await response.json();
+    } catch (error) {
+      console.error('Error fetching replay index:', error);
+      throw error;
+    }
+  }
+
+  // Running statistics while the replay is recording, the final ones afterwards
+  async getStatistics(replayId) {
+    try {
+      const response = await fetch(`${REPLAY_API}/${replayId}/statistics`, {
+        headers: this.getHeaders()
+      });
+
+      if (!response.ok) {
+        throw new Error('Failed to fetch replay statistics');
+      }
+
+      return await response.json();
+    } catch (error) {
+      console.error('Error fetching replay statistics:', error);
+      throw error;
+    }
+  }
+
+  // Reconstructed snapshots with sequence numbers from..to (inclusive)
+  async getFrames(replayId, from, to) {
+    try {
+      const response = await fetch(`${REPLAY_API}/${replayId}/frames?from=${from}&to=${to}`, {
+        headers: this.getHeaders()
+      });
+
+      if (!response.ok) {
+        throw new Error('Failed to fetch replay frames');
+      }
+
+      return await response.json();
+    } catch (error) {
+      console.error('Error fetching replay frames:', error);
+      throw error;
+    }
+  }
+
+  // Reads the NDJSON event stream, handing over events as they arrive
+  async streamEvents(replayId, onEvents, signal) {
+    const response = await fetch(`${REPLAY_API}/${replayId}/events/stream`, {
+      headers: this.getHeaders(),
+      signal
+    });
+
+    if (!response.ok) {
+      throw new Error('Failed to stream replay events');
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffered = '';
+
+    for (;;) {
+      const { done, value } = await reader.read();
+      buffered += decoder.decode(value || new Uint8Array(), { stream: !done });
+
+      const lines = buffered.split('\n');
+      buffered = done ? '' : lines.pop();
+      const events = lines.filter(line => line.trim()).map(line => JSON.parse(line));
+      if (events.length > 0) {
+        onEvents(events);
+      }
+      if (done) break;
+    }
+  }
+
   async deleteReplay(replayId) {
     try {
       const response = await fetch(`${REPLAY_API}/${replayId}`, {
@@ -1,78 +1,136 @@
-import config from '../config';
-import SockJS from 'sockjs-client';
-import { Stomp } from '@stomp/stompjs';
+import ApiUrl from '../enums/ApiUrl';
+
+// Minimal STOMP 1.2 client over the raw WebSocket transport of the SockJS endpoint (/ws/websocket)
+const NULL_CHAR = '\u0000';
+
+const buildFrame = (command, headers = {}, body = '') => {
+  const headerLines = Object.entries(headers).map(([key, value]) => `${key}:${value}`);
+  return [command, ...headerLines, '', body].join('\n') + NULL_CHAR;
+};
+
+const parseFrame = (raw) => {
+  const text = raw.replace(/^\n+/, '');
+  if (!text) return null;
+
+  const headerEnd = text.indexOf('\n\n');
+  const head = headerEnd >= 0 ? text.slice(0, headerEnd) : text;
+  const body = headerEnd >= 0 ? text.slice(headerEnd + 2) : '';
+  const [command, ...headerLines] = head.split('\n');
+  const headers = {};
+  headerLines.forEach(line => {
+    const separator = line.indexOf(':');
+    if (separator > 0) {
+      headers[line.slice(0, separator)] = line.slice(separator + 1);
+    }
+  });
+  return { command, headers, body };
+};
 
 class WebSocketService {
   constructor() {
-    this.stompClient = null;
+    this.socket = null;
     this.subscribers = {
       units: new Set(),
       unitDelete: new Set(),
       unitsClear: new Set(),
+      unitDeltas: new Set(),
+      connect: new Set(),
+    };
+    this.topicHandlers = {
+      // Coalesced per window: the latest state of every unit changed in it
+      '/topic/units': (body) => {
+        const units = JSON.parse(body);
+        units.forEach(unit => this.subscribers.units.forEach(callback => callback(unit)));
+      },
+      '/topic/units/delete': (body) => this.subscribers.unitDelete.forEach(callback => callback(body)),
+      '/topic/units/clear': () => this.subscribers.unitsClear.forEach(callback => callback()),
+      '/topic/units/delta': (body) => {
+        const deltas = JSON.parse(body);
+        this.subscribers.unitDeltas.forEach(callback => callback(deltas));
+      },
     };
     this.reconnectAttempts = 0;
     this.maxReconnectAttempts = 5;
     this.isConnecting = false;
     this.isConnected = false;
+    this.shouldReconnect = true;
   }
 
   connect() {
     if (this.isConnecting || this.isConnected) {
       return;
     }
-    
+
     if (this.reconnectAttempts >= this.maxReconnectAttempts) {
       console.error('Max reconnection attempts reached');
       return;
     }
-    
+
     this.isConnecting = true;
-    const socket = new SockJS(config.wsUrl);
-    this.stompClient = Stomp.over(socket);
+    this.shouldReconnect = true;
+    const socket = new WebSocket(ApiUrl.MAP_SERVICE_WS);
+    this.socket = socket;
 
-    this.stompClient.connect({}, () => {
-      this.isConnected = true;
-      this.isConnecting = false;
-      this.reconnectAttempts = 0;
-      
-      // Subscribe to unit updates
-      this.stompClient.subscribe('/topic/units', (message) => {
-        try {
-          const unit = JSON.parse(message.body);
-          this.subscribers.units.forEach(callback => callback(unit));
-        } catch (error) {
-          console.error('Failed to parse unit update:', error);
-        }
-      });
+    socket.onopen = () => {
+      socket.send(buildFrame('CONNECT', { 'accept-version': '1.2', 'heart-beat': '0,0' }));
+    };
 
-      // Subscribe to unit deletions
-      this.stompClient.subscribe('/topic/units/delete', (message) => {
-        const unitId = message.body;
-        this.subscribers.unitDelete.forEach(callback => callback(unitId));
-      });
+    socket.onmessage = (event) => {
+      String(event.data).split(NULL_CHAR).forEach(raw => this.handleFrame(parseFrame(raw)));
+    };
 
-      // Subscribe to clear all units
-      this.stompClient.subscribe('/topic/units/clear', () => {
-        this.subscribers.unitsClear.forEach(callback => callback());
-      });
-    }, (error) => {
+    socket.onclose = () => {
+      const wasConnected = this.isConnected;
       this.isConnected = false;
       this.isConnecting = false;
+      this.socket = null;
+
+      if (!this.shouldReconnect) return;
+      if (wasConnected) {
+        this.reconnectAttempts = 0;
+      }
       this.reconnectAttempts++;
-      
-      console.error(`WebSocket connection failed (attempt ${this.reconnectAttempts}):`, error);
-      
+      console.error(`WebSocket connection closed (attempt ${this.reconnectAttempts})`);
+
       if (this.reconnectAttempts < this.maxReconnectAttempts) {
         const delay = Math.min(1000 * Math.pow(2, this.reconnectAttempts), 30000);
         setTimeout(() => this.connect(), delay);
       }
-    });
+    };
+  }
+
+  handleFrame(frame) {
+    if (!frame) return;
+
+    if (frame.command === 'CONNECTED') {
+      this.isConnected = true;
+      this.isConnecting = false;
+      this.reconnectAttempts = 0;
+      Object.keys(this.topicHandlers).forEach((destination, index) => {
+        this.socket.send(buildFrame('SUBSCRIBE', { id: `sub-${index}`, destination }));
+      });
+      this.subscribers.connect.forEach(callback => callback());
+    } else if (frame.command === 'MESSAGE') {
+      const handler = this.topicHandlers[frame.headers.destination];
+      try {
+        handler?.(frame.body);
+      } catch (error) {
+        console.error(`Failed to handle message on ${frame.headers.destination}:`, error);
+      }
+    } else if (frame.command === 'ERROR') {
+      console.error('STOMP error:', frame.headers.message || frame.body);
+    }
   }
 
   disconnect() {
-    if (this.stompClient) {
-      this.stompClient.disconnect();
+    this.shouldReconnect = false;
+    if (this.socket) {
+      if (this.isConnected) {
+        this.socket.send(buildFrame('DISCONNECT'));
+      }
+      this.socket.close();
     }
+    this.socket = null;
     this.isConnected = false;
     this.isConnecting = false;
     this.reconnectAttempts = 0;
@@ -92,6 +150,18 @@ class WebSocketService {
     this.subscribers.unitsClear.add(callback);
     return () => this.subscribers.unitsClear.delete(callback);
   }
+
+  // Batches of versioned unit deltas: [{ epoch, seq, op, unitId, userId, changes }]
+  onUnitDeltas(callback) {
+    this.subscribers.unitDeltas.add(callback);
+    return () => this.subscribers.unitDeltas.delete(callback);
+  }
+
+  // Called after every (re)connect, the moment to catch up on missed deltas
+  onConnect(callback) {
+    this.subscribers.connect.add(callback);
+    return () => this.subscribers.connect.delete(callback);
+  }
 }
 
-export default new WebSocketService();
\ No newline at end of file
+export default new WebSocketService();